@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.benchmarks;
+
+import org.graalvm.polyglot.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Calls of R closures from loops and from the {@code apply} family.
+ */
+public class ClosureBenchmark extends RBenchmarkBase {
+
+    @Param({"1000", "100000"}) public int n;
+
+    private Value forLoop;
+    private Value whileLoop;
+    private Value vapplyLoop;
+    private Value recursion;
+
+    @Override
+    protected String getSetupCode() {
+        return "inc <- function(x, by = 1) x + by\n" +
+                        "forLoop <- function(n) { s <- 0; for (i in seq_len(n)) s <- inc(s, by = i); s }\n" +
+                        "whileLoop <- function(n) { s <- 0; i <- 0L; while (i < n) { i <- i + 1L; s <- inc(s) }; s }\n" +
+                        "vapplyLoop <- function(n) vapply(seq_len(n), function(i) i * 2, 0)\n" +
+                        "fib <- function(k) if (k < 2) k else fib(k - 1) + fib(k - 2)\n" +
+                        "recursion <- function(n) fib(as.integer(log2(n)) + 5L)\n";
+    }
+
+    @Override
+    protected void initialize() {
+        forLoop = function("forLoop");
+        whileLoop = function("whileLoop");
+        vapplyLoop = function("vapplyLoop");
+        recursion = function("recursion");
+    }
+
+    @Benchmark
+    public Value forLoop() {
+        return forLoop.execute(n);
+    }
+
+    @Benchmark
+    public Value whileLoop() {
+        return whileLoop.execute(n);
+    }
+
+    @Benchmark
+    public Value vapply() {
+        return vapplyLoop.execute(n);
+    }
+
+    @Benchmark
+    public Value recursion() {
+        return recursion.execute(n);
+    }
+}
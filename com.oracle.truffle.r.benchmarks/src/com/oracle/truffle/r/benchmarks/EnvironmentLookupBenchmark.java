@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.benchmarks;
+
+import org.graalvm.polyglot.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Variable lookups through nested closures and {@code get}, {@code exists}, {@code assign} and
+ * {@code mget} on a large environment.
+ */
+public class EnvironmentLookupBenchmark extends RBenchmarkBase {
+
+    private Value nestedLookup;
+    private Value getKeys;
+    private Value existsKeys;
+    private Value assignKeys;
+    private Value mgetKeys;
+
+    @Override
+    protected String getSetupCode() {
+        return "g <- 1\n" +
+                        "nestedLookup <- local({ a <- 1; local({ b <- 2; local({ c <- 3; function() { s <- 0; for (i in 1:10000) s <- s + g + a + b + c; s } }) }) })\n" +
+                        "e <- new.env(hash = TRUE); for (k in paste0('v', 1:10000)) assign(k, 1, envir = e)\n" +
+                        "keys <- paste0('v', sample.int(20000L, 1000L))\n" +
+                        "getKeys <- function() { s <- 0; for (k in keys) s <- s + get0(k, envir = e, inherits = FALSE, ifnotfound = 0); s }\n" +
+                        "existsKeys <- function() { s <- 0L; for (k in keys) if (exists(k, envir = e, inherits = FALSE)) s <- s + 1L; s }\n" +
+                        "assignKeys <- function() { for (k in keys) assign(k, 2, envir = e); length(keys) }\n" +
+                        "mgetKeys <- function() mget(keys, envir = e, ifnotfound = list(NULL))\n";
+    }
+
+    @Override
+    protected void initialize() {
+        nestedLookup = function("nestedLookup");
+        getKeys = function("getKeys");
+        existsKeys = function("existsKeys");
+        assignKeys = function("assignKeys");
+        mgetKeys = function("mgetKeys");
+    }
+
+    @Benchmark
+    public Value nestedLookup() {
+        return nestedLookup.execute();
+    }
+
+    @Benchmark
+    public Value getKeys() {
+        return getKeys.execute();
+    }
+
+    @Benchmark
+    public Value existsKeys() {
+        return existsKeys.execute();
+    }
+
+    @Benchmark
+    public Value assignKeys() {
+        return assignKeys.execute();
+    }
+
+    @Benchmark
+    public Value mgetKeys() {
+        return mgetKeys.execute();
+    }
+}
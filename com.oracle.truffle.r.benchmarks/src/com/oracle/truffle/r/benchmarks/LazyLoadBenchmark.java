@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.benchmarks;
+
+import org.graalvm.polyglot.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * {@code lazyLoadDBfetch} of the functions of the {@code stats} package from its lazy-load
+ * database and loading the whole database with {@code lazyLoad}.
+ */
+public class LazyLoadBenchmark extends RBenchmarkBase {
+
+    private Value fetch;
+    private Value loadAll;
+
+    @Override
+    protected String getSetupCode() {
+        return "base <- file.path(R.home('library'), 'stats', 'R', 'stats')\n" +
+                        "datafile <- paste0(base, '.rdb'); index <- readRDS(paste0(base, '.rdx'))\n" +
+                        "keys <- index$variables[seq_len(min(200L, length(index$variables)))]\n" +
+                        "hook <- function(n) emptyenv()\n" +
+                        "fetch <- function() { for (k in keys) lazyLoadDBfetch(k, datafile, index$compressed, hook); length(keys) }\n" +
+                        "loadAll <- function() { e <- new.env(); lazyLoad(base, envir = e); length(mget(ls(e, all.names = TRUE), envir = e)) }\n";
+    }
+
+    @Override
+    protected void initialize() {
+        fetch = function("fetch");
+        loadAll = function("loadAll");
+    }
+
+    @Benchmark
+    public Value fetch() {
+        return fetch.execute();
+    }
+
+    @Benchmark
+    public Value loadAll() {
+        return loadAll.execute();
+    }
+}
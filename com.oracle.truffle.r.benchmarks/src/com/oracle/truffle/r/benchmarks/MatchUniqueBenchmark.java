@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.benchmarks;
+
+import org.graalvm.polyglot.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Hash based builtins {@code match}, {@code %in%}, {@code unique} and {@code duplicated}.
+ */
+public class MatchUniqueBenchmark extends RBenchmarkBase {
+
+    @Param({"1000", "1000000"}) public int length;
+
+    private Value matchInt;
+    private Value matchString;
+    private Value inDouble;
+    private Value uniqueInt;
+    private Value uniqueString;
+    private Value duplicatedDouble;
+
+    @Override
+    protected String getSetupCode() {
+        return "n <- " + length + "L; xi <- sample.int(n, n, replace = TRUE); ti <- sample.int(n)\n" +
+                        "xs <- as.character(xi); ts <- as.character(ti); xd <- xi / 7; td <- ti / 7\n" +
+                        "matchInt <- function() match(xi, ti)\n" +
+                        "matchString <- function() match(xs, ts)\n" +
+                        "inDouble <- function() xd %in% td\n" +
+                        "uniqueInt <- function() unique(xi)\n" +
+                        "uniqueString <- function() unique(xs)\n" +
+                        "duplicatedDouble <- function() duplicated(xd)\n";
+    }
+
+    @Override
+    protected void initialize() {
+        matchInt = function("matchInt");
+        matchString = function("matchString");
+        inDouble = function("inDouble");
+        uniqueInt = function("uniqueInt");
+        uniqueString = function("uniqueString");
+        duplicatedDouble = function("duplicatedDouble");
+    }
+
+    @Benchmark
+    public Value matchInt() {
+        return matchInt.execute();
+    }
+
+    @Benchmark
+    public Value matchString() {
+        return matchString.execute();
+    }
+
+    @Benchmark
+    public Value inDouble() {
+        return inDouble.execute();
+    }
+
+    @Benchmark
+    public Value uniqueInt() {
+        return uniqueInt.execute();
+    }
+
+    @Benchmark
+    public Value uniqueString() {
+        return uniqueString.execute();
+    }
+
+    @Benchmark
+    public Value duplicatedDouble() {
+        return duplicatedDouble.execute();
+    }
+}
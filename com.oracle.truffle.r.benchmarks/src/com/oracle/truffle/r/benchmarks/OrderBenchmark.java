@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.benchmarks;
+
+import org.graalvm.polyglot.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * {@code order} and {@code sort} of single and multiple keys.
+ */
+public class OrderBenchmark extends RBenchmarkBase {
+
+    @Param({"1000", "1000000"}) public int length;
+
+    private Value orderInt;
+    private Value orderDouble;
+    private Value orderString;
+    private Value orderTwoKeys;
+    private Value sortDouble;
+
+    @Override
+    protected String getSetupCode() {
+        return "n <- " + length + "L; xi <- sample.int(n); xd <- runif(n); xs <- as.character(sample.int(n)); g <- sample.int(10L, n, replace = TRUE)\n" +
+                        "orderInt <- function() order(xi)\n" +
+                        "orderDouble <- function() order(xd)\n" +
+                        "orderString <- function() order(xs)\n" +
+                        "orderTwoKeys <- function() order(g, xd)\n" +
+                        "sortDouble <- function() sort(xd)\n";
+    }
+
+    @Override
+    protected void initialize() {
+        orderInt = function("orderInt");
+        orderDouble = function("orderDouble");
+        orderString = function("orderString");
+        orderTwoKeys = function("orderTwoKeys");
+        sortDouble = function("sortDouble");
+    }
+
+    @Benchmark
+    public Value orderInt() {
+        return orderInt.execute();
+    }
+
+    @Benchmark
+    public Value orderDouble() {
+        return orderDouble.execute();
+    }
+
+    @Benchmark
+    public Value orderString() {
+        return orderString.execute();
+    }
+
+    @Benchmark
+    public Value orderTwoKeys() {
+        return orderTwoKeys.execute();
+    }
+
+    @Benchmark
+    public Value sortDouble() {
+        return sortDouble.execute();
+    }
+}
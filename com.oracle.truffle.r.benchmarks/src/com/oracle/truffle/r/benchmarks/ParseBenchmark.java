@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.benchmarks;
+
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Parse throughput of {@code parse(text = )} called in a loop on small snippets and on one large
+ * generated script, with the SLL first parsing mode on and off.
+ */
+public class ParseBenchmark extends RBenchmarkBase {
+
+    @Param({"true", "false"}) public boolean sll;
+
+    private Value parseLoop;
+    private Value parseScript;
+
+    @Override
+    protected void configure(Context.Builder builder) {
+        builder.option("R.ParserSLL", String.valueOf(sll));
+    }
+
+    @Override
+    protected String getSetupCode() {
+        return "snippets <- sprintf('f%d <- function(x, y = %d, ...) { if (x > y && !is.null(names(x))) x[[\"a\"]] <- y * 2 else " +
+                        "for (k in seq_len(y)) x <- c(x, k / 3, -k^2); lst$v[k] <- list(a = 1, b = \"s\"); x }', 1:500, 1:500)\n" +
+                        "script <- paste(rep(snippets, 10), collapse = '\\n')\n" +
+                        "parseLoop <- function() { for (s in snippets) parse(text = s, keep.source = FALSE); length(snippets) }\n" +
+                        "parseScript <- function() length(parse(text = script, keep.source = FALSE))\n";
+    }
+
+    @Override
+    protected void initialize() {
+        parseLoop = function("parseLoop");
+        parseScript = function("parseScript");
+    }
+
+    @Benchmark
+    public Value parseLoop() {
+        return parseLoop.execute();
+    }
+
+    @Benchmark
+    public Value parseScript() {
+        return parseScript.execute();
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Value;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Common base of the FastR microbenchmarks. Every benchmark class creates one polyglot
+ * {@link Context} per trial, evaluates its R set-up code in it and then repeatedly calls R
+ * functions defined by the set-up code. The R functions are looked up once in
+ * {@link #initialize()} so that the measurement includes only the call into R.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class RBenchmarkBase {
+
+    private Context context;
+
+    /**
+     * Returns R code that defines the data and functions used by the benchmark.
+     */
+    protected abstract String getSetupCode();
+
+    /**
+     * Called after the set-up code was evaluated, looks up the benchmarked functions.
+     */
+    protected abstract void initialize();
+
+    /**
+     * Sets options of the benchmark context, e.g., to compare two implementations.
+     */
+    protected void configure(@SuppressWarnings("unused") Context.Builder builder) {
+        // no options by default
+    }
+
+    @Setup
+    public void setup() {
+        Context.Builder builder = Context.newBuilder("R").allowAllAccess(true);
+        configure(builder);
+        context = builder.build();
+        context.eval("R", "set.seed(42)");
+        context.eval("R", getSetupCode());
+        initialize();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    protected final Value function(String name) {
+        Value result = context.getBindings("R").getMember(name);
+        if (result == null || !result.canExecute()) {
+            throw new IllegalStateException("set-up code does not define function " + name);
+        }
+        return result;
+    }
+}
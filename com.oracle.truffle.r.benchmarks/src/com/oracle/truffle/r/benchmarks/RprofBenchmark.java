@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.benchmarks;
+
+import org.graalvm.polyglot.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Overhead of {@code Rprof} on closure calls, recursion and builtin calls, compared to running
+ * without the profiler, with function sampling only and with line profiling.
+ */
+public class RprofBenchmark extends RBenchmarkBase {
+
+    @Param({"none", "functions", "lines"}) public String profiling;
+
+    private Value forLoop;
+    private Value recursion;
+    private Value builtins;
+
+    @Override
+    protected String getSetupCode() {
+        String start = "none".equals(profiling) ? "" : "Rprof(tempfile(), interval = 0.01, line.profiling = " + ("lines".equals(profiling) ? "TRUE" : "FALSE") + ")\n";
+        return "inc <- function(x, by = 1) x + by\n" +
+                        "forLoop <- function(n) { s <- 0; for (i in seq_len(n)) s <- inc(s, by = i); s }\n" +
+                        "fib <- function(k) if (k < 2) k else fib(k - 1) + fib(k - 2)\n" +
+                        "recursion <- function() fib(20L)\n" +
+                        "builtins <- function(n) { s <- 0; for (i in seq_len(n)) s <- s + sum(abs(c(i, -i))); s }\n" + start;
+    }
+
+    @Override
+    protected void initialize() {
+        forLoop = function("forLoop");
+        recursion = function("recursion");
+        builtins = function("builtins");
+    }
+
+    @Benchmark
+    public Value forLoop() {
+        return forLoop.execute(100000);
+    }
+
+    @Benchmark
+    public Value recursion() {
+        return recursion.execute();
+    }
+
+    @Benchmark
+    public Value builtins() {
+        return builtins.execute(100000);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.benchmarks;
+
+import org.graalvm.polyglot.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * {@code serialize} and {@code unserialize} of a list of atomic vectors.
+ */
+public class SerializationBenchmark extends RBenchmarkBase {
+
+    @Param({"1000", "1000000"}) public int length;
+
+    private Value serializeXdr;
+    private Value unserializeXdr;
+    private Value unserializeNative;
+
+    @Override
+    protected String getSetupCode() {
+        return "n <- " + length + "L\n" +
+                        "obj <- list(d = runif(n), i = sample.int(n), s = as.character(seq_len(n %/% 10L)), l = list(a = 1, b = 'b'))\n" +
+                        "xdr <- serialize(obj, NULL); bin <- serialize(obj, NULL, xdr = FALSE)\n" +
+                        "serializeXdr <- function() serialize(obj, NULL)\n" +
+                        "unserializeXdr <- function() unserialize(xdr)\n" +
+                        "unserializeNative <- function() unserialize(bin)\n";
+    }
+
+    @Override
+    protected void initialize() {
+        serializeXdr = function("serializeXdr");
+        unserializeXdr = function("unserializeXdr");
+        unserializeNative = function("unserializeNative");
+    }
+
+    @Benchmark
+    public Value serializeXdr() {
+        return serializeXdr.execute();
+    }
+
+    @Benchmark
+    public Value unserializeXdr() {
+        return unserializeXdr.execute();
+    }
+
+    @Benchmark
+    public Value unserializeNative() {
+        return unserializeNative.execute();
+    }
+}
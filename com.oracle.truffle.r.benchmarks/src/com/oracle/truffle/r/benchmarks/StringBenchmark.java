@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.benchmarks;
+
+import org.graalvm.polyglot.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * String construction with {@code paste} and {@code sprintf}.
+ */
+public class StringBenchmark extends RBenchmarkBase {
+
+    @Param({"1000", "100000"}) public int length;
+
+    private Value pasteVectors;
+    private Value pasteCollapse;
+    private Value sprintfVector;
+    private Value sprintfLoop;
+
+    @Override
+    protected String getSetupCode() {
+        return "n <- " + length + "L; xi <- seq_len(n); xd <- runif(n); xs <- paste0('s', xi)\n" +
+                        "pasteVectors <- function() paste(xs, xi, sep = '_')\n" +
+                        "pasteCollapse <- function() paste(xs, collapse = ',')\n" +
+                        "sprintfVector <- function() sprintf('%5d: %8.3f %s', xi, xd, xs)\n" +
+                        "sprintfLoop <- function() { r <- character(1000); for (i in 1:1000) r[[i]] <- sprintf('item %d', i); r }\n";
+    }
+
+    @Override
+    protected void initialize() {
+        pasteVectors = function("pasteVectors");
+        pasteCollapse = function("pasteCollapse");
+        sprintfVector = function("sprintfVector");
+        sprintfLoop = function("sprintfLoop");
+    }
+
+    @Benchmark
+    public Value pasteVectors() {
+        return pasteVectors.execute();
+    }
+
+    @Benchmark
+    public Value pasteCollapse() {
+        return pasteCollapse.execute();
+    }
+
+    @Benchmark
+    public Value sprintfVector() {
+        return sprintfVector.execute();
+    }
+
+    @Benchmark
+    public Value sprintfLoop() {
+        return sprintfLoop.execute();
+    }
+}
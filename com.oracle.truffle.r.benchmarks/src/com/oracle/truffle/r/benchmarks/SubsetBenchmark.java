@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.benchmarks;
+
+import org.graalvm.polyglot.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Subset with {@code [} and element replacement with {@code [[<-} and {@code [<-}.
+ */
+public class SubsetBenchmark extends RBenchmarkBase {
+
+    @Param({"10000", "1000000"}) public int length;
+
+    private Value subsetIndex;
+    private Value subsetLogical;
+    private Value subsetNames;
+    private Value replaceElements;
+    private Value replaceListElements;
+    private Value replaceMatrix;
+
+    @Override
+    protected String getSetupCode() {
+        return "x <- runif(" + length + "); idx <- sample.int(" + length + ", " + length + " %/% 10L)\n" +
+                        "named <- setNames(1:1000, paste0('n', 1:1000)); keys <- sample(names(named), 100)\n" +
+                        "subsetIndex <- function() x[idx]\n" +
+                        "subsetLogical <- function() x[x > 0.5]\n" +
+                        "subsetNames <- function() named[keys]\n" +
+                        "replaceElements <- function() { v <- numeric(10000); for (i in seq_along(v)) v[[i]] <- i; v }\n" +
+                        "replaceListElements <- function() { l <- vector('list', 1000); for (i in seq_along(l)) l[[i]] <- i; l }\n" +
+                        "replaceMatrix <- function() { m <- matrix(0, 100, 100); for (i in 1:100) m[i, ] <- i; m }\n";
+    }
+
+    @Override
+    protected void initialize() {
+        subsetIndex = function("subsetIndex");
+        subsetLogical = function("subsetLogical");
+        subsetNames = function("subsetNames");
+        replaceElements = function("replaceElements");
+        replaceListElements = function("replaceListElements");
+        replaceMatrix = function("replaceMatrix");
+    }
+
+    @Benchmark
+    public Value subsetIndex() {
+        return subsetIndex.execute();
+    }
+
+    @Benchmark
+    public Value subsetLogical() {
+        return subsetLogical.execute();
+    }
+
+    @Benchmark
+    public Value subsetNames() {
+        return subsetNames.execute();
+    }
+
+    @Benchmark
+    public Value replaceElements() {
+        return replaceElements.execute();
+    }
+
+    @Benchmark
+    public Value replaceListElements() {
+        return replaceListElements.execute();
+    }
+
+    @Benchmark
+    public Value replaceMatrix() {
+        return replaceMatrix.execute();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.benchmarks;
+
+import org.graalvm.polyglot.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Arithmetic on whole vectors and reductions.
+ */
+public class VectorArithmeticBenchmark extends RBenchmarkBase {
+
+    @Param({"1000", "1000000"}) public int length;
+
+    private Value doubleChain;
+    private Value intPlus;
+    private Value sumOfSquares;
+    private Value comparison;
+
+    @Override
+    protected String getSetupCode() {
+        return "x <- runif(" + length + "); y <- runif(" + length + "); ix <- sample.int(1000L, " + length + ", replace = TRUE)\n" +
+                        "doubleChain <- function() x * 2 + y / 3 - 1\n" +
+                        "intPlus <- function() ix + 1L\n" +
+                        "sumOfSquares <- function() sum(x * x)\n" +
+                        "comparison <- function() sum(x > y)\n";
+    }
+
+    @Override
+    protected void initialize() {
+        doubleChain = function("doubleChain");
+        intPlus = function("intPlus");
+        sumOfSquares = function("sumOfSquares");
+        comparison = function("comparison");
+    }
+
+    @Benchmark
+    public Value doubleChain() {
+        return doubleChain.execute();
+    }
+
+    @Benchmark
+    public Value intPlus() {
+        return intPlus.execute();
+    }
+
+    @Benchmark
+    public Value sumOfSquares() {
+        return sumOfSquares.execute();
+    }
+
+    @Benchmark
+    public Value comparison() {
+        return comparison.execute();
+    }
+}
@@ -134,8 +134,7 @@ public final class TruffleMixed_Context extends RFFIContext {
     @Override
     public Object beforeDowncall(VirtualFrame frame, Type rffiType) {
         Type actualRffiType = rffiType == null ? Type.LLVM : rffiType;
-        assert rffiType != null;
-        switch (rffiType) {
+        switch (actualRffiType) {
             case LLVM:
                 return llvmContext.beforeDowncall(frame, actualRffiType);
 
@@ -147,6 +146,21 @@ public final class TruffleMixed_Context extends RFFIContext {
         }
     }
 
+    @Override
+    public Object beforeDowncall(VirtualFrame frame, Type rffiType, DLLInfo dllInfo) {
+        Type actualRffiType = rffiType == null ? Type.LLVM : rffiType;
+        switch (actualRffiType) {
+            case LLVM:
+                return llvmContext.beforeDowncall(frame, actualRffiType, dllInfo);
+
+            case NFI:
+                return nfiContext.beforeDowncall(frame, actualRffiType, dllInfo);
+
+            default:
+                throw RInternalError.shouldNotReachHere();
+        }
+    }
+
     @Override
     public void afterDowncall(Object before, Type rffiType) {
         switch (rffiType) {
@@ -31,7 +31,6 @@ import java.lang.reflect.Field;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.EnumMap;
-import java.util.concurrent.locks.ReentrantLock;
 
 import com.oracle.truffle.api.CompilerAsserts;
 import com.oracle.truffle.api.CompilerDirectives;
@@ -50,7 +49,6 @@ import com.oracle.truffle.r.ffi.impl.upcalls.Callbacks;
 import com.oracle.truffle.r.runtime.RInternalError;
 import com.oracle.truffle.r.runtime.RLogger;
 import com.oracle.truffle.r.runtime.Utils;
-import com.oracle.truffle.r.runtime.context.FastROptions;
 import com.oracle.truffle.r.runtime.context.RContext;
 import com.oracle.truffle.r.runtime.context.RContext.ContextKind;
 import com.oracle.truffle.r.runtime.context.RContext.ContextState;
@@ -61,6 +59,7 @@ import com.oracle.truffle.r.runtime.ffi.DLL.DLLInfo;
 import com.oracle.truffle.r.runtime.ffi.DLLRFFI;
 import com.oracle.truffle.r.runtime.ffi.LapackRFFI;
 import com.oracle.truffle.r.runtime.ffi.MiscRFFI;
+import com.oracle.truffle.r.runtime.ffi.NativeLock;
 import com.oracle.truffle.r.runtime.ffi.NativeFunction;
 import com.oracle.truffle.r.runtime.ffi.PCRERFFI;
 import com.oracle.truffle.r.runtime.ffi.REmbedRFFI;
@@ -95,7 +94,10 @@ class UnsafeAdapter {
 public class TruffleNFI_Context extends RFFIContext {
 
     @CompilationFinal private boolean hasAccessLock;
-    private static ReentrantLock accessLock;
+    /**
+     * The lock used for the down-calls into libR and for the down-calls whose library is not known.
+     */
+    @CompilationFinal private NativeLock libRLock;
 
     public TruffleNFI_Context() {
         this(new RFFIContextState());
@@ -333,15 +335,13 @@ public class TruffleNFI_Context extends RFFIContext {
                             "You can rerun FastR with --log.R." + RLogger.LOGGER_RFFI + ".level=FINE --log.file=<yourfile>.\n" +
                             "NOTE that stdout is problematic for embedded mode, when using this logger, also always specify a log file");
         }
-        initializeLock();
+        String librffiPath = LibPaths.getBuiltinLibPath("R");
+        initializeLock(librffiPath);
         if (logEnabled()) {
             logDownCall("initialize");
         }
-        if (hasAccessLock) {
-            acquireLock();
-        }
+        Object lockToken = NativeLock.enter(libRLock);
         try {
-            String librffiPath = LibPaths.getBuiltinLibPath("R");
             if (context.isInitial()) {
                 rlibDLLInfo = DLL.loadLibR(context, librffiPath, path -> TruffleNFI_DLL.dlOpen(context, path, false, false));
                 addLibRToDLLContextState(context, rlibDLLInfo);
@@ -370,17 +370,13 @@ public class TruffleNFI_Context extends RFFIContext {
             if (logEnabled()) {
                 logDownCallReturn("initialize", null);
             }
-            if (hasAccessLock) {
-                releaseLock();
-            }
+            NativeLock.exit(lockToken);
         }
     }
 
-    private synchronized void initializeLock() {
-        hasAccessLock = RContext.getInstance().getOption(FastROptions.SynchronizeNativeCode);
-        if (hasAccessLock && accessLock == null) {
-            accessLock = new ReentrantLock();
-        }
+    private void initializeLock(String librffiPath) {
+        libRLock = NativeLock.forLibrary(DLL.libName(librffiPath), librffiPath);
+        hasAccessLock = libRLock != null;
     }
 
     @Override
@@ -400,12 +396,19 @@ public class TruffleNFI_Context extends RFFIContext {
 
     @Override
     public Object beforeDowncall(VirtualFrame frame, RFFIFactory.Type rffiType) {
-        Object tokenFromSuper = super.beforeDowncall(frame, RFFIFactory.Type.NFI);
-        transientAllocations.push(new ArrayList<>());
+        return beforeDowncall(frame, rffiType, null);
+    }
+
+    @Override
+    public Object beforeDowncall(VirtualFrame frame, RFFIFactory.Type rffiType, DLLInfo dllInfo) {
+        // entering the lock may fail, nothing has been pushed yet then
+        Object lockToken = null;
         if (hasAccessLock) {
-            acquireLock();
+            lockToken = NativeLock.enter(dllInfo == null ? libRLock : dllInfo.getNativeLock());
         }
-        return new Object[]{tokenFromSuper, pushCallbacks()};
+        Object tokenFromSuper = super.beforeDowncall(frame, RFFIFactory.Type.NFI);
+        transientAllocations.push(new ArrayList<>());
+        return new Object[]{tokenFromSuper, pushCallbacks(), lockToken};
     }
 
     @Override
@@ -426,8 +429,8 @@ public class TruffleNFI_Context extends RFFIContext {
         }
         RuntimeException lastUpCallEx = getLastUpCallException();
         setLastUpCallException(null);
-        if (hasAccessLock) {
-            releaseLock();
+        if (tokens[2] != null) {
+            NativeLock.exit(tokens[2]);
         }
         if (lastUpCallEx != null) {
             CompilerDirectives.transferToInterpreter();
@@ -443,14 +446,4 @@ public class TruffleNFI_Context extends RFFIContext {
         return rlibDLLInfo;
     }
 
-    @TruffleBoundary
-    private static void acquireLock() {
-        accessLock.lock();
-    }
-
-    @TruffleBoundary
-    private static void releaseLock() {
-        accessLock.unlock();
-    }
-
 }
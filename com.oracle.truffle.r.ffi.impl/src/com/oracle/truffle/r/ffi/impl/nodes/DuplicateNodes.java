@@ -33,6 +33,7 @@ import com.oracle.truffle.r.ffi.impl.nodes.DuplicateNodesFactory.RfAnyDuplicated
 import com.oracle.truffle.r.ffi.impl.nodes.DuplicateNodesFactory.RfAnyDuplicatedNodeGen;
 import com.oracle.truffle.r.ffi.impl.nodes.DuplicateNodesFactory.RfDuplicatedNodeGen;
 import com.oracle.truffle.r.nodes.function.RMissingHelper;
+import com.oracle.truffle.r.runtime.data.RAltRepVector;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RDataFactory.VectorFactory;
 import com.oracle.truffle.r.runtime.data.RExternalPtr;
@@ -63,6 +64,11 @@ public final class DuplicateNodes {
             return x.materialize();
         }
 
+        @Specialization
+        public Object duplicateAltRep(RAltRepVector x, @SuppressWarnings("unused") int deep) {
+            return x.materialize();
+        }
+
         @Specialization
         public Object duplicateExternalPtr(RExternalPtr x, @SuppressWarnings("unused") int deep) {
             return x.copy();
@@ -87,7 +93,7 @@ public final class DuplicateNodes {
         }
 
         protected static boolean isSequence(Object o) {
-            return o instanceof RSequence;
+            return o instanceof RSequence || o instanceof RAltRepVector;
         }
     }
 
@@ -27,6 +27,7 @@ import com.oracle.truffle.api.dsl.GenerateUncached;
 import com.oracle.truffle.api.dsl.ReportPolymorphism;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.r.runtime.data.CharSXPWrapper;
+import com.oracle.truffle.r.runtime.data.NativeDataAccess;
 import com.oracle.truffle.r.runtime.data.RFunction;
 import com.oracle.truffle.r.runtime.data.RPairList;
 import com.oracle.truffle.r.runtime.gnur.SEXPTYPE;
@@ -57,20 +58,30 @@ public abstract class TYPEOFNode extends FFIUpCallNode.Arg1 {
         return pl.isLanguage() ? SEXPTYPE.LANGSXP.code : SEXPTYPE.LISTSXP.code;
     }
 
+    /**
+     * Apart from pairlists, whose type can be changed by {@code SET_TYPEOF}, the type of an object
+     * never changes, so we record it in the native header and native code does not have to ask
+     * again.
+     */
+    private static int publish(Object value, int type) {
+        NativeDataAccess.setNativeType(value, type);
+        return type;
+    }
+
     @Specialization
     protected static int doFun(RFunction fun) {
-        return fun.isBuiltin() ? SEXPTYPE.BUILTINSXP.code : SEXPTYPE.CLOSXP.code;
+        return publish(fun, fun.isBuiltin() ? SEXPTYPE.BUILTINSXP.code : SEXPTYPE.CLOSXP.code);
     }
 
     @Specialization(guards = {"clazz == value.getClass()", "isNotSpecial(clazz)"}, limit = "getCacheSize(16)")
-    protected static int getTypeCached(@SuppressWarnings("unused") Object value,
+    protected static int getTypeCached(Object value,
                     @Cached("getTypeForClass(value)") SEXPTYPE typeForClass,
                     @SuppressWarnings("unused") @Cached("value.getClass()") Class<?> clazz) {
-        return typeForClass.code;
+        return publish(value, typeForClass.code);
     }
 
     @Specialization(replaces = "getTypeCached", guards = "isNotSpecial(value.getClass())")
     protected static int getType(Object value) {
-        return SEXPTYPE.gnuRType(getTypeForClass(value), value).code;
+        return publish(value, SEXPTYPE.gnuRType(getTypeForClass(value), value).code);
     }
 }
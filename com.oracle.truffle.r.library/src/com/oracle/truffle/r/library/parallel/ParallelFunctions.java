@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2016, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2016, 2019, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -22,10 +22,18 @@
  */
 package com.oracle.truffle.r.library.parallel;
 
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.integerValue;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.r.nodes.builtin.RExternalBuiltinNode;
+import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.context.RContext;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RIntVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
+import com.oracle.truffle.r.runtime.rng.lecuyer.LecuyerCMRG;
 
 /**
  * The .Call support for the parallel package.
@@ -37,4 +45,32 @@ public class ParallelFunctions {
             return RRuntime.asLogical(RContext.getInstance().getParent() != null);
         }
     }
+
+    /**
+     * {@code nextRNGStream} and {@code nextRNGSubStream}, the seed is a {@code .Random.seed} of
+     * the L'Ecuyer-CMRG generator (checked by the R wrapper functions).
+     */
+    public abstract static class NextStream extends RExternalBuiltinNode.Arg1 {
+
+        private final boolean subStream;
+
+        protected NextStream(boolean subStream) {
+            this.subStream = subStream;
+        }
+
+        static {
+            Casts casts = new Casts(NextStream.class);
+            casts.arg(0).mustBe(integerValue(), RError.Message.INVALID_VALUE, "seed").asIntegerVector();
+        }
+
+        @Specialization
+        @TruffleBoundary
+        protected RIntVector nextStream(RAbstractIntVector seed) {
+            if (seed.getLength() < 7) {
+                throw error(RError.Message.INVALID_VALUE, "seed");
+            }
+            int[] data = seed.getReadonlyData();
+            return RDataFactory.createIntVector(subStream ? LecuyerCMRG.nextSubStream(data) : LecuyerCMRG.nextStream(data), RDataFactory.COMPLETE_VECTOR);
+        }
+    }
 }
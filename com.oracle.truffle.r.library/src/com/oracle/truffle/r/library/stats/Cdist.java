@@ -25,6 +25,7 @@ import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.missingValue
 import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.nullValue;
 import static com.oracle.truffle.r.runtime.nmath.MathConstants.DBL_MIN;
 
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.r.nodes.attributes.GetFixedAttributeNode;
@@ -34,21 +35,36 @@ import com.oracle.truffle.r.nodes.attributes.SpecialAttributesFunctions.SetClass
 import com.oracle.truffle.r.nodes.builtin.RExternalBuiltinNode;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RError.Message;
+import com.oracle.truffle.r.runtime.RParallel;
 import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.context.FastROptions;
+import com.oracle.truffle.r.runtime.context.RContext;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RDoubleVector;
 import com.oracle.truffle.r.runtime.data.RList;
 import com.oracle.truffle.r.runtime.data.RStringVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
-import com.oracle.truffle.r.runtime.data.nodes.VectorAccess;
-import com.oracle.truffle.r.runtime.data.nodes.VectorAccess.RandomIterator;
-import com.oracle.truffle.r.runtime.ops.na.NACheck;
+import com.oracle.truffle.r.runtime.data.nodes.GetReadonlyData;
 
+/**
+ * Implements {@code dist}. The rows of the matrix are copied into a row-major array, so that the
+ * distance of two rows reads two contiguous blocks of memory. The lower triangle of the result is
+ * computed in square tiles of {@link #TILE} x {@link #TILE} pairs of rows, so that the rows of a
+ * tile stay in the cache. The tiles of one column of tiles write a contiguous part of the result
+ * and the columns of tiles are distributed among the threads of {@link RParallel} if the matrix is
+ * large enough.
+ */
 public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
 
-    private static final NACheck naCheck = NACheck.create();
+    private static final int TILE = 32;
+
+    /**
+     * GNU R keeps only this many warnings, more warnings make no difference in the output.
+     */
+    private static final int MAX_WARNINGS = 50;
 
     @Child private GetFixedAttributeNode getNamesAttrNode = GetFixedAttributeNode.createNames();
+    @Child private GetReadonlyData.Double getDataNode = GetReadonlyData.Double.create();
 
     static {
         Casts casts = new Casts(Cdist.class);
@@ -58,11 +74,8 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
         casts.arg(3).asDoubleVector().findFirst();
     }
 
-    @Specialization(guards = {"method == cachedMethod", "xAccess.supports(x)"})
-    protected RDoubleVector cdist(RAbstractDoubleVector x, @SuppressWarnings("unused") int method, RList list, double p,
-                    @Cached("method") @SuppressWarnings("unused") int cachedMethod,
-                    @Cached("x.access()") VectorAccess xAccess,
-                    @Cached("getMethod(method)") Method methodObj,
+    @Specialization
+    protected RDoubleVector cdist(RAbstractDoubleVector x, int method, RList list, double p,
                     @Cached("create()") SetAttributeNode setAttrNode,
                     @Cached("create()") SetClassAttributeNode setClassAttrNode,
                     @Cached("create()") GetDimAttributeNode getDimNode) {
@@ -70,15 +83,24 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
             // Note: otherwise array index out of bounds
             throw error(Message.MUST_BE_SQUARE_MATRIX, "x");
         }
+        Method methodObj = getMethod(method);
+        if (methodObj == Method.MINKOWSKI) {
+            if (!RRuntime.isFinite(p) || p <= 0) {
+                throw error(RError.Message.GENERIC, "distance(): invalid p");
+            }
+        }
         int nr = getDimNode.nrows(x);
         int nc = getDimNode.ncols(x);
-        int n = nr * (nr - 1) / 2; /* avoid int overflow for N ~ 50,000 */
-        double[] ans = new double[n];
-
-        try (RandomIterator xIter = xAccess.randomAccess(x)) {
-            rdistance(xAccess, xIter, nr, nc, ans, false, methodObj, p);
+        long n = (long) nr * (nr - 1) / 2; /* avoid int overflow for N ~ 50,000 */
+        if (n > Integer.MAX_VALUE) {
+            throw error(RError.Message.VECTOR_IS_TOO_LARGE);
+        }
+        double[] ans = new double[(int) n];
+        int warnings = rdistance(getDataNode.execute(x.materialize()), nr, nc, ans, methodObj, p);
+        for (int i = 0; i < Math.min(warnings, MAX_WARNINGS); i++) {
+            RError.warning(RError.SHOW_CALLER2, RError.Message.GENERIC, "treating non-finite values as NA");
         }
-        RDoubleVector result = RDataFactory.createDoubleVector(ans, naCheck.neverSeenNA());
+        RDoubleVector result = RDataFactory.createDoubleVector(ans, !hasNA(ans));
 
         RStringVector names = (RStringVector) getNamesAttrNode.execute(list);
         if (names != null) {
@@ -96,14 +118,6 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
         return result;
     }
 
-    @Specialization(replaces = "cdist")
-    protected RDoubleVector cdistGeneric(RAbstractDoubleVector x, int method, RList list, double p,
-                    @Cached("create()") SetAttributeNode setAttrNode,
-                    @Cached("create()") SetClassAttributeNode setClassAttrNode,
-                    @Cached("create()") GetDimAttributeNode getDimNode) {
-        return cdist(x, method, list, p, method, x.slowPathAccess(), getMethod(method), setAttrNode, setClassAttrNode, getDimNode);
-    }
-
     private static boolean bothNonNAN(double a, double b) {
         return !RRuntime.isNAorNaN(a) && !RRuntime.isNAorNaN(b);
     }
@@ -112,6 +126,16 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
         return RRuntime.isFinite(a) && RRuntime.isFinite(b);
     }
 
+    @TruffleBoundary
+    private static boolean hasNA(double[] values) {
+        for (double value : values) {
+            if (RRuntime.isNA(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public Method getMethod(int method) {
         if (method < 1 || method > Method.values().length) {
             throw error(RError.Message.GENERIC, "distance(): invalid distance");
@@ -119,49 +143,76 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
         return Method.values()[method - 1];
     }
 
-    private void rdistance(VectorAccess xAccess, RandomIterator xIter, int nr, int nc, double[] d, boolean diag, Method method, double p) {
-        int ij; /* can exceed 2^31 - 1, but Java can't handle that */
-        //
-        if (method == Method.MINKOWSKI) {
-            if (!RRuntime.isFinite(p) || p <= 0) {
-                throw error(RError.Message.GENERIC, "distance(): invalid p");
+    /**
+     * Computes the distances of all pairs of rows of the column-major matrix {@code x} into
+     * {@code d} in the order of {@code dist} and returns the number of non-finite values that were
+     * treated as {@code NA}.
+     */
+    @TruffleBoundary
+    private static int rdistance(double[] x, int nr, int nc, double[] d, Method method, double p) {
+        double[] rows = new double[nr * nc];
+        for (int j = 0; j < nc; j++) {
+            for (int i = 0; i < nr; i++) {
+                rows[i * nc + j] = x[j * nr + i];
             }
         }
-        int dc = diag ? 0 : 1; /* diag=1: we do the diagonal */
-        ij = 0;
-        naCheck.enable(true);
-        for (int j = 0; j <= nr; j++) {
-            for (int i = j + dc; i < nr; i++) {
-                double r = method.dist(xAccess, xIter, nr, nc, i, j, p);
-                naCheck.check(r);
-                d[ij++] = r;
+        int tiles = (nr + TILE - 1) / TILE;
+        int[] warnings = new int[tiles];
+        if (RParallel.shouldRunInParallel((long) d.length * nc, RContext.getInstance().getNonNegativeIntOption(FastROptions.DistParallelThreshold))) {
+            // the first columns of tiles are the largest ones, so they are taken first
+            RParallel.forEach(tiles, tile -> warnings[tile] = computeTileColumn(rows, nr, nc, d, method, p, tile * TILE));
+        } else {
+            for (int tile = 0; tile < tiles; tile++) {
+                warnings[tile] = computeTileColumn(rows, nr, nc, d, method, p, tile * TILE);
             }
         }
+        int result = 0;
+        for (int w : warnings) {
+            result += w;
+        }
+        return result;
+    }
+
+    /**
+     * Computes the distances of the rows {@code j0} to {@code j0 + TILE - 1} to all the following
+     * rows.
+     */
+    private static int computeTileColumn(double[] rows, int nr, int nc, double[] d, Method method, double p, int j0) {
+        int j1 = Math.min(nr, j0 + TILE);
+        int[] warnings = new int[1];
+        for (int i0 = j0 + 1; i0 < nr; i0 += TILE) {
+            int i1 = Math.min(nr, i0 + TILE);
+            for (int j = j0; j < j1; j++) {
+                // index of the distance of the rows j + 1 and j
+                int ij = (int) ((long) j * nr - (long) j * (j + 1) / 2);
+                for (int i = Math.max(i0, j + 1); i < i1; i++) {
+                    d[ij + i - j - 1] = method.dist(rows, i * nc, j * nc, nc, p, warnings);
+                }
+            }
+        }
+        return warnings[0];
     }
 
+    /**
+     * The distance kernels. They get the offsets of two rows of length {@code nc} in a row-major
+     * matrix, {@code warnings[0]} counts the non-finite values treated as {@code NA}.
+     */
     public enum Method {
         EUCLIDEAN {
             @Override
-            public double dist(VectorAccess xAccess, RandomIterator xIter, int nr, int nc, final int i1in, final int i2in, double p) {
-                int i1 = i1in;
-                int i2 = i2in;
-                double dev;
-                double dist;
-                int count;
-                int j;
-
-                count = 0;
-                dist = 0;
-                for (j = 0; j < nc; j++) {
-                    if (bothNonNAN(xAccess.getDouble(xIter, i1), xAccess.getDouble(xIter, i2))) {
-                        dev = (xAccess.getDouble(xIter, i1) - xAccess.getDouble(xIter, i2));
+            public double dist(double[] x, int i1, int i2, int nc, double p, int[] warnings) {
+                double dist = 0;
+                int count = 0;
+                for (int j = 0; j < nc; j++) {
+                    double a = x[i1 + j];
+                    double b = x[i2 + j];
+                    if (bothNonNAN(a, b)) {
+                        double dev = a - b;
                         if (!RRuntime.isNAorNaN(dev)) {
                             dist += dev * dev;
                             count++;
                         }
                     }
-                    i1 += nr;
-                    i2 += nr;
                 }
                 if (count == 0) {
                     return RRuntime.DOUBLE_NA;
@@ -170,24 +221,18 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
                     dist /= ((double) count / nc);
                 }
                 return Math.sqrt(dist);
-
             }
         },
         MAXIMUM {
             @Override
-            public double dist(VectorAccess xAccess, RandomIterator xIter, int nr, int nc, final int i1in, final int i2in, double p) {
-                int i1 = i1in;
-                int i2 = i2in;
-                double dev;
-                double dist;
-                int count;
-                int j;
-
-                count = 0;
-                dist = -Double.MAX_VALUE;
-                for (j = 0; j < nc; j++) {
-                    if (bothNonNAN(xAccess.getDouble(xIter, i1), xAccess.getDouble(xIter, i2))) {
-                        dev = Math.abs(xAccess.getDouble(xIter, i1) - xAccess.getDouble(xIter, i2));
+            public double dist(double[] x, int i1, int i2, int nc, double p, int[] warnings) {
+                double dist = -Double.MAX_VALUE;
+                int count = 0;
+                for (int j = 0; j < nc; j++) {
+                    double a = x[i1 + j];
+                    double b = x[i2 + j];
+                    if (bothNonNAN(a, b)) {
+                        double dev = Math.abs(a - b);
                         if (!RRuntime.isNAorNaN(dev)) {
                             if (dev > dist) {
                                 dist = dev;
@@ -195,38 +240,28 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
                             count++;
                         }
                     }
-                    i1 += nr;
-                    i2 += nr;
                 }
                 if (count == 0) {
                     return RRuntime.DOUBLE_NA;
                 }
                 return dist;
-
             }
         },
         MANHATTAN {
             @Override
-            public double dist(VectorAccess xAccess, RandomIterator xIter, int nr, int nc, final int i1in, final int i2in, double p) {
-                int i1 = i1in;
-                int i2 = i2in;
-                double dev;
-                double dist;
-                int count;
-                int j;
-
-                count = 0;
-                dist = 0;
-                for (j = 0; j < nc; j++) {
-                    if (bothNonNAN(xAccess.getDouble(xIter, i1), xAccess.getDouble(xIter, i2))) {
-                        dev = Math.abs(xAccess.getDouble(xIter, i1) - xAccess.getDouble(xIter, i2));
+            public double dist(double[] x, int i1, int i2, int nc, double p, int[] warnings) {
+                double dist = 0;
+                int count = 0;
+                for (int j = 0; j < nc; j++) {
+                    double a = x[i1 + j];
+                    double b = x[i2 + j];
+                    if (bothNonNAN(a, b)) {
+                        double dev = Math.abs(a - b);
                         if (!RRuntime.isNAorNaN(dev)) {
                             dist += dev;
                             count++;
                         }
                     }
-                    i1 += nr;
-                    i2 += nr;
                 }
                 if (count == 0) {
                     return RRuntime.DOUBLE_NA;
@@ -235,29 +270,21 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
                     dist /= ((double) count / nc);
                 }
                 return dist;
-
             }
         },
         CANBERRA {
             @Override
-            public double dist(VectorAccess xAccess, RandomIterator xIter, int nr, int nc, final int i1in, final int i2in, double p) {
-                int i1 = i1in;
-                int i2 = i2in;
-                double dev;
-                double dist;
-                double sum;
-                double diff;
-                int count;
-                int j;
-
-                count = 0;
-                dist = 0;
-                for (j = 0; j < nc; j++) {
-                    if (bothNonNAN(xAccess.getDouble(xIter, i1), xAccess.getDouble(xIter, i2))) {
-                        sum = Math.abs(xAccess.getDouble(xIter, i1) + xAccess.getDouble(xIter, i2));
-                        diff = Math.abs(xAccess.getDouble(xIter, i1) - xAccess.getDouble(xIter, i2));
+            public double dist(double[] x, int i1, int i2, int nc, double p, int[] warnings) {
+                double dist = 0;
+                int count = 0;
+                for (int j = 0; j < nc; j++) {
+                    double a = x[i1 + j];
+                    double b = x[i2 + j];
+                    if (bothNonNAN(a, b)) {
+                        double sum = Math.abs(a + b);
+                        double diff = Math.abs(a - b);
                         if (sum > DBL_MIN || diff > DBL_MIN) {
-                            dev = diff / sum;
+                            double dev = diff / sum;
                             if (!RRuntime.isNAorNaN(dev) ||
                                             (!RRuntime.isFinite(diff) && diff == sum &&
                                                             /* use Inf = lim x -> oo */ ((dev = 1.) != 0))) {
@@ -266,8 +293,6 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
                             }
                         }
                     }
-                    i1 += nr;
-                    i2 += nr;
                 }
                 if (count == 0) {
                     return RRuntime.DOUBLE_NA;
@@ -276,41 +301,31 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
                     dist /= ((double) count / nc);
                 }
                 return dist;
-
             }
         },
         BINARY {
             @Override
-            public double dist(VectorAccess xAccess, RandomIterator xIter, int nr, int nc, final int i1in, final int i2in, double p) {
-                int i1 = i1in;
-                int i2 = i2in;
-                int total;
-                int count;
-                int dist;
-                int j;
-
-                total = 0;
-                count = 0;
-                dist = 0;
-
-                for (j = 0; j < nc; j++) {
-                    if (bothNonNAN(xAccess.getDouble(xIter, i1), xAccess.getDouble(xIter, i2))) {
-                        if (!bothFinite(xAccess.getDouble(xIter, i1), xAccess.getDouble(xIter, i2))) {
-                            RError.warning(RError.SHOW_CALLER2, RError.Message.GENERIC, "treating non-finite values as NA");
+            public double dist(double[] x, int i1, int i2, int nc, double p, int[] warnings) {
+                int total = 0;
+                int count = 0;
+                int dist = 0;
+                for (int j = 0; j < nc; j++) {
+                    double a = x[i1 + j];
+                    double b = x[i2 + j];
+                    if (bothNonNAN(a, b)) {
+                        if (!bothFinite(a, b)) {
+                            warnings[0]++;
                         } else {
-                            if (xAccess.getDouble(xIter, i1) != 0. || xAccess.getDouble(xIter, i2) != 0.) {
+                            if (a != 0. || b != 0.) {
                                 count++;
-                                if (!(xAccess.getDouble(xIter, i1) != 0. && xAccess.getDouble(xIter, i2) != 0.)) {
+                                if (!(a != 0. && b != 0.)) {
                                     dist++;
                                 }
                             }
                             total++;
                         }
                     }
-                    i1 += nr;
-                    i2 += nr;
                 }
-
                 if (total == 0) {
                     return RRuntime.DOUBLE_NA;
                 }
@@ -318,31 +333,23 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
                     return 0;
                 }
                 return (double) dist / count;
-
             }
         },
         MINKOWSKI {
             @Override
-            public double dist(VectorAccess xAccess, RandomIterator xIter, int nr, int nc, final int i1in, final int i2in, double p) {
-                int i1 = i1in;
-                int i2 = i2in;
-                double dev;
-                double dist;
-                int count;
-                int j;
-
-                count = 0;
-                dist = 0;
-                for (j = 0; j < nc; j++) {
-                    if (bothNonNAN(xAccess.getDouble(xIter, i1), xAccess.getDouble(xIter, i2))) {
-                        dev = (xAccess.getDouble(xIter, i1) - xAccess.getDouble(xIter, i2));
+            public double dist(double[] x, int i1, int i2, int nc, double p, int[] warnings) {
+                double dist = 0;
+                int count = 0;
+                for (int j = 0; j < nc; j++) {
+                    double a = x[i1 + j];
+                    double b = x[i2 + j];
+                    if (bothNonNAN(a, b)) {
+                        double dev = a - b;
                         if (!RRuntime.isNAorNaN(dev)) {
                             dist += Math.pow(Math.abs(dev), p);
                             count++;
                         }
                     }
-                    i1 += nr;
-                    i2 += nr;
                 }
                 if (count == 0) {
                     return RRuntime.DOUBLE_NA;
@@ -354,6 +361,6 @@ public abstract class Cdist extends RExternalBuiltinNode.Arg4 {
             }
         };
 
-        public abstract double dist(VectorAccess xAccess, RandomIterator xIter, int nr, int nc, int i1, int i2, double p);
+        public abstract double dist(double[] x, int i1, int i2, int nc, double p, int[] warnings);
     }
 }
@@ -22,6 +22,8 @@ package com.oracle.truffle.r.library.stats;
 import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.nullValue;
 import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.toBoolean;
 
+import java.util.Arrays;
+
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Specialization;
@@ -36,7 +38,10 @@ import com.oracle.truffle.r.nodes.builtin.RExternalBuiltinNode;
 import com.oracle.truffle.r.nodes.unary.IsFactorNode;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RError.Message;
+import com.oracle.truffle.r.runtime.RParallel;
 import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.context.FastROptions;
+import com.oracle.truffle.r.runtime.context.RContext;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RDoubleVector;
 import com.oracle.truffle.r.runtime.data.RList;
@@ -159,28 +164,192 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
         }
     }
 
+    /*
+     * The pairs are distributed by the columns of x: every column i writes only the elements (i, j)
+     * and (j, i) of ans, and sd_0 is only ever set to true, so the tasks do not interfere.
+     */
+
     @TruffleBoundary
     private static void cov_pairwise1(int n, int ncx, double[] x, double[] ans, boolean[] sd_0, boolean cor, boolean kendall) {
-        for (int i = 0; i < ncx; i++) {
-            int xx = i * n;
-            for (int j = 0; j <= i; j++) {
-                int yy = j * n;
+        if (runInParallel((long) n * (kendall ? n : 1) * ncx * (ncx + 1) / 2)) {
+            // the last columns have the most pairs, so they are taken first
+            RParallel.forEach(ncx, t -> cov_pairwise1_column(n, ncx, ncx - 1 - t, x, ans, sd_0, cor, kendall));
+        } else {
+            for (int i = 0; i < ncx; i++) {
+                cov_pairwise1_column(n, ncx, i, x, ans, sd_0, cor, kendall);
+            }
+        }
+    }
 
-                COV_PAIRWISE_BODY(ans, n, ncx, i, j, x, x, xx, yy, sd_0, cor, kendall);
+    private static void cov_pairwise1_column(int n, int ncx, int i, double[] x, double[] ans, boolean[] sd_0, boolean cor, boolean kendall) {
+        int xx = i * n;
+        for (int j = 0; j <= i; j++) {
+            int yy = j * n;
 
-                ANS(ans, ncx, j, i, ANS(ans, ncx, i, j));
-            }
+            COV_PAIRWISE_BODY(ans, n, ncx, i, j, x, x, xx, yy, sd_0, cor, kendall);
+
+            ANS(ans, ncx, j, i, ANS(ans, ncx, i, j));
         }
     }
 
     @TruffleBoundary
     private static void cov_pairwise2(int n, int ncx, int ncy, double[] x, double[] y, double[] ans, boolean[] sd_0, boolean cor, boolean kendall) {
-        for (int i = 0; i < ncx; i++) {
+        if (runInParallel((long) n * (kendall ? n : 1) * ncx * ncy)) {
+            RParallel.forEach(ncx, i -> cov_pairwise2_column(n, ncx, ncy, i, x, y, ans, sd_0, cor, kendall));
+        } else {
+            for (int i = 0; i < ncx; i++) {
+                cov_pairwise2_column(n, ncx, ncy, i, x, y, ans, sd_0, cor, kendall);
+            }
+        }
+    }
+
+    private static void cov_pairwise2_column(int n, int ncx, int ncy, int i, double[] x, double[] y, double[] ans, boolean[] sd_0, boolean cor, boolean kendall) {
+        int xx = i * n;
+        for (int j = 0; j < ncy; j++) {
+            int yy = j * n;
+
+            COV_PAIRWISE_BODY(ans, n, ncx, i, j, x, y, xx, yy, sd_0, cor, kendall);
+        }
+    }
+
+    /*
+     * Pearson cross products for "everything", "all.obs", "complete.obs" and "na.or.complete": the
+     * used rows of every column are centered once into a compact column-major matrix and the upper
+     * triangle of X'X (or the whole X'Y) is computed in blocks of TILE x TILE columns and ROW_BLOCK
+     * rows, which keep both blocks in the cache. The column blocks are independent and run in
+     * parallel for large inputs. The cor() scaling by the standard deviations is done afterwards on
+     * the diagonal as before.
+     */
+
+    private static final int TILE = 32;
+    private static final int ROW_BLOCK = 256;
+
+    private static boolean runInParallel(long work) {
+        return RParallel.shouldRunInParallel(work, RContext.getInstance().getNonNegativeIntOption(FastROptions.CovParallelThreshold));
+    }
+
+    /**
+     * Returns the columns of {@code x} minus their means {@code xm} restricted to the {@code nobs}
+     * rows selected by {@code ind} ({@code null} selects all rows). The columns marked in
+     * {@code skip} are left as zeros.
+     */
+    private static double[] center(int n, int nc, int nobs, double[] x, double[] xm, boolean[] ind, boolean[] skip) {
+        double[] z = new double[nobs * nc];
+        for (int i = 0; i < nc; i++) {
+            if (skip != null && skip[i]) {
+                continue;
+            }
             int xx = i * n;
-            for (int j = 0; j < ncy; j++) {
-                int yy = j * n;
+            int zz = i * nobs;
+            double mean = xm[i];
+            if (ind == null) {
+                for (int k = 0; k < n; k++) {
+                    z[zz + k] = x[xx + k] - mean;
+                }
+            } else {
+                for (int k = 0; k < n; k++) {
+                    if (ind[k]) {
+                        z[zz++] = x[xx + k] - mean;
+                    }
+                }
+            }
+        }
+        return z;
+    }
 
-                COV_PAIRWISE_BODY(ans, n, ncx, i, j, x, y, xx, yy, sd_0, cor, kendall);
+    /**
+     * Computes {@code ans = z'z / n1} for the centered {@code m x nc} matrix {@code z}, the pairs
+     * with a column marked in {@code skip} are {@code NA}.
+     */
+    private static void crossprod1(double[] z, int m, int nc, boolean[] skip, int n1, double[] ans) {
+        int tiles = (nc + TILE - 1) / TILE;
+        if (runInParallel((long) m * nc * (nc + 1) / 2)) {
+            // the last columns of tiles are the largest ones, so they are taken first
+            RParallel.forEach(tiles, t -> crossprodTileColumn(z, z, m, nc, nc, skip, skip, n1, ans, true, (tiles - 1 - t) * TILE));
+        } else {
+            for (int t = 0; t < tiles; t++) {
+                crossprodTileColumn(z, z, m, nc, nc, skip, skip, n1, ans, true, t * TILE);
+            }
+        }
+    }
+
+    /**
+     * Computes {@code ans = zx'zy / n1} for the centered matrices {@code zx} ({@code m x ncx}) and
+     * {@code zy} ({@code m x ncy}), the pairs with a column marked in {@code skipx} or
+     * {@code skipy} are {@code NA}.
+     */
+    private static void crossprod2(double[] zx, double[] zy, int m, int ncx, int ncy, boolean[] skipx, boolean[] skipy, int n1, double[] ans) {
+        int tiles = (ncy + TILE - 1) / TILE;
+        if (runInParallel((long) m * ncx * ncy)) {
+            RParallel.forEach(tiles, t -> crossprodTileColumn(zx, zy, m, ncx, ncy, skipx, skipy, n1, ans, false, t * TILE));
+        } else {
+            for (int t = 0; t < tiles; t++) {
+                crossprodTileColumn(zx, zy, m, ncx, ncy, skipx, skipy, n1, ans, false, t * TILE);
+            }
+        }
+    }
+
+    /**
+     * Computes the cross products of the columns {@code j0} to {@code j0 + TILE - 1} of {@code zy}
+     * with all the columns of {@code zx}, or only with the columns up to {@code j} and mirrored if
+     * {@code symmetric}.
+     */
+    private static void crossprodTileColumn(double[] zx, double[] zy, int m, int ncx, int ncy, boolean[] skipx, boolean[] skipy, int n1, double[] ans, boolean symmetric, int j0) {
+        int j1 = Math.min(ncy, j0 + TILE);
+        int iEnd = symmetric ? j1 : ncx;
+        double[] sums = new double[TILE * TILE];
+        for (int i0 = 0; i0 < iEnd; i0 += TILE) {
+            int i1 = Math.min(iEnd, i0 + TILE);
+            Arrays.fill(sums, 0);
+            for (int k0 = 0; k0 < m; k0 += ROW_BLOCK) {
+                int k1 = Math.min(m, k0 + ROW_BLOCK);
+                for (int j = j0; j < j1; j++) {
+                    if (skipy != null && skipy[j]) {
+                        continue;
+                    }
+                    int yy = j * m;
+                    int iLast = symmetric ? Math.min(i1, j + 1) : i1;
+                    int s = (j - j0) * TILE - i0;
+                    int i = i0;
+                    // four columns of x at once: independent sums and one load of y for four
+                    // products, the skipped columns are zero and their results are replaced by NA
+                    for (; i + 3 < iLast; i += 4) {
+                        int xx = i * m;
+                        double sum0 = 0;
+                        double sum1 = 0;
+                        double sum2 = 0;
+                        double sum3 = 0;
+                        for (int k = k0; k < k1; k++) {
+                            double yk = zy[yy + k];
+                            sum0 += zx[xx + k] * yk;
+                            sum1 += zx[xx + m + k] * yk;
+                            sum2 += zx[xx + 2 * m + k] * yk;
+                            sum3 += zx[xx + 3 * m + k] * yk;
+                        }
+                        sums[s + i] += sum0;
+                        sums[s + i + 1] += sum1;
+                        sums[s + i + 2] += sum2;
+                        sums[s + i + 3] += sum3;
+                    }
+                    for (; i < iLast; i++) {
+                        int xx = i * m;
+                        double sum = 0;
+                        for (int k = k0; k < k1; k++) {
+                            sum += zx[xx + k] * zy[yy + k];
+                        }
+                        sums[s + i] += sum;
+                    }
+                }
+            }
+            for (int j = j0; j < j1; j++) {
+                int iLast = symmetric ? Math.min(i1, j + 1) : i1;
+                for (int i = i0; i < iLast; i++) {
+                    double result = (skipx != null && skipx[i]) || (skipy != null && skipy[j]) ? RRuntime.DOUBLE_NA : sums[(j - j0) * TILE + i - i0] / n1;
+                    ANS(ans, ncx, i, j, result);
+                    if (symmetric) {
+                        ANS(ans, ncx, j, i, result);
+                    }
+                }
             }
         }
     }
@@ -262,26 +431,10 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
         if (!kendall) {
             MEAN(n, ncx, x, xm, ind, nobs); /* -> xm[] */
             n1 = nobs - 1;
-        }
-        for (int i = 0; i < ncx; i++) {
-            int xx = i * n;
-
-            if (!kendall) {
-                double xxm = xm[i];
-                for (int j = 0; j <= i; j++) {
-                    int yy = j * n;
-                    double yym = xm[j];
-                    double sum = 0;
-                    for (int k = 0; k < n; k++) {
-                        if (ind[k]) {
-                            sum += (x[xx + k] - xxm) * (x[yy + k] - yym);
-                        }
-                    }
-                    double result = sum / n1;
-                    ANS(ans, ncx, j, i, result);
-                    ANS(ans, ncx, i, j, result);
-                }
-            } else { /* Kendall's tau */
+            crossprod1(center(n, ncx, nobs, x, xm, ind, null), nobs, ncx, null, n1, ans);
+        } else { /* Kendall's tau */
+            for (int i = 0; i < ncx; i++) {
+                int xx = i * n;
                 for (int j = 0; j <= i; j++) {
                     int yy = j * n;
                     double sum = 0;
@@ -340,35 +493,16 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
         if (!kendall) {
             MEAN_(n, ncx, x, xm, has_na);/* -> xm[] */
             n1 = n - 1;
-        }
-        for (int i = 0; i < ncx; i++) {
-            if (has_na[i]) {
-                for (int j = 0; j <= i; j++) {
-                    ANS(ans, ncx, j, i, RRuntime.DOUBLE_NA);
-                    ANS(ans, ncx, i, j, RRuntime.DOUBLE_NA);
-                }
-            } else {
-                int xx = i * n;
-
-                if (!kendall) {
-                    double xxm = xm[i];
+            crossprod1(center(n, ncx, n, x, xm, null, has_na), n, ncx, has_na, n1, ans);
+        } else { /* Kendall's tau */
+            for (int i = 0; i < ncx; i++) {
+                if (has_na[i]) {
                     for (int j = 0; j <= i; j++) {
-                        if (has_na[j]) {
-                            ANS(ans, ncx, j, i, RRuntime.DOUBLE_NA);
-                            ANS(ans, ncx, i, j, RRuntime.DOUBLE_NA);
-                        } else {
-                            int yy = j * n;
-                            double yym = xm[j];
-                            double sum = 0;
-                            for (int k = 0; k < n; k++) {
-                                sum += (x[xx + k] - xxm) * (x[yy + k] - yym);
-                            }
-                            double result = sum / n1;
-                            ANS(ans, ncx, j, i, result);
-                            ANS(ans, ncx, i, j, result);
-                        }
+                        ANS(ans, ncx, j, i, RRuntime.DOUBLE_NA);
+                        ANS(ans, ncx, i, j, RRuntime.DOUBLE_NA);
                     }
-                } else { /* Kendall's tau */
+                } else {
+                    int xx = i * n;
                     for (int j = 0; j <= i; j++) {
                         if (has_na[j]) {
                             ANS(ans, ncx, j, i, RRuntime.DOUBLE_NA);
@@ -469,23 +603,10 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
             MEAN(n, ncx, x, xm, ind, nobs);/* -> xm[] */
             MEAN(n, ncy, y, ym, ind, nobs);/* -> ym[] */
             n1 = nobs - 1;
-        }
-        for (int i = 0; i < ncx; i++) {
-            int xx = i * n;
-            if (!kendall) {
-                double xxm = xm[i];
-                for (int j = 0; j < ncy; j++) {
-                    int yy = j * n;
-                    double yym = ym[j];
-                    double sum = 0;
-                    for (int k = 0; k < n; k++) {
-                        if (ind[k]) {
-                            sum += (x[xx + k] - xxm) * (y[yy + k] - yym);
-                        }
-                    }
-                    ANS(ans, ncx, i, j, sum / n1);
-                }
-            } else { /* Kendall's tau */
+            crossprod2(center(n, ncx, nobs, x, xm, ind, null), center(n, ncy, nobs, y, ym, ind, null), nobs, ncx, ncy, null, null, n1, ans);
+        } else { /* Kendall's tau */
+            for (int i = 0; i < ncx; i++) {
+                int xx = i * n;
                 for (int j = 0; j < ncy; j++) {
                     int yy = j * n;
                     double sum = 0;
@@ -569,30 +690,15 @@ public abstract class Covcor extends RExternalBuiltinNode.Arg4 {
             MEAN_(n, ncx, x, xm, has_na_x);/* -> xm[] */
             MEAN_(n, ncy, y, ym, has_na_y);/* -> ym[] */
             n1 = n - 1;
-        }
-        for (int i = 0; i < ncx; i++) {
-            if (has_na_x[i]) {
-                for (int j = 0; j < ncy; j++) {
-                    ANS(ans, ncx, i, j, RRuntime.DOUBLE_NA);
-                }
-            } else {
-                int xx = i * n;
-                if (!kendall) {
-                    double xxm = xm[i];
+            crossprod2(center(n, ncx, n, x, xm, null, has_na_x), center(n, ncy, n, y, ym, null, has_na_y), n, ncx, ncy, has_na_x, has_na_y, n1, ans);
+        } else { /* Kendall's tau */
+            for (int i = 0; i < ncx; i++) {
+                if (has_na_x[i]) {
                     for (int j = 0; j < ncy; j++) {
-                        if (has_na_y[j]) {
-                            ANS(ans, ncx, i, j, RRuntime.DOUBLE_NA);
-                        } else {
-                            int yy = j * n;
-                            double yym = ym[j];
-                            double sum = 0;
-                            for (int k = 0; k < n; k++) {
-                                sum += (x[xx + k] - xxm) * (y[yy + k] - yym);
-                            }
-                            ANS(ans, ncx, i, j, sum / n1);
-                        }
+                        ANS(ans, ncx, i, j, RRuntime.DOUBLE_NA);
                     }
-                } else { /* Kendall's tau */
+                } else {
+                    int xx = i * n;
                     for (int j = 0; j < ncy; j++) {
                         if (has_na_y[j]) {
                             ANS(ans, ncx, i, j, RRuntime.DOUBLE_NA);
@@ -35,6 +35,7 @@ import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.nodes.Node;
 import com.oracle.truffle.api.profiles.BranchProfile;
+import com.oracle.truffle.api.profiles.ConditionProfile;
 import com.oracle.truffle.api.profiles.LoopConditionProfile;
 import com.oracle.truffle.r.library.stats.RandFunctionsNodesFactory.ConvertToLengthNodeGen;
 import com.oracle.truffle.r.library.stats.RandFunctionsNodesFactory.RandFunction1NodeGen;
@@ -162,6 +163,7 @@ public final class RandFunctionsNodes {
         protected final BranchProfile nanResult = BranchProfile.create();
         protected final BranchProfile nan = BranchProfile.create();
         protected final LoopConditionProfile loopConditionProfile = LoopConditionProfile.createCountingProfile();
+        protected final ConditionProfile scalarParamsProfile = ConditionProfile.createBinaryProfile();
 
         protected RandFunctionIterator(Supplier<? extends RandFunction3_DoubleBase> functionFactory) {
             this.functionFactory = functionFactory;
@@ -183,6 +185,29 @@ public final class RandFunctionsNodes {
         void showNAWarning() {
             warning(RError.Message.NA_PRODUCED);
         }
+
+        /**
+         * If all the parameters are scalars, lets the function generate all the values at once via
+         * {@link RandFunction3_DoubleBase#fill}. Returns {@code null} if the function does not
+         * support the bulk generation for these parameters, in which case the random number
+         * generator was not used and the iterators are positioned at the (only) first element,
+         * which is fine for the subsequent {@code nextWithWrap} calls.
+         */
+        protected final double[] fillBulk(int length, RandFunction3_DoubleBase function, RandomNumberProvider randProvider,
+                        VectorAccess aAccess, SequentialIterator aIter,
+                        VectorAccess bAccess, SequentialIterator bIter,
+                        VectorAccess cAccess, SequentialIterator cIter) {
+            if (scalarParamsProfile.profile(aAccess.getLength(aIter) == 1 && bAccess.getLength(bIter) == 1 && cAccess.getLength(cIter) == 1)) {
+                aAccess.next(aIter);
+                bAccess.next(bIter);
+                cAccess.next(cIter);
+                double[] result = new double[length];
+                if (function.fill(result, aAccess.getDouble(aIter), bAccess.getDouble(bIter), cAccess.getDouble(cIter), randProvider)) {
+                    return result;
+                }
+            }
+            return null;
+        }
     }
 
     protected abstract static class RandFunctionIntExecutorNode extends RandFunctionIterator {
@@ -208,6 +233,24 @@ public final class RandFunctionsNodes {
 
                 boolean nans = false;
                 int[] result = new int[length];
+                double[] values = fillBulk(length, function, randProvider, aAccess, aIter, bAccess, bIter, cAccess, cIter);
+                if (values != null) {
+                    for (int i = 0; i < length; i++) {
+                        double value = values[i];
+                        if (Double.isNaN(value) || value <= Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                            nan.enter();
+                            nans = true;
+                            result[i] = RRuntime.INT_NA;
+                        } else {
+                            result[i] = (int) value;
+                        }
+                    }
+                    putRNGState();
+                    if (nans) {
+                        showNAWarning();
+                    }
+                    return RDataFactory.createIntVector(result, !nans);
+                }
                 loopConditionProfile.profileCounted(length);
                 for (int i = 0; loopConditionProfile.inject(i < length); i++) {
                     aAccess.nextWithWrap(aIter);
@@ -258,6 +301,12 @@ public final class RandFunctionsNodes {
                     return RDataFactory.createDoubleVector(nansResult, false);
                 }
 
+                double[] values = fillBulk(length, function, randProvider, aAccess, aIter, bAccess, bIter, cAccess, cIter);
+                if (values != null) {
+                    putRNGState();
+                    return RDataFactory.createDoubleVector(values, RDataFactory.COMPLETE_VECTOR);
+                }
+
                 boolean nans = false;
                 double[] result = new double[length];
                 loopConditionProfile.profileCounted(length);
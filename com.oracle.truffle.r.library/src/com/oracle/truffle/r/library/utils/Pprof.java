@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.library.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.zip.GZIPOutputStream;
+
+import com.oracle.truffle.r.library.utils.Rprof.ProfileFrame;
+import com.oracle.truffle.r.library.utils.Rprof.Samples;
+
+/**
+ * Writes the samples collected by {@link Rprof} as a gzipped {@code Profile} message of the
+ * {@code profile.proto} format used by the {@code pprof} tool. Every distinct stack is one
+ * {@code Sample} with two values, the number of samples and the sampled time in nanoseconds. Every
+ * distinct function and position is one {@code Function} and {@code Location} respectively.
+ */
+public final class Pprof {
+
+    // field numbers of profile.proto
+    private static final int PROFILE_SAMPLE_TYPE = 1;
+    private static final int PROFILE_SAMPLE = 2;
+    private static final int PROFILE_LOCATION = 4;
+    private static final int PROFILE_FUNCTION = 5;
+    private static final int PROFILE_STRING_TABLE = 6;
+    private static final int PROFILE_TIME_NANOS = 9;
+    private static final int PROFILE_DURATION_NANOS = 10;
+    private static final int PROFILE_PERIOD_TYPE = 11;
+    private static final int PROFILE_PERIOD = 12;
+    private static final int VALUE_TYPE_TYPE = 1;
+    private static final int VALUE_TYPE_UNIT = 2;
+    private static final int SAMPLE_LOCATION_ID = 1;
+    private static final int SAMPLE_VALUE = 2;
+    private static final int LOCATION_ID = 1;
+    private static final int LOCATION_LINE = 4;
+    private static final int LINE_FUNCTION_ID = 1;
+    private static final int LINE_LINE = 2;
+    private static final int FUNCTION_ID = 1;
+    private static final int FUNCTION_NAME = 2;
+    private static final int FUNCTION_SYSTEM_NAME = 3;
+    private static final int FUNCTION_FILENAME = 4;
+    private static final int FUNCTION_START_LINE = 5;
+
+    private static final int WIRE_VARINT = 0;
+    private static final int WIRE_LENGTH_DELIMITED = 2;
+
+    private final ArrayList<String> strings = new ArrayList<>();
+    private final HashMap<String, Integer> stringIds = new HashMap<>();
+
+    private Pprof() {
+        // the string table starts with the empty string
+        stringId("");
+    }
+
+    public static void write(OutputStream out, Samples samples, long periodNanos, long timeNanos, long durationNanos) throws IOException {
+        new Pprof().writeProfile(out, samples, periodNanos, timeNanos, durationNanos);
+    }
+
+    private int stringId(String value) {
+        Integer id = stringIds.get(value);
+        if (id == null) {
+            id = strings.size();
+            strings.add(value);
+            stringIds.put(value, id);
+        }
+        return id;
+    }
+
+    private void writeProfile(OutputStream out, Samples samples, long periodNanos, long timeNanos, long durationNanos) throws IOException {
+        Message profile = new Message();
+        profile.message(PROFILE_SAMPLE_TYPE, valueType("samples", "count"));
+        profile.message(PROFILE_SAMPLE_TYPE, valueType("cpu", "nanoseconds"));
+
+        long[] weights = samples.getStackWeights();
+        for (int i = 0; i < weights.length; i++) {
+            int[] stack = samples.stacks.get(i);
+            if (stack.length == 0 || weights[i] == 0) {
+                continue;
+            }
+            long[] locationIds = new long[stack.length];
+            for (int j = 0; j < stack.length; j++) {
+                // the location ids are the frame ids shifted by one, zero is not a valid id
+                locationIds[j] = stack[j] + 1;
+            }
+            Message sample = new Message();
+            sample.packed(SAMPLE_LOCATION_ID, locationIds);
+            sample.packed(SAMPLE_VALUE, new long[]{weights[i], weights[i] * periodNanos});
+            profile.message(PROFILE_SAMPLE, sample);
+        }
+
+        HashMap<String, Integer> functionIds = new HashMap<>();
+        ArrayList<Message> functions = new ArrayList<>();
+        for (int i = 0; i < samples.frames.size(); i++) {
+            ProfileFrame frame = samples.frames.get(i);
+            String functionKey = frame.name + '\0' + frame.path + '\0' + frame.functionLine;
+            Integer functionId = functionIds.get(functionKey);
+            if (functionId == null) {
+                functionId = functions.size() + 1;
+                functionIds.put(functionKey, functionId);
+                Message function = new Message();
+                function.varint(FUNCTION_ID, functionId);
+                function.varint(FUNCTION_NAME, stringId(frame.name));
+                function.varint(FUNCTION_SYSTEM_NAME, stringId(frame.name));
+                function.varint(FUNCTION_FILENAME, stringId(frame.path == null ? "" : frame.path));
+                function.varint(FUNCTION_START_LINE, frame.functionLine);
+                functions.add(function);
+            }
+            Message line = new Message();
+            line.varint(LINE_FUNCTION_ID, functionId);
+            line.varint(LINE_LINE, frame.line);
+            Message location = new Message();
+            location.varint(LOCATION_ID, i + 1);
+            location.message(LOCATION_LINE, line);
+            profile.message(PROFILE_LOCATION, location);
+        }
+        for (Message function : functions) {
+            profile.message(PROFILE_FUNCTION, function);
+        }
+
+        profile.varint(PROFILE_TIME_NANOS, timeNanos);
+        profile.varint(PROFILE_DURATION_NANOS, durationNanos);
+        profile.message(PROFILE_PERIOD_TYPE, valueType("cpu", "nanoseconds"));
+        profile.varint(PROFILE_PERIOD, periodNanos);
+        // the string table goes last, so that it contains the strings of all the other fields
+        for (String value : strings) {
+            profile.string(PROFILE_STRING_TABLE, value);
+        }
+
+        GZIPOutputStream gzip = new GZIPOutputStream(out);
+        profile.bytes.writeTo(gzip);
+        gzip.finish();
+    }
+
+    private Message valueType(String type, String unit) {
+        Message result = new Message();
+        result.varint(VALUE_TYPE_TYPE, stringId(type));
+        result.varint(VALUE_TYPE_UNIT, stringId(unit));
+        return result;
+    }
+
+    /**
+     * The encoding of one protobuf message. Fields with the default value are omitted except for
+     * the elements of repeated fields.
+     */
+    private static final class Message {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        private void rawVarint(long value) {
+            long v = value;
+            while ((v & ~0x7FL) != 0) {
+                bytes.write((int) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            bytes.write((int) v);
+        }
+
+        private void tag(int field, int wireType) {
+            rawVarint((field << 3) | wireType);
+        }
+
+        void varint(int field, long value) {
+            if (value != 0) {
+                tag(field, WIRE_VARINT);
+                rawVarint(value);
+            }
+        }
+
+        void packed(int field, long[] values) {
+            Message data = new Message();
+            for (long value : values) {
+                data.rawVarint(value);
+            }
+            message(field, data);
+        }
+
+        void string(int field, String value) {
+            byte[] data = value.getBytes(StandardCharsets.UTF_8);
+            tag(field, WIRE_LENGTH_DELIMITED);
+            rawVarint(data.length);
+            bytes.write(data, 0, data.length);
+        }
+
+        void message(int field, Message value) {
+            tag(field, WIRE_LENGTH_DELIMITED);
+            rawVarint(value.bytes.size());
+            bytes.write(value.bytes.toByteArray(), 0, value.bytes.size());
+        }
+    }
+}
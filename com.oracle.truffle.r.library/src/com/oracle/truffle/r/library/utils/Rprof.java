@@ -31,29 +31,38 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.function.Function;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
+import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.api.Truffle;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.frame.Frame;
 import com.oracle.truffle.api.frame.FrameInstance.FrameAccess;
 import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.instrumentation.EventBinding;
 import com.oracle.truffle.api.instrumentation.EventContext;
-import com.oracle.truffle.api.instrumentation.ExecutionEventListener;
+import com.oracle.truffle.api.instrumentation.ExecutionEventNode;
+import com.oracle.truffle.api.instrumentation.ExecutionEventNodeFactory;
+import com.oracle.truffle.api.instrumentation.Instrumenter;
 import com.oracle.truffle.api.instrumentation.SourceSectionFilter;
 import com.oracle.truffle.api.instrumentation.StandardTags;
 import com.oracle.truffle.api.nodes.RootNode;
-import com.oracle.truffle.api.source.Source;
+import com.oracle.truffle.api.source.SourceSection;
 import com.oracle.truffle.r.nodes.builtin.RExternalBuiltinNode;
 import com.oracle.truffle.r.nodes.function.FunctionDefinitionNode;
 import com.oracle.truffle.r.nodes.instrumentation.RInstrumentation;
 import com.oracle.truffle.r.runtime.RArguments;
 import com.oracle.truffle.r.runtime.RCaller;
 import com.oracle.truffle.r.runtime.RError;
+import com.oracle.truffle.r.runtime.RInternalError;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.RSource;
-import com.oracle.truffle.r.runtime.Utils;
 import com.oracle.truffle.r.runtime.context.RContext;
 import com.oracle.truffle.r.runtime.data.MemoryCopyTracer;
 import com.oracle.truffle.r.runtime.data.RBaseObject;
@@ -63,25 +72,46 @@ import com.oracle.truffle.r.runtime.data.RObjectSize;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 import com.oracle.truffle.r.runtime.instrument.InstrumentationState;
 import com.oracle.truffle.r.runtime.nodes.RSyntaxElement;
-import com.oracle.truffle.r.runtime.nodes.RSyntaxNode;
 
 /**
  * Implements the {@code Rprof} external.
  *
- * The output is basically a sequence of call stacks, output at each sample interval, with entries
- * in the stack identified by quoted function names. If memory profiling, the stack is preceded by a
- * auad of numbers {@code :smallv:bigv:nodes:duplicate_counter:} allocated in the interval. If line
- * profiling is enabled source files are listed as
+ * The profile is collected by sampling: the entry and exit of every R function body maintain a
+ * {@link ShadowStack} of the functions executed by the profiled thread and a timer thread takes a
+ * copy of that stack at every sample interval. The profiled code therefore only pays for pushing
+ * and popping the functions it calls, the stacks are collected by the timer thread. With line
+ * profiling, every statement also records itself as the current position of its function. The
+ * stacks are interned, each sample costs just an index into the table of the distinct stacks.
+ *
+ * The format of the output file is selected by the FastR specific {@code format} argument of
+ * {@code Rprof}:
+ * <ul>
+ * <li>{@code rprof}: the format of GNU R. The output is basically a sequence of call stacks, output
+ * at each sample interval, with entries in the stack identified by quoted function names. If
+ * memory profiling, the stack is preceded by a auad of numbers
+ * {@code :smallv:bigv:nodes:duplicate_counter:} allocated in the interval. If line profiling is
+ * enabled source files are listed as
  *
  * <pre>
  * #File N: path
  * </pre>
  *
  * and then the {@code N} is used in line number references of the form {@code N#L},which precede
- * the function name.
- *
+ * the function name.</li>
+ * <li>{@code collapsed}: one line per distinct stack with the frames from the outermost function
+ * separated by {@code ;} followed by the number of samples, which is the input of flame graph
+ * tools. With line profiling the frames include the file and line.</li>
+ * <li>{@code pprof}: a gzipped {@code profile.proto} message as read by the {@code pprof} tool, see
+ * {@link Pprof}.</li>
+ * </ul>
  */
-public abstract class Rprof extends RExternalBuiltinNode.Arg8 implements MemoryCopyTracer.Listener {
+public abstract class Rprof extends RExternalBuiltinNode.Arg9 implements MemoryCopyTracer.Listener {
+
+    enum Format {
+        RPROF,
+        COLLAPSED,
+        PPROF
+    }
 
     static {
         Casts casts = new Casts(Rprof.class);
@@ -93,12 +123,13 @@ public abstract class Rprof extends RExternalBuiltinNode.Arg8 implements MemoryC
         casts.arg(5, "line_profiling").asLogicalVector().findFirst(RRuntime.LOGICAL_FALSE).map(toBoolean());
         casts.arg(6, "numfiles").asIntegerVector().findFirst().mustBe(gte(0));
         casts.arg(7, "bufsize").asIntegerVector().findFirst().mustBe(gte(0));
+        casts.arg(8, "format").mustBe(stringValue()).asStringVector().mustBe(singleElement()).findFirst();
     }
 
     @Specialization
     @TruffleBoundary
     public Object doRprof(String filename, boolean append, double intervalD, boolean memProfiling, boolean gcProfiling, boolean lineProfiling, @SuppressWarnings("unused") int numFiles,
-                    @SuppressWarnings("unused") int bufSize) {
+                    @SuppressWarnings("unused") int bufSize, String formatName) {
         RprofState profState = RprofState.get();
         if (filename.length() == 0) {
             // disable
@@ -108,22 +139,30 @@ public abstract class Rprof extends RExternalBuiltinNode.Arg8 implements MemoryC
             if (profState != null && profState.out() != null) {
                 endProfiling();
             }
+            Format format;
+            try {
+                format = Format.valueOf(formatName.toUpperCase());
+            } catch (IllegalArgumentException ex) {
+                throw error(RError.Message.GENERIC, String.format("Rprof: unknown profile format '%s'", formatName));
+            }
             try {
-                PrintStream out = new PrintStream(new FileOutputStream(filename, append));
+                PrintStream out = new PrintStream(new FileOutputStream(filename, append && format != Format.PPROF));
                 if (gcProfiling) {
                     warning(RError.Message.GENERIC, "Rprof: gc profiling not supported");
                 }
+                MemoryQuad memory = null;
                 if (memProfiling) {
+                    memory = new MemoryQuad();
                     RDataFactory.addListener(LISTENER);
                     MemoryCopyTracer.addListener(this);
                     MemoryCopyTracer.setTracingState(true);
                 }
                 // interval is in seconds, we convert to millis
-                long intervalInMillis = (long) (1E3 * intervalD);
-                StatementListener statementListener = new StatementListener();
-                ProfileThread profileThread = new ProfileThread(intervalInMillis, statementListener);
+                long intervalInMillis = Math.max(1, (long) (1E3 * intervalD));
+                Sampler sampler = new Sampler(RInstrumentation.getInstrumenter(), lineProfiling, memory);
+                ProfileThread profileThread = new ProfileThread(intervalInMillis, sampler);
                 profileThread.setDaemon(true);
-                profState.initialize(out, profileThread, statementListener, intervalInMillis, lineProfiling, memProfiling);
+                profState.initialize(out, format, profileThread, sampler, intervalInMillis, lineProfiling);
                 profileThread.start();
             } catch (IOException ex) {
                 throw error(RError.Message.GENERIC, String.format("Rprof: cannot open profile file '%s'", filename));
@@ -137,18 +176,19 @@ public abstract class Rprof extends RExternalBuiltinNode.Arg8 implements MemoryC
         @TruffleBoundary
         public void reportAllocation(RBaseObject data) {
             RprofState profState = RprofState.get();
-            if (profState.memoryQuad == null) {
+            MemoryQuad memory = profState.memory();
+            if (memory == null) {
                 return;
             }
             long size = RObjectSize.getObjectSize(data);
             if (data instanceof RAbstractVector) {
                 if (size >= Rprofmem.LARGE_VECTOR) {
-                    profState.memoryQuad.largeV += size;
+                    memory.largeV += size;
                 } else {
-                    profState.memoryQuad.smallV += size;
+                    memory.smallV += size;
                 }
             } else {
-                profState.memoryQuad.nodes += size;
+                memory.nodes += size;
             }
         }
     };
@@ -156,8 +196,10 @@ public abstract class Rprof extends RExternalBuiltinNode.Arg8 implements MemoryC
     @Override
     @TruffleBoundary
     public void reportCopying(RAbstractVector source, RAbstractVector dest) {
-        RprofState profState = RprofState.get();
-        profState.memoryQuad.copied += RObjectSize.getObjectSize(source);
+        MemoryQuad memory = RprofState.get().memory();
+        if (memory != null) {
+            memory.copied += RObjectSize.getObjectSize(source);
+        }
     }
 
     private static void endProfiling() {
@@ -167,19 +209,14 @@ public abstract class Rprof extends RExternalBuiltinNode.Arg8 implements MemoryC
         }
     }
 
-    private static String getPath(RSyntaxElement node) {
-        Source source = node.getSourceSection().getSource();
-        return RSource.getPath(source);
-    }
-
     private static final class ProfileThread extends Thread {
         private final long interval;
-        private final StatementListener statementListener;
+        private final Sampler sampler;
         private volatile boolean running = true;
 
-        private ProfileThread(long interval, StatementListener statementListener) {
+        private ProfileThread(long interval, Sampler sampler) {
             this.interval = interval;
-            this.statementListener = statementListener;
+            this.sampler = sampler;
         }
 
         @Override
@@ -187,7 +224,7 @@ public abstract class Rprof extends RExternalBuiltinNode.Arg8 implements MemoryC
             while (running) {
                 try {
                     Thread.sleep(interval);
-                    statementListener.intervalElapsed();
+                    sampler.takeSample();
                 } catch (InterruptedException ex) {
 
                 }
@@ -196,68 +233,483 @@ public abstract class Rprof extends RExternalBuiltinNode.Arg8 implements MemoryC
     }
 
     /**
-     * Emulates a sampling timer by checking when the sample interval rolls over and at that point
-     * collects the stack of functions.
+     * The memory allocated by the profiled context. The counters only grow, the amount allocated in
+     * an interval is the difference of two copies.
      */
-    private final class StatementListener implements ExecutionEventListener {
-        private final ArrayList<ArrayList<RSyntaxElement>> intervalStacks = new ArrayList<>();
-        private final ArrayList<RprofState.MemoryQuad> intervalMemory = new ArrayList<>();
-        private volatile boolean newInterval;
+    static final class MemoryQuad {
+        long smallV;
+        long largeV;
+        long nodes;
+        long copied;
 
-        private StatementListener() {
-            SourceSectionFilter.Builder builder = SourceSectionFilter.newBuilder();
-            builder.tagIs(StandardTags.StatementTag.class);
-            SourceSectionFilter filter = builder.build();
-            RInstrumentation.getInstrumenter().attachExecutionEventListener(filter, this);
+        MemoryQuad copy() {
+            MemoryQuad result = new MemoryQuad();
+            result.copied = copied;
+            result.largeV = largeV;
+            result.smallV = smallV;
+            result.nodes = nodes;
+            return result;
         }
 
-        private void intervalElapsed() {
-            newInterval = true;
+        MemoryQuad minus(MemoryQuad other) {
+            MemoryQuad result = new MemoryQuad();
+            result.copied = copied - other.copied;
+            result.largeV = largeV - other.largeV;
+            result.smallV = smallV - other.smallV;
+            result.nodes = nodes - other.nodes;
+            return result;
+        }
+    }
+
+    /**
+     * A position in an R function: the name and the source file of the function and the line of
+     * the statement or call in it, zero if not known.
+     */
+    public static final class ProfileFrame {
+        final String name;
+        final String path;
+        final int line;
+        final int functionLine;
+
+        public ProfileFrame(String name, String path, int line, int functionLine) {
+            this.name = name;
+            this.path = path;
+            this.line = line;
+            this.functionLine = functionLine;
         }
 
         @Override
-        public void onEnter(EventContext context, VirtualFrame frame) {
-            if (newInterval) {
-                onEnter(context);
-                newInterval = false;
+        public int hashCode() {
+            return (name.hashCode() * 31 + (path == null ? 0 : path.hashCode())) * 31 + line;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ProfileFrame)) {
+                return false;
             }
+            ProfileFrame other = (ProfileFrame) obj;
+            return line == other.line && functionLine == other.functionLine && name.equals(other.name) && (path == null ? other.path == null : path.equals(other.path));
+        }
+    }
+
+    private static final class StackKey {
+        private final int[] frames;
+        private final int hash;
+
+        StackKey(int[] frames) {
+            this.frames = frames;
+            this.hash = Arrays.hashCode(frames);
         }
 
-        @TruffleBoundary
-        private void onEnter(EventContext context) {
-            /* context tells here we are now, frame provides callers. */
-            ArrayList<RSyntaxElement> stack = new ArrayList<>();
-            stack.add((RSyntaxElement) context.getInstrumentedNode());
-            collectStack(stack);
-            intervalStacks.add(stack);
-            RprofState profState = RprofState.get();
-            if (profState.memoryProfiling) {
-                intervalMemory.add(profState.memoryQuad.copyAndClear());
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof StackKey && Arrays.equals(frames, ((StackKey) obj).frames);
+        }
+    }
+
+    /**
+     * The samples collected so far. The frames and the stacks are interned, a stack is the array of
+     * the indices of its frames starting with the innermost one. The samples are recorded in the
+     * order in which they were taken as pairs of the stack index and the weight.
+     */
+    public static final class Samples {
+        final ArrayList<ProfileFrame> frames = new ArrayList<>();
+        final ArrayList<int[]> stacks = new ArrayList<>();
+        private final HashMap<ProfileFrame, Integer> frameIds = new HashMap<>();
+        private final HashMap<StackKey, Integer> stackIds = new HashMap<>();
+        private int[] sampleStacks = new int[256];
+        private int[] sampleWeights = new int[256];
+        private int sampleCount;
+
+        /**
+         * Adds a sample of the given stack of frames starting with the innermost one.
+         */
+        public void add(int weight, ProfileFrame... stack) {
+            int[] ids = new int[stack.length];
+            for (int i = 0; i < stack.length; i++) {
+                Integer id = frameIds.get(stack[i]);
+                if (id == null) {
+                    id = frames.size();
+                    frames.add(stack[i]);
+                    frameIds.put(stack[i], id);
+                }
+                ids[i] = id;
             }
+            add(ids, weight);
         }
 
-        @TruffleBoundary
-        private void collectStack(final ArrayList<RSyntaxElement> stack) {
-            Utils.iterateRFrames(FrameAccess.READ_ONLY, new Function<Frame, Object>() {
+        private void add(int[] stack, int weight) {
+            StackKey key = new StackKey(stack);
+            Integer id = stackIds.get(key);
+            if (id == null) {
+                id = stacks.size();
+                stacks.add(stack);
+                stackIds.put(key, id);
+            }
+            if (sampleCount == sampleStacks.length) {
+                sampleStacks = Arrays.copyOf(sampleStacks, sampleCount * 2);
+                sampleWeights = Arrays.copyOf(sampleWeights, sampleCount * 2);
+            }
+            sampleStacks[sampleCount] = id;
+            sampleWeights[sampleCount] = weight;
+            sampleCount++;
+        }
+
+        int getSampleCount() {
+            return sampleCount;
+        }
+
+        int getSampleStack(int i) {
+            return sampleStacks[i];
+        }
+
+        int getSampleWeight(int i) {
+            return sampleWeights[i];
+        }
+
+        /**
+         * Returns the total weight of every distinct stack.
+         */
+        long[] getStackWeights() {
+            long[] result = new long[stacks.size()];
+            for (int i = 0; i < sampleCount; i++) {
+                result[sampleStacks[i]] += sampleWeights[i];
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The R functions executed by the profiled thread, outermost first, and, with line profiling,
+     * the statements they are executing. The functions that were already executing when the
+     * profiling started are taken from the Truffle stack, they stay at the bottom of the stack, so
+     * {@code Rprof(NULL)} should be called before they return.
+     *
+     * Only the profiled thread modifies the stack, the timer thread reads it without
+     * synchronization. A sample taken while a function is being entered or left may therefore miss
+     * that function, which is a negligible error of a sampling profiler, but it saves the profiled
+     * code any synchronization.
+     */
+    static final class ShadowStack {
+        private RootNode[] functions;
+        private RSyntaxElement[] statements;
+        private final int base;
+        private int depth;
+
+        ShadowStack(ArrayList<RootNode> initialFunctions, ArrayList<RSyntaxElement> initialStatements) {
+            int capacity = Math.max(64, initialFunctions.size() * 2);
+            functions = initialFunctions.toArray(new RootNode[capacity]);
+            statements = initialStatements.toArray(new RSyntaxElement[capacity]);
+            base = initialFunctions.size();
+            depth = base;
+        }
+
+        void push(RootNode function) {
+            int d = depth;
+            if (d == functions.length) {
+                CompilerDirectives.transferToInterpreter();
+                functions = Arrays.copyOf(functions, d * 2);
+                statements = Arrays.copyOf(statements, d * 2);
+            }
+            functions[d] = function;
+            statements[d] = null;
+            depth = d + 1;
+        }
+
+        void pop() {
+            if (depth > base) {
+                depth--;
+            }
+        }
+
+        void setStatement(RSyntaxElement statement) {
+            int d = depth;
+            if (d > 0) {
+                statements[d - 1] = statement;
+            }
+        }
+    }
+
+    /**
+     * A function and the statement executed in it, compared by identity. The timer thread records
+     * these, they are converted to {@link ProfileFrame}s when the profiling ends.
+     */
+    private static final class NodeFrame {
+        private final RootNode function;
+        private final RSyntaxElement statement;
+
+        NodeFrame(RootNode function, RSyntaxElement statement) {
+            this.function = function;
+            this.statement = statement;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(function) * 31 + System.identityHashCode(statement);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof NodeFrame && ((NodeFrame) obj).function == function && ((NodeFrame) obj).statement == statement;
+        }
+
+        ProfileFrame toProfileFrame() {
+            SourceSection functionSource = function.getSourceSection();
+            SourceSection source = statement == null ? null : statement.getSourceSection();
+            return new ProfileFrame(function.getName(), functionSource == null ? null : RSource.getPath(functionSource.getSource()), source == null ? 0 : source.getStartLine(),
+                            functionSource == null ? 0 : functionSource.getStartLine());
+        }
+    }
 
+    /**
+     * Maintains the {@link ShadowStack} of the thread that started the profiling and takes the
+     * samples on the timer thread. Other threads, i.e., other contexts, are not profiled.
+     */
+    private static final class Sampler {
+        private final Thread owner = Thread.currentThread();
+        private final ShadowStack stack;
+        private final MemoryQuad memory;
+        private MemoryQuad lastMemory;
+        private final Samples samples = new Samples();
+        private final ArrayList<NodeFrame> nodeFrames = new ArrayList<>();
+        private final HashMap<NodeFrame, Integer> nodeFrameIds = new HashMap<>();
+        private final ArrayList<MemoryQuad> intervalMemory = new ArrayList<>();
+        private final EventBinding<?> functionBinding;
+        private final EventBinding<?> statementBinding;
+
+        private Sampler(Instrumenter instrumenter, boolean lineProfiling, MemoryQuad memory) {
+            this.memory = memory;
+            this.lastMemory = memory == null ? null : memory.copy();
+            this.stack = currentStack(lineProfiling);
+            this.functionBinding = instrumenter.attachExecutionEventFactory(SourceSectionFilter.newBuilder().tagIs(StandardTags.RootTag.class).build(), new ExecutionEventNodeFactory() {
                 @Override
-                public Object apply(Frame fIn) {
-                    Frame f = RArguments.unwrap(fIn);
-                    RCaller call = RCaller.unwrapPromiseCaller(RArguments.getCall(f));
-                    if (RCaller.isValidCaller(call)) {
-                        stack.add(call.getSyntaxNode());
+                public ExecutionEventNode create(EventContext eventContext) {
+                    RootNode function = eventContext.getInstrumentedNode().getRootNode();
+                    if (!(function instanceof FunctionDefinitionNode)) {
+                        // only R functions are on the stack, builtins and promises are not
+                        return null;
                     }
-                    return null;
+                    return new ExecutionEventNode() {
+                        @Override
+                        protected void onEnter(VirtualFrame frame) {
+                            if (Thread.currentThread() == owner) {
+                                stack.push(function);
+                            }
+                        }
+
+                        @Override
+                        protected void onReturnValue(VirtualFrame frame, Object result) {
+                            if (Thread.currentThread() == owner) {
+                                stack.pop();
+                            }
+                        }
+
+                        @Override
+                        protected void onReturnExceptional(VirtualFrame frame, Throwable exception) {
+                            if (Thread.currentThread() == owner) {
+                                stack.pop();
+                            }
+                        }
+                    };
                 }
             });
+            if (lineProfiling) {
+                this.statementBinding = instrumenter.attachExecutionEventFactory(SourceSectionFilter.newBuilder().tagIs(StandardTags.StatementTag.class).build(), new ExecutionEventNodeFactory() {
+                    @Override
+                    public ExecutionEventNode create(EventContext eventContext) {
+                        RSyntaxElement statement = (RSyntaxElement) eventContext.getInstrumentedNode();
+                        return new ExecutionEventNode() {
+                            @Override
+                            protected void onEnter(VirtualFrame frame) {
+                                if (Thread.currentThread() == owner) {
+                                    stack.setStatement(statement);
+                                }
+                            }
+                        };
+                    }
+                });
+            } else {
+                this.statementBinding = null;
+            }
         }
 
-        @Override
-        public void onReturnValue(EventContext context, VirtualFrame frame, Object result) {
+        /**
+         * Creates the stack of the R functions that are executing now. Their entry was not
+         * instrumented, so the stack is taken from the Truffle stack.
+         */
+        private static ShadowStack currentStack(boolean lineProfiling) {
+            ArrayList<RootNode> functions = new ArrayList<>();
+            ArrayList<RSyntaxElement> statements = new ArrayList<>();
+            Truffle.getRuntime().iterateFrames(frameInstance -> {
+                RootNode rootNode = ((RootCallTarget) frameInstance.getCallTarget()).getRootNode();
+                if (rootNode instanceof FunctionDefinitionNode) {
+                    Frame frame = RArguments.unwrap(frameInstance.getFrame(FrameAccess.READ_ONLY));
+                    RCaller call = RCaller.unwrapPromiseCaller(RArguments.getCall(frame));
+                    functions.add(rootNode);
+                    // the call of this function is the current statement of its caller
+                    statements.add(lineProfiling && RCaller.isValidCaller(call) ? call.getSyntaxNode() : null);
+                }
+                return null;
+            });
+            if (functions.isEmpty()) {
+                return new ShadowStack(functions, statements);
+            }
+            // the innermost function is Rprof itself, which returns without popping
+            functions.remove(0);
+            statements.remove(statements.size() - 1);
+            ArrayList<RootNode> outermostFirst = new ArrayList<>(functions.size());
+            ArrayList<RSyntaxElement> outermostFirstStatements = new ArrayList<>(functions.size());
+            for (int i = functions.size() - 1; i >= 0; i--) {
+                outermostFirst.add(functions.get(i));
+                outermostFirstStatements.add(statements.get(i));
+            }
+            return new ShadowStack(outermostFirst, outermostFirstStatements);
         }
 
-        @Override
-        public void onReturnExceptional(EventContext context, VirtualFrame frame, Throwable exception) {
+        /**
+         * Called by the timer thread at every sample interval.
+         */
+        private void takeSample() {
+            RootNode[] functions = stack.functions;
+            RSyntaxElement[] statements = stack.statements;
+            int depth = Math.min(stack.depth, Math.min(functions.length, statements.length));
+            int[] frameIds = new int[depth];
+            int length = 0;
+            for (int i = depth - 1; i >= 0; i--) {
+                RootNode function = functions[i];
+                if (function != null) {
+                    NodeFrame frame = new NodeFrame(function, statements[i]);
+                    Integer id = nodeFrameIds.get(frame);
+                    if (id == null) {
+                        id = nodeFrames.size();
+                        nodeFrames.add(frame);
+                        nodeFrameIds.put(frame, id);
+                    }
+                    frameIds[length++] = id;
+                }
+            }
+            samples.add(Arrays.copyOf(frameIds, length), 1);
+            if (memory != null) {
+                MemoryQuad current = memory.copy();
+                intervalMemory.add(current.minus(lastMemory));
+                lastMemory = current;
+            }
+        }
+
+        /**
+         * Stops the profiling and returns the samples. Must be called by the profiled thread after
+         * the timer thread terminated.
+         */
+        private Samples finish() {
+            functionBinding.dispose();
+            if (statementBinding != null) {
+                statementBinding.dispose();
+            }
+            for (NodeFrame frame : nodeFrames) {
+                samples.frames.add(frame.toProfileFrame());
+            }
+            return samples;
+        }
+    }
+
+    /**
+     * Writes the samples in the format of GNU R. {@code memory} is either {@code null} or the
+     * memory allocated before every sample.
+     */
+    static void writeRprof(PrintStream out, Samples samples, List<MemoryQuad> memory, long intervalInMillis, boolean lineProfiling) {
+        HashMap<String, Integer> fileMap = null;
+        if (memory != null) {
+            out.print("memory profiling: ");
+        }
+        if (lineProfiling) {
+            out.print("line profiling: ");
+        }
+        out.printf("sample.interval=%d\n", intervalInMillis * 1000);
+        if (lineProfiling) {
+            // scan the frames in the order of the samples to find files
+            fileMap = new HashMap<>();
+            int fileIndex = 0;
+            for (int i = 0; i < samples.getSampleCount(); i++) {
+                for (int frameId : samples.stacks.get(samples.getSampleStack(i))) {
+                    String path = samples.frames.get(frameId).path;
+                    if (path != null && fileMap.get(path) == null) {
+                        fileMap.put(path, ++fileIndex);
+                        out.printf("#File %d: %s\n", fileIndex, path);
+                    }
+                }
+            }
+        }
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < samples.getSampleCount(); i++) {
+            line.setLength(0);
+            for (int frameId : samples.stacks.get(samples.getSampleStack(i))) {
+                ProfileFrame frame = samples.frames.get(frameId);
+                if (lineProfiling) {
+                    Integer fileIndex = frame.path == null ? null : fileMap.get(frame.path);
+                    if (fileIndex != null) {
+                        line.append(fileIndex).append('#').append(frame.line).append(' ');
+                    }
+                }
+                line.append('"').append(frame.name).append("\" ");
+            }
+            // every elapsed interval is one sample in this format
+            for (int j = 0; j < samples.getSampleWeight(i); j++) {
+                if (memory != null) {
+                    // the memory allocated since the previous sample is reported once
+                    MemoryQuad mq = j == 0 ? memory.get(i) : new MemoryQuad();
+                    out.printf(":%d:%d:%d:%d:", mq.largeV, mq.smallV, mq.nodes, mq.copied);
+                }
+                out.println(line);
+            }
+        }
+    }
+
+    /**
+     * Writes one line per distinct stack with the frames from the outermost function separated by
+     * {@code ;} and the number of its samples.
+     */
+    public static void writeCollapsed(PrintStream out, Samples samples, boolean lineProfiling) {
+        long[] weights = samples.getStackWeights();
+        Map<String, Long> lines = new LinkedHashMap<>();
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < weights.length; i++) {
+            int[] stack = samples.stacks.get(i);
+            if (stack.length == 0) {
+                continue;
+            }
+            line.setLength(0);
+            for (int j = stack.length - 1; j >= 0; j--) {
+                ProfileFrame frame = samples.frames.get(stack[j]);
+                appendCollapsedName(line, frame.name);
+                if (lineProfiling && frame.path != null) {
+                    line.append(" (");
+                    appendCollapsedName(line, frame.path);
+                    line.append(':').append(frame.line).append(')');
+                }
+                if (j > 0) {
+                    line.append(';');
+                }
+            }
+            // without line profiling different stacks may collapse into the same line
+            lines.merge(line.toString(), weights[i], Long::sum);
+        }
+        for (Map.Entry<String, Long> entry : lines.entrySet()) {
+            out.print(entry.getKey());
+            out.print(' ');
+            out.println(entry.getValue());
+        }
+    }
+
+    private static void appendCollapsedName(StringBuilder sb, String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            sb.append(c == ';' || c == '\n' || c == '\r' ? '_' : c);
         }
     }
 
@@ -266,32 +718,12 @@ public abstract class Rprof extends RExternalBuiltinNode.Arg8 implements MemoryC
      *
      */
     private static final class RprofState extends InstrumentationState.RprofState {
+        private Format format;
         private ProfileThread profileThread;
-        private StatementListener statementListener;
+        private Sampler sampler;
         private long intervalInMillis;
+        private long startMillis;
         private boolean lineProfiling;
-        private boolean memoryProfiling;
-        private MemoryQuad memoryQuad;
-
-        public static final class MemoryQuad {
-            public long smallV;
-            public long largeV;
-            public long nodes;
-            public long copied;
-
-            public MemoryQuad copyAndClear() {
-                MemoryQuad result = new MemoryQuad();
-                result.copied = copied;
-                result.largeV = largeV;
-                result.smallV = smallV;
-                result.nodes = nodes;
-                copied = 0;
-                largeV = 0;
-                smallV = 0;
-                nodes = 0;
-                return result;
-            }
-        }
 
         private static RprofState get() {
             RprofState state = (RprofState) RContext.getInstance().stateInstrumentation.getRprofState("prof");
@@ -302,70 +734,57 @@ public abstract class Rprof extends RExternalBuiltinNode.Arg8 implements MemoryC
             return state;
         }
 
-        public void initialize(PrintStream outA, ProfileThread profileThreadA, StatementListener statementListenerA, long intervalInMillisA,
-                        boolean lineProfilingA, boolean memoryProfilingA) {
+        private MemoryQuad memory() {
+            return out() == null ? null : sampler.memory;
+        }
+
+        public void initialize(PrintStream outA, Format formatA, ProfileThread profileThreadA, Sampler samplerA, long intervalInMillisA, boolean lineProfilingA) {
             setOut(outA);
+            this.format = formatA;
             this.profileThread = profileThreadA;
-            this.statementListener = statementListenerA;
+            this.sampler = samplerA;
             this.intervalInMillis = intervalInMillisA;
+            this.startMillis = System.currentTimeMillis();
             this.lineProfiling = lineProfilingA;
-            this.memoryProfiling = memoryProfilingA;
-            this.memoryQuad = memoryProfilingA ? new MemoryQuad() : null;
         }
 
         @Override
         public void cleanup(int status) {
-            profileThread.running = false;
-            HashMap<String, Integer> fileMap = null;
             PrintStream out = this.out();
-            if (this.memoryProfiling) {
-                out.print("memory profiling: ");
-            }
-            if (this.lineProfiling) {
-                out.print("line profiling: ");
+            if (out == null) {
+                return;
             }
-            out.printf("sample.interval=%d\n", this.intervalInMillis * 1000);
-            if (this.lineProfiling) {
-                // scan stacks to find files
-                fileMap = new HashMap<>();
-                int fileIndex = 0;
-                for (ArrayList<RSyntaxElement> intervalStack : statementListener.intervalStacks) {
-                    for (RSyntaxElement node : intervalStack) {
-                        String path = getPath(node);
-                        if (path != null && fileMap.get(path) == null) {
-                            fileMap.put(path, ++fileIndex);
-                            out.printf("#File %d: %s\n", fileIndex, path);
-                        }
-                    }
-                }
+            profileThread.running = false;
+            profileThread.interrupt();
+            try {
+                profileThread.join();
+            } catch (InterruptedException ex) {
+                throw new RInternalError(ex, "interrupted while stopping the profiler");
             }
-            int index = 0;
-            for (ArrayList<RSyntaxElement> intervalStack : statementListener.intervalStacks) {
-                if (this.memoryProfiling) {
-                    RprofState.MemoryQuad mq = statementListener.intervalMemory.get(index);
-                    out.printf(":%d:%d:%d:%d:", mq.largeV, mq.smallV, mq.nodes, mq.copied);
+            Samples samples = sampler.finish();
+            try {
+                switch (format) {
+                    case RPROF:
+                        writeRprof(out, samples, sampler.memory == null ? null : sampler.intervalMemory, intervalInMillis, lineProfiling);
+                        break;
+                    case COLLAPSED:
+                        writeCollapsed(out, samples, lineProfiling);
+                        break;
+                    case PPROF:
+                        Pprof.write(out, samples, intervalInMillis * 1000000, startMillis * 1000000, (System.currentTimeMillis() - startMillis) * 1000000);
+                        break;
+                    default:
+                        throw RInternalError.shouldNotReachHere();
                 }
-                for (RSyntaxElement node : intervalStack) {
-                    RootNode rootNode = ((RSyntaxNode) node).asRNode().getRootNode();
-                    if (rootNode instanceof FunctionDefinitionNode) {
-                        String name = rootNode.getName();
-                        if (this.lineProfiling) {
-                            Integer fileIndex = fileMap.get(getPath(node));
-                            if (fileIndex != null) {
-                                out.printf("%d#%d ", fileIndex, node.getSourceSection().getStartLine());
-                            }
-                        }
-                        out.printf("\"%s\" ", name);
-                    }
+            } catch (IOException ex) {
+                throw RError.ioError(RError.NO_CALLER, ex);
+            } finally {
+                out.close();
+                if (sampler.memory != null) {
+                    RDataFactory.removeListener(LISTENER);
+                    MemoryCopyTracer.setTracingState(false);
                 }
-                out.println();
-                index++;
-            }
-            out.close();
-            this.setOut(null);
-            if (this.memoryProfiling) {
-                RDataFactory.removeListener(LISTENER);
-                MemoryCopyTracer.setTracingState(false);
+                this.setOut(null);
             }
         }
     }
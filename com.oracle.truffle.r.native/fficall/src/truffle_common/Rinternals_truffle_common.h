@@ -137,7 +137,7 @@ SEXP CDR(SEXP e) {
     return result;
 }
 
-int LENGTH(SEXP x) {
+int FASTR_LENGTH(SEXP x) {
     TRACE1(x);
     int result = ((call_LENGTH) callbacks[LENGTH_x])(x);
     checkExitCall();
@@ -1201,7 +1201,7 @@ Rcomplex Rf_asComplex(SEXP x) {
     Rcomplex c; return c;
 }
 
-int TYPEOF(SEXP x) {
+int FASTR_TYPEOF(SEXP x) {
     TRACE0();
     int result = (int) ((call_TYPEOF) callbacks[TYPEOF_x])(x);
     checkExitCall();
@@ -91,6 +91,14 @@ double *REAL(SEXP x){
 	return (double*) ((call_REAL) callbacks[REAL_x])(x);
 }
 
+int LENGTH(SEXP x) {
+	return FASTR_LENGTH(x);
+}
+
+int TYPEOF(SEXP x) {
+	return FASTR_TYPEOF(x);
+}
+
 /* Unwind-protect mechanism to support C++ stack unwinding. */
 
 // NB: It cannot be properly implemented until Sulong supports setjmp and longjmp.
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2014, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2014, 2019, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -21,6 +21,7 @@
  * questions.
  */
 #define NO_FASTR_REDEFINE
+#include <stdint.h>
 #include <Rinterface.h>
 #include <rffiutils.h>
 #include <Rinternals_common.h>
@@ -55,78 +56,70 @@ void *ensure_function(void *fptr) {
 
 #include "../truffle_common/Rinternals_truffle_common.h"
 
-#define ARRAY_CACHE_SIZE 5
-
-typedef struct array_cache_entry {
-	SEXP key;
-	void *data;
-	unsigned int hits;
-} ArrayCacheEntry;
-
-static __thread ArrayCacheEntry int_cache[ARRAY_CACHE_SIZE];
-static __thread ArrayCacheEntry real_cache[ARRAY_CACHE_SIZE];
-
-static inline int array_cache_lookup(ArrayCacheEntry *cache, SEXP key) {
-#if ARRAY_CACHE_SIZE > 0
-  for(int i=0; i < ARRAY_CACHE_SIZE; i++) {
-    	if(cache[i].key == key) {
-    		(cache[i].hits)++;
-    		return i;
-    	}
+/*
+ * Header of an object passed to native code, kept up to date by NativeDataAccess.java, which
+ * defines the same layout. The SEXP value is the address of the header plus HEADER_TAG. Other SEXP
+ * values are odd invalid addresses (always when the headers are disabled by the
+ * NO_NATIVE_SEXP_HEADERS environment variable) or real addresses aligned to four bytes, e.g., of
+ * DllInfo, which have no header. Until a part of the header is marked as valid, we have to up-call.
+ */
+typedef struct fastr_sexp_header {
+    int type;
+    int flags;
+    int64_t length;
+    void *data;
+} FastRSexpHeader;
+
+#define HEADER_TYPE_VALID 1
+#define HEADER_DATA_VALID 2
+
+#define HEADER_TAG 2
+#define HEADER_TAG_MASK 3
+
+static inline FastRSexpHeader *sexp_header(SEXP x, int flag) {
+    if (((uintptr_t) x & HEADER_TAG_MASK) == HEADER_TAG) {
+        FastRSexpHeader *header = (FastRSexpHeader *) ((uintptr_t) x - HEADER_TAG);
+        if (header->flags & flag) {
+            return header;
+        }
     }
-#endif
-  return -1;
-}
-
-static inline void array_cache_insert(ArrayCacheEntry *cache, SEXP key,
-		void *data) {
-
-#if ARRAY_CACHE_SIZE > 0
-	// replace least frequent
-	unsigned hits = cache[0].hits;
-	int idx = 0;
-
-	for (int i = 1; i < ARRAY_CACHE_SIZE && hits != 0; i++) {
-		if (cache[i].hits < hits) {
-			hits = cache[i].hits;
-			idx = i;
-		}
-	}
-
-	cache[idx].key = key;
-	cache[idx].data = data;
-	cache[idx].hits = 0;
-#endif
+    return NULL;
 }
 
 int *INTEGER(SEXP x) {
     TRACE(TARGp, x);
-
-    // lookup in cache
-    int idx = array_cache_lookup(int_cache, x);
-    if(idx >= 0) {
-    	return (int *)int_cache[idx].data;
+    FastRSexpHeader *header = sexp_header(x, HEADER_DATA_VALID);
+    if (header != NULL) {
+        return (int *) header->data;
     }
-
-    int *result = FASTR_INTEGER(x);
-
-    array_cache_insert(int_cache, x, result);
-    return result;
+    return FASTR_INTEGER(x);
 }
 
 double *REAL(SEXP x){
     TRACE(TARGp, x);
-
-    // lookup in cache
-    int idx = array_cache_lookup(real_cache, x);
-    if(idx >= 0) {
-    	return (double *)real_cache[idx].data;
+    FastRSexpHeader *header = sexp_header(x, HEADER_DATA_VALID);
+    if (header != NULL) {
+        return (double *) header->data;
     }
+    return FASTR_REAL(x);
+}
 
-    double *result = FASTR_REAL(x);
+int LENGTH(SEXP x) {
+    TRACE1(x);
+    FastRSexpHeader *header = sexp_header(x, HEADER_DATA_VALID);
+    if (header != NULL) {
+        return (int) header->length;
+    }
+    return FASTR_LENGTH(x);
+}
 
-    array_cache_insert(real_cache, x, result);
-    return result;
+int TYPEOF(SEXP x) {
+    TRACE0();
+    FastRSexpHeader *header = sexp_header(x, HEADER_TYPE_VALID);
+    if (header != NULL) {
+        return header->type;
+    }
+    return FASTR_TYPEOF(x);
 }
 
 /* Unwind-protect mechanism to support C++ stack unwinding. */
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2014, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2014, 2019, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -37,6 +37,7 @@ import com.oracle.truffle.r.nodes.control.RLengthNode;
 import com.oracle.truffle.r.runtime.DSLConfig;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
+import com.oracle.truffle.r.runtime.data.RAltRepVector;
 import com.oracle.truffle.r.runtime.data.RComplex;
 import com.oracle.truffle.r.runtime.data.RList;
 import com.oracle.truffle.r.runtime.data.RMissing;
@@ -109,6 +110,16 @@ public abstract class AnyNA extends RBuiltinNode.Arg2 {
         return RRuntime.LOGICAL_FALSE;
     }
 
+    @Specialization(guards = "isKnownNoNA(x)")
+    protected byte anyNAAltRep(@SuppressWarnings("unused") RAbstractAtomicVector x, @SuppressWarnings("unused") boolean recursive) {
+        // alternative representations may know that there are no NAs without scanning the data
+        return RRuntime.LOGICAL_FALSE;
+    }
+
+    protected static boolean isKnownNoNA(RAbstractAtomicVector x) {
+        return x instanceof RAltRepVector && ((RAltRepVector) x).getAltClass().noNA(((RAltRepVector) x).getAltData());
+    }
+
     @Specialization(guards = "xAccess.supports(x)", limit = "getVectorAccessCacheSize()")
     protected byte anyNACached(RAbstractAtomicVector x, @SuppressWarnings("unused") boolean recursive,
                     @Cached("x.access()") VectorAccess xAccess) {
@@ -99,6 +99,8 @@ import com.oracle.truffle.r.nodes.builtin.base.infix.WhileBuiltin;
 import com.oracle.truffle.r.nodes.builtin.base.infix.WhileBuiltinNodeGen;
 import com.oracle.truffle.r.nodes.builtin.base.system.SystemFunction;
 import com.oracle.truffle.r.nodes.builtin.base.system.SystemFunctionNodeGen;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRAltRep;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRAltRepFactory;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRContext;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRContextFactory;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRDebug;
@@ -128,15 +130,23 @@ import com.oracle.truffle.r.nodes.builtin.fastr.FastRInteropFactory.FastRInterop
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRInteropFactory.FastRInteropTryNodeGen;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRLibPaths;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRLibPathsNodeGen;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRNativeLocks;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRNativeLocksNodeGen;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastROptionBuiltin;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRParallel;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRParallelFactory;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRPatchPackage;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRPatchPackageNodeGen;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRPkgSource;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRPkgSourceNodeGen;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRPrintError;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRPrintErrorNodeGen;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRReadDelim;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRReadDelimNodeGen;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRRefCountInfo;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRRefCountInfoNodeGen;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRRegexCacheStats;
+import com.oracle.truffle.r.nodes.builtin.fastr.FastRRegexCacheStatsNodeGen;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRRegisterFunctions;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRRegisterFunctionsNodeGen;
 import com.oracle.truffle.r.nodes.builtin.fastr.FastRSetConsoleHandler;
@@ -474,6 +484,7 @@ public class BasePackage extends RBuiltinPackage {
         add(FastRContext.ChannelReceive.class, FastRContextFactory.ChannelReceiveNodeGen::create);
         add(FastRContext.ChannelSelect.class, FastRContextFactory.ChannelSelectNodeGen::create);
         add(FastRContext.ChannelSend.class, FastRContextFactory.ChannelSendNodeGen::create);
+        add(FastRContext.ChannelStats.class, FastRContextFactory.ChannelStatsNodeGen::create);
         add(FastRContext.Spawn.class, FastRContextFactory.SpawnNodeGen::create);
         add(FastRContext.Interrupt.class, FastRContextFactory.InterruptNodeGen::create);
         add(FastRContext.Join.class, FastRContextFactory.JoinNodeGen::create);
@@ -514,8 +525,18 @@ public class BasePackage extends RBuiltinPackage {
         add(FastRInterop.ToLong.class, FastRInteropFactory.ToLongNodeGen::create);
         add(FastRInterop.ToShort.class, FastRInteropFactory.ToShortNodeGen::create);
         add(FastRRefCountInfo.class, FastRRefCountInfoNodeGen::create);
+        add(FastRAltRep.FastRAltRepMmap.class, FastRAltRepFactory.FastRAltRepMmapNodeGen::create);
+        add(FastRAltRep.FastRAltRepClass.class, FastRAltRepFactory.FastRAltRepClassNodeGen::create);
+        add(FastRParallel.FastRParallelLapplyChunks.class, FastRParallelFactory.FastRParallelLapplyChunksNodeGen::create);
+        add(FastRParallel.FastRParallelTask.class, FastRParallelFactory.FastRParallelTaskNodeGen::create);
+        add(FastRParallel.FastRParallelResult.class, FastRParallelFactory.FastRParallelResultNodeGen::create);
+        add(FastRParallel.FastRParallelPoolApply.class, FastRParallelFactory.FastRParallelPoolApplyNodeGen::create);
+        add(FastRParallel.FastRParallelPoolTake.class, FastRParallelFactory.FastRParallelPoolTakeNodeGen::create);
+        add(FastRParallel.FastRParallelPoolStats.class, FastRParallelFactory.FastRParallelPoolStatsNodeGen::create);
         add(FastRPkgSource.class, FastRPkgSourceNodeGen::create);
         add(FastRPrintError.class, FastRPrintErrorNodeGen::create);
+        add(FastRReadDelim.class, FastRReadDelimNodeGen::create);
+        add(FastRRegexCacheStats.class, FastRRegexCacheStatsNodeGen::create);
         add(FastRSourceInfo.class, FastRSourceInfoNodeGen::create);
         add(FastRSetConsoleHandler.class, FastRSetConsoleHandlerNodeGen::create);
         add(FastRSetToolchain.class, FastRSetToolchainNodeGen::create);
@@ -534,6 +555,7 @@ public class BasePackage extends RBuiltinPackage {
         add(FastRprofmemSource.class, FastRprofmemSourceNodeGen::create);
         add(FastRprofmemSnapshot.class, FastRprofmemSnapshotNodeGen::create);
         add(FastRLibPaths.class, FastRLibPathsNodeGen::create);
+        add(FastRNativeLocks.class, FastRNativeLocksNodeGen::create);
         add(FileFunctions.BaseName.class, FileFunctionsFactory.BaseNameNodeGen::create);
         add(FileFunctions.DirCreate.class, FileFunctionsFactory.DirCreateNodeGen::create);
         add(FileFunctions.DirExists.class, FileFunctionsFactory.DirExistsNodeGen::create);
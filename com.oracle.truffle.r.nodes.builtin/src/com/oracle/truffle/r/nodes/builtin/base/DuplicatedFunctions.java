@@ -14,7 +14,7 @@
  * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
  *
  * Copyright (c) 2014, Purdue University
- * Copyright (c) 2014, 2018, Oracle and/or its affiliates
+ * Copyright (c) 2014, 2019, Oracle and/or its affiliates
  *
  * All rights reserved.
  */
@@ -34,19 +34,76 @@ import com.oracle.truffle.r.nodes.binary.CastTypeNode;
 import com.oracle.truffle.r.nodes.binary.CastTypeNodeGen;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
 import com.oracle.truffle.r.nodes.unary.TypeofNode;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashMapCharacter;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashMapDouble;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashMapInt;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RError.Message;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.RType;
+import com.oracle.truffle.r.runtime.VectorHashIndex;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RDoubleVector;
+import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.RLogicalVector;
+import com.oracle.truffle.r.runtime.data.RStringVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractLogicalVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 import com.oracle.truffle.r.runtime.nodes.DuplicationHelper;
 
 public class DuplicatedFunctions {
 
+    protected static boolean useHashIndex(RAbstractVector x, byte fromLast) {
+        // the index maps values to their first occurrence, which is of no use for fromLast
+        return fromLast == RRuntime.LOGICAL_FALSE && VectorHashIndex.isCacheable(x);
+    }
+
+    /**
+     * Finds duplicates using the {@link VectorHashIndex} of {@code x}: an element is a duplicate
+     * iff the index does not map its value to its own position. If {@code dupVec} is {@code null},
+     * the search stops at the first duplicate and its 1-based position is returned.
+     */
+    @TruffleBoundary
+    private static int findDuplicates(RAbstractVector x, byte[] dupVec) {
+        int length = x.getLength();
+        if (x instanceof RIntVector) {
+            RIntVector vec = (RIntVector) x;
+            NonRecursiveHashMapInt index = VectorHashIndex.getIntIndex(vec);
+            for (int i = 0; i < length; i++) {
+                if (index.get(vec.getDataAt(i)) != i) {
+                    if (dupVec == null) {
+                        return i + 1;
+                    }
+                    dupVec[i] = RRuntime.LOGICAL_TRUE;
+                }
+            }
+        } else if (x instanceof RDoubleVector) {
+            RDoubleVector vec = (RDoubleVector) x;
+            NonRecursiveHashMapDouble index = VectorHashIndex.getDoubleIndex(vec);
+            for (int i = 0; i < length; i++) {
+                if (index.get(vec.getDataAt(i)) != i) {
+                    if (dupVec == null) {
+                        return i + 1;
+                    }
+                    dupVec[i] = RRuntime.LOGICAL_TRUE;
+                }
+            }
+        } else {
+            RStringVector vec = (RStringVector) x;
+            NonRecursiveHashMapCharacter index = VectorHashIndex.getStringIndex(vec);
+            for (int i = 0; i < length; i++) {
+                if (index.get(vec.getDataAt(i)) != i) {
+                    if (dupVec == null) {
+                        return i + 1;
+                    }
+                    dupVec[i] = RRuntime.LOGICAL_TRUE;
+                }
+            }
+        }
+        return 0;
+    }
+
     @RBuiltin(name = "duplicated", kind = INTERNAL, parameterNames = {"x", "incomparables", "fromLast", "nmax"}, behavior = PURE)
     public abstract static class Duplicated extends RBuiltinNode.Arg4 {
 
@@ -68,6 +125,7 @@ public class DuplicatedFunctions {
         }
 
         private final ConditionProfile incomparable = ConditionProfile.createBinaryProfile();
+        private final ConditionProfile hashIndexProfile = ConditionProfile.createBinaryProfile();
 
         protected boolean isIncomparable(RAbstractVector incomparables) {
             if (incomparable.profile(incomparables.getLength() == 1 && incomparables instanceof RLogicalVector && ((RAbstractLogicalVector) incomparables).getDataAt(0) == RRuntime.LOGICAL_FALSE)) {
@@ -85,6 +143,11 @@ public class DuplicatedFunctions {
 
         @Specialization(guards = {"!isIncomparable(incomparables)", "x.getLength() != 0"})
         protected RLogicalVector duplicatedFalseIncomparables(RAbstractVector x, @SuppressWarnings("unused") RAbstractVector incomparables, byte fromLast, @SuppressWarnings("unused") int nmax) {
+            if (hashIndexProfile.profile(useHashIndex(x, fromLast))) {
+                byte[] dupVec = new byte[x.getLength()];
+                findDuplicates(x, dupVec);
+                return RDataFactory.createLogicalVector(dupVec, RDataFactory.COMPLETE_VECTOR);
+            }
             return analyzeAndCreateResult(x, null, fromLast);
         }
 
@@ -129,6 +192,7 @@ public class DuplicatedFunctions {
         }
 
         private final ConditionProfile incomparable = ConditionProfile.createBinaryProfile();
+        private final ConditionProfile hashIndexProfile = ConditionProfile.createBinaryProfile();
 
         protected boolean isIncomparable(RAbstractVector incomparables) {
             if (incomparable.profile(incomparables.getLength() == 1 && incomparables instanceof RLogicalVector && ((RAbstractLogicalVector) incomparables).getDataAt(0) == RRuntime.LOGICAL_FALSE)) {
@@ -141,6 +205,9 @@ public class DuplicatedFunctions {
         @SuppressWarnings("unused")
         @Specialization(guards = {"!isIncomparable(incomparables)", "x.getLength() != 0"})
         protected int anyDuplicatedFalseIncomparables(RAbstractVector x, RAbstractVector incomparables, byte fromLast) {
+            if (hashIndexProfile.profile(useHashIndex(x, fromLast))) {
+                return findDuplicates(x, null);
+            }
             return DuplicationHelper.analyze(x, null, true, RRuntime.fromLogical(fromLast)).getIndex();
         }
 
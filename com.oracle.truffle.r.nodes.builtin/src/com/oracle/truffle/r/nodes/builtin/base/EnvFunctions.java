@@ -68,6 +68,7 @@ import com.oracle.truffle.r.runtime.RInternalError;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.VirtualEvalFrame;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
+import com.oracle.truffle.r.runtime.context.FastROptions;
 import com.oracle.truffle.r.runtime.context.RContext;
 import com.oracle.truffle.r.runtime.data.RArgsValuesAndNames;
 import com.oracle.truffle.r.runtime.data.RAttributable;
@@ -507,8 +508,9 @@ public class EnvFunctions {
         @Specialization
         @TruffleBoundary
         protected REnvironment newEnv(boolean hash, REnvironment parent, int size) {
-            REnvironment env = RDataFactory.createNewEnv(null, hash, size);
-            RArguments.initializeEnclosingFrame(env.getFrame(), parent.getFrame());
+            int hashThreshold = RContext.getInstance().getNonNegativeIntOption(FastROptions.EnvHashThreshold);
+            REnvironment env = hash && hashThreshold > 0 ? RDataFactory.createNewHashedEnv(null, size, hashThreshold) : RDataFactory.createNewEnv(null, hash, size);
+            env.initializeParent(parent);
             return env;
         }
     }
@@ -656,7 +658,8 @@ public class EnvFunctions {
 
         @Specialization
         protected Object bindingIsActive(RSymbol sym, REnvironment env) {
-            Object binding = ReadVariableNode.lookupAny(sym.getName(), env.getFrame(), true);
+            // active bindings are always in a stable frame, reading the others keeps them in place
+            Object binding = env.hasStableFrame() ? ReadVariableNode.lookupAny(sym.getName(), env.getFrame(), true) : env.get(sym.getName());
             if (binding == null) {
                 throw error(RError.Message.NO_BINDING_FOR, sym.getName());
             }
@@ -53,9 +53,13 @@ import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.Collections.ArrayListObj;
 import com.oracle.truffle.r.runtime.RError.Message;
 import com.oracle.truffle.r.runtime.RInternalError;
+import com.oracle.truffle.r.runtime.RParallel;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.RegExp;
+import com.oracle.truffle.r.runtime.RegexCache;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
+import com.oracle.truffle.r.runtime.context.FastROptions;
+import com.oracle.truffle.r.runtime.context.RContext;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.RList;
@@ -225,11 +229,16 @@ public class GrepFunctions {
 
         protected PCRERFFI.Result compilePerlPattern(String pattern, boolean ignoreCase) {
             int cflags = ignoreCase ? PCRERFFI.CASELESS : 0;
-            long tables = maketablesNode.execute();
-            PCRERFFI.Result pcre = compileNode.execute(pattern, cflags, tables);
-            if (pcre.result == 0) {
-                // TODO output warning if pcre.errorMessage not NULL
-                throw error(RError.Message.INVALID_REGEXP, pattern);
+            RegexCache.ContextStateImpl cache = RContext.getInstance().stateRegexCache;
+            PCRERFFI.Result pcre = cache.getPerlPattern(pattern, cflags);
+            if (pcre == null) {
+                long tables = maketablesNode.execute();
+                pcre = compileNode.execute(pattern, cflags, tables);
+                if (pcre.result == 0) {
+                    // TODO output warning if pcre.errorMessage not NULL
+                    throw error(RError.Message.INVALID_REGEXP, pattern);
+                }
+                cache.putPerlPattern(pattern, cflags, pcre);
             }
             return pcre;
         }
@@ -322,22 +331,44 @@ public class GrepFunctions {
             }
         }
 
+        private static final int MIN_CHUNK = 4 * 1024;
+
+        /**
+         * Fixed patterns are searched for by {@link String#indexOf(String)}, regular expressions
+         * are compiled only once. Long vectors are matched in parallel chunks, the compiled
+         * {@link Pattern} is immutable and each element gets its own {@link Matcher}.
+         */
         protected static void findAllMatches(boolean[] result, String pattern, RAbstractStringVector vector, boolean fixed, boolean ignoreCase) {
-            for (int i = 0; i < result.length; i++) {
-                String text = vector.getDataAt(i);
-                if (!RRuntime.isNA(text)) {
-                    if (fixed) {
-                        result[i] = text.contains(pattern);
-                    } else {
-                        result[i] = findMatch(pattern, text, ignoreCase);
+            int len = result.length;
+            if (len == 0) {
+                return;
+            }
+            Pattern compiled = fixed ? null : Regexpr.getRegexprPattern(pattern, ignoreCase);
+            if (RParallel.shouldRunInParallel(len, RContext.getInstance().getNonNegativeIntOption(FastROptions.GrepParallelThreshold))) {
+                String[] texts = new String[len];
+                for (int i = 0; i < len; i++) {
+                    texts[i] = vector.getDataAt(i);
+                }
+                RParallel.forEachChunk(len, MIN_CHUNK, (from, to) -> {
+                    for (int i = from; i < to; i++) {
+                        result[i] = findMatch(pattern, compiled, texts[i]);
                     }
+                });
+            } else {
+                for (int i = 0; i < len; i++) {
+                    result[i] = findMatch(pattern, compiled, vector.getDataAt(i));
                 }
             }
         }
 
-        protected static boolean findMatch(String pattern, String text, boolean ignoreCase) {
-            Matcher m = Regexpr.getPatternMatcher(pattern, text, ignoreCase);
-            return m.find();
+        private static boolean findMatch(String pattern, Pattern compiled, String text) {
+            if (RRuntime.isNA(text)) {
+                return false;
+            } else if (compiled == null) {
+                return text.indexOf(pattern) >= 0;
+            } else {
+                return compiled.matcher(text).find();
+            }
         }
     }
 
@@ -353,6 +384,14 @@ public class GrepFunctions {
         return new SubCommonCodeNode();
     }
 
+    /**
+     * Returns the compiled Java pattern from the {@link RegexCache} of the current context.
+     */
+    @TruffleBoundary
+    private static Pattern getPattern(String regex, int flags) {
+        return RContext.getInstance().stateRegexCache.getPattern(regex, flags);
+    }
+
     @ImportStatic(GrepFunctions.class)
     @RBuiltin(name = "grep", kind = INTERNAL, parameterNames = {"pattern", "text", "ignore.case", "value", "perl", "fixed", "useBytes", "invert"}, behavior = PURE)
     public abstract static class Grep extends RBuiltinNode.Arg8 {
@@ -490,6 +529,7 @@ public class GrepFunctions {
                     pattern = RegExp.checkPreDefinedClasses(pattern);
                 }
                 String preparedReplacement = null;
+                Pattern compiled = null;
                 String[] result = new String[len];
                 for (int i = 0; i < len; i++) {
                     String input = vector.getDataAt(i);
@@ -501,11 +541,18 @@ public class GrepFunctions {
                     String value;
                     if (fixed) {
                         if (gsub) {
-                            if (preparedReplacement == null) {
-                                preparedReplacement = replacement.replace("$", "\\$");
-                                preparedReplacement = convertGroups(preparedReplacement, 0);
+                            if (pattern.isEmpty()) {
+                                if (preparedReplacement == null) {
+                                    preparedReplacement = replacement.replace("$", "\\$");
+                                    preparedReplacement = convertGroups(preparedReplacement, 0);
+                                }
+                                value = getPattern(pattern, Pattern.LITERAL).matcher(input).replaceAll(preparedReplacement);
+                            } else {
+                                if (preparedReplacement == null) {
+                                    preparedReplacement = literalReplacement(replacement);
+                                }
+                                value = replaceAllLiteral(input, pattern, preparedReplacement);
                             }
-                            value = Pattern.compile(pattern, Pattern.LITERAL).matcher(input).replaceAll(preparedReplacement);
                         } else {
                             int ix = input.indexOf(pattern);
                             if (preparedReplacement == null) {
@@ -573,7 +620,10 @@ public class GrepFunctions {
                             value = sb.toString();
                         }
                     } else {
-                        Matcher matcher = Pattern.compile(pattern, Pattern.DOTALL).matcher(input);
+                        if (compiled == null) {
+                            compiled = getPattern(pattern, Pattern.DOTALL);
+                        }
+                        Matcher matcher = compiled.matcher(input);
                         if (preparedReplacement == null) {
                             preparedReplacement = replacement.replace("$", "\\$");
                             // matcher.groupCount() only depends on the pattern (not on the input)
@@ -595,6 +645,50 @@ public class GrepFunctions {
             }
         }
 
+        /**
+         * Returns the text that replaces each occurrence of a fixed pattern: the group references
+         * {@code \\1} to {@code \\9} are dropped and other escaped characters stand for
+         * themselves. This gives the same result as preparing the replacement for
+         * {@link Matcher#replaceAll(String)} with no groups.
+         */
+        private static String literalReplacement(String replacement) {
+            if (replacement.indexOf('\\') < 0) {
+                return replacement;
+            }
+            StringBuilder result = new StringBuilder(replacement.length());
+            int i = 0;
+            while (i < replacement.length()) {
+                char c = replacement.charAt(i++);
+                if (c == '\\' && i < replacement.length()) {
+                    c = replacement.charAt(i++);
+                    if (c >= '1' && c <= '9') {
+                        continue;
+                    }
+                }
+                result.append(c);
+            }
+            return result.toString();
+        }
+
+        /**
+         * Replaces all non-overlapping occurrences of {@code pattern} from left to right.
+         */
+        private static String replaceAllLiteral(String input, String pattern, String replacement) {
+            int ix = input.indexOf(pattern);
+            if (ix < 0) {
+                return input;
+            }
+            StringBuilder result = new StringBuilder(input.length() + Math.max(0, replacement.length() - pattern.length()) * 4);
+            int last = 0;
+            while (ix >= 0) {
+                result.append(input, last, ix).append(replacement);
+                last = ix + pattern.length();
+                ix = input.indexOf(pattern, last);
+            }
+            result.append(input, last, input.length());
+            return result.toString();
+        }
+
         private static RAbstractStringVector appendMissingNewLine(RAbstractStringVector vector) {
             String[] newElems = null;
             for (int i = 0; i < vector.getLength(); i++) {
@@ -947,13 +1041,11 @@ public class GrepFunctions {
         protected List<Info> getInfo(CommonCodeNode common, String pattern, String text, boolean ignoreCase, boolean perl, boolean fixed, boolean onlyFirst) {
             List<Info> list = new ArrayList<>();
             if (fixed) {
+                String fixedText = ignoreCase ? text.toLowerCase() : text;
+                String fixedPattern = ignoreCase ? pattern.toLowerCase() : pattern;
                 int index = 0;
                 while (true) {
-                    if (ignoreCase) {
-                        index = text.toLowerCase().indexOf(pattern.toLowerCase(), index);
-                    } else {
-                        index = text.indexOf(pattern, index);
-                    }
+                    index = fixedText.indexOf(fixedPattern, index);
                     if (index == -1) {
                         break;
                     }
@@ -1023,6 +1115,11 @@ public class GrepFunctions {
 
         @TruffleBoundary
         private static Matcher getPatternMatcher(String pattern, String text, boolean ignoreCase) {
+            return getRegexprPattern(pattern, ignoreCase).matcher(text);
+        }
+
+        @TruffleBoundary
+        private static Pattern getRegexprPattern(String pattern, boolean ignoreCase) {
             String actualPattern = pattern;
 
             // If a pattern starts with a '*', GnuR virtually prepends an empty string literal to
@@ -1030,7 +1127,7 @@ public class GrepFunctions {
             if (pattern.length() > 0 && pattern.charAt(0) == '*') {
                 actualPattern = pattern.substring(1);
             }
-            return Pattern.compile(actualPattern, Pattern.DOTALL | (ignoreCase ? Pattern.CASE_INSENSITIVE : 0)).matcher(text);
+            return getPattern(actualPattern, Pattern.DOTALL | (ignoreCase ? Pattern.CASE_INSENSITIVE : 0));
         }
     }
 
@@ -1157,7 +1254,7 @@ public class GrepFunctions {
 
         @TruffleBoundary
         private static Matcher getPatternMatcher(String pattern, String text, boolean ignoreCase) {
-            return Pattern.compile(pattern, Pattern.DOTALL | (ignoreCase ? Pattern.CASE_INSENSITIVE : 0)).matcher(text);
+            return getPattern(pattern, Pattern.DOTALL | (ignoreCase ? Pattern.CASE_INSENSITIVE : 0)).matcher(text);
         }
     }
 
@@ -1497,7 +1594,6 @@ public class GrepFunctions {
             // treat split = NULL as split = ""
             RAbstractStringVector split = splitArg.getLength() == 0 ? RDataFactory.createStringVectorFromScalar("") : splitArg;
             String[] splits = new String[split.getLength()];
-            long pcreTables = perl ? common.maketablesNode.execute() : 0;
             PCRERFFI.Result[] pcreSplits = perl ? new PCRERFFI.Result[splits.length] : null;
 
             na.enable(x);
@@ -1506,11 +1602,7 @@ public class GrepFunctions {
                 splits[i] = fixed || perl ? split.getDataAt(i) : RegExp.checkPreDefinedClasses(split.getDataAt(i));
                 if (perl) {
                     if (!currentSplit.isEmpty()) {
-                        pcreSplits[i] = common.compileNode.execute(currentSplit, 0, pcreTables);
-                        if (pcreSplits[i].result == 0) {
-                            // TODO output warning if pcre.errorMessage not NULL
-                            throw error(RError.Message.INVALID_REGEXP, currentSplit);
-                        }
+                        pcreSplits[i] = common.compilePerlPattern(currentSplit, false);
                         // TODO pcre_study for vectors > 10 ? (cf GnuR)
                     }
                 }
@@ -1598,7 +1690,7 @@ public class GrepFunctions {
                 if (input.equals(separator)) {
                     return RDataFactory.createStringVector("");
                 } else {
-                    return RDataFactory.createStringVector(input.split(separator), true);
+                    return RDataFactory.createStringVector(getPattern(separator, 0).split(input), true);
                 }
             }
         }
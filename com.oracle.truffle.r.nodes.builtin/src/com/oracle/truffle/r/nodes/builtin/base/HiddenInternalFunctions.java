@@ -53,6 +53,7 @@ import com.oracle.truffle.r.nodes.function.call.CallRFunctionCachedNodeGen;
 import com.oracle.truffle.r.runtime.data.nodes.ShareObjectNode;
 import com.oracle.truffle.r.runtime.ArgumentsSignature;
 import com.oracle.truffle.r.runtime.FileSystemUtils;
+import com.oracle.truffle.r.runtime.LazyDBCache;
 import com.oracle.truffle.r.runtime.RCaller;
 import com.oracle.truffle.r.runtime.RCompression;
 import com.oracle.truffle.r.runtime.RError;
@@ -244,46 +245,21 @@ public class HiddenInternalFunctions {
             }
             String dbPath = datafile.getDataAt(0);
             String packageName = FileSystemUtils.getSafeTruffleFile(RContext.getInstance().getEnv(), dbPath).getName();
-            byte[] dbData = RContext.getInstance().stateLazyDBCache.getData(dbPath);
             int dotIndex;
             if ((dotIndex = packageName.lastIndexOf('.')) > 0) {
                 packageName = packageName.substring(0, dotIndex);
             }
             int offset = key.getDataAt(0);
             int length = key.getDataAt(1);
-            int outlen = getOutlen(dbData, offset); // length of uncompressed data
-            byte[] udata = null;
-            boolean rc = true;
-            /*
-             * compression may have value 0, 1, 2 or 3. Value 1 is gzip and the data starts at
-             * "offset + 4". Values 2 and 3 have a "type" field at "offset + 4
-             * " and the data starts at "offset + 5". The type field is 'Z' for lzma, '2' for bzip,
-             * '1' for zip and '0' for no compression. From GnuR code, the only difference between
-             * compression=2 and compression=3 is that type='Z' is only possible for the latter.
-             */
-            if (compression == 0) {
-                udata = new byte[length];
-                System.arraycopy(dbData, offset, udata, 0, length);
-            } else {
-                udata = new byte[outlen];
-                if (compression == 2 || compression == 3) {
-                    RCompression.Type type = RCompression.Type.fromTypeChar(dbData[4]);
-                    if (type == null) {
-                        warning(RError.Message.GENERIC, "unknown compression type");
-                        return RNull.instance;
-                    }
-                    byte[] data = new byte[length - 5];
-                    System.arraycopy(dbData, offset + 5, data, 0, data.length);
-                    rc = RCompression.uncompress(type, udata, data);
-                } else {
-                    // GnuR treats any other value as 1
-                    byte[] data = new byte[length - 4];
-                    System.arraycopy(dbData, offset + 4, data, 0, data.length);
-                    rc = RCompression.uncompress(RCompression.Type.GZIP, udata, data);
+            LazyDBCache.ContextStateImpl dbCache = RContext.getInstance().stateLazyDBCache;
+            LazyDBCache.MappedDB db = dbCache.getData(dbPath);
+            byte[] udata = dbCache.getEntry(db, offset);
+            if (udata == null) {
+                udata = uncompress(db.getData(), offset, length, compression, dbPath);
+                if (udata == null) {
+                    return RNull.instance;
                 }
-            }
-            if (!rc) {
-                throw error(RError.Message.LAZY_LOAD_DB_CORRUPT, dbPath);
+                dbCache.putEntry(db, offset, udata);
             }
             try {
                 RSerialize.CallHook callHook = new RSerialize.CallHook() {
@@ -311,11 +287,44 @@ public class HiddenInternalFunctions {
             }
         }
 
-        private static int getOutlen(byte[] dbData, int offset) {
-            ByteBuffer dataLengthBuf = ByteBuffer.allocate(4);
-            dataLengthBuf.put(dbData, offset, 4);
-            dataLengthBuf.position(0);
-            return dataLengthBuf.getInt();
+        /**
+         * Decompresses the entry directly from the (memory mapped) database data.
+         */
+        private byte[] uncompress(ByteBuffer dbData, int offset, int length, int compression, String dbPath) {
+            byte[] udata;
+            boolean rc = true;
+            /*
+             * compression may have value 0, 1, 2 or 3. Value 1 is gzip and the data starts at
+             * "offset + 4". Values 2 and 3 have a "type" field at "offset + 4
+             * " and the data starts at "offset + 5". The type field is 'Z' for lzma, '2' for bzip,
+             * '1' for zip and '0' for no compression. From GnuR code, the only difference between
+             * compression=2 and compression=3 is that type='Z' is only possible for the latter.
+             */
+            if (compression == 0) {
+                udata = new byte[length];
+                dbData.position(offset);
+                dbData.get(udata);
+            } else {
+                int outlen = dbData.getInt(offset); // length of uncompressed data
+                udata = new byte[outlen];
+                if (compression == 2 || compression == 3) {
+                    RCompression.Type type = RCompression.Type.fromTypeChar(dbData.get(offset + 4));
+                    if (type == null) {
+                        warning(RError.Message.GENERIC, "unknown compression type");
+                        return null;
+                    }
+                    dbData.limit(offset + length).position(offset + 5);
+                    rc = RCompression.uncompress(type, udata, dbData);
+                } else {
+                    // GnuR treats any other value as 1
+                    dbData.limit(offset + length).position(offset + 4);
+                    rc = RCompression.uncompress(RCompression.Type.GZIP, udata, dbData);
+                }
+            }
+            if (!rc) {
+                throw error(RError.Message.LAZY_LOAD_DB_CORRUPT, dbPath);
+            }
+            return udata;
         }
 
         private static final class EvaluateAndSharePromiseNode extends Node {
@@ -485,6 +494,8 @@ public class HiddenInternalFunctions {
                 int[] intData = new int[2];
                 intData[1] = outLen + offset; // include length + type (compression == 3)
                 intData[0] = appendFile(file.getDataAt(0), cdata, data.length, ctype);
+                // the file changed, a mapping of it must be validated again
+                RContext.getInstance().stateLazyDBCache.remove(file.getDataAt(0));
                 return RDataFactory.createIntVector(intData, RDataFactory.COMPLETE_VECTOR);
             } catch (Throwable ex) {
                 // Exceptions have been observed that were masked and very hard to find
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2013, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2013, 2019, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -36,11 +36,14 @@ import com.oracle.truffle.r.nodes.builtin.base.Order.CmpNode;
 import com.oracle.truffle.r.nodes.builtin.base.OrderNodeGen.CmpNodeGen;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
+import com.oracle.truffle.r.runtime.data.RAltRepVector;
+import com.oracle.truffle.r.runtime.data.altrep.AltRepClass;
 import com.oracle.truffle.r.runtime.data.model.RAbstractComplexVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractRawVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractStringVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 import com.oracle.truffle.r.runtime.ops.BinaryCompare;
 
 // TODO support strictly
@@ -58,6 +61,18 @@ public abstract class IsUnsorted extends RBuiltinNode.Arg2 {
         casts.arg("strictly").asLogicalVector().findFirst().mustNotBeNA().map(toBoolean());
     }
 
+    /**
+     * Alternative representations that know they are sorted answer without scanning the data.
+     */
+    @Specialization(guards = {"!strictly", "isKnownSorted(x)"})
+    protected byte isUnsortedAltRep(@SuppressWarnings("unused") RAbstractVector x, @SuppressWarnings("unused") boolean strictly) {
+        return RRuntime.LOGICAL_FALSE;
+    }
+
+    protected static boolean isKnownSorted(RAbstractVector x) {
+        return x instanceof RAltRepVector && ((RAltRepVector) x).getAltClass().isSorted(((RAltRepVector) x).getAltData()) == AltRepClass.SORTED_INCR;
+    }
+
     @Specialization
     protected byte isUnsorted(RAbstractDoubleVector x, boolean strictly) {
         double last = x.getDataAt(0);
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.builtin.base;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.RParallel;
+import com.oracle.truffle.r.runtime.context.FastROptions;
+import com.oracle.truffle.r.runtime.context.RContext;
+
+/**
+ * Parallel double matrix multiplication kernel used by {@link MatMult} for large matrices. The
+ * result is split into {@link MatMult#BLOCK_SIZE} square tiles that are distributed among the
+ * threads of {@link RParallel}, each tile is computed by one thread using 4x4 register tiles. The
+ * order of the additions is the same as in the sequential blocked algorithm in {@link MatMult}, so
+ * the results are identical.
+ */
+final class MatMultKernel {
+
+    private static final int BLOCK_SIZE = MatMult.BLOCK_SIZE;
+    private static final int TILE = 4;
+
+    private MatMultKernel() {
+        // no instances
+    }
+
+    @TruffleBoundary
+    static boolean useParallel(int aRows, int aCols, int bCols) {
+        long work = (long) aRows * aCols * bCols;
+        return RParallel.shouldRunInParallel(work, RContext.getInstance().getNonNegativeIntOption(FastROptions.MatMultParallelThreshold));
+    }
+
+    /**
+     * Computes {@code result += a * b}, see {@link MatMult#doubleMatrixMultiply} for the meaning of
+     * the parameters. If {@code mirrored} is {@code true}, only the tiles on
+     * and above the diagonal are computed.
+     */
+    @TruffleBoundary
+    static void multiplyParallel(double[] a, double[] b, int aRows, int aCols, int bCols, int aRowStride, int aColStride, int bRowStride, int bColStride, boolean mirrored, double[] result) {
+        int rowBlocks = (aRows + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int colBlocks = (bCols + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int tileCount = 0;
+        int[] tiles = new int[rowBlocks * colBlocks];
+        for (int rowBlock = 0; rowBlock < rowBlocks; rowBlock++) {
+            for (int colBlock = mirrored ? rowBlock : 0; colBlock < colBlocks; colBlock++) {
+                tiles[tileCount++] = rowBlock * colBlocks + colBlock;
+            }
+        }
+        RParallel.forEach(tileCount, index -> {
+            int row = (tiles[index] / colBlocks) * BLOCK_SIZE;
+            int col = (tiles[index] % colBlocks) * BLOCK_SIZE;
+            multiplyTile(a, b, aRows, aCols, result, row, col, Math.min(BLOCK_SIZE, aRows - row), Math.min(BLOCK_SIZE, bCols - col), aRowStride, aColStride, bRowStride, bColStride);
+        });
+    }
+
+    private static void multiplyTile(double[] a, double[] b, int aRows, int aCols, double[] result, int row, int col, int rows, int cols, int aRowStride, int aColStride, int bRowStride,
+                    int bColStride) {
+        for (int k = 0; k < aCols; k += BLOCK_SIZE) {
+            int remainingK = Math.min(BLOCK_SIZE, aCols - k);
+            int innerCol = 0;
+            for (; innerCol + TILE <= cols; innerCol += TILE) {
+                int innerRow = 0;
+                for (; innerRow + TILE <= rows; innerRow += TILE) {
+                    multiplyRegisterTile(a, b, aRows, result, row + innerRow, col + innerCol, k, remainingK, aRowStride, aColStride, bRowStride, bColStride);
+                }
+                for (; innerRow < rows; innerRow++) {
+                    for (int c = innerCol; c < innerCol + TILE; c++) {
+                        multiplyElement(a, b, aRows, result, row + innerRow, col + c, k, remainingK, aRowStride, aColStride, bRowStride, bColStride);
+                    }
+                }
+            }
+            for (; innerCol < cols; innerCol++) {
+                for (int innerRow = 0; innerRow < rows; innerRow++) {
+                    multiplyElement(a, b, aRows, result, row + innerRow, col + innerCol, k, remainingK, aRowStride, aColStride, bRowStride, bColStride);
+                }
+            }
+        }
+    }
+
+    private static void multiplyElement(double[] a, double[] b, int aRows, double[] result, int row, int col, int k, int remainingK, int aRowStride, int aColStride, int bRowStride,
+                    int bColStride) {
+        int aIndex = k * aColStride + row * aRowStride;
+        int bIndex = col * bColStride + k * bRowStride;
+        double x = 0.0;
+        for (int innerK = 0; innerK < remainingK; innerK++) {
+            x += a[aIndex] * b[bIndex];
+            aIndex += aColStride;
+            bIndex += bRowStride;
+        }
+        result[col * aRows + row] += x;
+    }
+
+    /**
+     * Computes a 4x4 tile of the result keeping the partial sums in local variables, so that each
+     * loaded element of {@code a} and {@code b} is used four times.
+     */
+    private static void multiplyRegisterTile(double[] a, double[] b, int aRows, double[] result, int row, int col, int k, int remainingK, int aRowStride, int aColStride, int bRowStride,
+                    int bColStride) {
+        int a0 = k * aColStride + row * aRowStride;
+        int a1 = a0 + aRowStride;
+        int a2 = a1 + aRowStride;
+        int a3 = a2 + aRowStride;
+        int b0 = col * bColStride + k * bRowStride;
+        int b1 = b0 + bColStride;
+        int b2 = b1 + bColStride;
+        int b3 = b2 + bColStride;
+        double c00 = 0.0;
+        double c01 = 0.0;
+        double c02 = 0.0;
+        double c03 = 0.0;
+        double c10 = 0.0;
+        double c11 = 0.0;
+        double c12 = 0.0;
+        double c13 = 0.0;
+        double c20 = 0.0;
+        double c21 = 0.0;
+        double c22 = 0.0;
+        double c23 = 0.0;
+        double c30 = 0.0;
+        double c31 = 0.0;
+        double c32 = 0.0;
+        double c33 = 0.0;
+        for (int innerK = 0; innerK < remainingK; innerK++) {
+            double av0 = a[a0];
+            double av1 = a[a1];
+            double av2 = a[a2];
+            double av3 = a[a3];
+            double bv0 = b[b0];
+            double bv1 = b[b1];
+            double bv2 = b[b2];
+            double bv3 = b[b3];
+            c00 += av0 * bv0;
+            c01 += av0 * bv1;
+            c02 += av0 * bv2;
+            c03 += av0 * bv3;
+            c10 += av1 * bv0;
+            c11 += av1 * bv1;
+            c12 += av1 * bv2;
+            c13 += av1 * bv3;
+            c20 += av2 * bv0;
+            c21 += av2 * bv1;
+            c22 += av2 * bv2;
+            c23 += av2 * bv3;
+            c30 += av3 * bv0;
+            c31 += av3 * bv1;
+            c32 += av3 * bv2;
+            c33 += av3 * bv3;
+            a0 += aColStride;
+            a1 += aColStride;
+            a2 += aColStride;
+            a3 += aColStride;
+            b0 += bRowStride;
+            b1 += bRowStride;
+            b2 += bRowStride;
+            b3 += bRowStride;
+        }
+        int r0 = col * aRows + row;
+        int r1 = r0 + aRows;
+        int r2 = r1 + aRows;
+        int r3 = r2 + aRows;
+        result[r0] += c00;
+        result[r0 + 1] += c10;
+        result[r0 + 2] += c20;
+        result[r0 + 3] += c30;
+        result[r1] += c01;
+        result[r1 + 1] += c11;
+        result[r1 + 2] += c21;
+        result[r1 + 3] += c31;
+        result[r2] += c02;
+        result[r2 + 1] += c12;
+        result[r2 + 2] += c22;
+        result[r2 + 3] += c32;
+        result[r3] += c03;
+        result[r3 + 1] += c13;
+        result[r3 + 2] += c23;
+        result[r3 + 3] += c33;
+    }
+}
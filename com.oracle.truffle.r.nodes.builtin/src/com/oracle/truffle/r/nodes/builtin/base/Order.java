@@ -2,7 +2,7 @@
  * Copyright (c) 1995, 1996, 1997  Robert Gentleman and Ross Ihaka
  * Copyright (c) 1995-2014, The R Core Team
  * Copyright (c) 2002-2008, The R Foundation
- * Copyright (c) 2016, 2018, Oracle and/or its affiliates
+ * Copyright (c) 2016, 2019, Oracle and/or its affiliates
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -91,7 +91,12 @@ public abstract class Order extends RPrecedenceBuiltinNode {
         reportWork(n);
 
         int[] indx = createIndexes(v, n, naLast);
-        initOrderVector1().execute(indx, v, naLast, dec, true);
+        RadixOrder.Key key = RadixOrder.createKey(v, RRuntime.fromLogical(naLast), dec, true, false);
+        if (key != null) {
+            RadixOrder.sort(indx, new RadixOrder.Key[]{key});
+        } else {
+            initOrderVector1().execute(indx, v, naLast, dec, true);
+        }
         for (int i = 0; i < indx.length; i++) {
             indx[i] = indx[i] + 1;
         }
@@ -257,9 +262,6 @@ public abstract class Order extends RPrecedenceBuiltinNode {
         return n;
     }
 
-    /*
-     * TODO: multi-element order does not honor string collation.
-     */
     @Specialization(guards = {"!oneVec(args)", "!noVec(args)"})
     Object orderMulti(byte naLast, boolean decreasing, RArgsValuesAndNames args,
                     @Cached("createEqualityProfile()") ValueProfile lengthProfile) {
@@ -269,7 +271,12 @@ public abstract class Order extends RPrecedenceBuiltinNode {
         for (int i = 0; i < indx.length; i++) {
             indx[i] = i;
         }
-        orderVector(indx, args.getArguments(), RRuntime.fromLogical(naLast), decreasing);
+        RadixOrder.Key[] keys = createKeys(args.getArguments(), RRuntime.fromLogical(naLast), decreasing);
+        if (keys != null) {
+            RadixOrder.sort(indx, keys);
+        } else {
+            orderVector(indx, args.getArguments(), RRuntime.fromLogical(naLast), decreasing);
+        }
         for (int i = 0; i < indx.length; i++) {
             indx[i] = indx[i] + 1;
         }
@@ -277,6 +284,23 @@ public abstract class Order extends RPrecedenceBuiltinNode {
         return RDataFactory.createIntVector(indx, RDataFactory.COMPLETE_VECTOR);
     }
 
+    /**
+     * Creates the radix keys for multiple vectors or returns {@code null} if some of the vectors
+     * is not supported by {@link RadixOrder}. As in {@link #greaterSub}, {@code decreasing} also
+     * reverses the placement of {@code NA} values when there are multiple keys.
+     */
+    @TruffleBoundary
+    private static RadixOrder.Key[] createKeys(Object[] vectors, boolean naLast, boolean decreasing) {
+        RadixOrder.Key[] keys = new RadixOrder.Key[vectors.length];
+        for (int i = 0; i < vectors.length; i++) {
+            keys[i] = RadixOrder.createKey(vectors[i], naLast != decreasing, decreasing, true, false);
+            if (keys[i] == null) {
+                return null;
+            }
+        }
+        return keys;
+    }
+
     private boolean greaterSub(int i, int j, Object[] vectors, boolean naLast, boolean dec) {
         int c = -1;
         for (int k = 0; k < vectors.length; k++) {
@@ -0,0 +1,388 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.builtin.base;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.RLocale;
+import com.oracle.truffle.r.runtime.RParallel;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.context.FastROptions;
+import com.oracle.truffle.r.runtime.context.RContext;
+import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractLogicalVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractStringVector;
+
+/**
+ * Stable LSD radix ordering used by {@link Order} and {@link SortFunctions.RadixSort}. Every key
+ * vector is first transformed into {@link Key unsigned 64 bit keys} whose natural order is the
+ * requested order of the elements including the placement of {@code NA} values: integers and
+ * logicals are shifted to the unsigned range, doubles use their IEEE 754 bit pattern with the sign
+ * bit flipped (or all bits flipped for negative numbers) and strings are replaced by the rank of
+ * the value among the distinct strings of the vector. Decreasing order complements the keys, so
+ * that ties keep their original order in both directions. Multiple keys are sorted from the last
+ * to the first one, which gives the lexicographic order because every pass is stable.
+ *
+ * The keys are normalized to start at {@code 1}, so only the digits that actually vary are
+ * processed, e.g., a logical vector is ordered by a single pass. The passes over large vectors
+ * are partitioned among the threads of {@link RParallel}: every chunk computes its own histogram
+ * and the offsets of the chunks are interleaved bucket by bucket, which keeps the pass stable.
+ */
+final class RadixOrder {
+
+    private static final int DIGIT_BITS = 11;
+    private static final int RADIX = 1 << DIGIT_BITS;
+    private static final int MASK = RADIX - 1;
+
+    /**
+     * Below this length an insertion sort over the keys is faster than the radix passes.
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    private static final int MIN_CHUNK = 64 * 1024;
+
+    /**
+     * Transformed value of {@code NA} before the keys are normalized, no non-NA value maps to it.
+     */
+    private static final long NA_RAW = -1L;
+
+    /**
+     * Keys of one vector, {@code values[i]} is the key of the i-th element of the vector.
+     */
+    static final class Key {
+        final long[] values;
+        final long naValue;
+        final int bits;
+
+        private Key(long[] values, long naValue, int bits) {
+            this.values = values;
+            this.naValue = naValue;
+            this.bits = bits;
+        }
+
+        boolean isNA(int i) {
+            return values[i] == naValue;
+        }
+    }
+
+    private RadixOrder() {
+        // no instances
+    }
+
+    /**
+     * Creates the key for given vector or returns {@code null} if the type of the vector is not
+     * supported. Strings are compared according to the collation locale if {@code collate} is
+     * {@code true}, or by their characters otherwise (the "C" locale). If {@code firstAppearance}
+     * is {@code true}, strings are not sorted at all, only grouped in the order of their first
+     * appearance.
+     */
+    @TruffleBoundary
+    static Key createKey(Object vector, boolean naLast, boolean decreasing, boolean collate, boolean firstAppearance) {
+        if (vector instanceof RAbstractIntVector) {
+            return intKey(((RAbstractIntVector) vector).getReadonlyData(), naLast, decreasing);
+        } else if (vector instanceof RAbstractDoubleVector) {
+            return doubleKey(((RAbstractDoubleVector) vector).getReadonlyData(), naLast, decreasing);
+        } else if (vector instanceof RAbstractLogicalVector) {
+            return logicalKey(((RAbstractLogicalVector) vector).getReadonlyData(), naLast, decreasing);
+        } else if (vector instanceof RAbstractStringVector) {
+            return stringKey((RAbstractStringVector) vector, naLast, decreasing, collate ? getCollator() : null, firstAppearance);
+        }
+        return null;
+    }
+
+    private static Collator getCollator() {
+        Locale locale = RContext.getInstance().stateRLocale.getLocale(RLocale.COLLATE);
+        return locale == Locale.ROOT ? null : RLocale.getOrderCollator(locale);
+    }
+
+    private static Key intKey(int[] data, boolean naLast, boolean decreasing) {
+        long[] values = new long[data.length];
+        for (int i = 0; i < data.length; i++) {
+            values[i] = RRuntime.isNA(data[i]) ? NA_RAW : intValue(data[i], decreasing);
+        }
+        return normalize(values, naLast);
+    }
+
+    private static Key logicalKey(byte[] data, boolean naLast, boolean decreasing) {
+        long[] values = new long[data.length];
+        for (int i = 0; i < data.length; i++) {
+            values[i] = RRuntime.isNA(data[i]) ? NA_RAW : intValue(data[i], decreasing);
+        }
+        return normalize(values, naLast);
+    }
+
+    private static long intValue(int value, boolean decreasing) {
+        long result = value - (long) Integer.MIN_VALUE;
+        return decreasing ? 0xFFFFFFFFL - result : result;
+    }
+
+    private static Key doubleKey(double[] data, boolean naLast, boolean decreasing) {
+        long[] values = new long[data.length];
+        for (int i = 0; i < data.length; i++) {
+            double value = data[i];
+            if (Double.isNaN(value)) {
+                values[i] = NA_RAW;
+            } else {
+                // +0.0 and -0.0 are equal
+                long bits = Double.doubleToRawLongBits(value == 0 ? 0.0 : value);
+                long result = bits < 0 ? ~bits : bits ^ Long.MIN_VALUE;
+                values[i] = decreasing ? ~result : result;
+            }
+        }
+        return normalize(values, naLast);
+    }
+
+    private static Key stringKey(RAbstractStringVector vector, boolean naLast, boolean decreasing, Collator collator, boolean firstAppearance) {
+        int length = vector.getLength();
+        int[] ids = new int[length];
+        HashMap<String, Integer> idMap = new HashMap<>();
+        ArrayList<String> distinct = new ArrayList<>();
+        for (int i = 0; i < length; i++) {
+            String value = vector.getDataAt(i);
+            if (RRuntime.isNA(value)) {
+                ids[i] = -1;
+            } else {
+                Integer id = idMap.get(value);
+                if (id == null) {
+                    id = distinct.size();
+                    idMap.put(value, id);
+                    distinct.add(value);
+                }
+                ids[i] = id;
+            }
+        }
+        int distinctCount = distinct.size();
+        int[] ranks = new int[distinctCount];
+        if (firstAppearance) {
+            for (int i = 0; i < distinctCount; i++) {
+                ranks[i] = i;
+            }
+        } else {
+            // only the distinct strings are compared and collation keys are created only for them
+            Integer[] sorted = new Integer[distinctCount];
+            for (int i = 0; i < distinctCount; i++) {
+                sorted[i] = i;
+            }
+            Comparator<Integer> comparator;
+            if (collator == null) {
+                comparator = (a, b) -> distinct.get(a).compareTo(distinct.get(b));
+            } else {
+                CollationKey[] collationKeys = new CollationKey[distinctCount];
+                for (int i = 0; i < distinctCount; i++) {
+                    collationKeys[i] = collator.getCollationKey(distinct.get(i));
+                }
+                comparator = (a, b) -> collationKeys[a].compareTo(collationKeys[b]);
+            }
+            Arrays.sort(sorted, comparator);
+            int rank = 0;
+            for (int i = 0; i < distinctCount; i++) {
+                if (i > 0 && comparator.compare(sorted[i - 1], sorted[i]) != 0) {
+                    rank++;
+                }
+                ranks[sorted[i]] = rank;
+            }
+        }
+        long[] values = new long[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = ids[i] < 0 ? NA_RAW : (decreasing ? distinctCount - ranks[ids[i]] : ranks[ids[i]]);
+        }
+        return normalize(values, naLast);
+    }
+
+    /**
+     * Shifts the non-NA keys to the range {@code [1, max - min + 1]} and maps {@code NA} to
+     * {@code 0} or to the value just above the range depending on {@code naLast}.
+     */
+    private static Key normalize(long[] values, boolean naLast) {
+        long min = NA_RAW;
+        long max = 0;
+        boolean hasValue = false;
+        for (long value : values) {
+            if (value != NA_RAW) {
+                hasValue = true;
+                if (Long.compareUnsigned(value, min) < 0) {
+                    min = value;
+                }
+                if (Long.compareUnsigned(value, max) > 0) {
+                    max = value;
+                }
+            }
+        }
+        long naValue = 0;
+        long maxKey = 0;
+        if (hasValue) {
+            naValue = naLast ? max - min + 2 : 0;
+            maxKey = max - min + 2;
+            for (int i = 0; i < values.length; i++) {
+                values[i] = values[i] == NA_RAW ? naValue : values[i] - min + 1;
+            }
+        } else {
+            Arrays.fill(values, 0);
+        }
+        return new Key(values, naValue, 64 - Long.numberOfLeadingZeros(maxKey));
+    }
+
+    /**
+     * Sorts the element indexes in {@code indx} according to the keys, ties keep their original
+     * order.
+     */
+    @TruffleBoundary
+    static void sort(int[] indx, Key[] keys) {
+        int length = indx.length;
+        if (length < 2) {
+            return;
+        }
+        if (length < INSERTION_SORT_THRESHOLD) {
+            insertionSort(indx, keys);
+            return;
+        }
+        int chunks = 1;
+        if (RParallel.shouldRunInParallel(length, RContext.getInstance().getNonNegativeIntOption(FastROptions.OrderParallelThreshold))) {
+            chunks = RParallel.getChunkCount(length, MIN_CHUNK);
+        }
+        int[] src = indx;
+        int[] dst = new int[length];
+        long[] srcKeys = new long[length];
+        long[] dstKeys = new long[length];
+        int[][] counts = new int[chunks][RADIX];
+        for (int k = keys.length - 1; k >= 0; k--) {
+            Key key = keys[k];
+            long[] values = key.values;
+            for (int i = 0; i < length; i++) {
+                srcKeys[i] = values[src[i]];
+            }
+            for (int shift = 0; shift < key.bits; shift += DIGIT_BITS) {
+                if (pass(src, dst, srcKeys, dstKeys, shift, counts)) {
+                    int[] tmp = src;
+                    src = dst;
+                    dst = tmp;
+                    long[] tmpKeys = srcKeys;
+                    srcKeys = dstKeys;
+                    dstKeys = tmpKeys;
+                }
+            }
+        }
+        if (src != indx) {
+            System.arraycopy(src, 0, indx, 0, length);
+        }
+    }
+
+    /**
+     * Performs one counting sort pass on the digit at given shift, returns {@code false} if the
+     * pass was skipped because all the elements have the same digit.
+     */
+    private static boolean pass(int[] src, int[] dst, long[] srcKeys, long[] dstKeys, int shift, int[][] counts) {
+        int length = src.length;
+        int chunks = counts.length;
+        int chunkSize = (length + chunks - 1) / chunks;
+        if (chunks == 1) {
+            histogram(srcKeys, shift, 0, length, counts[0]);
+        } else {
+            RParallel.forEach(chunks, chunk -> histogram(srcKeys, shift, chunk * chunkSize, Math.min(length, (chunk + 1) * chunkSize), counts[chunk]));
+        }
+        int offset = 0;
+        for (int digit = 0; digit < RADIX; digit++) {
+            int total = 0;
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                int count = counts[chunk][digit];
+                counts[chunk][digit] = offset + total;
+                total += count;
+            }
+            if (total == length) {
+                return false;
+            }
+            offset += total;
+        }
+        if (chunks == 1) {
+            scatter(src, dst, srcKeys, dstKeys, shift, 0, length, counts[0]);
+        } else {
+            RParallel.forEach(chunks, chunk -> scatter(src, dst, srcKeys, dstKeys, shift, chunk * chunkSize, Math.min(length, (chunk + 1) * chunkSize), counts[chunk]));
+        }
+        return true;
+    }
+
+    private static void histogram(long[] keys, int shift, int from, int to, int[] count) {
+        Arrays.fill(count, 0);
+        for (int i = from; i < to; i++) {
+            count[(int) (keys[i] >>> shift) & MASK]++;
+        }
+    }
+
+    private static void scatter(int[] src, int[] dst, long[] srcKeys, long[] dstKeys, int shift, int from, int to, int[] offsets) {
+        for (int i = from; i < to; i++) {
+            long key = srcKeys[i];
+            int pos = offsets[(int) (key >>> shift) & MASK]++;
+            dst[pos] = src[i];
+            dstKeys[pos] = key;
+        }
+    }
+
+    private static void insertionSort(int[] indx, Key[] keys) {
+        for (int i = 1; i < indx.length; i++) {
+            int tmp = indx[i];
+            int j = i;
+            while (j > 0 && compare(indx[j - 1], tmp, keys) > 0) {
+                indx[j] = indx[j - 1];
+                j--;
+            }
+            indx[j] = tmp;
+        }
+    }
+
+    private static int compare(int a, int b, Key[] keys) {
+        for (Key key : keys) {
+            int c = Long.compareUnsigned(key.values[a], key.values[b]);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the (1-based) end positions of the groups of equal elements in the sorted indexes.
+     */
+    @TruffleBoundary
+    static int[] groupEnds(int[] indx, Key[] keys) {
+        if (indx.length == 0) {
+            return new int[0];
+        }
+        int[] ends = new int[indx.length];
+        int count = 0;
+        for (int i = 1; i < indx.length; i++) {
+            if (compare(indx[i - 1], indx[i], keys) != 0) {
+                ends[count++] = i;
+            }
+        }
+        ends[count++] = indx.length;
+        return Arrays.copyOf(ends, count);
+    }
+}
@@ -35,6 +35,7 @@ import java.util.Arrays;
 
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.dsl.TypeSystemReference;
@@ -61,6 +62,7 @@ import com.oracle.truffle.r.runtime.data.RMissing;
 import com.oracle.truffle.r.runtime.data.RNull;
 import com.oracle.truffle.r.runtime.data.RStringVector;
 import com.oracle.truffle.r.runtime.data.RTypes;
+import com.oracle.truffle.r.runtime.data.altrep.CompactRep;
 import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
@@ -159,6 +161,7 @@ public abstract class Repeat extends RBuiltinNode.Arg2 {
 
         private final ConditionProfile lengthOutOrTimes = ConditionProfile.createBinaryProfile();
         private final ConditionProfile oneTimeGiven = ConditionProfile.createBinaryProfile();
+        private final ConditionProfile compactProfile = ConditionProfile.createBinaryProfile();
 
         @Child private GetNamesAttributeNode getNames = GetNamesAttributeNode.create();
 
@@ -178,6 +181,11 @@ public abstract class Repeat extends RBuiltinNode.Arg2 {
             int lengthOut = lengthOutProfile.profile(lengthOutIn);
             int each = eachProfile.profile(eachIn);
 
+            // large results built from a few values are represented compactly
+            if (compactProfile.profile(isCompactable(x, times, lengthOut, each))) {
+                return createCompact(x, times, lengthOut, each);
+            }
+
             // fast path for very simple case of filling with a single double values:
             if (trySimple) {
                 if (x instanceof RAbstractDoubleVector && x.getLength() == 1 && times.getLength() == 1 && each == 1 && getNames.getNames(x) == null) {
@@ -198,6 +206,31 @@ public abstract class Repeat extends RBuiltinNode.Arg2 {
             return repInternal(x, times, lengthOut, each, hasNamesProfile);
         }
 
+        private static long getResultLength(RAbstractVector x, RAbstractIntVector times, int lengthOut, int each) {
+            return RRuntime.isNA(lengthOut) ? (long) x.getLength() * each * times.getDataAt(0) : lengthOut;
+        }
+
+        private static boolean isCompactable(RAbstractVector x, RAbstractIntVector times, int lengthOut, int each) {
+            if (!(x instanceof RAbstractIntVector || x instanceof RAbstractDoubleVector) || x.getAttributes() != null) {
+                return false;
+            }
+            if (each < 1 || times.getLength() != 1 || times.getDataAt(0) < 0) {
+                // errors and the element-wise times are left to the generic code
+                return false;
+            }
+            return CompactRep.isApplicable(x.getLength(), getResultLength(x, times, lengthOut, each));
+        }
+
+        @TruffleBoundary
+        private static RAbstractVector createCompact(RAbstractVector x, RAbstractIntVector times, int lengthOut, int each) {
+            int length = (int) getResultLength(x, times, lengthOut, each);
+            if (x instanceof RAbstractIntVector) {
+                return CompactRep.createInt(((RAbstractIntVector) x).getDataCopy(), each, length);
+            } else {
+                return CompactRep.createReal(((RAbstractDoubleVector) x).getDataCopy(), each, length);
+            }
+        }
+
         private RAbstractVector repInternal(RAbstractVector x, RAbstractIntVector times, int lengthOut, int each, ConditionProfile hasNamesProfile) {
             RAbstractVector input = x;
             if (each != 1) {
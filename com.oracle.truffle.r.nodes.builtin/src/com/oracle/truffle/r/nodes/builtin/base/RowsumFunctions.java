@@ -31,25 +31,22 @@ import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.toBoolean;
 import static com.oracle.truffle.r.runtime.builtins.RBehavior.PURE;
 import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.INTERNAL;
 
-import java.util.HashMap;
-
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.profiles.ConditionProfile;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
+import com.oracle.truffle.r.runtime.Grouping;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RFunction;
-import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.RList;
 import com.oracle.truffle.r.runtime.data.RNull;
 import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractStringVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
-import com.oracle.truffle.r.runtime.ops.na.NACheck;
 
 // Translated from main/unique.c
 
@@ -60,7 +57,6 @@ public class RowsumFunctions {
     public abstract static class Rowsum extends RBuiltinNode.Arg5 {
 
         private final ConditionProfile typeProfile = ConditionProfile.createBinaryProfile();
-        private final NACheck na = NACheck.create();
 
         static {
             Casts casts = new Casts(Rowsum.class);
@@ -81,68 +77,41 @@ public class RowsumFunctions {
             int p = xv.isMatrix() ? xv.getDimensions()[1] : 1;
             int n = g.getLength();
             int ng = uniqueg.getLength();
-            HashMap<Object, Integer> table = new HashMap<>();
-            for (int i = 0; i < ng; i++) {
-                // uniqueg has no duplicates (by definition)
-                table.put(uniqueg.getDataAtAsObject(i), i);
-            }
-            int[] matches = new int[n];
-            for (int i = 0; i < n; i++) {
-                Integer hi = table.get(g.getDataAtAsObject(i));
-                matches[i] = hi + 1;
-            }
-            int offset = 0;
-            int offsetg = 0;
+            // uniqueg has no duplicates (by definition)
+            Grouping grouping = Grouping.create(g, uniqueg);
 
-            boolean isInt = xv instanceof RIntVector;
+            boolean isInt = xv instanceof RAbstractIntVector;
             RAbstractVector result;
-            na.enable(xv);
-            boolean complete = xv.isComplete();
 
             if (typeProfile.profile(isInt)) {
-                RAbstractIntVector xi = (RAbstractIntVector) xv;
+                int[] x = ((RAbstractIntVector) xv).getReadonlyData();
                 int[] ansi = new int[ng * p];
-                for (int i = 0; i < p; i++) {
-                    for (int j = 0; j < n; j++) {
-                        int midx = matches[j] - 1 + offsetg;
-                        int itmp = ansi[midx];
-                        if (na.check(xi.getDataAt(j + offset))) {
-                            if (!narm) {
-                                ansi[midx] = RRuntime.INT_NA;
-                                complete = RDataFactory.INCOMPLETE_VECTOR;
-                            }
-                        } else if (!na.check(itmp)) {
-                            long dtmp = itmp;
-                            int jtmp = xi.getDataAt(j + offset);
-                            dtmp += jtmp;
-                            if (dtmp < Integer.MIN_VALUE || dtmp > Integer.MAX_VALUE) {
-                                itmp = RRuntime.INT_NA;
-                                complete = RDataFactory.INCOMPLETE_VECTOR;
-                            } else {
-                                itmp += jtmp;
-                            }
-                            ansi[midx] = itmp;
-                        }
+                if (grouping.isParallel()) {
+                    int[] order = grouping.getOrder();
+                    int[] starts = grouping.getStarts();
+                    grouping.forEachGroupRange((from, to) -> rowsumGroups(x, n, p, ng, order, starts, narm, ansi, from, to));
+                } else {
+                    rowsumSequential(x, n, p, ng, grouping.getIds(), narm, ansi);
+                }
+                boolean complete = RDataFactory.COMPLETE_VECTOR;
+                for (int i = 0; i < ansi.length; i++) {
+                    if (RRuntime.isNA(ansi[i])) {
+                        complete = RDataFactory.INCOMPLETE_VECTOR;
+                        break;
                     }
-                    offset += n;
-                    offsetg += ng;
                 }
                 result = RDataFactory.createIntVector(ansi, complete, new int[]{ng, p});
             } else {
-                RAbstractDoubleVector xd = (RAbstractDoubleVector) xv;
+                double[] x = ((RAbstractDoubleVector) xv).getReadonlyData();
                 double[] ansd = new double[ng * p];
-                for (int i = 0; i < p; i++) {
-                    for (int j = 0; j < n; j++) {
-                        int midx = matches[j] - 1 + offsetg;
-                        double dtmp = xd.getDataAt(j + offset);
-                        if (!narm || !Double.isNaN(dtmp)) {
-                            ansd[midx] += dtmp;
-                        }
-                    }
-                    offset += n;
-                    offsetg += ng;
+                if (grouping.isParallel()) {
+                    int[] order = grouping.getOrder();
+                    int[] starts = grouping.getStarts();
+                    grouping.forEachGroupRange((from, to) -> rowsumGroups(x, n, p, ng, order, starts, narm, ansd, from, to));
+                } else {
+                    rowsumSequential(x, n, p, ng, grouping.getIds(), narm, ansd);
                 }
-                result = RDataFactory.createDoubleVector(ansd, complete, new int[]{ng, p});
+                result = RDataFactory.createDoubleVector(ansd, xv.isComplete(), new int[]{ng, p});
             }
             RList dn2 = xv.materialize().getDimNames();
             Object dn2Obj = RNull.instance;
@@ -153,5 +122,75 @@ public class RowsumFunctions {
             result.setDimNames(dimNames);
             return result;
         }
+
+        private static int add(int sum, int value, boolean narm) {
+            if (RRuntime.isNA(value)) {
+                return narm ? sum : RRuntime.INT_NA;
+            } else if (RRuntime.isNA(sum)) {
+                return sum;
+            }
+            long dtmp = (long) sum + value;
+            return dtmp < Integer.MIN_VALUE || dtmp > Integer.MAX_VALUE ? RRuntime.INT_NA : (int) dtmp;
+        }
+
+        private static void rowsumSequential(int[] x, int n, int p, int ng, int[] ids, boolean narm, int[] ans) {
+            for (int i = 0; i < p; i++) {
+                int offset = i * n;
+                int offsetg = i * ng;
+                for (int j = 0; j < n; j++) {
+                    int group = ids[j];
+                    if (group != Grouping.NO_GROUP) {
+                        ans[offsetg + group] = add(ans[offsetg + group], x[offset + j], narm);
+                    }
+                }
+            }
+        }
+
+        private static void rowsumSequential(double[] x, int n, int p, int ng, int[] ids, boolean narm, double[] ans) {
+            for (int i = 0; i < p; i++) {
+                int offset = i * n;
+                int offsetg = i * ng;
+                for (int j = 0; j < n; j++) {
+                    int group = ids[j];
+                    double dtmp = x[offset + j];
+                    if (group != Grouping.NO_GROUP && (!narm || !Double.isNaN(dtmp))) {
+                        ans[offsetg + group] += dtmp;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Sums the groups {@code from} to {@code to - 1} of all the columns. The elements of a group
+         * are visited in their original order, so the result is the same as the sequential one.
+         */
+        private static void rowsumGroups(int[] x, int n, int p, int ng, int[] order, int[] starts, boolean narm, int[] ans, int from, int to) {
+            for (int i = 0; i < p; i++) {
+                int offset = i * n;
+                for (int group = from; group < to; group++) {
+                    int sum = 0;
+                    for (int k = starts[group]; k < starts[group + 1]; k++) {
+                        sum = add(sum, x[offset + order[k]], narm);
+                    }
+                    ans[i * ng + group] = sum;
+                }
+            }
+        }
+
+        private static void rowsumGroups(double[] x, int n, int p, int ng, int[] order, int[] starts, boolean narm, double[] ans, int from, int to) {
+            for (int i = 0; i < p; i++) {
+                int offset = i * n;
+                for (int group = from; group < to; group++) {
+                    double sum = 0;
+                    for (int k = starts[group]; k < starts[group + 1]; k++) {
+                        double dtmp = x[offset + order[k]];
+                        if (!narm || !Double.isNaN(dtmp)) {
+                            sum += dtmp;
+                        }
+                    }
+                    ans[i * ng + group] = sum;
+                }
+            }
+        }
     }
 }
@@ -52,9 +52,13 @@ import com.oracle.truffle.r.runtime.RError.Message;
 import com.oracle.truffle.r.runtime.RInternalError;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
+import com.oracle.truffle.r.runtime.conn.DelimitedReader;
+import com.oracle.truffle.r.runtime.conn.DelimitedReader.ColumnType;
 import com.oracle.truffle.r.runtime.conn.RConnection;
 import com.oracle.truffle.r.runtime.conn.RConnection.ReadLineWarning;
 import com.oracle.truffle.r.runtime.conn.StdConnections;
+import com.oracle.truffle.r.runtime.context.FastROptions;
+import com.oracle.truffle.r.runtime.context.RContext;
 import com.oracle.truffle.r.runtime.data.RComplex;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RFunction;
@@ -323,7 +327,7 @@ public abstract class Scan extends RBuiltinNode.Arg19 {
         }
     }
 
-    private RAbstractVector scanFrame(RList what, int maxRecords, int maxLines, boolean flush, boolean fill, @SuppressWarnings("unused") boolean stripWhite, boolean blSkip, boolean multiLine,
+    private RAbstractVector scanFrame(RList what, int maxRecords, int maxLines, boolean flush, boolean fill, boolean stripWhite, boolean blSkip, boolean multiLine,
                     LocalData data) throws IOException {
 
         int nc = what.getLength();
@@ -343,11 +347,63 @@ public abstract class Scan extends RBuiltinNode.Arg19 {
         }
         list.setNames(extractNames.execute(what));
 
+        RList result = scanFrameDelimited(list, maxRecords, maxLines, flush, fill, stripWhite, blSkip, data);
+        if (result != null) {
+            return result;
+        }
+
         naCheck.enable(true);
 
         return scanFrameInternal(maxRecords, maxLines, flush, fill, blSkip, multiLine, data, nc, blockSize, list);
     }
 
+    /**
+     * Reads the records by {@link DelimitedReader} if the connection is a file and the arguments do
+     * not need the line by line processing. Returns {@code null} if the reader cannot be used, in
+     * which case nothing has been read from the connection.
+     */
+    @TruffleBoundary
+    private static RList scanFrameDelimited(RList list, int maxRecords, int maxLines, boolean flush, boolean fill, boolean stripWhite, boolean blSkip, LocalData data) throws IOException {
+        int nc = list.getLength();
+        if (!RContext.getInstance().getOption(FastROptions.FastScan) || flush || maxLines > 0 || data.escapes || data.isLatin1) {
+            return null;
+        }
+        ColumnType[] types = new ColumnType[nc];
+        for (int i = 0; i < nc; i++) {
+            switch (((RAbstractVector) list.getDataAt(i)).getRType()) {
+                case Logical:
+                    types[i] = ColumnType.LOGICAL;
+                    break;
+                case Integer:
+                    types[i] = ColumnType.INTEGER;
+                    break;
+                case Double:
+                    types[i] = ColumnType.DOUBLE;
+                    break;
+                case Character:
+                    types[i] = ColumnType.CHARACTER;
+                    break;
+                default:
+                    return null;
+            }
+        }
+        int comment = data.comchar == NO_COMCHAR ? -1 : data.comchar;
+        DelimitedReader reader = DelimitedReader.create(data.sepchar, data.decchar, data.quoteset, comment, data.naStrings, stripWhite, fill, blSkip);
+        RAbstractVector[] columns = reader == null ? null : reader.read(data.con, types, maxRecords);
+        if (columns == null) {
+            return null;
+        }
+        for (int i = 0; i < nc; i++) {
+            list.updateDataAt(i, columns[i], null);
+        }
+        int records = columns[0].getLength();
+        if (!data.quiet) {
+            String s = String.format("Read %d record%s", records, (records == 1) ? "" : "s");
+            StdConnections.getStdout().writeString(s, true);
+        }
+        return list;
+    }
+
     @TruffleBoundary
     private RAbstractVector scanFrameInternal(int maxRecords, int maxLines, boolean flush, boolean fill, boolean blSkip, boolean multiLine, LocalData data, int nc, int initialBlockSize, RList list)
                     throws IOException {
@@ -529,7 +585,7 @@ public abstract class Scan extends RBuiltinNode.Arg19 {
                     if (isNaString(buffer, 0, data)) {
                         return RRuntime.DOUBLE_NA;
                     } else {
-                        return RRuntime.string2doubleNoCheck(buffer);
+                        return RRuntime.string2doubleNoCheck(data.decchar == '.' ? buffer : buffer.replace(data.decchar, '.'));
                     }
                 case Complex:
                     if (isNaString(buffer, 0, data)) {
@@ -35,6 +35,7 @@ import com.oracle.truffle.r.nodes.objects.AsS4NodeGen;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
 import com.oracle.truffle.r.runtime.context.RContext;
+import com.oracle.truffle.r.runtime.data.RAltRepVector;
 import com.oracle.truffle.r.runtime.data.RAttributable;
 import com.oracle.truffle.r.runtime.data.RNull;
 import com.oracle.truffle.r.runtime.data.RSequence;
@@ -77,7 +78,12 @@ public abstract class SetS4Object extends RBuiltinNode.Arg3 {
         return asS4(seq.materialize(), flag, complete);
     }
 
+    @Specialization
+    protected Object asS4(RAltRepVector vector, boolean flag, int complete) {
+        return asS4(vector.materialize(), flag, complete);
+    }
+
     protected boolean isSequence(Object o) {
-        return o instanceof RSequence;
+        return o instanceof RSequence || o instanceof RAltRepVector;
     }
 }
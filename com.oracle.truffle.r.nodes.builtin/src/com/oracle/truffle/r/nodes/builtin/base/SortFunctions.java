@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2013, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2013, 2019, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -40,10 +40,13 @@ import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.INTERNAL;
 import java.util.Arrays;
 import java.util.Collections;
 
+import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.r.nodes.builtin.NodeWithArgumentCasts.Casts;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
+import com.oracle.truffle.r.nodes.unary.CastToVectorNode;
+import com.oracle.truffle.r.nodes.unary.CastToVectorNodeGen;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
@@ -60,6 +63,7 @@ import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractListVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractLogicalVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractStringVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 
 /**
  * The internal functions mandated by {@code base/sort.R}. N.B. We use the standard JDK sorting
@@ -264,12 +268,17 @@ public class SortFunctions {
     /**
      * This a helper function for the code in sort.R. It does NOT return the input vectors sorted,
      * but returns an {@link RIntVector} of indices (positions) indicating the sort order (Or
-     * {@link RNull#instance} if no vectors). In short it is a special variant of {@code order}. For
-     * now we delegate to {@code order} and do not implement the {@code retgrp} argument.
+     * {@link RNull#instance} if no vectors). In short it is a special variant of {@code order}
+     * that is backed by {@link RadixOrder}, strings are always compared in the "C" locale. If
+     * {@code retgrp} is {@code TRUE}, the result has attributes {@code ends} and {@code maxgrpn}
+     * describing the groups of equal elements and {@code sortstr == FALSE} only groups the strings
+     * in the order of their first appearance. Types not supported by {@link RadixOrder} are
+     * delegated to {@code order}.
      */
     @RBuiltin(name = "radixsort", kind = INTERNAL, parameterNames = {"na.last", "decreasing", "retgrp", "sortstr", "..."}, behavior = PURE)
     public abstract static class RadixSort extends RBuiltinNode.Arg5 {
-        @Child private Order orderNode = OrderNodeGen.create();
+        @Child private Order orderNode;
+        @Child private CastToVectorNode castVector = CastToVectorNodeGen.create(false);
 
         static {
             Casts casts = new Casts(RadixSort.class);
@@ -279,14 +288,8 @@ public class SortFunctions {
             casts.arg("sortstr").asLogicalVector().findFirst().map(toBoolean());
         }
 
-        @SuppressWarnings("unused")
         @Specialization
         protected Object radixSort(byte naLast, RAbstractLogicalVector decreasingVec, boolean retgrp, boolean sortstr, RArgsValuesAndNames zz) {
-            // Partial implementation just to get startup to work
-            if (retgrp) {
-                // sortstr only has an effect when retrgrp == true
-                throw RError.nyi(this, "radixsort: retgrp == TRUE not implemented");
-            }
             int nargs = zz.getLength();
             if (nargs == 0) {
                 return RNull.instance;
@@ -294,26 +297,100 @@ public class SortFunctions {
             if (nargs != decreasingVec.getLength()) {
                 throw error(RError.Message.RADIX_SORT_DEC_MATCH);
             }
-            /*
-             * Order takes a single decreasing argument that applies to all the vectors. We
-             * potentially have a different value for each vector, so we have to process one by one.
-             * However, OrderNode can't yet handle that, so we abort if nargs > 1 and the decreasing
-             * values don't match.
-             */
-            byte lastdb = RRuntime.LOGICAL_NA;
+            Object[] vectors = new Object[nargs];
+            int n = -1;
             for (int i = 0; i < nargs; i++) {
-                byte db = decreasingVec.getDataAt(i);
-                if (RRuntime.isNA(db)) {
+                if (RRuntime.isNA(decreasingVec.getDataAt(i))) {
                     throw error(RError.Message.RADIX_SORT_DEC_NOT_LOGICAL);
                 }
-                if (lastdb != RRuntime.LOGICAL_NA && db != lastdb) {
-                    throw RError.nyi(this, "radixsort: args > 1 with differing 'decreasing' values not implemented");
+                Object vector = castVector.doCast(zz.getArgument(i));
+                if (!(vector instanceof RAbstractVector)) {
+                    throw error(RError.Message.NOT_A_VECTOR, i + 1);
+                }
+                int length = ((RAbstractVector) vector).getLength();
+                if (n != -1 && n != length) {
+                    throw error(RError.Message.ARGUMENT_LENGTHS_DIFFER);
+                }
+                n = length;
+                vectors[i] = vector;
+            }
+            RadixOrder.Key[] keys = createKeys(vectors, naLast, decreasingVec, retgrp && !sortstr);
+            if (keys == null) {
+                return orderFallback(naLast, decreasingVec, retgrp, zz);
+            }
+            return radixOrder(n, keys, RRuntime.isNA(naLast), retgrp);
+        }
+
+        @TruffleBoundary
+        private static RadixOrder.Key[] createKeys(Object[] vectors, byte naLast, RAbstractLogicalVector decreasingVec, boolean firstAppearance) {
+            RadixOrder.Key[] keys = new RadixOrder.Key[vectors.length];
+            for (int i = 0; i < vectors.length; i++) {
+                keys[i] = RadixOrder.createKey(vectors[i], RRuntime.fromLogical(naLast), RRuntime.fromLogical(decreasingVec.getDataAt(i)), false, firstAppearance);
+                if (keys[i] == null) {
+                    return null;
+                }
+            }
+            return keys;
+        }
+
+        @TruffleBoundary
+        private static RIntVector radixOrder(int n, RadixOrder.Key[] keys, boolean removeNA, boolean retgrp) {
+            int[] indx = new int[n];
+            int length = 0;
+            for (int i = 0; i < n; i++) {
+                if (!removeNA || !isNA(keys, i)) {
+                    indx[length++] = i;
                 }
-                lastdb = db;
             }
-            boolean decreasing = RRuntime.fromLogical(decreasingVec.getDataAt(0));
-            Object result = orderNode.execute(naLast, decreasing, zz);
+            if (length < n) {
+                indx = Arrays.copyOf(indx, length);
+            }
+            RadixOrder.sort(indx, keys);
+            int[] ends = retgrp ? RadixOrder.groupEnds(indx, keys) : null;
+            for (int i = 0; i < indx.length; i++) {
+                indx[i]++;
+            }
+            RIntVector result = RDataFactory.createIntVector(indx, RDataFactory.COMPLETE_VECTOR);
+            if (retgrp) {
+                int maxgrpn = 0;
+                for (int i = 0; i < ends.length; i++) {
+                    maxgrpn = Math.max(maxgrpn, ends[i] - (i == 0 ? 0 : ends[i - 1]));
+                }
+                result.setAttr("ends", RDataFactory.createIntVector(ends, RDataFactory.COMPLETE_VECTOR));
+                result.setAttr("maxgrpn", maxgrpn);
+            }
             return result;
         }
+
+        private static boolean isNA(RadixOrder.Key[] keys, int i) {
+            for (RadixOrder.Key key : keys) {
+                if (key.isNA(i)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private Object orderFallback(byte naLast, RAbstractLogicalVector decreasingVec, boolean retgrp, RArgsValuesAndNames zz) {
+            if (retgrp) {
+                // sortstr only has an effect when retrgrp == true
+                throw RError.nyi(this, "radixsort: retgrp == TRUE not implemented for this type");
+            }
+            /*
+             * Order takes a single decreasing argument that applies to all the vectors, so we abort
+             * if the decreasing values don't match.
+             */
+            byte first = decreasingVec.getDataAt(0);
+            for (int i = 1; i < decreasingVec.getLength(); i++) {
+                if (decreasingVec.getDataAt(i) != first) {
+                    throw RError.nyi(this, "radixsort: args > 1 with differing 'decreasing' values not implemented for this type");
+                }
+            }
+            if (orderNode == null) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                orderNode = insert(OrderNodeGen.create());
+            }
+            return orderNode.execute(naLast, RRuntime.fromLogical(first), zz);
+        }
     }
 }
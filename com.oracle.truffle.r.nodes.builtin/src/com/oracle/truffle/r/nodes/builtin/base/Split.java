@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2014, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2014, 2019, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -25,8 +25,6 @@ package com.oracle.truffle.r.nodes.builtin.base;
 import static com.oracle.truffle.r.runtime.builtins.RBehavior.PURE;
 import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.INTERNAL;
 
-import java.util.Arrays;
-
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.ImportStatic;
 import com.oracle.truffle.api.dsl.Specialization;
@@ -36,6 +34,7 @@ import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
 import com.oracle.truffle.r.nodes.builtin.base.SplitNodeGen.GetSplitNamesNodeGen;
 import com.oracle.truffle.r.nodes.helpers.RFactorNodes;
 import com.oracle.truffle.r.runtime.DSLConfig;
+import com.oracle.truffle.r.runtime.Grouping;
 import com.oracle.truffle.r.runtime.RError.Message;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
@@ -64,9 +63,6 @@ public abstract class Split extends RBuiltinNode.Arg2 {
     @Child private RFactorNodes.GetLevels getLevelNode = new RFactorNodes.GetLevels();
     @Child private GetSplitNames getSplitNames = GetSplitNamesNodeGen.create();
 
-    private static final int INITIAL_SIZE = 5;
-    private static final int SCALE_FACTOR = 2;
-
     static {
         Casts.noCasts(Split.class);
     }
@@ -75,187 +71,162 @@ public abstract class Split extends RBuiltinNode.Arg2 {
     protected RList split(RAbstractVector x, RAbstractIntVector f,
                     @Cached("x.access()") VectorAccess xAccess,
                     @Cached("f.access()") VectorAccess fAccess) {
-        try (SequentialIterator xIter = xAccess.access(x); SequentialIterator fIter = fAccess.access(f)) {
-            RStringVector names = getLevelNode.execute(f);
-            int nLevels = getNLevels(names);
-            int[] collectResultSize = new int[nLevels];
-            Object[] results = new Object[nLevels];
+        RStringVector names = getLevelNode.execute(f);
+        int nLevels = getNLevels(names);
+        int[] ids = getGroupIds(x.getLength(), f, fAccess, nLevels);
+        // the sizes of the groups are known upfront, so the results are allocated only once
+        int[] counts = Grouping.create(ids, nLevels).getCounts();
+        int[] positions = new int[nLevels];
+        Object[] results = new Object[nLevels];
 
+        try (SequentialIterator xIter = xAccess.access(x)) {
             switch (xAccess.getType()) {
                 case Character: {
                     // Initialize result arrays
-                    String[][] collectResults = new String[nLevels][INITIAL_SIZE];
+                    String[][] collectResults = new String[nLevels][];
+                    for (int i = 0; i < nLevels; i++) {
+                        collectResults[i] = new String[counts[i]];
+                    }
 
                     // perform split
-                    while (xAccess.next(xIter)) {
-                        fAccess.nextWithWrap(fIter);
-                        if (!fAccess.isNA(fIter)) {
-                            // a factor is a 1-based int vector
-                            int resultIndex = fAccess.getInt(fIter) - 1;
-                            String[] collect = collectResults[resultIndex];
-                            if (collect.length == collectResultSize[resultIndex]) {
-                                collectResults[resultIndex] = collect = Arrays.copyOf(collect, collect.length * SCALE_FACTOR);
-                            }
-                            collect[collectResultSize[resultIndex]++] = xAccess.getString(xIter);
+                    for (int i = 0; xAccess.next(xIter); i++) {
+                        int resultIndex = ids[i];
+                        if (resultIndex != Grouping.NO_GROUP) {
+                            collectResults[resultIndex][positions[resultIndex]++] = xAccess.getString(xIter);
                         }
                     }
 
-                    RStringVector[] resultNames = getSplitNames.getNames(x, fAccess, fIter, nLevels, collectResultSize);
+                    RStringVector[] resultNames = getSplitNames.getNames(x, ids, counts);
                     for (int i = 0; i < nLevels; i++) {
-                        results[i] = RDataFactory.createStringVector(Arrays.copyOfRange(collectResults[i], 0, collectResultSize[i]), x.isComplete(),
-                                        (resultNames != null) ? resultNames[i] : null);
+                        results[i] = RDataFactory.createStringVector(collectResults[i], x.isComplete(), (resultNames != null) ? resultNames[i] : null);
                     }
                     break;
                 }
                 case Complex: {
                     // Initialize result arrays
-                    double[][] collectResults = new double[nLevels][INITIAL_SIZE * 2];
+                    double[][] collectResults = new double[nLevels][];
+                    for (int i = 0; i < nLevels; i++) {
+                        collectResults[i] = new double[counts[i] * 2];
+                    }
 
                     // perform split
-                    while (xAccess.next(xIter)) {
-                        fAccess.nextWithWrap(fIter);
-                        if (!fAccess.isNA(fIter)) {
-                            // a factor is a 1-based int vector
-                            int resultIndex = fAccess.getInt(fIter) - 1;
-                            double[] collect = collectResults[resultIndex];
-                            if (collect.length == collectResultSize[resultIndex] * 2) {
-                                collectResults[resultIndex] = collect = Arrays.copyOf(collect, collect.length * SCALE_FACTOR);
-                            }
-                            collect[collectResultSize[resultIndex] * 2] = xAccess.getComplexR(xIter);
-                            collect[collectResultSize[resultIndex] * 2 + 1] = xAccess.getComplexI(xIter);
-                            collectResultSize[resultIndex]++;
+                    for (int i = 0; xAccess.next(xIter); i++) {
+                        int resultIndex = ids[i];
+                        if (resultIndex != Grouping.NO_GROUP) {
+                            int pos = positions[resultIndex]++ * 2;
+                            collectResults[resultIndex][pos] = xAccess.getComplexR(xIter);
+                            collectResults[resultIndex][pos + 1] = xAccess.getComplexI(xIter);
                         }
                     }
 
-                    RStringVector[] resultNames = getSplitNames.getNames(x, fAccess, fIter, nLevels, collectResultSize);
+                    RStringVector[] resultNames = getSplitNames.getNames(x, ids, counts);
                     for (int i = 0; i < nLevels; i++) {
-                        results[i] = RDataFactory.createComplexVector(Arrays.copyOfRange(collectResults[i], 0, collectResultSize[i] * 2), x.isComplete(),
-                                        (resultNames != null) ? resultNames[i] : null);
+                        results[i] = RDataFactory.createComplexVector(collectResults[i], x.isComplete(), (resultNames != null) ? resultNames[i] : null);
                     }
                     break;
                 }
                 case Double: {
                     // Initialize result arrays
-                    double[][] collectResults = new double[nLevels][INITIAL_SIZE];
+                    double[][] collectResults = new double[nLevels][];
+                    for (int i = 0; i < nLevels; i++) {
+                        collectResults[i] = new double[counts[i]];
+                    }
 
                     // perform split
-                    while (xAccess.next(xIter)) {
-                        fAccess.nextWithWrap(fIter);
-                        if (!fAccess.isNA(fIter)) {
-                            // a factor is a 1-based int vector
-                            int resultIndex = fAccess.getInt(fIter) - 1;
-                            double[] collect = collectResults[resultIndex];
-                            if (collect.length == collectResultSize[resultIndex]) {
-                                collectResults[resultIndex] = collect = Arrays.copyOf(collect, collect.length * SCALE_FACTOR);
-                            }
-                            collect[collectResultSize[resultIndex]++] = xAccess.getDouble(xIter);
+                    for (int i = 0; xAccess.next(xIter); i++) {
+                        int resultIndex = ids[i];
+                        if (resultIndex != Grouping.NO_GROUP) {
+                            collectResults[resultIndex][positions[resultIndex]++] = xAccess.getDouble(xIter);
                         }
                     }
 
-                    RStringVector[] resultNames = getSplitNames.getNames(x, fAccess, fIter, nLevels, collectResultSize);
+                    RStringVector[] resultNames = getSplitNames.getNames(x, ids, counts);
                     for (int i = 0; i < nLevels; i++) {
-                        results[i] = RDataFactory.createDoubleVector(Arrays.copyOfRange(collectResults[i], 0, collectResultSize[i]), x.isComplete(),
-                                        (resultNames != null) ? resultNames[i] : null);
+                        results[i] = RDataFactory.createDoubleVector(collectResults[i], x.isComplete(), (resultNames != null) ? resultNames[i] : null);
                     }
                     break;
                 }
                 case Integer: {
                     // Initialize result arrays
-                    int[][] collectResults = new int[nLevels][INITIAL_SIZE];
+                    int[][] collectResults = new int[nLevels][];
+                    for (int i = 0; i < nLevels; i++) {
+                        collectResults[i] = new int[counts[i]];
+                    }
 
                     // perform split
-                    while (xAccess.next(xIter)) {
-                        fAccess.nextWithWrap(fIter);
-                        if (!fAccess.isNA(fIter)) {
-                            // a factor is a 1-based int vector
-                            int resultIndex = fAccess.getInt(fIter) - 1;
-                            int[] collect = collectResults[resultIndex];
-                            if (collect.length == collectResultSize[resultIndex]) {
-                                collectResults[resultIndex] = collect = Arrays.copyOf(collect, collect.length * SCALE_FACTOR);
-                            }
-                            collect[collectResultSize[resultIndex]++] = xAccess.getInt(xIter);
+                    for (int i = 0; xAccess.next(xIter); i++) {
+                        int resultIndex = ids[i];
+                        if (resultIndex != Grouping.NO_GROUP) {
+                            collectResults[resultIndex][positions[resultIndex]++] = xAccess.getInt(xIter);
                         }
                     }
 
-                    RStringVector[] resultNames = getSplitNames.getNames(x, fAccess, fIter, nLevels, collectResultSize);
+                    RStringVector[] resultNames = getSplitNames.getNames(x, ids, counts);
                     for (int i = 0; i < nLevels; i++) {
-                        results[i] = RDataFactory.createIntVector(Arrays.copyOfRange(collectResults[i], 0, collectResultSize[i]), x.isComplete(),
-                                        (resultNames != null) ? resultNames[i] : null);
+                        results[i] = RDataFactory.createIntVector(collectResults[i], x.isComplete(), (resultNames != null) ? resultNames[i] : null);
                     }
                     break;
                 }
                 case List: {
                     // Initialize result arrays
-                    Object[][] collectResults = new Object[nLevels][INITIAL_SIZE];
+                    Object[][] collectResults = new Object[nLevels][];
+                    for (int i = 0; i < nLevels; i++) {
+                        collectResults[i] = new Object[counts[i]];
+                    }
 
                     // perform split
-                    while (xAccess.next(xIter)) {
-                        fAccess.nextWithWrap(fIter);
-                        if (!fAccess.isNA(fIter)) {
-                            // a factor is a 1-based int vector
-                            int resultIndex = fAccess.getInt(fIter) - 1;
-                            Object[] collect = collectResults[resultIndex];
-                            if (collect.length == collectResultSize[resultIndex]) {
-                                collectResults[resultIndex] = collect = Arrays.copyOf(collect, collect.length * SCALE_FACTOR);
-                            }
-                            collect[collectResultSize[resultIndex]++] = xAccess.getListElement(xIter);
+                    for (int i = 0; xAccess.next(xIter); i++) {
+                        int resultIndex = ids[i];
+                        if (resultIndex != Grouping.NO_GROUP) {
+                            collectResults[resultIndex][positions[resultIndex]++] = xAccess.getListElement(xIter);
                         }
                     }
 
-                    RStringVector[] resultNames = getSplitNames.getNames(x, fAccess, fIter, nLevels, collectResultSize);
+                    RStringVector[] resultNames = getSplitNames.getNames(x, ids, counts);
                     for (int i = 0; i < nLevels; i++) {
-                        results[i] = RDataFactory.createList(Arrays.copyOfRange(collectResults[i], 0, collectResultSize[i]),
-                                        (resultNames != null) ? resultNames[i] : null);
+                        results[i] = RDataFactory.createList(collectResults[i], (resultNames != null) ? resultNames[i] : null);
                     }
                     break;
                 }
                 case Logical: {
                     // Initialize result arrays
-                    byte[][] collectResults = new byte[nLevels][INITIAL_SIZE];
+                    byte[][] collectResults = new byte[nLevels][];
+                    for (int i = 0; i < nLevels; i++) {
+                        collectResults[i] = new byte[counts[i]];
+                    }
 
                     // perform split
-                    while (xAccess.next(xIter)) {
-                        fAccess.nextWithWrap(fIter);
-                        if (!fAccess.isNA(fIter)) {
-                            // a factor is a 1-based int vector
-                            int resultIndex = fAccess.getInt(fIter) - 1;
-                            byte[] collect = collectResults[resultIndex];
-                            if (collect.length == collectResultSize[resultIndex]) {
-                                collectResults[resultIndex] = collect = Arrays.copyOf(collect, collect.length * SCALE_FACTOR);
-                            }
-                            collect[collectResultSize[resultIndex]++] = xAccess.getLogical(xIter);
+                    for (int i = 0; xAccess.next(xIter); i++) {
+                        int resultIndex = ids[i];
+                        if (resultIndex != Grouping.NO_GROUP) {
+                            collectResults[resultIndex][positions[resultIndex]++] = xAccess.getLogical(xIter);
                         }
                     }
 
-                    RStringVector[] resultNames = getSplitNames.getNames(x, fAccess, fIter, nLevels, collectResultSize);
+                    RStringVector[] resultNames = getSplitNames.getNames(x, ids, counts);
                     for (int i = 0; i < nLevels; i++) {
-                        results[i] = RDataFactory.createLogicalVector(Arrays.copyOfRange(collectResults[i], 0, collectResultSize[i]), x.isComplete(),
-                                        (resultNames != null) ? resultNames[i] : null);
+                        results[i] = RDataFactory.createLogicalVector(collectResults[i], x.isComplete(), (resultNames != null) ? resultNames[i] : null);
                     }
                     break;
                 }
                 case Raw: {
                     // Initialize result arrays
-                    byte[][] collectResults = new byte[nLevels][INITIAL_SIZE];
+                    byte[][] collectResults = new byte[nLevels][];
+                    for (int i = 0; i < nLevels; i++) {
+                        collectResults[i] = new byte[counts[i]];
+                    }
 
                     // perform split
-                    while (xAccess.next(xIter)) {
-                        fAccess.nextWithWrap(fIter);
-                        if (!fAccess.isNA(fIter)) {
-                            // a factor is a 1-based int vector
-                            int resultIndex = fAccess.getInt(fIter) - 1;
-                            byte[] collect = collectResults[resultIndex];
-                            if (collect.length == collectResultSize[resultIndex]) {
-                                collectResults[resultIndex] = collect = Arrays.copyOf(collect, collect.length * SCALE_FACTOR);
-                            }
-                            collect[collectResultSize[resultIndex]++] = xAccess.getRaw(xIter);
+                    for (int i = 0; xAccess.next(xIter); i++) {
+                        int resultIndex = ids[i];
+                        if (resultIndex != Grouping.NO_GROUP) {
+                            collectResults[resultIndex][positions[resultIndex]++] = xAccess.getRaw(xIter);
                         }
                     }
 
-                    RStringVector[] resultNames = getSplitNames.getNames(x, fAccess, fIter, nLevels, collectResultSize);
+                    RStringVector[] resultNames = getSplitNames.getNames(x, ids, counts);
                     for (int i = 0; i < nLevels; i++) {
-                        results[i] = RDataFactory.createRawVector(Arrays.copyOfRange(collectResults[i], 0, collectResultSize[i]),
-                                        (resultNames != null) ? resultNames[i] : null);
+                        results[i] = RDataFactory.createRawVector(collectResults[i], (resultNames != null) ? resultNames[i] : null);
                     }
                     break;
                 }
@@ -271,20 +242,38 @@ public abstract class Split extends RBuiltinNode.Arg2 {
         return split(x, f, x.slowPathAccess(), f.slowPathAccess());
     }
 
+    /**
+     * Returns the zero-based level of every element of {@code x}, the factor is recycled to the
+     * length of {@code x}.
+     */
+    private static int[] getGroupIds(int length, RAbstractIntVector f, VectorAccess fAccess, int nLevels) {
+        int[] ids = new int[length];
+        try (SequentialIterator fIter = fAccess.access(f)) {
+            for (int i = 0; i < length; i++) {
+                fAccess.nextWithWrap(fIter);
+                // a factor is a 1-based int vector
+                int level = fAccess.isNA(fIter) ? 0 : fAccess.getInt(fIter);
+                ids[i] = level > 0 && level <= nLevels ? level - 1 : Grouping.NO_GROUP;
+            }
+        }
+        return ids;
+    }
+
     protected abstract static class GetSplitNames extends RBaseNode {
 
         private final ConditionProfile namesProfile = ConditionProfile.createBinaryProfile();
         @Child private GetNamesAttributeNode getNamesNode = GetNamesAttributeNode.create();
 
-        private RStringVector[] getNames(RAbstractVector x, VectorAccess fAccess, SequentialIterator fIter, int nLevels, int[] collectResultSize) {
+        private RStringVector[] getNames(RAbstractVector x, int[] ids, int[] counts) {
             RStringVector xNames = getNamesNode.getNames(x);
             if (namesProfile.profile(xNames != null)) {
+                int nLevels = counts.length;
                 String[][] namesArr = new String[nLevels][];
                 int[] resultNamesIdxs = new int[nLevels];
                 for (int i = 0; i < nLevels; i++) {
-                    namesArr[i] = new String[collectResultSize[i]];
+                    namesArr[i] = new String[counts[i]];
                 }
-                execute(fAccess, fIter, xNames, namesArr, resultNamesIdxs);
+                execute(ids, xNames, namesArr, resultNamesIdxs);
                 RStringVector[] resultNames = new RStringVector[nLevels];
                 for (int i = 0; i < nLevels; i++) {
                     resultNames[i] = RDataFactory.createStringVector(namesArr[i], xNames.isComplete());
@@ -294,24 +283,24 @@ public abstract class Split extends RBuiltinNode.Arg2 {
             return null;
         }
 
-        protected abstract void execute(VectorAccess fAccess, SequentialIterator fIter, RStringVector names, String[][] namesArr, int[] resultNamesIdxs);
+        protected abstract void execute(int[] ids, RStringVector names, String[][] namesArr, int[] resultNamesIdxs);
 
         @Specialization(guards = "namesAccess.supports(names)", limit = "getVectorAccessCacheSize()")
-        protected void fillNames(VectorAccess fAccess, SequentialIterator fIter, RStringVector names, String[][] namesArr, int[] resultNamesIdxs,
+        protected void fillNames(int[] ids, RStringVector names, String[][] namesArr, int[] resultNamesIdxs,
                         @Cached("names.access()") VectorAccess namesAccess) {
             try (SequentialIterator namesIter = namesAccess.access(names)) {
-                while (namesAccess.next(namesIter)) {
-                    fAccess.nextWithWrap(fIter);
-                    int resultIndex = fAccess.getInt(fIter) - 1; // a factor is a 1-based int
-                                                                 // vector
-                    namesArr[resultIndex][resultNamesIdxs[resultIndex]++] = namesAccess.getString(namesIter);
+                for (int i = 0; namesAccess.next(namesIter) && i < ids.length; i++) {
+                    int resultIndex = ids[i];
+                    if (resultIndex != Grouping.NO_GROUP) {
+                        namesArr[resultIndex][resultNamesIdxs[resultIndex]++] = namesAccess.getString(namesIter);
+                    }
                 }
             }
         }
 
         @Specialization(replaces = "fillNames")
-        protected void fillNamesGeneric(VectorAccess fAccess, SequentialIterator fIter, RStringVector names, String[][] namesArr, int[] resultNamesIdxs) {
-            fillNames(fAccess, fIter, names, namesArr, resultNamesIdxs, names.slowPathAccess());
+        protected void fillNamesGeneric(int[] ids, RStringVector names, String[][] namesArr, int[] resultNamesIdxs) {
+            fillNames(ids, names, namesArr, resultNamesIdxs, names.slowPathAccess());
         }
     }
 
@@ -14,7 +14,7 @@
  * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
  *
  * Copyright (c) 2014, Purdue University
- * Copyright (c) 2014, 2018, Oracle and/or its affiliates
+ * Copyright (c) 2014, 2019, Oracle and/or its affiliates
  *
  * All rights reserved.
  */
@@ -26,8 +26,10 @@ import static com.oracle.truffle.r.runtime.builtins.RBehavior.PURE;
 import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.INTERNAL;
 
 import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.profiles.ConditionProfile;
 import com.oracle.truffle.api.profiles.LoopConditionProfile;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
+import com.oracle.truffle.r.runtime.Grouping;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
@@ -39,6 +41,7 @@ import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
 public abstract class Tabulate extends RBuiltinNode.Arg2 {
 
     private final LoopConditionProfile loopProfile = LoopConditionProfile.createCountingProfile();
+    private final ConditionProfile parallelProfile = ConditionProfile.createBinaryProfile();
 
     static {
         Casts casts = new Casts(Tabulate.class);
@@ -48,6 +51,9 @@ public abstract class Tabulate extends RBuiltinNode.Arg2 {
 
     @Specialization
     protected RIntVector tabulate(RAbstractIntVector bin, int nBins) {
+        if (parallelProfile.profile(Grouping.shouldRunInParallel(bin.getLength(), nBins))) {
+            return RDataFactory.createIntVector(Grouping.count(bin.getReadonlyData(), 1, nBins), RDataFactory.COMPLETE_VECTOR);
+        }
         int[] ans = new int[nBins];
         loopProfile.profileCounted(bin.getLength());
         for (int i = 0; loopProfile.inject(i < bin.getLength()); i++) {
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2014, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2014, 2019, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -38,11 +38,15 @@ import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.profiles.ConditionProfile;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashMapCharacter;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashMapDouble;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashMapInt;
 import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashSet;
 import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashSetDouble;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RError.Message;
 import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.VectorHashIndex;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
 import com.oracle.truffle.r.runtime.data.RComplex;
 import com.oracle.truffle.r.runtime.data.RComplexVector;
@@ -70,6 +74,7 @@ public abstract class Unique extends RBuiltinNode.Arg4 {
     private static final long BIG_THRESHOLD = 100;
 
     private final ConditionProfile bigProfile = ConditionProfile.createBinaryProfile();
+    private final ConditionProfile cachedIndexProfile = ConditionProfile.createBinaryProfile();
 
     static {
         Casts casts = new Casts(Unique.class);
@@ -98,6 +103,19 @@ public abstract class Unique extends RBuiltinNode.Arg4 {
                     @Cached("vecIn.getClass()") Class<? extends RAbstractStringVector> vecClass) {
         RAbstractStringVector vec = vecClass.cast(vecIn);
         reportWork(vec.getLength());
+        if (cachedIndexProfile.profile(VectorHashIndex.isCacheable(vec))) {
+            // an element is unique iff it is the first occurrence of its value
+            NonRecursiveHashMapCharacter index = VectorHashIndex.getStringIndex((RStringVector) vec);
+            String[] data = new String[vec.getLength()];
+            int ind = 0;
+            for (int i = 0; i < vec.getLength(); i++) {
+                String val = vec.getDataAt(i);
+                if (index.get(val) == i) {
+                    data[ind++] = val;
+                }
+            }
+            return RDataFactory.createStringVector(Arrays.copyOf(data, ind), vec.isComplete());
+        }
         if (bigProfile.profile(vec.getLength() * (long) vec.getLength() > BIG_THRESHOLD)) {
             NonRecursiveHashSet<String> set = new NonRecursiveHashSet<>(vec.getLength());
             String[] data = new String[vec.getLength()];
@@ -264,6 +282,18 @@ public abstract class Unique extends RBuiltinNode.Arg4 {
                     @Cached("vecIn.getClass()") Class<? extends RAbstractIntVector> vecClass) {
         RAbstractIntVector vec = vecClass.cast(vecIn);
         reportWork(vec.getLength());
+        if (cachedIndexProfile.profile(VectorHashIndex.isCacheable(vec))) {
+            NonRecursiveHashMapInt index = VectorHashIndex.getIntIndex((RIntVector) vec);
+            int[] data = new int[vec.getLength()];
+            int ind = 0;
+            for (int i = 0; i < vec.getLength(); i++) {
+                int val = vec.getDataAt(i);
+                if (index.get(val) == i) {
+                    data[ind++] = val;
+                }
+            }
+            return RDataFactory.createIntVector(Arrays.copyOf(data, ind), vec.isComplete());
+        }
         if (bigProfile.profile(vec.getLength() * (long) vec.getLength() > BIG_THRESHOLD)) {
             NonRecursiveHashSetInt set = new NonRecursiveHashSetInt();
             int[] data = new int[16];
@@ -396,6 +426,18 @@ public abstract class Unique extends RBuiltinNode.Arg4 {
     @Specialization
     protected RDoubleVector doUnique(RAbstractDoubleVector vec, byte incomparables, byte fromLast, int nmax) {
         reportWork(vec.getLength());
+        if (cachedIndexProfile.profile(VectorHashIndex.isCacheable(vec))) {
+            NonRecursiveHashMapDouble index = VectorHashIndex.getDoubleIndex((RDoubleVector) vec);
+            double[] data = new double[vec.getLength()];
+            int ind = 0;
+            for (int i = 0; i < vec.getLength(); i++) {
+                double val = vec.getDataAt(i);
+                if (index.get(val) == i) {
+                    data[ind++] = val;
+                }
+            }
+            return RDataFactory.createDoubleVector(Arrays.copyOf(data, ind), vec.isComplete());
+        }
         if (bigProfile.profile(vec.getLength() * (long) vec.getLength() > BIG_THRESHOLD)) {
             NonRecursiveHashSetDouble set = new NonRecursiveHashSetDouble(vec.getLength());
             double[] data = new double[vec.getLength()];
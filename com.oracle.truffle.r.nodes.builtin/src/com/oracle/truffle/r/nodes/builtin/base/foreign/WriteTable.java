@@ -109,27 +109,11 @@ public abstract class WriteTable extends RExternalBuiltinNode.Arg11 {
                     throw new IllegalArgumentException("corrupt matrix -- dims not not match length");
                 }
 
-                StringBuilder tmp = new StringBuilder();
-                for (int i = 0; i < nr; i++) {
-                    if (!(rnames instanceof RNull)) {
-                        tmp.append(encodeElement2((RAbstractStringVector) rnames, i, quoteRn, qmethod, cdec));
-                        tmp.append(csep);
-                    }
-                    for (int j = 0; j < nc; j++) {
-                        if (j > 0) {
-                            tmp.append(csep);
-                        }
-                        if (isna(x, i + j * nr)) {
-                            tmp.append(cna);
-                        } else {
-                            tmp.append(encodeElement2(x, i + j * nr, quoteCol[j], qmethod, cdec));
-                            /* if(cdec) change_dec(tmp, cdec, TYPEOF(x)); */
-                        }
-                    }
-                    tmp.append(ceol);
-                    con.writeString(tmp.toString(), false);
-                    tmp.setLength(0);
+                Column[] columns = new Column[nc];
+                for (int j = 0; j < nc; j++) {
+                    columns[j] = new Column(x, j * nr, null, quoteCol[j]);
                 }
+                writeRows(con, columns, null, nr, rnames, csep, ceol, cna, cdec, qmethod, quoteRn);
             }
         } catch (IOException | IllegalArgumentException ex) {
             throw RError.error(RError.SHOW_CALLER, RError.Message.GENERIC, ex.getMessage());
@@ -160,41 +144,124 @@ public abstract class WriteTable extends RExternalBuiltinNode.Arg11 {
             }
         }
 
-        StringBuilder tmp = new StringBuilder();
+        Column[] columns = new Column[nc];
+        Object[] primitives = null;
+        for (int j = 0; j < nc; j++) {
+            Object xjObj = x.getDataAtAsObject(j);
+            if (xjObj instanceof RAbstractContainer) {
+                columns[j] = new Column((RAbstractVector) xjObj, 0, levels[j], quoteCol[j]);
+            } else {
+                if (primitives == null) {
+                    primitives = new Object[nc];
+                }
+                primitives[j] = xjObj;
+            }
+        }
+        writeRows(con, columns, primitives, nr, rnames, csep, ceol, cna, cdec, qmethod, quoteRn);
+    }
+
+    /**
+     * One column of the table: a data frame column or a slice of a matrix. Cells are encoded by
+     * {@link #append} straight into the row buffer, without boxing them first.
+     */
+    private static final class Column {
+        private final RAbstractVector vector;
+        private final int offset;
+        private final RStringVector levels;
+        private final boolean quote;
+
+        Column(RAbstractVector vector, int offset, RStringVector levels, boolean quote) {
+            this.vector = vector;
+            this.offset = offset;
+            this.levels = levels;
+            this.quote = quote;
+        }
+
+        void append(StringBuilder tmp, int row, String cna, char cdec, boolean qmethod) {
+            int indx = offset + row;
+            if (isna(vector, indx)) {
+                tmp.append(cna);
+            } else if (levels != null) {
+                appendStringElement(tmp, levels.getDataAt(((RAbstractIntVector) vector).getDataAt(indx) - 1), quote, qmethod);
+            } else if (vector instanceof RAbstractIntVector) {
+                tmp.append(((RAbstractIntVector) vector).getDataAt(indx));
+            } else if (vector instanceof RAbstractDoubleVector) {
+                appendReal(tmp, ((RAbstractDoubleVector) vector).getDataAt(indx), cdec);
+            } else if (vector instanceof RAbstractStringVector) {
+                appendStringElement(tmp, ((RAbstractStringVector) vector).getDataAt(indx), quote, qmethod);
+            } else {
+                tmp.append(encodeElement2(vector, indx, quote, qmethod, cdec));
+            }
+        }
+    }
+
+    /**
+     * Rows are collected into blocks of about this many characters before they are handed to the
+     * connection.
+     */
+    private static final int WRITE_BLOCK_SIZE = 64 * 1024;
+
+    private static void writeRows(RConnection con, Column[] columns, Object[] primitives, int nr, Object rnames, String csep, String ceol, String cna, char cdec, boolean qmethod,
+                    boolean quoteRn) throws IOException {
+        StringBuilder tmp = new StringBuilder(WRITE_BLOCK_SIZE + WRITE_BLOCK_SIZE / 4);
         for (int i = 0; i < nr; i++) {
             // if (i % 1000 == 999)
             // R_CheckUserInterrupt();
             if (!(rnames instanceof RNull)) {
-                tmp.append(encodeElement2((RAbstractStringVector) rnames, i, quoteRn, qmethod, cdec)).append(csep);
+                appendStringElement(tmp, ((RAbstractStringVector) rnames).getDataAt(i), quoteRn, qmethod);
+                tmp.append(csep);
             }
-            for (int j = 0; j < nc; j++) {
-                Object xjObj = x.getDataAtAsObject(j);
+            for (int j = 0; j < columns.length; j++) {
                 if (j > 0) {
                     tmp.append(csep);
                 }
-                if (xjObj instanceof RAbstractContainer) {
-                    RAbstractContainer xj = (RAbstractContainer) xjObj;
-                    if (isna(xj, i)) {
-                        tmp.append(cna);
-                    } else {
-                        if (levels[j] != null) {
-                            tmp.append(encodeElement2(levels[j], (int) xj.getDataAtAsObject(i) - 1, quoteCol[j], qmethod, cdec));
-                        } else {
-                            tmp.append(encodeElement2((RAbstractVector) xj, i, quoteCol[j], qmethod, cdec));
-                        }
-                        /* if(cdec) change_dec(tmp, cdec, TYPEOF(xj)); */
-                    }
+                if (columns[j] != null) {
+                    columns[j].append(tmp, i, cna, cdec, qmethod);
                 } else {
-                    tmp.append(encodePrimitiveElement(xjObj, cna, quoteRn, qmethod));
+                    tmp.append(encodePrimitiveElement(primitives[j], cna, quoteRn, qmethod));
                     /* if(cdec) change_dec(tmp, cdec, TYPEOF(xj)); */
                 }
             }
             tmp.append(ceol);
+            if (tmp.length() >= WRITE_BLOCK_SIZE) {
+                con.writeString(tmp.toString(), false);
+                tmp.setLength(0);
+            }
+        }
+        if (tmp.length() > 0) {
             con.writeString(tmp.toString(), false);
-            tmp.setLength(0);
         }
     }
 
+    /**
+     * Appends a double like {@link DoubleVectorPrinter#encodeReal(double)} does. Whole numbers
+     * below 1e5 always print in fixed notation and need no formatting.
+     */
+    private static void appendReal(StringBuilder tmp, double v, char cdec) {
+        int iv = (int) v;
+        if (iv == v && iv > -100000 && iv < 100000) {
+            tmp.append(iv);
+        } else {
+            tmp.append(DoubleVectorPrinter.encodeReal(v, 15, cdec, 0, RRuntime.STRING_NA));
+        }
+    }
+
+    private static void appendStringElement(StringBuilder tmp, String p0, boolean quote, boolean qmethod) {
+        if (!quote) {
+            tmp.append(p0);
+            return;
+        }
+        tmp.append('"');
+        for (int i = 0; i < p0.length(); i++) {
+            char p = p0.charAt(i);
+            if (p == '"') {
+                tmp.append(qmethod ? '\\' : '"');
+            }
+            tmp.append(p);
+        }
+        tmp.append('"');
+    }
+
     private static String encodeStringElement(String p0, boolean quote, boolean qmethod) {
         if (!quote) {
             return p0;
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.builtin.fastr;
+
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.singleElement;
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.stringValue;
+import static com.oracle.truffle.r.runtime.builtins.RBehavior.COMPLEX;
+import static com.oracle.truffle.r.runtime.builtins.RBehavior.IO;
+import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.PRIMITIVE;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
+import com.oracle.truffle.r.runtime.RError;
+import com.oracle.truffle.r.runtime.Utils;
+import com.oracle.truffle.r.runtime.builtins.RBuiltin;
+import com.oracle.truffle.r.runtime.data.RAltRepVector;
+import com.oracle.truffle.r.runtime.data.RMissing;
+import com.oracle.truffle.r.runtime.data.RNull;
+import com.oracle.truffle.r.runtime.data.altrep.MappedFileVectors;
+
+/**
+ * Builtins giving access to the alternative vector representations from R code.
+ */
+public class FastRAltRep {
+
+    /**
+     * Maps a file of raw integer or double values (e.g., written by {@code writeBin}) as a
+     * read-only vector.
+     */
+    @RBuiltin(name = ".fastr.altrep.mmap", kind = PRIMITIVE, parameterNames = {"file", "type", "endian"}, behavior = IO)
+    public abstract static class FastRAltRepMmap extends RBuiltinNode.Arg3 {
+
+        static {
+            Casts casts = new Casts(FastRAltRepMmap.class);
+            casts.arg("file").mustBe(stringValue()).asStringVector().mustBe(singleElement()).findFirst();
+            casts.arg("type").mustBe(stringValue()).asStringVector().mustBe(singleElement()).findFirst();
+            casts.arg("endian").mustBe(stringValue()).asStringVector().mustBe(singleElement()).findFirst();
+        }
+
+        @Override
+        public Object[] getDefaultParameterValues() {
+            return new Object[]{RMissing.instance, "double", "little"};
+        }
+
+        @Specialization
+        @TruffleBoundary
+        protected Object mmap(String file, String type, String endian) {
+            boolean isDouble;
+            if ("double".equals(type)) {
+                isDouble = true;
+            } else if ("integer".equals(type)) {
+                isDouble = false;
+            } else {
+                throw error(RError.Message.INVALID_ARGUMENT, "type");
+            }
+            ByteOrder order;
+            if ("little".equals(endian)) {
+                order = ByteOrder.LITTLE_ENDIAN;
+            } else if ("big".equals(endian)) {
+                order = ByteOrder.BIG_ENDIAN;
+            } else {
+                throw error(RError.Message.INVALID_ARGUMENT, "endian");
+            }
+            try {
+                return MappedFileVectors.map(Utils.tildeExpand(file), isDouble, order);
+            } catch (IOException e) {
+                throw error(RError.Message.GENERIC, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the name of the alternative representation class of the vector or {@code NULL}.
+     */
+    @RBuiltin(name = ".fastr.altrep.class", kind = PRIMITIVE, parameterNames = {"x"}, behavior = COMPLEX)
+    public abstract static class FastRAltRepClass extends RBuiltinNode.Arg1 {
+
+        static {
+            Casts.noCasts(FastRAltRepClass.class);
+        }
+
+        @Specialization
+        protected Object altClass(Object x) {
+            return x instanceof RAltRepVector ? ((RAltRepVector) x).getAltClass().getName() : RNull.instance;
+        }
+    }
+}
@@ -56,6 +56,7 @@ import com.oracle.truffle.r.runtime.context.RContext;
 import com.oracle.truffle.r.runtime.context.RContext.ConsoleIO;
 import com.oracle.truffle.r.runtime.context.RContext.ContextKind;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RDoubleVector;
 import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.RList;
 import com.oracle.truffle.r.runtime.data.RMissing;
@@ -560,6 +561,26 @@ public class FastRContext {
         }
     }
 
+    @RBuiltin(name = ".fastr.channel.stats", kind = PRIMITIVE, parameterNames = {"id"}, behavior = COMPLEX)
+    public abstract static class ChannelStats extends RBuiltinNode.Arg1 {
+
+        static {
+            Casts casts = new Casts(ChannelStats.class);
+            CastsHelper.id(casts);
+        }
+
+        @Specialization
+        @TruffleBoundary
+        protected RDoubleVector stats(int id) {
+            long[] stats = RChannel.getStats(id);
+            double[] data = new double[stats.length];
+            for (int i = 0; i < stats.length; i++) {
+                data[i] = stats[i];
+            }
+            return RDataFactory.createDoubleVector(data, RDataFactory.COMPLETE_VECTOR, RDataFactory.createStringVector(RChannel.STATS_NAMES, RDataFactory.COMPLETE_VECTOR));
+        }
+    }
+
     @RBuiltin(name = ".fastr.channel.select", kind = PRIMITIVE, parameterNames = {"ids"}, behavior = COMPLEX)
     public abstract static class ChannelSelect extends RBuiltinNode.Arg1 {
 
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.builtin.fastr;
+
+import static com.oracle.truffle.r.runtime.builtins.RBehavior.READS_STATE;
+import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.PRIMITIVE;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
+import com.oracle.truffle.r.runtime.builtins.RBuiltin;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RList;
+import com.oracle.truffle.r.runtime.ffi.NativeLock;
+
+/**
+ * Returns the statistics of the locks that synchronize the calls into native libraries (see
+ * {@link NativeLock}) as a list with the library names and paths, the number of calls, the number
+ * of calls that had to wait for the lock and the total wait and hold times in seconds.
+ */
+@RBuiltin(name = ".fastr.native.lockStats", kind = PRIMITIVE, parameterNames = {}, behavior = READS_STATE)
+public abstract class FastRNativeLocks extends RBuiltinNode.Arg0 {
+
+    private static final String[] NAMES = {"name", "path", "calls", "contended", "wait", "hold"};
+
+    @Specialization
+    @TruffleBoundary
+    protected RList lockStats() {
+        ArrayList<NativeLock> locks = new ArrayList<>(NativeLock.getAll());
+        locks.sort(Comparator.comparing(NativeLock::getName));
+        int n = locks.size();
+        String[] names = new String[n];
+        String[] paths = new String[n];
+        double[] calls = new double[n];
+        double[] contended = new double[n];
+        double[] wait = new double[n];
+        double[] hold = new double[n];
+        for (int i = 0; i < n; i++) {
+            NativeLock lock = locks.get(i);
+            names[i] = lock.getName();
+            paths[i] = lock.getPath();
+            calls[i] = lock.getAcquisitions();
+            contended[i] = lock.getContentions();
+            wait[i] = lock.getWaitNanos() / 1e9;
+            hold[i] = lock.getHoldNanos() / 1e9;
+        }
+        return RDataFactory.createList(new Object[]{
+                        RDataFactory.createStringVector(names, RDataFactory.COMPLETE_VECTOR),
+                        RDataFactory.createStringVector(paths, RDataFactory.COMPLETE_VECTOR),
+                        RDataFactory.createDoubleVector(calls, RDataFactory.COMPLETE_VECTOR),
+                        RDataFactory.createDoubleVector(contended, RDataFactory.COMPLETE_VECTOR),
+                        RDataFactory.createDoubleVector(wait, RDataFactory.COMPLETE_VECTOR),
+                        RDataFactory.createDoubleVector(hold, RDataFactory.COMPLETE_VECTOR)},
+                        RDataFactory.createStringVector(NAMES, RDataFactory.COMPLETE_VECTOR));
+    }
+}
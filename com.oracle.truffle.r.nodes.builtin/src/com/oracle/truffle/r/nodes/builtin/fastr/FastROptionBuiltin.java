@@ -30,45 +30,90 @@ import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
 import com.oracle.truffle.r.runtime.context.FastROptions;
+import com.oracle.truffle.r.runtime.RError.Message;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.builtins.RBuiltin;
 import com.oracle.truffle.r.runtime.context.RContext;
+import com.oracle.truffle.r.runtime.data.RMissing;
 import com.oracle.truffle.r.runtime.data.RNull;
 import java.util.Iterator;
 import org.graalvm.options.OptionDescriptor;
+import org.graalvm.options.OptionKey;
 
 /**
- * Allows to read {@link FastROptions} from (e.g. internal) R code.
+ * Allows to read {@link FastROptions} from (e.g. internal) R code. If {@code value} is given, the
+ * option is set to it in the current context and the previous value is returned, which is allowed
+ * only for the options of deferred arithmetic (for testing).
  */
-@RBuiltin(name = ".fastr.option", visibility = ON, kind = PRIMITIVE, parameterNames = {"name"}, behavior = COMPLEX)
-public abstract class FastROptionBuiltin extends RBuiltinNode.Arg1 {
+@RBuiltin(name = ".fastr.option", visibility = ON, kind = PRIMITIVE, parameterNames = {"name", "value"}, behavior = COMPLEX)
+public abstract class FastROptionBuiltin extends RBuiltinNode.Arg2 {
 
     static {
         Casts casts = new Casts(FastROptionBuiltin.class);
         casts.arg("name").asStringVector().findFirst();
+        casts.arg("value").allowMissing().asStringVector().findFirst();
     }
 
     @Specialization
     @TruffleBoundary
-    protected Object getOption(String fastrOptionName) {
+    protected Object getOption(String fastrOptionName, @SuppressWarnings("unused") RMissing value) {
         if ("hostLookup".equals(fastrOptionName)) {
             return RRuntime.asLogical(RContext.getInstance().getEnv().isHostLookupAllowed());
         }
-        Object opt = null;
+        OptionDescriptor d = findOption(fastrOptionName);
+        return d == null ? RNull.instance : toR(RContext.getInstance().getOption(d.getKey()));
+    }
+
+    @Specialization
+    @TruffleBoundary
+    protected Object setOption(String fastrOptionName, String value) {
+        OptionDescriptor d = findOption(fastrOptionName);
+        if (d == null) {
+            throw error(Message.GENERIC, "unknown FastR option '" + fastrOptionName + "'");
+        }
+        if (d.getKey() != FastROptions.LazyArithmetic && d.getKey() != FastROptions.LazyArithmeticMinLength) {
+            throw error(Message.GENERIC, "FastR option '" + fastrOptionName + "' cannot be set from R code");
+        }
+        @SuppressWarnings("unchecked")
+        OptionKey<Object> key = (OptionKey<Object>) d.getKey();
+        Object defaultValue = key.getDefaultValue();
+        Object newValue;
+        try {
+            if (defaultValue instanceof Boolean) {
+                newValue = Boolean.parseBoolean(value);
+            } else if (defaultValue instanceof Integer) {
+                newValue = Integer.parseInt(value);
+            } else if (defaultValue instanceof Double) {
+                newValue = Double.parseDouble(value);
+            } else {
+                newValue = value;
+            }
+        } catch (NumberFormatException e) {
+            throw error(Message.GENERIC, "invalid value '" + value + "' of FastR option '" + fastrOptionName + "'");
+        }
+        RContext context = RContext.getInstance();
+        Object oldValue = context.getOption(key);
+        context.setOption(key, newValue);
+        return toR(oldValue);
+    }
+
+    private static OptionDescriptor findOption(String fastrOptionName) {
         String keyName = fastrOptionName.startsWith("R.") ? fastrOptionName : "R." + fastrOptionName;
         Iterator<OptionDescriptor> it = FastROptions.getDescriptors().iterator();
         while (it.hasNext()) {
             OptionDescriptor d = it.next();
             if (d.getName().equals(keyName)) {
-                opt = RContext.getInstance().getOption(d.getKey());
-                break;
+                return d;
             }
         }
-        if (opt != null) {
-            return opt instanceof Boolean ? RRuntime.asLogical((boolean) opt) : opt;
-        } else {
+        return null;
+    }
+
+    private static Object toR(Object opt) {
+        if (opt == null) {
             return RNull.instance;
         }
+        return opt instanceof Boolean ? RRuntime.asLogical((boolean) opt) : opt;
     }
 
     public static FastROptionBuiltin create() {
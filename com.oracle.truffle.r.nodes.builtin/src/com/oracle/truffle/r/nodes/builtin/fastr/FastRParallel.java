@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.builtin.fastr;
+
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.equalTo;
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.gte;
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.instanceOf;
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.nullValue;
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.singleElement;
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.stringValue;
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.toBoolean;
+import static com.oracle.truffle.r.runtime.RVisibility.OFF;
+import static com.oracle.truffle.r.runtime.builtins.RBehavior.COMPLEX;
+import static com.oracle.truffle.r.runtime.builtins.RBehavior.READS_STATE;
+import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.PRIMITIVE;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.r.launcher.RCmdOptions.Client;
+import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
+import com.oracle.truffle.r.runtime.RError;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.RSerialize;
+import com.oracle.truffle.r.runtime.RSource;
+import com.oracle.truffle.r.runtime.builtins.RBuiltin;
+import com.oracle.truffle.r.runtime.context.ChildContextInfo;
+import com.oracle.truffle.r.runtime.context.ChildContextPool;
+import com.oracle.truffle.r.runtime.context.ChildContextPool.Task;
+import com.oracle.truffle.r.runtime.context.EvalThread;
+import com.oracle.truffle.r.runtime.context.RContext;
+import com.oracle.truffle.r.runtime.context.RContext.ConsoleIO;
+import com.oracle.truffle.r.runtime.context.RContext.ContextKind;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RFunction;
+import com.oracle.truffle.r.runtime.data.RIntVector;
+import com.oracle.truffle.r.runtime.data.RList;
+import com.oracle.truffle.r.runtime.data.RNull;
+import com.oracle.truffle.r.runtime.data.RStringVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractListVector;
+
+/**
+ * Support for {@code .fastr.parallel.lapply} (see {@code parallel_lapply.R}), which evaluates
+ * chunks of an {@code lapply} in child contexts without setting up a cluster. The parent
+ * serializes each chunk together with the function and its extra arguments, the child contexts
+ * pick up their task with {@code .fastr.parallel.task} and hand the serialized result back with
+ * {@code .fastr.parallel.result}.
+ *
+ * The {@code .fastr.parallel.pool*} builtins evaluate the same kind of tasks in the warm child
+ * contexts of {@link ChildContextPool}, they are used by {@code mclapply}, {@code pvec} and
+ * {@code mcmapply} (see {@code mclapply_overrides.R}).
+ */
+public class FastRParallel {
+
+    private static Task createTask(RContext context, RAbstractListVector chunks, int i, RFunction fun, RAbstractListVector args, Object seeds) {
+        Object seed = seeds == RNull.instance ? RNull.instance : ((RAbstractListVector) seeds).getDataAt(i);
+        RList payload = RDataFactory.createList(new Object[]{chunks.getDataAt(i), fun, args, seed}, RDataFactory.createStringVector(new String[]{"X", "FUN", "args", "seed"}, true));
+        return new Task(RSerialize.serialize(context, payload, RSerialize.XDR, RSerialize.DEFAULT_VERSION, null));
+    }
+
+    /**
+     * Evaluates {@code lapply(chunks[[i]], FUN, args...)} for every chunk in a separate child
+     * context of given kind, each on its own {@link EvalThread}, and returns the list of the
+     * per-chunk results. The calling thread only waits for the threads. {@code seeds} is either
+     * {@code NULL} or a list with the RNG state for each chunk. The result for a chunk that failed
+     * is an object of class {@code try-error} with the original condition.
+     */
+    @RBuiltin(name = ".fastr.parallel.lapplyChunks", kind = PRIMITIVE, parameterNames = {"chunks", "FUN", "args", "seeds", "kind"}, behavior = COMPLEX)
+    public abstract static class FastRParallelLapplyChunks extends RBuiltinNode.Arg5 {
+
+        static {
+            Casts casts = new Casts(FastRParallelLapplyChunks.class);
+            casts.arg("chunks").mustBe(instanceOf(RAbstractListVector.class));
+            casts.arg("FUN").mustBe(instanceOf(RFunction.class));
+            casts.arg("args").mustBe(instanceOf(RAbstractListVector.class));
+            casts.arg("seeds").mustBe(nullValue().or(instanceOf(RAbstractListVector.class)));
+            casts.arg("kind").mustBe(stringValue()).asStringVector().mustBe(singleElement()).findFirst().mustNotBeNA().mustBe(
+                            equalTo(ContextKind.SHARE_NOTHING.name()).or(equalTo(ContextKind.SHARE_PARENT_RO.name())));
+        }
+
+        @Specialization
+        @TruffleBoundary
+        protected RList lapply(RAbstractListVector chunks, RFunction fun, RAbstractListVector args, Object seeds, String kind) {
+            RContext context = RContext.getInstance();
+            ConsoleIO console = context.getConsole();
+            ContextKind contextKind = ContextKind.valueOf(kind);
+            int count = chunks.getLength();
+            Task[] chunkTasks = new Task[count];
+            for (int i = 0; i < count; i++) {
+                chunkTasks[i] = createTask(context, chunks, i, fun, args, seeds);
+            }
+            EvalThread[] threads = new EvalThread[count];
+            int started = 0;
+            try {
+                for (int i = 0; i < count; i++) {
+                    ChildContextInfo info = ChildContextInfo.createNoRestore(Client.RSCRIPT, null, contextKind, context, console.getStdin(), console.getStdout(), console.getStderr());
+                    ChildContextPool.putTask(info.getId(), chunkTasks[i]);
+                    String code = ".fastr.parallel.runChunk(" + info.getId() + "L)";
+                    threads[i] = new EvalThread(context.threads, info, RSource.fromTextInternalInvisible(code, RSource.Internal.CONTEXT_EVAL));
+                }
+                for (; started < count; started++) {
+                    threads[started].start();
+                }
+                for (int i = 0; i < count; i++) {
+                    threads[i].waitForInit();
+                }
+                for (int i = 0; i < count; i++) {
+                    threads[i].join();
+                }
+            } catch (InterruptedException e) {
+                throw error(RError.Message.GENERIC, "interrupted while waiting for parallel chunks");
+            } finally {
+                for (int i = 0; i < count; i++) {
+                    if (threads[i] != null) {
+                        if (i >= started) {
+                            threads[i].disposeUnstarted();
+                        }
+                        ChildContextPool.removeTask(threads[i].getContextInfo().getId());
+                    }
+                }
+            }
+            Object[] results = new Object[count];
+            for (int i = 0; i < count; i++) {
+                Task task = chunkTasks[i];
+                if (task.getResult() == null) {
+                    throw error(RError.Message.GENERIC, "evaluation of parallel chunk " + (i + 1) + " failed");
+                }
+                results[i] = RSerialize.unserialize(RDataFactory.createRawVector(task.getResult()));
+            }
+            return RDataFactory.createList(results);
+        }
+    }
+
+    /**
+     * Returns the task (a list with elements {@code X}, {@code FUN}, {@code args} and {@code seed})
+     * of the child context with given id.
+     */
+    @RBuiltin(name = ".fastr.parallel.task", kind = PRIMITIVE, parameterNames = {"id"}, behavior = COMPLEX)
+    public abstract static class FastRParallelTask extends RBuiltinNode.Arg1 {
+
+        static {
+            Casts casts = new Casts(FastRParallelTask.class);
+            casts.arg("id").asIntegerVector().findFirst().mustNotBeNA();
+        }
+
+        @Specialization
+        @TruffleBoundary
+        protected Object task(int id) {
+            return RSerialize.unserialize(RDataFactory.createRawVector(ChildContextPool.getTask(id).getPayload()));
+        }
+    }
+
+    /**
+     * Hands the result of the task of the child context with given id back to the parent. If
+     * {@code error} is {@code TRUE}, the value is the {@code try-error} object of the failure.
+     */
+    @RBuiltin(name = ".fastr.parallel.result", visibility = OFF, kind = PRIMITIVE, parameterNames = {"id", "value", "error"}, behavior = COMPLEX)
+    public abstract static class FastRParallelResult extends RBuiltinNode.Arg3 {
+
+        static {
+            Casts casts = new Casts(FastRParallelResult.class);
+            casts.arg("id").asIntegerVector().findFirst().mustNotBeNA();
+            casts.arg("error").asLogicalVector().findFirst().mustNotBeNA().map(toBoolean());
+        }
+
+        @Specialization
+        @TruffleBoundary
+        protected Object result(int id, Object value, boolean error) {
+            ChildContextPool.getTask(id).setResult(RSerialize.serialize(RContext.getInstance(), value, RSerialize.XDR, RSerialize.DEFAULT_VERSION, null), error);
+            return RNull.instance;
+        }
+    }
+
+    /**
+     * Like {@code .fastr.parallel.lapplyChunks}, but evaluates the chunks by at most {@code cores}
+     * workers of the context's {@link ChildContextPool}. The chunks are distributed dynamically
+     * among the workers. The result for a chunk that failed is an object of class
+     * {@code try-error} with the original condition.
+     */
+    @RBuiltin(name = ".fastr.parallel.poolApply", kind = PRIMITIVE, parameterNames = {"chunks", "FUN", "args", "seeds", "cores"}, behavior = COMPLEX)
+    public abstract static class FastRParallelPoolApply extends RBuiltinNode.Arg5 {
+
+        static {
+            Casts casts = new Casts(FastRParallelPoolApply.class);
+            casts.arg("chunks").mustBe(instanceOf(RAbstractListVector.class));
+            casts.arg("FUN").mustBe(instanceOf(RFunction.class));
+            casts.arg("args").mustBe(instanceOf(RAbstractListVector.class));
+            casts.arg("seeds").mustBe(nullValue().or(instanceOf(RAbstractListVector.class)));
+            casts.arg("cores").asIntegerVector().findFirst().mustNotBeNA().mustBe(gte(1));
+        }
+
+        @Specialization
+        @TruffleBoundary
+        protected RList apply(RAbstractListVector chunks, RFunction fun, RAbstractListVector args, Object seeds, int cores) {
+            RContext context = RContext.getInstance();
+            int count = chunks.getLength();
+            Task[] chunkTasks = new Task[count];
+            for (int i = 0; i < count; i++) {
+                chunkTasks[i] = createTask(context, chunks, i, fun, args, seeds);
+            }
+            context.stateChildContextPool.evaluate(chunkTasks, cores);
+            Object[] results = new Object[count];
+            for (int i = 0; i < count; i++) {
+                Task task = chunkTasks[i];
+                if (task.getResult() != null) {
+                    results[i] = RSerialize.unserialize(RDataFactory.createRawVector(task.getResult()));
+                } else {
+                    RStringVector tryError = RDataFactory.createStringVectorFromScalar("parallel worker terminated");
+                    tryError.setClassAttr(RDataFactory.createStringVectorFromScalar("try-error"));
+                    results[i] = tryError;
+                }
+            }
+            return RDataFactory.createList(results);
+        }
+    }
+
+    /**
+     * Evaluated by the pool worker with given id, waits for its next task. Returns {@code FALSE}
+     * if the worker should terminate.
+     */
+    @RBuiltin(name = ".fastr.parallel.poolTake", kind = PRIMITIVE, parameterNames = {"id"}, behavior = COMPLEX)
+    public abstract static class FastRParallelPoolTake extends RBuiltinNode.Arg1 {
+
+        static {
+            Casts casts = new Casts(FastRParallelPoolTake.class);
+            casts.arg("id").asIntegerVector().findFirst().mustNotBeNA();
+        }
+
+        @Specialization
+        @TruffleBoundary
+        protected byte take(int id) {
+            return RRuntime.asLogical(ChildContextPool.takeTask(id));
+        }
+    }
+
+    /**
+     * Returns the number of live workers, the number of idle workers and the number of workers
+     * created so far by the pool of the current context.
+     */
+    @RBuiltin(name = ".fastr.parallel.poolStats", kind = PRIMITIVE, parameterNames = {}, behavior = READS_STATE)
+    public abstract static class FastRParallelPoolStats extends RBuiltinNode.Arg0 {
+
+        @Specialization
+        @TruffleBoundary
+        protected RIntVector stats() {
+            return RDataFactory.createIntVector(RContext.getInstance().stateChildContextPool.getStats(), RDataFactory.COMPLETE_VECTOR,
+                            RDataFactory.createStringVector(new String[]{"size", "idle", "created"}, RDataFactory.COMPLETE_VECTOR));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.nodes.builtin.fastr;
+
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.gte;
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.length;
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.lengthLte;
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.logicalValue;
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.singleElement;
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.stringValue;
+import static com.oracle.truffle.r.nodes.builtin.CastBuilder.Predef.toBoolean;
+import static com.oracle.truffle.r.runtime.builtins.RBehavior.IO;
+import static com.oracle.truffle.r.runtime.builtins.RBuiltinKind.PRIMITIVE;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.r.nodes.builtin.RBuiltinNode;
+import com.oracle.truffle.r.runtime.RError;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.Utils;
+import com.oracle.truffle.r.runtime.builtins.RBuiltin;
+import com.oracle.truffle.r.runtime.conn.DelimitedReader;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RList;
+import com.oracle.truffle.r.runtime.data.RMissing;
+import com.oracle.truffle.r.runtime.data.model.RAbstractStringVector;
+
+/**
+ * Reads a delimited file into a data frame by {@link DelimitedReader}: the file is memory mapped
+ * and parsed in parallel, the column types are inferred from a sample of the rows. Unlike
+ * {@code read.table}, the column names are taken from the header as they are and character columns
+ * are not converted to factors.
+ */
+@RBuiltin(name = ".fastr.readDelim", kind = PRIMITIVE, parameterNames = {"file", "sep", "header", "quote", "dec", "na.strings", "comment.char", "nrows", "sample.rows"}, behavior = IO)
+public abstract class FastRReadDelim extends RBuiltinNode.Arg9 {
+
+    static {
+        Casts casts = new Casts(FastRReadDelim.class);
+        casts.arg("file").mustBe(stringValue()).asStringVector().mustBe(singleElement()).findFirst();
+        casts.arg("sep").mustBe(stringValue()).asStringVector().findFirst().mustBe(lengthLte(1), RError.Message.MUST_BE_ONE_BYTE, "'sep' value");
+        casts.arg("header").mustBe(logicalValue()).asLogicalVector().findFirst().mustNotBeNA().map(toBoolean());
+        casts.arg("quote").mustBe(stringValue()).asStringVector().findFirst("");
+        casts.arg("dec").mustBe(stringValue()).asStringVector().findFirst().mustBe(length(1), RError.Message.MUST_BE_ONE_BYTE, "'dec' value");
+        casts.arg("na.strings").mustBe(stringValue());
+        casts.arg("comment.char").mustBe(stringValue()).asStringVector().findFirst("").mustBe(lengthLte(1), RError.Message.MUST_BE_ONE_BYTE, "'comment.char' value");
+        casts.arg("nrows").asIntegerVector().findFirst(-1).replaceNA(-1);
+        casts.arg("sample.rows").asIntegerVector().findFirst().mustNotBeNA().mustBe(gte(0));
+    }
+
+    @Override
+    public Object[] getDefaultParameterValues() {
+        return new Object[]{RMissing.instance, ",", RRuntime.LOGICAL_TRUE, "\"", ".", "NA", "", -1, 100};
+    }
+
+    @Specialization
+    @TruffleBoundary
+    protected RList readDelim(String file, String sep, boolean header, String quote, String dec, RAbstractStringVector naStrings, String commentChar, int nrows, int sampleRows) {
+        int comment = commentChar.isEmpty() ? -1 : commentChar.charAt(0);
+        DelimitedReader reader = DelimitedReader.create(sep.isEmpty() ? 0 : sep.charAt(0), dec.charAt(0), quote.toCharArray(), comment, naStrings, false, false, true);
+        if (reader == null) {
+            throw error(RError.Message.GENERIC, "only ASCII separator, decimal, quote and comment characters are supported");
+        }
+        DelimitedReader.Table table;
+        try {
+            table = reader.readFile(Utils.tildeExpand(file), header, Math.max(nrows, 0), sampleRows);
+        } catch (IOException e) {
+            throw error(RError.Message.GENERIC, e.getMessage());
+        }
+        int rows = table.columns.length == 0 ? 0 : table.columns[0].getLength();
+        RList result = RDataFactory.createList(Arrays.copyOf(table.columns, table.columns.length, Object[].class), RDataFactory.createStringVector(table.names, RDataFactory.COMPLETE_VECTOR));
+        result.setAttr(RRuntime.ROWNAMES_ATTR_KEY, RDataFactory.createIntVector(new int[]{RRuntime.INT_NA, -rows}, RDataFactory.INCOMPLETE_VECTOR));
+        result.setClassAttr(RDataFactory.createStringVectorFromScalar(RRuntime.CLASS_DATA_FRAME));
+        return result;
+    }
+}
@@ -85,6 +85,27 @@ final class ParseDataBuilder {
     private ArrayListInt orphansParentIdIdx = new ArrayListInt(32);
     private ArrayList<SourceSection> orphansSections = new ArrayList<>(32);
 
+    ParseDataBuilder() {
+    }
+
+    /**
+     * Creates a copy of {@code other} that is not affected by further callbacks to {@code other}.
+     */
+    ParseDataBuilder(ParseDataBuilder other) {
+        copy(other.data, data);
+        tokens.addAll(other.tokens);
+        text.addAll(other.text);
+        idCounter = other.idCounter;
+        copy(other.orphansParentIdIdx, orphansParentIdIdx);
+        orphansSections.addAll(other.orphansSections);
+    }
+
+    private static void copy(ArrayListInt from, ArrayListInt to) {
+        for (int i = 0; i < from.size(); i++) {
+            to.add(from.get(i));
+        }
+    }
+
     private int removeOrphan(int index) {
         int result = orphansParentIdIdx.get(index);
         orphansParentIdIdx.set(index, orphansParentIdIdx.get(orphansParentIdIdx.size() - 1));
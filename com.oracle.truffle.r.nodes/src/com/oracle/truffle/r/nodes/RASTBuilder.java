@@ -357,6 +357,18 @@ public final class RASTBuilder implements RCodeBuilder<RSyntaxNode> {
         return context;
     }
 
+    @Override
+    public Object saveState() {
+        return parseDataBuilder == null ? null : new ParseDataBuilder(parseDataBuilder);
+    }
+
+    @Override
+    public void restoreState(Object state) {
+        if (parseDataBuilder != null) {
+            parseDataBuilder = (ParseDataBuilder) state;
+        }
+    }
+
     @Override
     public RSyntaxNode constant(SourceSection source, Object value) {
         recordExpr(source);
@@ -49,6 +49,7 @@ import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RInternalError;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.Utils;
+import com.oracle.truffle.r.runtime.data.RAltRepVector;
 import com.oracle.truffle.r.runtime.data.RAttributable;
 import com.oracle.truffle.r.runtime.data.RAttributesLayout;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
@@ -723,7 +724,7 @@ public final class SpecialAttributesFunctions {
         }
 
         protected static boolean isScalarOrSequence(RAbstractContainer x) {
-            return x instanceof RScalarVector || x instanceof RSequence;
+            return x instanceof RScalarVector || x instanceof RSequence || x instanceof RAltRepVector;
         }
     }
 
@@ -1075,7 +1076,7 @@ public final class SpecialAttributesFunctions {
         }
 
         protected static boolean isScalarOrSequence(RAbstractContainer x) {
-            return x instanceof RScalarVector || x instanceof RSequence;
+            return x instanceof RScalarVector || x instanceof RSequence || x instanceof RAltRepVector;
         }
 
     }
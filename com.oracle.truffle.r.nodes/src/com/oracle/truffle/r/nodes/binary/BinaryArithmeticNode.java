@@ -38,9 +38,11 @@ import com.oracle.truffle.r.runtime.DSLConfig;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RError.Message;
 import com.oracle.truffle.r.runtime.RType;
+import com.oracle.truffle.r.runtime.context.FastROptions;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RMissing;
 import com.oracle.truffle.r.runtime.data.RNull;
+import com.oracle.truffle.r.runtime.data.altrep.FusedArithmetic;
 import com.oracle.truffle.r.runtime.data.model.RAbstractComplexVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
@@ -89,6 +91,34 @@ public abstract class BinaryArithmeticNode extends RBuiltinNode.Arg2 {
         return BinaryArithmeticNodeGen.create(binary, unary);
     }
 
+    /**
+     * Creates a deferred result for arithmetic on long double vectors if enabled by
+     * {@link FastROptions#LazyArithmetic} in the current context.
+     */
+    @Specialization(guards = {"fusedOp != null", "isFusable(left, right)"})
+    protected Object doFused(RAbstractVector left, RAbstractVector right,
+                    @Cached("getFusedOp(binary)") FusedArithmetic.Op fusedOp) {
+        return FusedArithmetic.create(fusedOp, (RAbstractDoubleVector) left, (RAbstractDoubleVector) right);
+    }
+
+    protected static boolean isFusable(RAbstractVector left, RAbstractVector right) {
+        int minLength = FusedArithmetic.getMinLength();
+        return minLength >= 0 && FusedArithmetic.isFusable(left, right, minLength);
+    }
+
+    protected static FusedArithmetic.Op getFusedOp(BinaryArithmeticFactory factory) {
+        if (factory == BinaryArithmetic.ADD) {
+            return FusedArithmetic.Op.ADD;
+        } else if (factory == BinaryArithmetic.SUBTRACT) {
+            return FusedArithmetic.Op.SUBTRACT;
+        } else if (factory == BinaryArithmetic.MULTIPLY) {
+            return FusedArithmetic.Op.MULTIPLY;
+        } else if (factory == BinaryArithmetic.DIV) {
+            return FusedArithmetic.Op.DIV;
+        }
+        return null;
+    }
+
     @Specialization(limit = "getCacheSize(CACHE_LIMIT)", guards = {"cached != null", "cached.isSupported(left, right)"})
     protected Object doNumericVectorCached(RAbstractVector left, RAbstractVector right,
                     @Cached("createFastCached(left, right)") BinaryMapNode cached) {
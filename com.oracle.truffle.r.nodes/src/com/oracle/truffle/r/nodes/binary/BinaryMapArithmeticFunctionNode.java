@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2015, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2015, 2019, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -27,11 +27,13 @@ import com.oracle.truffle.api.profiles.ConditionProfile;
 import com.oracle.truffle.r.nodes.primitive.BinaryMapNAFunctionNode;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.data.RAltRepVector;
 import com.oracle.truffle.r.runtime.data.RComplex;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
 import com.oracle.truffle.r.runtime.data.RDoubleSequence;
 import com.oracle.truffle.r.runtime.data.RIntSequence;
 import com.oracle.truffle.r.runtime.data.RSequence;
+import com.oracle.truffle.r.runtime.data.altrep.CompactRep;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 import com.oracle.truffle.r.runtime.ops.BinaryArithmetic;
 import com.oracle.truffle.r.runtime.ops.BinaryArithmetic.Add;
@@ -63,12 +65,19 @@ public final class BinaryMapArithmeticFunctionNode extends BinaryMapNAFunctionNo
 
     @Override
     public boolean mayFoldConstantTime(Class<? extends RAbstractVector> leftClass, Class<? extends RAbstractVector> rightClass) {
+        if (RAltRepVector.class.isAssignableFrom(leftClass) || RAltRepVector.class.isAssignableFrom(rightClass)) {
+            return true;
+        }
         return (isSequenceAddArithmetic() || isSequenceMulArithmetic()) && (RSequence.class.isAssignableFrom(leftClass) || RSequence.class.isAssignableFrom(rightClass));
     }
 
     @Override
     public RAbstractVector tryFoldConstantTime(RAbstractVector left, int leftLength, RAbstractVector right, int rightLength) {
-        if (isSequenceAddArithmetic()) {
+        if (left instanceof RAltRepVector && rightLength == 1) {
+            return foldCompactRep((RAltRepVector) left, right.getDataAtAsObject(0), true);
+        } else if (right instanceof RAltRepVector && leftLength == 1) {
+            return foldCompactRep((RAltRepVector) right, left.getDataAtAsObject(0), false);
+        } else if (isSequenceAddArithmetic()) {
             return sequenceAddOperation(left, leftLength, right, rightLength);
         } else if (isSequenceMulArithmetic()) {
             return sequenceMulOperation(left, leftLength, right, rightLength);
@@ -225,6 +234,51 @@ public final class BinaryMapArithmeticFunctionNode extends BinaryMapNAFunctionNo
         return null;
     }
 
+    /**
+     * Every element of a compact {@code rep} vector is one of its repeated values, so an operation
+     * with a scalar can be applied to the repeated values only. Like for sequences, results that
+     * contain {@code NA} are left to the generic code, which also reports integer overflows.
+     */
+    private RAbstractVector foldCompactRep(RAltRepVector rep, Object other, boolean repIsLeft) {
+        Object values = CompactRep.getValues(rep);
+        resultNACheck.enable(arithmetic.introducesNA());
+        if (values instanceof int[]) {
+            int[] intValues = (int[]) values;
+            int otherInt = (int) other;
+            if (arithmetic.isSupportsIntResult()) {
+                int[] result = new int[intValues.length];
+                for (int i = 0; i < intValues.length; i++) {
+                    result[i] = repIsLeft ? applyInteger(intValues[i], otherInt) : applyInteger(otherInt, intValues[i]);
+                    if (resultNACheck.check(result[i])) {
+                        return null;
+                    }
+                }
+                return CompactRep.withValues(rep, result);
+            } else {
+                double[] result = new double[intValues.length];
+                for (int i = 0; i < intValues.length; i++) {
+                    result[i] = repIsLeft ? applyDouble(intValues[i], otherInt) : applyDouble(otherInt, intValues[i]);
+                    if (resultNACheck.check(result[i])) {
+                        return null;
+                    }
+                }
+                return CompactRep.withValues(rep, result);
+            }
+        } else if (values instanceof double[]) {
+            double[] doubleValues = (double[]) values;
+            double otherDouble = (double) other;
+            double[] result = new double[doubleValues.length];
+            for (int i = 0; i < doubleValues.length; i++) {
+                result[i] = repIsLeft ? applyDouble(doubleValues[i], otherDouble) : applyDouble(otherDouble, doubleValues[i]);
+                if (resultNACheck.check(result[i])) {
+                    return null;
+                }
+            }
+            return CompactRep.withValues(rep, result);
+        }
+        return null;
+    }
+
     private RAbstractVector foldSequence(RSequence sequence, Object otherStart, Object otherStride, NACheck otherNACheck) {
         if (sequence instanceof RIntSequence) {
             return foldIntSequence(sequence, otherStart, otherStride, otherNACheck);
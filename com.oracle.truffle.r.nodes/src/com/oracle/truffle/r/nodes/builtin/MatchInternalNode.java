@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2013, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2013, 2019, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -32,16 +32,20 @@ import com.oracle.truffle.api.profiles.BranchProfile;
 import com.oracle.truffle.api.profiles.ConditionProfile;
 import com.oracle.truffle.r.nodes.unary.CastStringNode;
 import com.oracle.truffle.r.nodes.unary.CastStringNodeGen;
+import com.oracle.truffle.r.runtime.Collections;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.RType;
+import com.oracle.truffle.r.runtime.VectorHashIndex;
 import com.oracle.truffle.r.runtime.data.CharSXPWrapper;
 import com.oracle.truffle.r.runtime.data.RComplex;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RDoubleVector;
 import com.oracle.truffle.r.runtime.data.RIntSequence;
 import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.RList;
 import com.oracle.truffle.r.runtime.data.RSequence;
 import com.oracle.truffle.r.runtime.data.RStringSequence;
+import com.oracle.truffle.r.runtime.data.RStringVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractComplexVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
@@ -62,6 +66,7 @@ public abstract class MatchInternalNode extends RBaseNode {
     @Node.Child private CastStringNode castString;
 
     private final ConditionProfile bigTableProfile = ConditionProfile.createBinaryProfile();
+    private final ConditionProfile cachedIndexProfile = ConditionProfile.createBinaryProfile();
 
     private RAbstractStringVector castString(RAbstractVector operand) {
         if (castString == null) {
@@ -134,6 +139,18 @@ public abstract class MatchInternalNode extends RBaseNode {
     protected RIntVector match(RAbstractIntVector x, RAbstractIntVector table, int nomatch) {
         int[] result = initResult(x.getLength(), nomatch);
         boolean matchAll = true;
+        if (cachedIndexProfile.profile(VectorHashIndex.isCacheable(table))) {
+            Collections.NonRecursiveHashMapInt index = VectorHashIndex.getIntIndex((RIntVector) table);
+            for (int i = 0; i < result.length; i++) {
+                int found = index.get(x.getDataAt(i));
+                if (found != -1) {
+                    result[i] = found + 1;
+                } else {
+                    matchAll = false;
+                }
+            }
+            return RDataFactory.createIntVector(result, setCompleteState(matchAll, nomatch));
+        }
         NonRecursiveHashMapInt hashTable;
         if (bigTableProfile.profile(table.getLength() > (x.getLength() * TABLE_SIZE_FACTOR))) {
             hashTable = new NonRecursiveHashMapInt(x.getLength());
@@ -276,6 +293,18 @@ public abstract class MatchInternalNode extends RBaseNode {
     protected RIntVector match(RAbstractDoubleVector x, RAbstractDoubleVector table, int nomatch) {
         int[] result = initResult(x.getLength(), nomatch);
         boolean matchAll = true;
+        if (cachedIndexProfile.profile(VectorHashIndex.isCacheable(table))) {
+            Collections.NonRecursiveHashMapDouble index = VectorHashIndex.getDoubleIndex((RDoubleVector) table);
+            for (int i = 0; i < result.length; i++) {
+                int found = index.get(x.getDataAt(i));
+                if (found != -1) {
+                    result[i] = found + 1;
+                } else {
+                    matchAll = false;
+                }
+            }
+            return RDataFactory.createIntVector(result, setCompleteState(matchAll, nomatch));
+        }
         NonRecursiveHashMapDouble hashTable;
         if (bigTableProfile.profile(table.getLength() > (x.getLength() * TABLE_SIZE_FACTOR))) {
             hashTable = new NonRecursiveHashMapDouble(x.getLength());
@@ -421,6 +450,18 @@ public abstract class MatchInternalNode extends RBaseNode {
     protected RIntVector match(RAbstractStringVector x, RAbstractStringVector table, int nomatch) {
         int[] result = initResult(x.getLength(), nomatch);
         boolean matchAll = true;
+        if (cachedIndexProfile.profile(VectorHashIndex.isCacheable(table))) {
+            Collections.NonRecursiveHashMapCharacter index = VectorHashIndex.getStringIndex((RStringVector) table);
+            for (int i = 0; i < result.length; i++) {
+                int found = index.get(x.getDataAt(i));
+                if (found != -1) {
+                    result[i] = found + 1;
+                } else {
+                    matchAll = false;
+                }
+            }
+            return RDataFactory.createIntVector(result, setCompleteState(matchAll, nomatch));
+        }
         NonRecursiveHashMapCharacter hashTable;
         if (bigTableProfile.profile(table.getLength() > (x.getLength() * TABLE_SIZE_FACTOR))) {
             hashTable = new NonRecursiveHashMapCharacter(x.getLength());
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2013, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2013, 2019, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -31,7 +31,9 @@ import com.oracle.truffle.r.nodes.primitive.UnaryMapNode;
 import com.oracle.truffle.r.nodes.profile.TruffleBoundaryNode;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RType;
+import com.oracle.truffle.r.runtime.context.FastROptions;
 import com.oracle.truffle.r.runtime.data.RMissing;
+import com.oracle.truffle.r.runtime.data.altrep.FusedArithmetic;
 import com.oracle.truffle.r.runtime.data.model.RAbstractComplexVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
@@ -51,6 +53,24 @@ public abstract class UnaryArithmeticNode extends UnaryNode {
 
     public abstract Object execute(Object value);
 
+    /**
+     * Creates a deferred result for the negation of a long double vector if enabled by
+     * {@link FastROptions#LazyArithmetic} in the current context.
+     */
+    @Specialization(guards = {"isNegate()", "isFusable(operand)"})
+    protected Object doFused(RAbstractVector operand) {
+        return FusedArithmetic.create(FusedArithmetic.Op.NEGATE, (RAbstractDoubleVector) operand);
+    }
+
+    protected final boolean isNegate() {
+        return unary == UnaryArithmetic.NEGATE;
+    }
+
+    protected static boolean isFusable(RAbstractVector operand) {
+        int minLength = FusedArithmetic.getMinLength();
+        return minLength >= 0 && FusedArithmetic.isFusable(operand, minLength);
+    }
+
     @Specialization(guards = {"cachedNode != null", "cachedNode.isSupported(operand)"})
     protected Object doCached(RAbstractVector operand,
                     @Cached("createCachedFast(operand)") UnaryMapNode cachedNode) {
@@ -22,6 +22,7 @@
  */
 package com.oracle.truffle.r.nodes.unary;
 
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Fallback;
 import com.oracle.truffle.api.dsl.ImportStatic;
@@ -37,9 +38,11 @@ import com.oracle.truffle.r.runtime.DSLConfig;
 import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RInternalError;
 import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.data.RAltRepVector;
 import com.oracle.truffle.r.runtime.data.RComplex;
 import com.oracle.truffle.r.runtime.data.RNull;
 import com.oracle.truffle.r.runtime.data.RTypes;
+import com.oracle.truffle.r.runtime.data.altrep.AltRepClass;
 import com.oracle.truffle.r.runtime.data.model.RAbstractComplexVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
@@ -268,6 +271,43 @@ public abstract class UnaryArithmeticReduceNode extends RBaseNodeWithWarnings {
         return result;
     }
 
+    /**
+     * Alternative representations may know the result without iterating over the elements (e.g.,
+     * the minimum of a compact {@code rep} vector is the minimum of the repeated values). If the
+     * representation cannot compute the result cheaply, the generic path is used.
+     */
+    @Specialization(guards = {"isAltRep(vector)", "!finite"})
+    protected Object doAltRep(RAbstractVector vector, boolean naRm, boolean finite,
+                    @Cached("createBinaryProfile()") ConditionProfile finiteProfile,
+                    @Cached("createBinaryProfile()") ConditionProfile isInfiniteProfile,
+                    @Cached("createBinaryProfile()") ConditionProfile knownResultProfile) {
+        Object result = getAltRepResult((RAltRepVector) vector, naRm);
+        if (knownResultProfile.profile(result != null)) {
+            return result;
+        }
+        if (vector instanceof RAbstractIntVector) {
+            return doInt(vector, naRm, vector.slowPathAccess());
+        }
+        return doDouble((RAbstractDoubleVector) vector, naRm, finite, finiteProfile, isInfiniteProfile, vector.slowPathAccess());
+    }
+
+    protected static boolean isAltRep(RAbstractVector vector) {
+        return vector instanceof RAltRepVector;
+    }
+
+    @TruffleBoundary
+    private Object getAltRepResult(RAltRepVector vector, boolean naRm) {
+        AltRepClass altClass = vector.getAltClass();
+        if (factory == BinaryArithmetic.ADD) {
+            return altClass.sum(vector.getAltData(), naRm);
+        } else if (factory == BinaryArithmetic.MIN) {
+            return altClass.min(vector.getAltData(), naRm);
+        } else if (factory == BinaryArithmetic.MAX) {
+            return altClass.max(vector.getAltData(), naRm);
+        }
+        return null;
+    }
+
     @Specialization(guards = "access.supports(vector)", limit = "getVectorAccessCacheSize()")
     protected Object doIntCached(RAbstractIntVector vector, boolean naRm, @SuppressWarnings("unused") boolean finite,
                     @Cached("vector.access()") VectorAccess access) {
@@ -23,10 +23,13 @@
 package com.oracle.truffle.r.parser;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 import org.antlr.v4.runtime.ANTLRErrorStrategy;
 import org.antlr.v4.runtime.BaseErrorListener;
 import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CodePointCharStream;
 import org.antlr.v4.runtime.IntStream;
 import org.antlr.v4.runtime.Lexer;
 import org.antlr.v4.runtime.LexerNoViableAltException;
@@ -39,14 +42,18 @@ import org.antlr.v4.runtime.atn.ATN;
 import org.antlr.v4.runtime.atn.ATNConfigSet;
 import org.antlr.v4.runtime.atn.ParserATNSimulator;
 import org.antlr.v4.runtime.atn.PredictionContextCache;
+import org.antlr.v4.runtime.atn.PredictionMode;
 import org.antlr.v4.runtime.dfa.DFA;
 
 import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.api.TruffleFile;
 import com.oracle.truffle.api.source.Source;
+import com.oracle.truffle.r.launcher.StartupTiming;
 import com.oracle.truffle.r.runtime.RInternalError;
 import com.oracle.truffle.r.runtime.RParserFactory;
 import com.oracle.truffle.r.runtime.context.Engine.IncompleteSourceException;
 import com.oracle.truffle.r.runtime.context.Engine.ParseException;
+import com.oracle.truffle.r.runtime.context.FastROptions;
 import com.oracle.truffle.r.runtime.context.RContext;
 import com.oracle.truffle.r.runtime.context.TruffleRLanguage;
 import com.oracle.truffle.r.runtime.nodes.RCodeBuilder;
@@ -54,6 +61,15 @@ import com.oracle.truffle.r.runtime.nodes.RSyntaxNode;
 
 public class DefaultRParserFactory extends RParserFactory {
 
+    private static final AtomicLong parseCacheHits = new AtomicLong();
+
+    /**
+     * Returns the number of sources replayed from the parse cache in this VM.
+     */
+    public static long getParseCacheHits() {
+        return parseCacheHits.get();
+    }
+
     public static final class ThrowImmediatelyANTSimulator extends ParserATNSimulator {
 
         public ThrowImmediatelyANTSimulator(org.antlr.v4.runtime.Parser parser, ATN atn, DFA[] decisionToDFA, PredictionContextCache sharedContextCache) {
@@ -131,43 +147,79 @@ public class DefaultRParserFactory extends RParserFactory {
         @Override
         public List<RSyntaxNode> script(Source source, RCodeBuilder<RSyntaxNode> builder, TruffleRLanguage language) throws ParseException {
             RContext context = language.getContextReference().get();
-            RLexer lexer = new RLexer(CharStreams.fromString(source.getCharacters().toString()));
-            RParser parser = new RParser(source, lexer, builder, language, context.sourceCache);
-            parser.removeErrorListeners();
-            parser.addErrorListener(ThrowImmediatelyErrorListener.INSTANCE);
-            lexer.removeErrorListeners();
-            lexer.addErrorListener(ThrowImmediatelyErrorListener.INSTANCE);
-            parser.setErrorHandler(ThrowImmediatelyErrorStrategy.INSTANCE);
-            parser.setBuildParseTree(false);
-            try {
-                try {
-                    return parser.script().v;
-                } catch (IllegalArgumentException e) {
-                    if (e.getCause() instanceof RecognitionException) {
-                        throw (RecognitionException) e.getCause();
-                    } else {
-                        throw e;
-                    }
+            TruffleFile cacheFile = ParseCache.getCacheFile(context, source);
+            if (cacheFile == null) {
+                return parseScript(source, builder, language, context);
+            }
+            if (StartupTiming.ENABLED) {
+                StartupTiming.timestamp("Before Parse " + source.getName());
+            }
+            List<RSyntaxNode> result = ParseCache.read(cacheFile, source, builder, language);
+            if (result != null) {
+                parseCacheHits.incrementAndGet();
+                if (StartupTiming.ENABLED) {
+                    StartupTiming.timestamp("After Parse (cached) " + source.getName());
                 }
-            } catch (RecognitionException e) {
-                throw handleRecognitionException(source, e);
+                return result;
+            }
+            ParseCache.Recorder recorder = new ParseCache.Recorder(source, builder);
+            result = parseScript(source, recorder, language, context);
+            recorder.write(cacheFile, result, context.getOption(FastROptions.ParseCacheMaxSize) * 1024L * 1024L);
+            if (StartupTiming.ENABLED) {
+                StartupTiming.timestamp("After Parse " + source.getName());
             }
+            return result;
+        }
+
+        private static List<RSyntaxNode> parseScript(Source source, RCodeBuilder<RSyntaxNode> builder, TruffleRLanguage language, RContext context) throws ParseException {
+            return parse(source, context, builder, lexer -> new RParser(source, lexer, builder, language, context.sourceCache), parser -> parser.script().v);
         }
 
         @Override
         public List<RSyntaxNode> statements(Source source, Source fullSource, int startLine, RCodeBuilder<RSyntaxNode> builder, TruffleRLanguage language) throws ParseException {
             RContext context = language.getContextReference().get();
-            RLexer lexer = new RLexer(CharStreams.fromString(source.getCharacters().toString()));
-            RParser parser = new RParser(source, lexer, fullSource, startLine, builder, language, context.sourceCache);
-            parser.removeErrorListeners();
-            parser.addErrorListener(ThrowImmediatelyErrorListener.INSTANCE);
-            lexer.removeErrorListeners();
-            lexer.addErrorListener(ThrowImmediatelyErrorListener.INSTANCE);
-            parser.setErrorHandler(ThrowImmediatelyErrorStrategy.INSTANCE);
-            parser.setBuildParseTree(false);
+            return parse(source, context, builder, lexer -> new RParser(source, lexer, fullSource, startLine, builder, language, context.sourceCache), parser -> parser.script().v);
+        }
+
+        @Override
+        public RootCallTarget rootFunction(Source source, String name, RCodeBuilder<RSyntaxNode> builder, TruffleRLanguage language) throws ParseException {
+            RContext context = language.getContextReference().get();
+            return parse(source, context, builder, lexer -> new RParser(source, lexer, builder, language, context.sourceCache), parser -> parser.root_function(name).v);
+        }
+
+        /**
+         * Applies {@code rule} to the parser created by {@code parserFactory}. The first attempt
+         * uses the SLL prediction mode, which does not need the full parser context and is much
+         * faster, and bails out at the first error. Only if it fails, the source is parsed again
+         * with the full LL prediction, which reports the same errors as before. The prediction DFA
+         * is held in static fields of the generated parser, so it is shared by all parser
+         * instances and contexts and both modes.
+         *
+         * The state of {@code builder} is saved before the SLL attempt and restored before the LL
+         * attempt, so that the parse data of {@code keep.source} and the recording of the parse
+         * cache do not contain the actions of the failed attempt.
+         */
+        private static <T> T parse(Source source, RContext context, RCodeBuilder<RSyntaxNode> builder, Function<RLexer, RParser> parserFactory, Function<RParser, T> rule) throws ParseException {
+            CodePointCharStream chars = CharStreams.fromString(source.getCharacters().toString());
+            if (context.getOption(FastROptions.ParserSLL)) {
+                Object builderState = builder.saveState();
+                RParser parser = createParser(chars, parserFactory, PredictionMode.SLL);
+                try {
+                    return rule.apply(parser);
+                } catch (IllegalArgumentException e) {
+                    if (!(e.getCause() instanceof RecognitionException)) {
+                        throw e;
+                    }
+                } catch (RecognitionException e) {
+                    // retried with LL below
+                }
+                builder.restoreState(builderState);
+                chars.seek(0);
+            }
+            RParser parser = createParser(chars, parserFactory, PredictionMode.LL);
             try {
                 try {
-                    return parser.script().v;
+                    return rule.apply(parser);
                 } catch (IllegalArgumentException e) {
                     if (e.getCause() instanceof RecognitionException) {
                         throw (RecognitionException) e.getCause();
@@ -180,30 +232,17 @@ public class DefaultRParserFactory extends RParserFactory {
             }
         }
 
-        @Override
-        public RootCallTarget rootFunction(Source source, String name, RCodeBuilder<RSyntaxNode> builder, TruffleRLanguage language) throws ParseException {
-            RContext context = language.getContextReference().get();
-            RLexer lexer = new RLexer(CharStreams.fromString(source.getCharacters().toString()));
-            RParser parser = new RParser(source, lexer, builder, language, context.sourceCache);
+        private static RParser createParser(CodePointCharStream chars, Function<RLexer, RParser> parserFactory, PredictionMode mode) {
+            RLexer lexer = new RLexer(chars);
+            RParser parser = parserFactory.apply(lexer);
             parser.removeErrorListeners();
             parser.addErrorListener(ThrowImmediatelyErrorListener.INSTANCE);
             lexer.removeErrorListeners();
             lexer.addErrorListener(ThrowImmediatelyErrorListener.INSTANCE);
             parser.setErrorHandler(ThrowImmediatelyErrorStrategy.INSTANCE);
             parser.setBuildParseTree(false);
-            try {
-                try {
-                    return parser.root_function(name).v;
-                } catch (IllegalArgumentException e) {
-                    if (e.getCause() instanceof RecognitionException) {
-                        throw (RecognitionException) e.getCause();
-                    } else {
-                        throw e;
-                    }
-                }
-            } catch (RecognitionException e) {
-                throw handleRecognitionException(source, e);
-            }
+            parser.getInterpreter().setPredictionMode(mode);
+            return parser;
         }
 
         private static ParseException handleRecognitionException(Source source, RecognitionException e) throws IncompleteSourceException, ParseException {
@@ -0,0 +1,743 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.CRC32;
+
+import com.oracle.truffle.api.RootCallTarget;
+import com.oracle.truffle.api.TruffleFile;
+import com.oracle.truffle.api.object.DynamicObject;
+import com.oracle.truffle.api.source.Source;
+import com.oracle.truffle.api.source.SourceSection;
+import com.oracle.truffle.r.launcher.RVersionNumber;
+import com.oracle.truffle.r.runtime.REnvVars;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.RSource;
+import com.oracle.truffle.r.runtime.context.FastROptions;
+import com.oracle.truffle.r.runtime.context.RContext;
+import com.oracle.truffle.r.runtime.context.TruffleRLanguage;
+import com.oracle.truffle.r.runtime.data.RComplex;
+import com.oracle.truffle.r.runtime.data.RNull;
+import com.oracle.truffle.r.runtime.nodes.RCodeBuilder;
+import com.oracle.truffle.r.runtime.nodes.RSyntaxNode;
+
+/**
+ * On-disk cache of parsed R sources: the base package, the {@code *_overrides.R} files and the R
+ * files of the installed packages. The calls the parser makes to the {@link RCodeBuilder} are
+ * recorded by {@link Recorder} into a compact binary form that {@link #replay} feeds to a new
+ * builder without running ANTLR, the source sections are stored as character offsets into the
+ * parsed source.
+ * <p>
+ * The cache is enabled by the {@link FastROptions#ParseCache} option. The cache files are named by
+ * a SHA-256 hash of the source text and of {@link BuildId#VALUE}, which identifies the parser that
+ * produced them, so that a different FastR build never reads them. A file is written to a
+ * temporary file and renamed, so that processes sharing the cache directory see either a complete
+ * file or none. The files are accessed as {@link TruffleFile}s, so the cache is not used if the
+ * context does not allow IO. Reading a file updates its modification time, the files that were
+ * not read for the longest time are removed when the size of the directory exceeds
+ * {@link FastROptions#ParseCacheMaxSize}. This also removes the files of other FastR builds. Any
+ * problem with the cache directory or a cache file makes the parser fall back to ANTLR.
+ */
+final class ParseCache {
+
+    private static final int MAGIC = 0x46525043; // "FRPC"
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Sources shorter than this are parsed faster than the cache file is found and read.
+     */
+    private static final int MIN_LENGTH = 2048;
+
+    private static final int END = 0;
+    private static final int TOKEN = 1;
+    private static final int MODIFY_LAST_TOKEN = 2;
+    private static final int MODIFY_LAST_TOKEN_IF = 3;
+    private static final int CALL = 4;
+    private static final int CONSTANT = 5;
+    private static final int SPECIAL_LOOKUP = 6;
+    private static final int LOOKUP = 7;
+    private static final int FUNCTION = 8;
+
+    private static final int CONSTANT_NULL = 0;
+    private static final int CONSTANT_LOGICAL = 1;
+    private static final int CONSTANT_INTEGER = 2;
+    private static final int CONSTANT_DOUBLE = 3;
+    private static final int CONSTANT_COMPLEX = 4;
+    private static final int CONSTANT_STRING = 5;
+    private static final int CONSTANT_STRING_NA = 6;
+
+    private static final RCodeBuilder.RCodeToken[] TOKENS = RCodeBuilder.RCodeToken.values();
+
+    private static final String SUFFIX = ".ast";
+
+    private ParseCache() {
+        // no instances
+    }
+
+    /**
+     * Identifies the parser build: the R version, the GraalVM version and a hash of the generated
+     * parser class, which changes with the grammar but not with a rebuild of the same grammar. The
+     * class is read only when the cache is used.
+     */
+    private static final class BuildId {
+        static final String VALUE = compute();
+
+        private static String compute() {
+            StringBuilder id = new StringBuilder().append(FORMAT_VERSION).append('/').append(RVersionNumber.FULL).append('/').append(System.getProperty("org.graalvm.version", ""));
+            try (InputStream in = RParser.class.getResourceAsStream("RParser.class")) {
+                if (in != null) {
+                    MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                    byte[] buffer = new byte[8192];
+                    int n;
+                    while ((n = in.read(buffer)) > 0) {
+                        digest.update(buffer, 0, n);
+                    }
+                    id.append('/').append(toHex(digest.digest()));
+                }
+            } catch (IOException | SecurityException | NoSuchAlgorithmException e) {
+                // no class file (e.g., native image), the versions have to do
+            }
+            return id.toString();
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder result = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            result.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Returns the cache file for {@code source} or {@code null} if the source should not be
+     * cached.
+     */
+    static TruffleFile getCacheFile(RContext context, Source source) {
+        if (!context.getOption(FastROptions.ParseCache) || source.getLength() < MIN_LENGTH || !isCacheable(source)) {
+            return null;
+        }
+        try {
+            String dir = context.getOption(FastROptions.ParseCacheDir);
+            TruffleFile cacheDir = context.getEnv().getPublicTruffleFile(dir.isEmpty() ? System.getProperty("user.home") : dir);
+            if (dir.isEmpty()) {
+                cacheDir = cacheDir.resolve(".cache").resolve("fastr").resolve("parse");
+            }
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(BuildId.VALUE.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(source.getCharacters().toString().getBytes(StandardCharsets.UTF_8));
+            return cacheDir.resolve(toHex(digest.digest()) + SUFFIX);
+        } catch (NoSuchAlgorithmException | SecurityException | UnsupportedOperationException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Only the R code shipped with FastR is cached. The parser may report warnings, which are not
+     * replayed, and that code is known not to produce any.
+     */
+    private static boolean isCacheable(Source source) {
+        if (source.isInternal() && RSource.Internal.R_IMPL.string.equals(source.getName())) {
+            return true;
+        }
+        String path = source.getPath();
+        return path != null && path.startsWith(REnvVars.rHome());
+    }
+
+    /**
+     * Replays the cache file into {@code builder}. Returns {@code null} if there is no valid cache
+     * file, in which case the state of the builder is the same as before.
+     */
+    static List<RSyntaxNode> read(TruffleFile file, Source source, RCodeBuilder<RSyntaxNode> builder, TruffleRLanguage language) {
+        byte[] data;
+        try {
+            if (!file.isRegularFile()) {
+                return null;
+            }
+            data = file.readAllBytes();
+        } catch (IOException | SecurityException | UnsupportedOperationException e) {
+            return null;
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        try {
+            if (in.readInt() != MAGIC || !BuildId.VALUE.equals(in.readUTF()) || in.readInt() != source.getLength()) {
+                return null;
+            }
+            long checksum = in.readLong();
+            int bodyStart = data.length - in.available();
+            CRC32 crc = new CRC32();
+            crc.update(data, bodyStart, data.length - bodyStart);
+            if (crc.getValue() != checksum) {
+                return null;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        Object builderState = builder.saveState();
+        List<RSyntaxNode> result;
+        try {
+            result = replay(in, source, builder, language);
+        } catch (IOException | RuntimeException e) {
+            // the checksum matched, so the file was written by a broken recorder
+            builder.restoreState(builderState);
+            delete(file);
+            return null;
+        }
+        try {
+            file.setLastModifiedTime(FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException | SecurityException | UnsupportedOperationException e) {
+            // the file is just evicted earlier
+        }
+        return result;
+    }
+
+    private static void delete(TruffleFile file) {
+        try {
+            file.delete();
+        } catch (IOException | SecurityException | UnsupportedOperationException e) {
+            // ignore
+        }
+    }
+
+    /**
+     * Removes the files that were not used for the longest time until the size of the cache
+     * directory {@code dir} is at most {@code maxSize} bytes.
+     */
+    private static void evict(TruffleFile dir, long maxSize) {
+        ArrayList<TruffleFile> files = new ArrayList<>();
+        ArrayList<FileTime> times = new ArrayList<>();
+        long size = 0;
+        try (DirectoryStream<TruffleFile> stream = dir.newDirectoryStream()) {
+            for (TruffleFile file : stream) {
+                if (file.isRegularFile()) {
+                    files.add(file);
+                    times.add(file.getLastModifiedTime());
+                    size += file.size();
+                }
+            }
+        } catch (IOException | SecurityException | UnsupportedOperationException e) {
+            return;
+        }
+        if (size <= maxSize) {
+            return;
+        }
+        Integer[] order = new Integer[files.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> times.get(a).compareTo(times.get(b)));
+        for (int i = 0; i < order.length && size > maxSize; i++) {
+            TruffleFile file = files.get(order[i]);
+            try {
+                long fileSize = file.size();
+                file.delete();
+                size -= fileSize;
+            } catch (IOException | SecurityException | UnsupportedOperationException e) {
+                // removed by another process or not removable
+            }
+        }
+    }
+
+    private static List<RSyntaxNode> replay(DataInputStream in, Source source, RCodeBuilder<RSyntaxNode> builder, TruffleRLanguage language) throws IOException {
+        ArrayList<RSyntaxNode> nodes = new ArrayList<>();
+        ArrayList<String> strings = new ArrayList<>();
+        while (true) {
+            int op = in.readUnsignedByte();
+            switch (op) {
+                case END:
+                    int count = readInt(in);
+                    ArrayList<RSyntaxNode> result = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        result.add(readNode(in, nodes));
+                    }
+                    return result;
+                case TOKEN: {
+                    SourceSection section = readSection(in, source);
+                    builder.token(section, TOKENS[readInt(in)], readString(in, strings));
+                    break;
+                }
+                case MODIFY_LAST_TOKEN:
+                    builder.modifyLastToken(TOKENS[readInt(in)]);
+                    break;
+                case MODIFY_LAST_TOKEN_IF: {
+                    RCodeBuilder.RCodeToken oldToken = TOKENS[readInt(in)];
+                    builder.modifyLastTokenIf(oldToken, TOKENS[readInt(in)]);
+                    break;
+                }
+                case CALL: {
+                    SourceSection section = readSection(in, source);
+                    RSyntaxNode lhs = readNode(in, nodes);
+                    nodes.add(builder.call(section, lhs, readArguments(in, source, nodes, strings)));
+                    break;
+                }
+                case CONSTANT: {
+                    SourceSection section = readSection(in, source);
+                    nodes.add(builder.constant(section, readConstant(in, strings)));
+                    break;
+                }
+                case SPECIAL_LOOKUP:
+                case LOOKUP: {
+                    SourceSection section = readSection(in, source);
+                    String symbol = readString(in, strings);
+                    boolean functionLookup = in.readBoolean();
+                    nodes.add(op == LOOKUP ? builder.lookup(section, symbol, functionLookup) : builder.specialLookup(section, symbol, functionLookup));
+                    break;
+                }
+                case FUNCTION: {
+                    SourceSection section = readSection(in, source);
+                    List<RCodeBuilder.Argument<RSyntaxNode>> params = readArguments(in, source, nodes, strings);
+                    RSyntaxNode body = readNode(in, nodes);
+                    nodes.add(builder.function(language, section, params, body, readNode(in, nodes)));
+                    break;
+                }
+                default:
+                    throw new IOException("unknown operation " + op);
+            }
+        }
+    }
+
+    private static List<RCodeBuilder.Argument<RSyntaxNode>> readArguments(DataInputStream in, Source source, ArrayList<RSyntaxNode> nodes, ArrayList<String> strings) throws IOException {
+        int count = readInt(in);
+        ArrayList<RCodeBuilder.Argument<RSyntaxNode>> args = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            SourceSection section = readSection(in, source);
+            String name = readString(in, strings);
+            args.add(RCodeBuilder.argument(section, name, readNode(in, nodes)));
+        }
+        return args;
+    }
+
+    private static Object readConstant(DataInputStream in, ArrayList<String> strings) throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case CONSTANT_NULL:
+                return RNull.instance;
+            case CONSTANT_LOGICAL:
+                return in.readByte();
+            case CONSTANT_INTEGER:
+                return in.readInt();
+            case CONSTANT_DOUBLE:
+                return Double.longBitsToDouble(in.readLong());
+            case CONSTANT_COMPLEX:
+                double real = Double.longBitsToDouble(in.readLong());
+                return RComplex.valueOf(real, Double.longBitsToDouble(in.readLong()));
+            case CONSTANT_STRING:
+                return readString(in, strings);
+            case CONSTANT_STRING_NA:
+                return RRuntime.STRING_NA;
+            default:
+                throw new IOException("unknown constant " + tag);
+        }
+    }
+
+    private static SourceSection readSection(DataInputStream in, Source source) throws IOException {
+        int start = readInt(in);
+        return start == 0 ? null : source.createSection(start - 1, readInt(in));
+    }
+
+    private static RSyntaxNode readNode(DataInputStream in, ArrayList<RSyntaxNode> nodes) throws IOException {
+        int id = readInt(in);
+        return id == 0 ? null : nodes.get(id - 1);
+    }
+
+    /**
+     * Strings are written once and referenced by their index afterwards: {@code 0} is
+     * {@code null}, {@code 1} is followed by a new string and {@code 2 + i} is the string number
+     * {@code i}.
+     */
+    private static String readString(DataInputStream in, ArrayList<String> strings) throws IOException {
+        int ref = readInt(in);
+        if (ref == 0) {
+            return null;
+        } else if (ref == 1) {
+            byte[] bytes = new byte[readInt(in)];
+            in.readFully(bytes);
+            String result = new String(bytes, StandardCharsets.UTF_8);
+            strings.add(result);
+            return result;
+        } else {
+            return strings.get(ref - 2);
+        }
+    }
+
+    private static int readInt(DataInputStream in) throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            result |= (b & 0x7f) << shift;
+            if (b < 0x80) {
+                return result;
+            }
+        }
+        throw new IOException("invalid variable length integer");
+    }
+
+    /**
+     * The state of a {@link Recorder} captured by {@link Recorder#saveState()}.
+     */
+    private static final class RecorderState {
+        private final int size;
+        private final IdentityHashMap<RSyntaxNode, Integer> nodes;
+        private final HashMap<String, Integer> strings;
+        private final int nodeCount;
+        private final boolean valid;
+        private final Object delegateState;
+
+        RecorderState(Recorder recorder) {
+            this.size = recorder.bytes.size();
+            this.nodes = new IdentityHashMap<>(recorder.nodes);
+            this.strings = new HashMap<>(recorder.strings);
+            this.nodeCount = recorder.nodeCount;
+            this.valid = recorder.valid;
+            this.delegateState = recorder.delegate.saveState();
+        }
+    }
+
+    /**
+     * A builder that passes all calls to {@code delegate} and records them. The recording is given
+     * up if a call cannot be replayed from the cache file, e.g., if a source section belongs to a
+     * file referenced by a {@code #line} directive.
+     */
+    static final class Recorder implements RCodeBuilder<RSyntaxNode> {
+
+        private final Source source;
+        private final RCodeBuilder<RSyntaxNode> delegate;
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final IdentityHashMap<RSyntaxNode, Integer> nodes = new IdentityHashMap<>();
+        private final HashMap<String, Integer> strings = new HashMap<>();
+        private int nodeCount;
+        private boolean valid = true;
+
+        Recorder(Source source, RCodeBuilder<RSyntaxNode> delegate) {
+            this.source = source;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void modifyLastToken(RCodeToken newToken) {
+            if (valid) {
+                bytes.write(MODIFY_LAST_TOKEN);
+                writeInt(newToken.ordinal());
+            }
+            delegate.modifyLastToken(newToken);
+        }
+
+        @Override
+        public void modifyLastTokenIf(RCodeToken oldToken, RCodeToken newToken) {
+            if (valid) {
+                bytes.write(MODIFY_LAST_TOKEN_IF);
+                writeInt(oldToken.ordinal());
+                writeInt(newToken.ordinal());
+            }
+            delegate.modifyLastTokenIf(oldToken, newToken);
+        }
+
+        @Override
+        public void token(SourceSection section, RCodeToken token, String text) {
+            if (valid) {
+                bytes.write(TOKEN);
+                writeSection(section);
+                writeInt(token.ordinal());
+                writeString(text);
+            }
+            delegate.token(section, token, text);
+        }
+
+        @Override
+        public RSyntaxNode call(SourceSection section, RSyntaxNode lhs, List<Argument<RSyntaxNode>> arguments, DynamicObject attributes) {
+            if (valid) {
+                bytes.write(CALL);
+                writeSection(section);
+                writeNode(lhs);
+                writeArguments(arguments);
+                if (attributes != null) {
+                    valid = false;
+                }
+            }
+            return register(delegate.call(section, lhs, arguments, attributes));
+        }
+
+        @Override
+        public RSyntaxNode constant(SourceSection section, Object value) {
+            if (valid) {
+                bytes.write(CONSTANT);
+                writeSection(section);
+                writeConstant(value);
+            }
+            return register(delegate.constant(section, value));
+        }
+
+        @Override
+        public RSyntaxNode specialLookup(SourceSection section, String symbol, boolean functionLookup) {
+            writeLookup(SPECIAL_LOOKUP, section, symbol, functionLookup);
+            return register(delegate.specialLookup(section, symbol, functionLookup));
+        }
+
+        @Override
+        public RSyntaxNode lookup(SourceSection section, String symbol, boolean functionLookup) {
+            writeLookup(LOOKUP, section, symbol, functionLookup);
+            return register(delegate.lookup(section, symbol, functionLookup));
+        }
+
+        @Override
+        public RSyntaxNode function(TruffleRLanguage language, SourceSection section, List<Argument<RSyntaxNode>> arguments, RSyntaxNode body, Object assignedTo) {
+            if (valid) {
+                bytes.write(FUNCTION);
+                writeSection(section);
+                writeArguments(arguments);
+                writeNode(body);
+                if (assignedTo == null || assignedTo instanceof RSyntaxNode) {
+                    writeNode((RSyntaxNode) assignedTo);
+                } else {
+                    valid = false;
+                }
+            }
+            return register(delegate.function(language, section, arguments, body, assignedTo));
+        }
+
+        @Override
+        public RootCallTarget rootFunction(TruffleRLanguage language, SourceSection section, List<Argument<RSyntaxNode>> arguments, RSyntaxNode body, String name) {
+            valid = false;
+            return delegate.rootFunction(language, section, arguments, body, name);
+        }
+
+        @Override
+        public List<Argument<RSyntaxNode>> getFunctionExprArgs(Object args) {
+            return delegate.getFunctionExprArgs(args);
+        }
+
+        @Override
+        public void setContext(CodeBuilderContext context) {
+            delegate.setContext(context);
+        }
+
+        @Override
+        public CodeBuilderContext getContext() {
+            return delegate.getContext();
+        }
+
+        @Override
+        public Object saveState() {
+            return new RecorderState(this);
+        }
+
+        @Override
+        public void restoreState(Object state) {
+            RecorderState saved = (RecorderState) state;
+            byte[] recorded = bytes.toByteArray();
+            bytes.reset();
+            bytes.write(recorded, 0, saved.size);
+            nodes.clear();
+            nodes.putAll(saved.nodes);
+            strings.clear();
+            strings.putAll(saved.strings);
+            nodeCount = saved.nodeCount;
+            valid = saved.valid;
+            delegate.restoreState(saved.delegateState);
+        }
+
+        private RSyntaxNode register(RSyntaxNode node) {
+            nodes.put(node, ++nodeCount);
+            return node;
+        }
+
+        private void writeLookup(int op, SourceSection section, String symbol, boolean functionLookup) {
+            if (valid) {
+                bytes.write(op);
+                writeSection(section);
+                writeString(symbol);
+                bytes.write(functionLookup ? 1 : 0);
+            }
+        }
+
+        private void writeArguments(List<Argument<RSyntaxNode>> arguments) {
+            writeInt(arguments.size());
+            for (Argument<RSyntaxNode> arg : arguments) {
+                writeSection(arg.source);
+                writeString(arg.name);
+                writeNode(arg.value);
+            }
+        }
+
+        private void writeConstant(Object value) {
+            if (value == RNull.instance) {
+                bytes.write(CONSTANT_NULL);
+            } else if (value instanceof Byte) {
+                bytes.write(CONSTANT_LOGICAL);
+                bytes.write((byte) value);
+            } else if (value instanceof Integer) {
+                bytes.write(CONSTANT_INTEGER);
+                writeFixed((int) value, 4);
+            } else if (value instanceof Double) {
+                bytes.write(CONSTANT_DOUBLE);
+                writeFixed(Double.doubleToRawLongBits((double) value), 8);
+            } else if (value instanceof RComplex) {
+                bytes.write(CONSTANT_COMPLEX);
+                writeFixed(Double.doubleToRawLongBits(((RComplex) value).getRealPart()), 8);
+                writeFixed(Double.doubleToRawLongBits(((RComplex) value).getImaginaryPart()), 8);
+            } else if (value instanceof String) {
+                if (RRuntime.isNA((String) value)) {
+                    bytes.write(CONSTANT_STRING_NA);
+                } else {
+                    bytes.write(CONSTANT_STRING);
+                    writeString((String) value);
+                }
+            } else {
+                valid = false;
+            }
+        }
+
+        private void writeSection(SourceSection section) {
+            if (section == null) {
+                writeInt(0);
+            } else if (section.getSource() != source) {
+                valid = false;
+            } else {
+                writeInt(section.getCharIndex() + 1);
+                writeInt(section.getCharLength());
+            }
+        }
+
+        private void writeNode(RSyntaxNode node) {
+            if (node == null) {
+                writeInt(0);
+            } else {
+                Integer id = nodes.get(node);
+                if (id == null) {
+                    valid = false;
+                } else {
+                    writeInt(id);
+                }
+            }
+        }
+
+        private void writeString(String value) {
+            if (value == null) {
+                writeInt(0);
+            } else {
+                Integer id = strings.get(value);
+                if (id == null) {
+                    strings.put(value, strings.size());
+                    byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                    writeInt(1);
+                    writeInt(utf8.length);
+                    bytes.write(utf8, 0, utf8.length);
+                } else {
+                    writeInt(id + 2);
+                }
+            }
+        }
+
+        /**
+         * Writes the lowest {@code size} bytes of {@code value} in the big-endian order of
+         * {@link DataInputStream}.
+         */
+        private void writeFixed(long value, int size) {
+            for (int shift = (size - 1) * 8; shift >= 0; shift -= 8) {
+                bytes.write((int) (value >>> shift));
+            }
+        }
+
+        private void writeInt(int value) {
+            int v = value;
+            while ((v & ~0x7f) != 0) {
+                bytes.write((v & 0x7f) | 0x80);
+                v >>>= 7;
+            }
+            bytes.write(v);
+        }
+
+        /**
+         * Writes the recording with the parse result {@code result} to {@code file} unless the
+         * recording was given up, and then shrinks the cache directory to {@code maxSize} bytes.
+         * Failures are ignored, the next process will try again.
+         */
+        void write(TruffleFile file, List<RSyntaxNode> result, long maxSize) {
+            if (!valid) {
+                return;
+            }
+            bytes.write(END);
+            writeInt(result.size());
+            for (RSyntaxNode node : result) {
+                writeNode(node);
+            }
+            if (!valid) {
+                return;
+            }
+            byte[] body = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(body, 0, body.length);
+            ByteArrayOutputStream fileBytes = new ByteArrayOutputStream(body.length + 64);
+            DataOutputStream header = new DataOutputStream(fileBytes);
+            TruffleFile tmp = null;
+            try {
+                header.writeInt(MAGIC);
+                header.writeUTF(BuildId.VALUE);
+                header.writeInt(source.getLength());
+                header.writeLong(crc.getValue());
+                header.write(body);
+                TruffleFile dir = file.getParent();
+                dir.createDirectories();
+                tmp = dir.resolve(file.getName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+                try (OutputStream out = tmp.newOutputStream(StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                    fileBytes.writeTo(out);
+                }
+                try {
+                    tmp.move(file, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    tmp.move(file, StandardCopyOption.REPLACE_EXISTING);
+                }
+                tmp = null;
+                evict(dir, maxSize);
+            } catch (IOException | SecurityException | UnsupportedOperationException e) {
+                // the cache is optional
+            } finally {
+                if (tmp != null) {
+                    delete(tmp);
+                }
+            }
+        }
+    }
+}
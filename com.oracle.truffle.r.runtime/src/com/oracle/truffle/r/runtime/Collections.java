@@ -358,7 +358,7 @@ public final class Collections {
                 nanValue = value + 1;
                 return ret;
             } else {
-                int ind = index(Double.hashCode(key));
+                int ind = index(hash(key));
                 while (true) {
                     if (values[ind] == 0) {
                         keys[ind] = key;
@@ -377,13 +377,18 @@ public final class Collections {
             }
         }
 
+        private static int hash(double key) {
+            // 0.0 and -0.0 are the same value in R
+            return key == 0.0 ? 0 : Double.hashCode(key);
+        }
+
         public int get(double key) {
             if (RRuntime.isNA(key)) {
                 return naValue - 1;
             } else if (Double.isNaN(key)) {
                 return nanValue - 1;
             } else {
-                int ind = index(Double.hashCode(key));
+                int ind = index(hash(key));
                 int firstInd = ind;
                 while (true) {
                     if (key == keys[ind]) {
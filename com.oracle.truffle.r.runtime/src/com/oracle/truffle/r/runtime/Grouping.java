@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime;
+
+import java.util.HashMap;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashMapCharacter;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashMapComplex;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashMapDouble;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashMapInt;
+import com.oracle.truffle.r.runtime.context.FastROptions;
+import com.oracle.truffle.r.runtime.context.RContext;
+import com.oracle.truffle.r.runtime.data.model.RAbstractComplexVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractIntVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractLogicalVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractStringVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+
+/**
+ * Assignment of the elements of a vector to groups, the common part of grouped computations like
+ * {@code rowsum}, {@code split} or {@code tabulate}. The group of every element is determined once
+ * and stored as a dense, zero-based group id, the computations then only work with plain int
+ * arrays. When the groups are given by their distinct values, the ids are looked up in the
+ * primitive hash maps from {@link Collections}, so that the keys are never boxed.
+ *
+ * Large groupings (see {@link FastROptions#GroupParallelThreshold}) are processed in parallel: the
+ * elements are counted per chunk and the partial counts are merged. The {@link #getOrder() order}
+ * of the elements is stable, so an aggregation that walks every group in this order adds up the
+ * elements in the same order as a sequential loop over the vector and gives identical results
+ * regardless of the number of threads.
+ */
+public final class Grouping {
+
+    /**
+     * The group id of elements that do not belong to any group, e.g., {@code NA} factor codes.
+     */
+    public static final int NO_GROUP = -1;
+
+    private static final int MIN_CHUNK = 1 << 16;
+
+    private final int[] ids;
+    private final int groupCount;
+    private final int chunks;
+
+    private int[] counts;
+    private int[] starts;
+    private int[] order;
+
+    private Grouping(int[] ids, int groupCount) {
+        this.ids = ids;
+        this.groupCount = groupCount;
+        this.chunks = getChunkCount(ids.length, groupCount);
+    }
+
+    /**
+     * Creates a grouping from given group ids, which must be either {@link #NO_GROUP} or between
+     * {@code 0} and {@code groupCount - 1}.
+     */
+    @TruffleBoundary
+    public static Grouping create(int[] ids, int groupCount) {
+        return new Grouping(ids, groupCount);
+    }
+
+    /**
+     * Creates a grouping of {@code values} where the groups are given by {@code levels}, which must
+     * not contain duplicates. The id of a group is the position of its value in {@code levels}.
+     * {@code NA} and {@code NaN} values are matched like in {@code match}.
+     */
+    @TruffleBoundary
+    public static Grouping create(RAbstractVector values, RAbstractVector levels) {
+        int length = values.getLength();
+        int levelCount = levels.getLength();
+        int[] ids = new int[length];
+        if (values instanceof RAbstractIntVector && levels instanceof RAbstractIntVector) {
+            RAbstractIntVector v = (RAbstractIntVector) values;
+            RAbstractIntVector l = (RAbstractIntVector) levels;
+            NonRecursiveHashMapInt map = new NonRecursiveHashMapInt(levelCount);
+            for (int i = 0; i < levelCount; i++) {
+                map.put(l.getDataAt(i), i);
+            }
+            for (int i = 0; i < length; i++) {
+                ids[i] = map.get(v.getDataAt(i));
+            }
+        } else if (values instanceof RAbstractDoubleVector && levels instanceof RAbstractDoubleVector) {
+            RAbstractDoubleVector v = (RAbstractDoubleVector) values;
+            RAbstractDoubleVector l = (RAbstractDoubleVector) levels;
+            NonRecursiveHashMapDouble map = new NonRecursiveHashMapDouble(levelCount);
+            for (int i = 0; i < levelCount; i++) {
+                map.put(l.getDataAt(i), i);
+            }
+            for (int i = 0; i < length; i++) {
+                ids[i] = map.get(v.getDataAt(i));
+            }
+        } else if (values instanceof RAbstractStringVector && levels instanceof RAbstractStringVector) {
+            RAbstractStringVector v = (RAbstractStringVector) values;
+            RAbstractStringVector l = (RAbstractStringVector) levels;
+            NonRecursiveHashMapCharacter map = new NonRecursiveHashMapCharacter(levelCount);
+            for (int i = 0; i < levelCount; i++) {
+                map.put(l.getDataAt(i), i);
+            }
+            for (int i = 0; i < length; i++) {
+                ids[i] = map.get(v.getDataAt(i));
+            }
+        } else if (values instanceof RAbstractLogicalVector && levels instanceof RAbstractLogicalVector) {
+            RAbstractLogicalVector v = (RAbstractLogicalVector) values;
+            RAbstractLogicalVector l = (RAbstractLogicalVector) levels;
+            NonRecursiveHashMapInt map = new NonRecursiveHashMapInt(levelCount);
+            for (int i = 0; i < levelCount; i++) {
+                map.put(RRuntime.logical2int(l.getDataAt(i)), i);
+            }
+            for (int i = 0; i < length; i++) {
+                ids[i] = map.get(RRuntime.logical2int(v.getDataAt(i)));
+            }
+        } else if (values instanceof RAbstractComplexVector && levels instanceof RAbstractComplexVector) {
+            RAbstractComplexVector v = (RAbstractComplexVector) values;
+            RAbstractComplexVector l = (RAbstractComplexVector) levels;
+            NonRecursiveHashMapComplex map = new NonRecursiveHashMapComplex(levelCount);
+            for (int i = 0; i < levelCount; i++) {
+                map.put(l.getDataAt(i), i);
+            }
+            for (int i = 0; i < length; i++) {
+                ids[i] = map.get(v.getDataAt(i));
+            }
+        } else {
+            // raw vectors, lists and mixed types are rare enough to use boxed keys
+            HashMap<Object, Integer> map = new HashMap<>(levelCount * 2);
+            for (int i = 0; i < levelCount; i++) {
+                map.put(levels.getDataAtAsObject(i), i);
+            }
+            for (int i = 0; i < length; i++) {
+                Integer id = map.get(values.getDataAtAsObject(i));
+                ids[i] = id == null ? NO_GROUP : id;
+            }
+        }
+        return new Grouping(ids, levelCount);
+    }
+
+    public int[] getIds() {
+        return ids;
+    }
+
+    public int getGroupCount() {
+        return groupCount;
+    }
+
+    /**
+     * Returns {@code true} if the computations on this grouping are large enough to run in
+     * parallel.
+     */
+    public boolean isParallel() {
+        return chunks > 1;
+    }
+
+    /**
+     * Returns the number of elements in every group.
+     */
+    @TruffleBoundary
+    public int[] getCounts() {
+        if (counts == null) {
+            counts = count(ids, 0, groupCount, chunks);
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the positions of the elements in {@link #getOrder()} where the groups start, the
+     * array has one more element at the end, which is the number of elements in any group.
+     */
+    @TruffleBoundary
+    public int[] getStarts() {
+        if (starts == null) {
+            computeOrder();
+        }
+        return starts;
+    }
+
+    /**
+     * Returns the indices of all the elements that belong to some group sorted by the group id, the
+     * elements of one group are in their original order.
+     */
+    @TruffleBoundary
+    public int[] getOrder() {
+        if (order == null) {
+            computeOrder();
+        }
+        return order;
+    }
+
+    /**
+     * Invokes {@code body} with ranges of group ids that together cover all the groups. The ranges
+     * are processed in parallel if the grouping {@link #isParallel() is large enough}, so the body
+     * must follow the rules of {@link RParallel}.
+     */
+    @TruffleBoundary
+    public void forEachGroupRange(RParallel.ChunkConsumer body) {
+        if (chunks > 1) {
+            RParallel.forEachChunk(groupCount, 1, body);
+        } else if (groupCount > 0) {
+            body.accept(0, groupCount);
+        }
+    }
+
+    private void computeOrder() {
+        int length = ids.length;
+        int chunkSize = (length + chunks - 1) / chunks;
+        int[][] offsets = new int[chunks][];
+        if (chunks == 1) {
+            offsets[0] = new int[groupCount];
+            countChunk(ids, 0, 0, length, offsets[0]);
+        } else {
+            RParallel.forEach(chunks, chunk -> {
+                offsets[chunk] = new int[groupCount];
+                countChunk(ids, 0, chunk * chunkSize, Math.min(length, (chunk + 1) * chunkSize), offsets[chunk]);
+            });
+        }
+        int[] newCounts = new int[groupCount];
+        int[] newStarts = new int[groupCount + 1];
+        int offset = 0;
+        for (int group = 0; group < groupCount; group++) {
+            newStarts[group] = offset;
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                int count = offsets[chunk][group];
+                offsets[chunk][group] = offset;
+                offset += count;
+            }
+            newCounts[group] = offset - newStarts[group];
+        }
+        newStarts[groupCount] = offset;
+        int[] newOrder = new int[offset];
+        if (chunks == 1) {
+            scatterChunk(ids, newOrder, 0, length, offsets[0]);
+        } else {
+            RParallel.forEach(chunks, chunk -> scatterChunk(ids, newOrder, chunk * chunkSize, Math.min(length, (chunk + 1) * chunkSize), offsets[chunk]));
+        }
+        counts = newCounts;
+        starts = newStarts;
+        order = newOrder;
+    }
+
+    /**
+     * Counts the occurrences of the codes {@code base} to {@code base + groupCount - 1} in
+     * {@code codes}, other codes and {@code NA} are ignored. This is {@code tabulate} for
+     * {@code base == 1}.
+     */
+    @TruffleBoundary
+    public static int[] count(int[] codes, int base, int groupCount) {
+        return count(codes, base, groupCount, getChunkCount(codes.length, groupCount));
+    }
+
+    /**
+     * Returns {@code true} if {@link #count(int[], int, int)} would count the codes in parallel.
+     */
+    @TruffleBoundary
+    public static boolean shouldRunInParallel(int length, int groupCount) {
+        return getChunkCount(length, groupCount) > 1;
+    }
+
+    private static int[] count(int[] codes, int base, int groupCount, int chunks) {
+        int[] result = new int[groupCount];
+        if (chunks == 1) {
+            countChunk(codes, base, 0, codes.length, result);
+            return result;
+        }
+        int length = codes.length;
+        int chunkSize = (length + chunks - 1) / chunks;
+        int[][] partial = new int[chunks][];
+        RParallel.forEach(chunks, chunk -> {
+            partial[chunk] = new int[groupCount];
+            countChunk(codes, base, chunk * chunkSize, Math.min(length, (chunk + 1) * chunkSize), partial[chunk]);
+        });
+        for (int[] chunkCounts : partial) {
+            for (int group = 0; group < groupCount; group++) {
+                result[group] += chunkCounts[group];
+            }
+        }
+        return result;
+    }
+
+    private static int getChunkCount(int length, int groupCount) {
+        if (!RParallel.shouldRunInParallel(length, RContext.getInstance().getNonNegativeIntOption(FastROptions.GroupParallelThreshold))) {
+            return 1;
+        }
+        int chunks = RParallel.getChunkCount(length, MIN_CHUNK);
+        // the partial counts of all the chunks should not take more memory than the ids
+        return (long) chunks * groupCount > length ? 1 : chunks;
+    }
+
+    private static void countChunk(int[] codes, int base, int from, int to, int[] count) {
+        int groupCount = count.length;
+        for (int i = from; i < to; i++) {
+            int code = codes[i];
+            int group = code - base;
+            if (code != RRuntime.INT_NA && group >= 0 && group < groupCount) {
+                count[group]++;
+            }
+        }
+    }
+
+    private static void scatterChunk(int[] ids, int[] order, int from, int to, int[] offsets) {
+        for (int i = from; i < to; i++) {
+            int group = ids[i];
+            if (group != NO_GROUP) {
+                order[offsets[group]++] = i;
+            }
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2015, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2015, 2019, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -23,35 +23,196 @@
 package com.oracle.truffle.r.runtime;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.context.FastROptions;
 import com.oracle.truffle.r.runtime.context.RContext;
 
+/**
+ * Support for {@code lazyLoadDBfetch}. The lazy-load database files ({@code .rdb}) are memory
+ * mapped and the mappings are shared by all the contexts in the JVM, i.e., also by the child
+ * contexts. Each context additionally keeps a LRU cache of the decompressed entries whose size is
+ * limited by the {@link FastROptions#LazyLoadDBCacheSize} option. A context checks the
+ * modification time and the size of a file only the first time it reads it and after the file was
+ * flushed by {@code lazyLoadDBflush} or written by {@code lazyLoadDBinsertValue}. The mapping is
+ * reused if they are the same as when it was mapped, otherwise the file is mapped anew, so that a
+ * package reinstalled in the same process is not read from a stale mapping.
+ */
 public class LazyDBCache {
 
-    public static final class ContextStateImpl implements RContext.ContextState {
-        private final Map<String, byte[]> dbCache = new HashMap<>();
-
-        public byte[] getData(String dbPath) {
-            byte[] dbData = dbCache.get(dbPath);
-            if (dbData == null) {
-                try {
-                    dbData = Files.readAllBytes(FileSystems.getDefault().getPath(dbPath));
-                } catch (IOException ex) {
-                    // unexpected
-                    throw RInternalError.shouldNotReachHere(ex);
+    private static final Map<String, MappedDB> mappedDBs = new ConcurrentHashMap<>();
+    private static final AtomicInteger nextDBId = new AtomicInteger();
+
+    /**
+     * A read-only memory mapped lazy-load database file.
+     */
+    public static final class MappedDB {
+        private final int id;
+        private final ByteBuffer data;
+        private final long lastModified;
+        private final long size;
+        /**
+         * Set once the mapping was replaced or removed, the contexts then validate the file again.
+         */
+        private volatile boolean stale;
+
+        private MappedDB(ByteBuffer data, long lastModified, long size) {
+            this.id = nextDBId.getAndIncrement();
+            this.data = data;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        private boolean isCurrent(BasicFileAttributes attrs) {
+            return attrs.lastModifiedTime().toMillis() == lastModified && attrs.size() == size;
+        }
+
+        /**
+         * Returns a new view of the whole file, the views are independent, so that different
+         * threads can read the data concurrently.
+         */
+        public ByteBuffer getData() {
+            return data.duplicate();
+        }
+    }
+
+    @TruffleBoundary
+    private static MappedDB map(String dbPath) {
+        Path path = FileSystems.getDefault().getPath(dbPath);
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException ex) {
+            // unexpected
+            throw RInternalError.shouldNotReachHere(ex);
+        }
+        return mappedDBs.compute(dbPath, (key, existing) -> {
+            if (existing != null) {
+                if (existing.isCurrent(attrs)) {
+                    return existing;
                 }
-                dbCache.put(dbPath, dbData);
+                existing.stale = true;
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                // the mapping stays valid after the channel is closed
+                long size = channel.size();
+                return new MappedDB(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), attrs.lastModifiedTime().toMillis(), size);
+            } catch (IOException ex) {
+                // unexpected
+                throw RInternalError.shouldNotReachHere(ex);
+            }
+        });
+    }
+
+    private static final class EntryKey {
+        private final int dbId;
+        private final int offset;
+
+        EntryKey(int dbId, int offset) {
+            this.dbId = dbId;
+            this.offset = offset;
+        }
+
+        @Override
+        public int hashCode() {
+            return dbId * 31 + offset;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof EntryKey)) {
+                return false;
+            }
+            EntryKey other = (EntryKey) obj;
+            return dbId == other.dbId && offset == other.offset;
+        }
+    }
+
+    public static final class ContextStateImpl implements RContext.ContextState {
+        private final LinkedHashMap<EntryKey, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+        /**
+         * The mappings validated by this context.
+         */
+        private final HashMap<String, MappedDB> validated = new HashMap<>();
+        private long entriesSize;
+        private long maxEntriesSize;
+
+        @Override
+        public RContext.ContextState initialize(RContext context) {
+            maxEntriesSize = context.getNonNegativeIntOption(FastROptions.LazyLoadDBCacheSize);
+            return this;
+        }
+
+        /**
+         * Returns the mapping of the given database file, the entries cached for a previous
+         * mapping of the same path become unreachable, since they are keyed by the mapping id, and
+         * are eventually evicted.
+         */
+        @TruffleBoundary
+        public MappedDB getData(String dbPath) {
+            MappedDB db = validated.get(dbPath);
+            if (db == null || db.stale) {
+                db = map(dbPath);
+                validated.put(dbPath, db);
             }
-            return dbData;
+            return db;
         }
 
+        /**
+         * Returns the decompressed entry at given offset in the database or {@code null} if it is
+         * not cached.
+         */
+        @TruffleBoundary
+        public byte[] getEntry(MappedDB db, int offset) {
+            return entries.get(new EntryKey(db.id, offset));
+        }
+
+        @TruffleBoundary
+        public void putEntry(MappedDB db, int offset, byte[] data) {
+            if (data.length > maxEntriesSize) {
+                return;
+            }
+            byte[] previous = entries.put(new EntryKey(db.id, offset), data);
+            if (previous != null) {
+                entriesSize -= previous.length;
+            }
+            entriesSize += data.length;
+            Iterator<byte[]> it = entries.values().iterator();
+            while (entriesSize > maxEntriesSize && it.hasNext()) {
+                entriesSize -= it.next().length;
+                it.remove();
+            }
+        }
+
+        @TruffleBoundary
         public void remove(String dbPath) {
+            validated.remove(dbPath);
             // no an error if missing
-            dbCache.remove(dbPath);
+            MappedDB db = mappedDBs.remove(dbPath);
+            if (db != null) {
+                db.stale = true;
+                Iterator<Map.Entry<EntryKey, byte[]>> it = entries.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<EntryKey, byte[]> entry = it.next();
+                    if (entry.getKey().dbId == db.id) {
+                        entriesSize -= entry.getValue().length;
+                        it.remove();
+                    }
+                }
+            }
         }
 
         public static ContextStateImpl newContextState() {
@@ -22,15 +22,18 @@
  */
 package com.oracle.truffle.r.runtime;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.RootCallTarget;
 import com.oracle.truffle.api.frame.FrameDescriptor;
 import com.oracle.truffle.api.frame.MaterializedFrame;
 import com.oracle.truffle.api.object.DynamicObject;
+import static com.oracle.truffle.r.runtime.context.FastROptions.ChannelQueueCapacity;
 import static com.oracle.truffle.r.runtime.context.FastROptions.ChannelReceiveTimeout;
 
 import com.oracle.truffle.r.runtime.builtins.RBuiltinDescriptor;
@@ -49,6 +52,7 @@ import com.oracle.truffle.r.runtime.data.RPromise;
 import com.oracle.truffle.r.runtime.data.RPromise.PromiseState;
 import com.oracle.truffle.r.runtime.data.RSharingAttributeStorage;
 import com.oracle.truffle.r.runtime.data.RUnboundValue;
+import com.oracle.truffle.r.runtime.data.model.RAbstractAtomicVector;
 import com.oracle.truffle.r.runtime.env.REnvironment;
 import com.oracle.truffle.r.runtime.env.frame.FrameSlotChangeMonitor;
 import static com.oracle.truffle.r.runtime.env.frame.REnvTruffleFrameAccess.getStringIdentifiersAndValues;
@@ -60,14 +64,21 @@ import java.util.concurrent.TimeUnit;
 /**
  * Implementation of a channel abstraction used for communication between parallel contexts in
  * shared memory space.
+ *
+ * Each direction of a channel has a bounded queue whose capacity is given by the
+ * {@link FastROptions#ChannelQueueCapacity} option and a reusable buffer for the objects that need
+ * to be serialized. Atomic vectors without attributes are handed over directly, since all the
+ * contexts share one heap, they are only made permanently shared.
  */
 public class RChannel {
 
-    // TODO: cheaper way of serializing data (re-usable buffer?)
-
     private static final int INITIAL_CHANNEL_NUM = 4;
     private static final int CHANNEL_NUM_GROW_FACTOR = 2;
-    private static final int QUEUE_CAPACITY = 1;
+
+    /**
+     * Names of the values returned by {@link #getStats(int)}.
+     */
+    public static final String[] STATS_NAMES = {"sent", "received", "direct", "serialized", "serializedBytes", "blockedSends", "queued"};
 
     private static int[] keys = new int[INITIAL_CHANNEL_NUM];
     private static RChannel[] channels = new RChannel[INITIAL_CHANNEL_NUM];
@@ -79,8 +90,47 @@ public class RChannel {
      */
     private static final Semaphore create = new Semaphore(1, true);
 
-    private final ArrayBlockingQueue<Object> masterToClient = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
-    private final ArrayBlockingQueue<Object> clientToMaster = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final ArrayBlockingQueue<Object> masterToClient;
+    private final ArrayBlockingQueue<Object> clientToMaster;
+
+    private final SerializationBuffer masterToClientBuffer = new SerializationBuffer();
+    private final SerializationBuffer clientToMasterBuffer = new SerializationBuffer();
+
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong receivedCount = new AtomicLong();
+    private final AtomicLong directCount = new AtomicLong();
+    private final AtomicLong serializedCount = new AtomicLong();
+    private final AtomicLong serializedBytes = new AtomicLong();
+    private final AtomicLong blockedSendCount = new AtomicLong();
+
+    private RChannel(int queueCapacity) {
+        this.masterToClient = new ArrayBlockingQueue<>(queueCapacity);
+        this.clientToMaster = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * Serialization buffer that is reused for all the messages sent in one direction of a channel.
+     * Buffers that grew too large because of a big message are dropped after use.
+     */
+    private static final class SerializationBuffer extends ByteArrayOutputStream {
+        private static final int INITIAL_SIZE = 8192;
+        private static final int MAX_RETAINED_SIZE = 1024 * 1024;
+
+        SerializationBuffer() {
+            super(INITIAL_SIZE);
+        }
+
+        synchronized byte[] serialize(Object obj) {
+            try {
+                return RSerialize.serialize(RContext.getInstance(), obj, RSerialize.XDR, RSerialize.DEFAULT_VERSION, null, this);
+            } finally {
+                if (buf.length > MAX_RETAINED_SIZE) {
+                    buf = new byte[INITIAL_SIZE];
+                }
+                reset();
+            }
+        }
+    }
 
     public static int createChannel(int key) {
         if (key <= 0) {
@@ -135,7 +185,7 @@ public class RChannel {
             }
             if (freeSlot != -1) {
                 keys[freeSlot] = key;
-                channels[freeSlot] = new RChannel();
+                channels[freeSlot] = new RChannel(Math.max(1, RContext.getInstance().getNonNegativeIntOption(ChannelQueueCapacity)));
                 return new int[]{freeSlot, key};
             } else {
                 int[] keysTmp = new int[keys.length * CHANNEL_NUM_GROW_FACTOR];
@@ -210,17 +260,54 @@ public class RChannel {
         }
     }
 
+    /**
+     * Atomic vectors without attributes do not need any conversion and can be passed to the other
+     * side directly.
+     */
+    private static boolean isDirect(Object data) {
+        return data instanceof RAbstractAtomicVector && ((RAbstractAtomicVector) data).getAttributes() == null;
+    }
+
     public static void send(int id, Object data) {
-        Output out = new Output();
-        Object msg = out.processOutgoingMessage(data);
         RChannel channel = getChannelFromId(id);
+        Object msg;
+        if (isDirect(data)) {
+            msg = Output.makeShared(data);
+            channel.directCount.incrementAndGet();
+        } else {
+            Output out = new Output(channel, id > 0 ? channel.masterToClientBuffer : channel.clientToMasterBuffer);
+            msg = out.processOutgoingMessage(data);
+        }
         try {
-            (id > 0 ? channel.masterToClient : channel.clientToMaster).put(msg);
+            ArrayBlockingQueue<Object> queue = id > 0 ? channel.masterToClient : channel.clientToMaster;
+            if (!queue.offer(msg)) {
+                channel.blockedSendCount.incrementAndGet();
+                queue.put(msg);
+            }
+            channel.sentCount.incrementAndGet();
         } catch (InterruptedException x) {
             throw RError.error(RError.SHOW_CALLER2, RError.Message.GENERIC, "error sending through the channel");
         }
     }
 
+    private Object processReceivedMessage(Object msg) {
+        receivedCount.incrementAndGet();
+        if (isDirect(msg)) {
+            return msg;
+        }
+        Input in = new Input();
+        return in.processedReceivedMessage(msg);
+    }
+
+    /**
+     * Returns the throughput counters of given channel in the order given by {@link #STATS_NAMES}.
+     */
+    public static long[] getStats(int id) {
+        RChannel channel = getChannelFromId(id);
+        return new long[]{channel.sentCount.get(), channel.receivedCount.get(), channel.directCount.get(), channel.serializedCount.get(), channel.serializedBytes.get(),
+                        channel.blockedSendCount.get(), channel.masterToClient.size() + channel.clientToMaster.size()};
+    }
+
     public static Object receive(int id) {
         RChannel channel = getChannelFromId(id);
         try {
@@ -235,8 +322,7 @@ public class RChannel {
                 msg = queue.take();
             }
             if (msg != null) {
-                Input in = new Input();
-                return in.processedReceivedMessage(msg);
+                return channel.processReceivedMessage(msg);
             }
             throw RError.error(RError.SHOW_CALLER2, RError.Message.GENERIC, "timeout while receiving from the channel");
         } catch (InterruptedException x) {
@@ -248,8 +334,7 @@ public class RChannel {
         RChannel channel = getChannelFromId(id);
         Object msg = (id < 0 ? channel.masterToClient : channel.clientToMaster).poll();
         if (msg != null) {
-            Input in = new Input();
-            return in.processedReceivedMessage(msg);
+            return channel.processReceivedMessage(msg);
         }
         return null;
     }
@@ -422,6 +507,14 @@ public class RChannel {
 
     private static class Output extends TransmitterCommon {
 
+        private final RChannel channel;
+        private final SerializationBuffer serializationBuffer;
+
+        Output(RChannel channel, SerializationBuffer serializationBuffer) {
+            this.channel = channel;
+            this.serializationBuffer = serializationBuffer;
+        }
+
         private static Object makeShared(Object o) {
             if (RSharingAttributeStorage.isShareable(o)) {
                 RSharingAttributeStorage shareable = (RSharingAttributeStorage) o;
@@ -524,7 +617,9 @@ public class RChannel {
                 // them - should we define a new method to be used here?
                 attributable.initAttributes(null);
             }
-            byte[] serializedAttributable = RSerialize.serialize(RContext.getInstance(), attributable, RSerialize.XDR, RSerialize.DEFAULT_VERSION, null);
+            byte[] serializedAttributable = serializationBuffer.serialize(attributable);
+            channel.serializedCount.incrementAndGet();
+            channel.serializedBytes.addAndGet(serializedAttributable.length);
             if (attributes != null) {
                 attributable.initAttributes(attributes);
                 attributes = createShareableSlow(attributes, true);
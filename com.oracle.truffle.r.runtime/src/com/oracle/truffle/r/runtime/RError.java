@@ -435,6 +435,7 @@ public final class RError extends RuntimeException implements TruffleException {
         INVALID_NA_PRINT_SPEC("invalid 'na.print' specification"),
         EMPTY_WHAT("empty 'what' specified"),
         LINE_ELEMENTS("line %d did not have %d elements"),
+        MALFORMED_LINE("line %d contains an unterminated quoted field or an embedded nul"),
         ITEMS_NOT_MULTIPLE("number of items read is not a multiple of the number of columns"),
         TRACEMEM_NOT_NULL("cannot trace NULL"),
         INPUT_MUST_BE_STRING("input must be a character string"),
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.context.FastROptions;
+import com.oracle.truffle.r.runtime.context.RContext;
+
+/**
+ * Support for running pure Java computations (e.g. numerical kernels of builtins) on multiple
+ * threads. All tasks are executed on a single JVM wide {@link ForkJoinPool}, the number of threads
+ * used by one computation is limited by the {@link FastROptions#ParallelThreads} option of the
+ * calling context.
+ *
+ * N.B.: the tasks are executed on threads that are not entered into any Truffle context, so they
+ * must not access {@link RContext} or any other R level state, i.e. they should only work with
+ * primitive arrays that were obtained beforehand.
+ */
+public final class RParallel {
+
+    private static volatile ForkJoinPool pool;
+
+    private RParallel() {
+        // no instances
+    }
+
+    private static ForkJoinPool getPool() {
+        ForkJoinPool result = pool;
+        if (result == null) {
+            synchronized (RParallel.class) {
+                result = pool;
+                if (result == null) {
+                    result = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+                    pool = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the maximal number of threads that one computation started from the current context
+     * may use. The value {@code 1} means that no parallelism should be used.
+     */
+    @TruffleBoundary
+    public static int getParallelism() {
+        int threads = RContext.getInstance().getNonNegativeIntOption(FastROptions.ParallelThreads);
+        int processors = Runtime.getRuntime().availableProcessors();
+        return threads == 0 ? processors : Math.min(threads, processors);
+    }
+
+    /**
+     * Returns {@code true} if a computation that performs given amount of work should be executed
+     * in parallel given the threshold option for the computation.
+     */
+    @TruffleBoundary
+    public static boolean shouldRunInParallel(long work, int threshold) {
+        return work >= threshold && getParallelism() > 1;
+    }
+
+    /**
+     * Invokes {@code body} for every index from {@code 0} to {@code count - 1}, the indices are
+     * distributed dynamically among at most {@link #getParallelism()} threads including the calling
+     * thread. The method returns once all the indices have been processed. Exceptions thrown by
+     * the body are re-thrown in the calling thread.
+     */
+    @TruffleBoundary
+    public static void forEach(int count, IntConsumer body) {
+        int workers = Math.min(count, getParallelism());
+        if (workers <= 1) {
+            for (int i = 0; i < count; i++) {
+                body.accept(i);
+            }
+            return;
+        }
+        AtomicInteger next = new AtomicInteger();
+        Runnable worker = () -> {
+            int i;
+            while ((i = next.getAndIncrement()) < count) {
+                body.accept(i);
+            }
+        };
+        ForkJoinPool forkJoinPool = getPool();
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[workers - 1];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = forkJoinPool.submit(worker);
+        }
+        try {
+            worker.run();
+        } finally {
+            for (ForkJoinTask<?> task : tasks) {
+                task.join();
+            }
+        }
+    }
+
+    /**
+     * Splits the range {@code [0, length)} into chunks of at least {@code minChunk} elements and
+     * invokes {@code body} with the start (inclusive) and end (exclusive) of every chunk, see
+     * {@link #forEach(int, IntConsumer)}.
+     */
+    @TruffleBoundary
+    public static void forEachChunk(int length, int minChunk, ChunkConsumer body) {
+        int chunks = getChunkCount(length, minChunk);
+        int chunkSize = (length + chunks - 1) / chunks;
+        forEach(chunks, chunk -> {
+            int from = chunk * chunkSize;
+            int to = Math.min(length, from + chunkSize);
+            if (from < to) {
+                body.accept(from, to);
+            }
+        });
+    }
+
+    /**
+     * Returns the number of chunks that {@link #forEachChunk(int, int, ChunkConsumer)} would use for
+     * given length and minimal chunk size.
+     */
+    @TruffleBoundary
+    public static int getChunkCount(int length, int minChunk) {
+        // a few chunks per thread to balance the load
+        int maxChunks = Math.max(1, length / Math.max(1, minChunk));
+        return Math.max(1, Math.min(maxChunks, getParallelism() * 4));
+    }
+
+    @FunctionalInterface
+    public interface ChunkConsumer {
+        void accept(int from, int to);
+    }
+}
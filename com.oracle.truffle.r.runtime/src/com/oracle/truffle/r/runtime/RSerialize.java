@@ -28,6 +28,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
@@ -69,11 +72,14 @@ import com.oracle.truffle.r.runtime.data.RAttributable;
 import com.oracle.truffle.r.runtime.data.RAttributesLayout;
 import com.oracle.truffle.r.runtime.data.RBaseObject;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RDoubleVector;
 import com.oracle.truffle.r.runtime.data.REmpty;
 import com.oracle.truffle.r.runtime.data.RExternalPtr;
 import com.oracle.truffle.r.runtime.data.RFunction;
+import com.oracle.truffle.r.runtime.data.RIntVector;
 import com.oracle.truffle.r.runtime.data.RPairList;
 import com.oracle.truffle.r.runtime.data.RList;
+import com.oracle.truffle.r.runtime.data.RLogicalVector;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector.RMaterializedVector;
 import com.oracle.truffle.r.runtime.data.RMissing;
 import com.oracle.truffle.r.runtime.data.RNull;
@@ -330,11 +336,13 @@ public class RSerialize {
 
     @TruffleBoundary
     public static Object unserialize(RAbstractRawVector data) {
+        // the input never writes into a preloaded buffer, see XdrInputFormat.Buffer.readData
         byte[] buffer = data.materialize().getReadonlyData();
         try {
-            return new Input(new ByteArrayInputStream(buffer)).unserialize();
+            return new Input(new PByteArrayInputStream(buffer)).unserialize();
         } catch (IOException e) {
-            throw RInternalError.shouldNotReachHere("ByteArrayInputStream should not throw IOExceptiopn");
+            // truncated or invalid data
+            throw RError.error(RError.SHOW_CALLER, Message.GENERIC, e.getMessage());
         }
     }
 
@@ -376,14 +384,22 @@ public class RSerialize {
         private int langDepth;
 
         private Input(RConnection conn) throws IOException {
-            this(conn.getInputStream(), null, null, null);
+            this(conn.getInputStream(), conn.getChannel(), null, null, null);
         }
 
         private Input(InputStream input) throws IOException {
-            this(input, null, null, null);
+            this(input, null, null, null, null);
         }
 
         private Input(InputStream is, CallHook hook, String packageName, String functionName) throws IOException {
+            this(is, null, hook, packageName, functionName);
+        }
+
+        /**
+         * If {@code channel} is not {@code null}, it must be the channel underlying {@code is},
+         * after the header is read the data are read directly from the channel.
+         */
+        private Input(InputStream is, ReadableByteChannel channel, CallHook hook, String packageName, String functionName) throws IOException {
             super(hook);
             this.packageName = packageName;
             this.functionName = functionName;
@@ -394,7 +410,7 @@ public class RSerialize {
                 case 'B':
                     throw formatError(buf[0], true);
                 case 'X':
-                    stream = new XdrInputFormat(is);
+                    stream = new XdrInputFormat(is, channel);
                     break;
                 case '\n':
                     // special case in 'A'
@@ -740,14 +756,7 @@ public class RSerialize {
                 case INTSXP: {
                     int len = stream.readInt();
                     int[] data = new int[len];
-                    boolean complete = RDataFactory.COMPLETE_VECTOR;
-                    for (int i = 0; i < len; i++) {
-                        int intVal = stream.readInt();
-                        if (intVal == RRuntime.INT_NA) {
-                            complete = false;
-                        }
-                        data[i] = intVal;
-                    }
+                    boolean complete = stream.readInts(data);
                     result = RDataFactory.createIntVector(data, complete);
                     break;
                 }
@@ -755,16 +764,7 @@ public class RSerialize {
                 case LGLSXP: {
                     int len = stream.readInt();
                     byte[] data = new byte[len];
-                    boolean complete = RDataFactory.COMPLETE_VECTOR;
-                    for (int i = 0; i < len; i++) {
-                        int intVal = stream.readInt();
-                        if (intVal == RRuntime.INT_NA) {
-                            complete = false;
-                            data[i] = RRuntime.LOGICAL_NA;
-                        } else {
-                            data[i] = (byte) intVal;
-                        }
-                    }
+                    boolean complete = stream.readLogicals(data);
                     result = RDataFactory.createLogicalVector(data, complete);
                     break;
                 }
@@ -772,14 +772,7 @@ public class RSerialize {
                 case REALSXP: {
                     int len = stream.readInt();
                     double[] data = new double[len];
-                    boolean complete = RDataFactory.COMPLETE_VECTOR;
-                    for (int i = 0; i < len; i++) {
-                        double doubleVal = stream.readDouble();
-                        if (RRuntime.isNA(doubleVal)) {
-                            complete = false;
-                        }
-                        data[i] = doubleVal;
-                    }
+                    boolean complete = stream.readDoubles(data);
                     result = RDataFactory.createDoubleVector(data, complete);
                     break;
                 }
@@ -1078,6 +1071,21 @@ public class RSerialize {
 
         abstract void readRaw(byte[] data) throws IOException;
 
+        /**
+         * Reads {@code data.length} integers, returns {@code false} if any of them is {@code NA}.
+         */
+        abstract boolean readInts(int[] data) throws IOException;
+
+        /**
+         * Reads {@code data.length} logicals (encoded as integers), returns {@code false} if any
+         * of them is {@code NA}.
+         */
+        abstract boolean readLogicals(byte[] data) throws IOException;
+
+        /**
+         * Reads {@code data.length} doubles, returns {@code false} if any of them is {@code NA}.
+         */
+        abstract boolean readDoubles(double[] data) throws IOException;
     }
 
     @SuppressWarnings("unused")
@@ -1100,21 +1108,39 @@ public class RSerialize {
 
         private final class Buffer {
             private final byte[] buf;
+            /**
+             * Big-endian view of {@link #buf}, XDR is big-endian.
+             */
+            private final ByteBuffer view;
             private int size;
             private int offset;
 
             Buffer(byte[] buf) {
                 this.buf = buf;
+                this.view = ByteBuffer.wrap(buf);
             }
 
             int readInt() {
-                return ((buf[offset++] & 0xff) << 24 | (buf[offset++] & 0xff) << 16 | (buf[offset++] & 0xff) << 8 | (buf[offset++] & 0xff));
+                int result = view.getInt(offset);
+                offset += 4;
+                return result;
             }
 
             double readDouble() {
-                long val = ((long) (buf[offset++] & 0xff) << 56 | (long) (buf[offset++] & 0xff) << 48 | (long) (buf[offset++] & 0xff) << 40 | (long) (buf[offset++] & 0xff) << 32 |
-                                (long) (buf[offset++] & 0xff) << 24 | (long) (buf[offset++] & 0xff) << 16 | (long) (buf[offset++] & 0xff) << 8 | buf[offset++] & 0xff);
-                return Double.longBitsToDouble(val);
+                double result = view.getDouble(offset);
+                offset += 8;
+                return result;
+            }
+
+            /**
+             * Returns a view of the remaining data, the caller must advance {@link #offset} by the
+             * number of bytes it consumes.
+             */
+            ByteBuffer remaining() {
+                ByteBuffer result = view.duplicate();
+                result.position(offset);
+                result.limit(size);
+                return result;
             }
 
             @SuppressWarnings("deprecation")
@@ -1156,6 +1182,11 @@ public class RSerialize {
 
             void readData(int n) throws IOException {
                 if (offset + n > size) {
+                    if (is instanceof PByteArrayInputStream) {
+                        // the buffer is the whole preloaded data (e.g., a raw vector), which must
+                        // not be compacted, and there is no more data to read
+                        throw new IOException("Premature EOF");
+                    }
                     if (offset != size) {
                         // copy end piece to beginning
                         System.arraycopy(buf, offset, buf, 0, size - offset);
@@ -1164,9 +1195,9 @@ public class RSerialize {
                     offset = 0;
                     while (size < n) {
                         // read some more data
-                        int nread = is.read(buf, size, buf.length - size);
+                        int nread = channel != null ? channel.read(ByteBuffer.wrap(buf, size, buf.length - size)) : is.read(buf, size, buf.length - size);
                         if (nread <= 0) {
-                            throw RInternalError.unimplemented("handle unexpected eof");
+                            throw new IOException("Premature EOF");
                         }
                         size += nread;
                     }
@@ -1183,8 +1214,11 @@ public class RSerialize {
 
         private final WeakHashMap<String, WeakReference<String>> strings = RContext.getInstance().stringMap;
 
-        XdrInputFormat(InputStream is) {
+        private final ReadableByteChannel channel;
+
+        XdrInputFormat(InputStream is, ReadableByteChannel channel) {
             super(is);
+            this.channel = is instanceof PByteArrayInputStream ? null : channel;
             if (is instanceof PByteArrayInputStream) {
                 // we already have the data and we have read the beginning
                 PByteArrayInputStream pbis = (PByteArrayInputStream) is;
@@ -1218,6 +1252,74 @@ public class RSerialize {
             ensureData(data.length).readRaw(data);
         }
 
+        /*
+         * The bulk variants decode the data directly from the buffer through big-endian views.
+         * Vectors larger than the buffer are streamed through it, so that no temporary array of
+         * the size of the vector is needed. The NA checks do not branch, so that they can be
+         * vectorized.
+         */
+
+        @Override
+        boolean readInts(int[] data) throws IOException {
+            int na = 0;
+            int pos = 0;
+            while (pos < data.length) {
+                int count = fill(4, data.length - pos);
+                defaultBuffer.remaining().asIntBuffer().get(data, pos, count);
+                defaultBuffer.offset += count * 4;
+                for (int i = pos; i < pos + count; i++) {
+                    na |= data[i] == RRuntime.INT_NA ? 1 : 0;
+                }
+                pos += count;
+            }
+            return na == 0;
+        }
+
+        @Override
+        boolean readLogicals(byte[] data) throws IOException {
+            int na = 0;
+            int pos = 0;
+            while (pos < data.length) {
+                int count = fill(4, data.length - pos);
+                IntBuffer ints = defaultBuffer.remaining().asIntBuffer();
+                defaultBuffer.offset += count * 4;
+                for (int i = pos; i < pos + count; i++) {
+                    int value = ints.get();
+                    boolean isNA = value == RRuntime.INT_NA;
+                    na |= isNA ? 1 : 0;
+                    data[i] = isNA ? RRuntime.LOGICAL_NA : (byte) value;
+                }
+                pos += count;
+            }
+            return na == 0;
+        }
+
+        @Override
+        boolean readDoubles(double[] data) throws IOException {
+            int na = 0;
+            int pos = 0;
+            while (pos < data.length) {
+                int count = fill(8, data.length - pos);
+                defaultBuffer.remaining().asDoubleBuffer().get(data, pos, count);
+                defaultBuffer.offset += count * 8;
+                for (int i = pos; i < pos + count; i++) {
+                    na |= RRuntime.isNA(data[i]) ? 1 : 0;
+                }
+                pos += count;
+            }
+            return na == 0;
+        }
+
+        /**
+         * Makes sure that the default buffer contains at least one element of given size and
+         * returns the number of elements, at most {@code remaining}, that can be decoded from it.
+         */
+        private int fill(int elementSize, int remaining) throws IOException {
+            int bufferElements = defaultBuffer.buf.length / elementSize;
+            defaultBuffer.readData(Math.min(remaining, bufferElements) * elementSize);
+            return Math.min(remaining, (defaultBuffer.size - defaultBuffer.offset) / elementSize);
+        }
+
         private Buffer ensureData(int n) throws IOException {
             Buffer usedBuffer;
             if (n > defaultBuffer.buf.length) {
@@ -1260,11 +1362,15 @@ public class RSerialize {
         private static final TruffleLogger LOGGER = RLogger.getLogger(RSerialize.class.getName());
 
         private TracingInput(RConnection conn) throws IOException {
-            this(conn.getInputStream(), null, null, null);
+            this(conn.getInputStream(), conn.getChannel(), null, null, null);
         }
 
         private TracingInput(InputStream is, CallHook hook, String packageName, String functionName) throws IOException {
-            super(is, hook, packageName, functionName);
+            this(is, null, hook, packageName, functionName);
+        }
+
+        private TracingInput(InputStream is, ReadableByteChannel channel, CallHook hook, String packageName, String functionName) throws IOException {
+            super(is, channel, hook, packageName, functionName);
         }
 
         @Override
@@ -1307,17 +1413,28 @@ public class RSerialize {
 
         abstract void writeRaw(byte value) throws IOException;
 
+        abstract void writeInts(int[] data) throws IOException;
+
+        /**
+         * Writes the logicals encoded as integers.
+         */
+        abstract void writeLogicals(byte[] data) throws IOException;
+
+        abstract void writeDoubles(double[] data) throws IOException;
+
         abstract void flush() throws IOException;
 
     }
 
     private static class XdrOutputFormat extends POutputStream {
         private final byte[] buf;
+        private final ByteBuffer view;
         private int offset;
 
         XdrOutputFormat(OutputStream os) {
             super(os);
             buf = new byte[8192];
+            view = ByteBuffer.wrap(buf);
             buf[offset++] = 'X';
             buf[offset++] = '\n';
         }
@@ -1371,6 +1488,58 @@ public class RSerialize {
             buf[offset++] = value;
         }
 
+        @Override
+        void writeInts(int[] data) throws IOException {
+            int pos = 0;
+            while (pos < data.length) {
+                int count = reserve(4, data.length - pos);
+                window().asIntBuffer().put(data, pos, count);
+                offset += count * 4;
+                pos += count;
+            }
+        }
+
+        @Override
+        void writeLogicals(byte[] data) throws IOException {
+            int pos = 0;
+            while (pos < data.length) {
+                int count = reserve(4, data.length - pos);
+                IntBuffer ints = window().asIntBuffer();
+                for (int i = pos; i < pos + count; i++) {
+                    byte value = data[i];
+                    ints.put(value == RRuntime.LOGICAL_NA ? RRuntime.INT_NA : value);
+                }
+                offset += count * 4;
+                pos += count;
+            }
+        }
+
+        @Override
+        void writeDoubles(double[] data) throws IOException {
+            int pos = 0;
+            while (pos < data.length) {
+                int count = reserve(8, data.length - pos);
+                window().asDoubleBuffer().put(data, pos, count);
+                offset += count * 8;
+                pos += count;
+            }
+        }
+
+        /**
+         * Makes space for at least one element of given size and returns the number of elements,
+         * at most {@code remaining}, that fit into the buffer.
+         */
+        private int reserve(int elementSize, int remaining) throws IOException {
+            ensureSpace(elementSize);
+            return Math.min(remaining, (buf.length - offset) / elementSize);
+        }
+
+        private ByteBuffer window() {
+            ByteBuffer result = view.duplicate();
+            result.position(offset);
+            return result;
+        }
+
         @Override
         void writeDouble(double value) throws IOException {
             ensureSpace(8);
@@ -1551,7 +1720,8 @@ public class RSerialize {
                              */
                             RStringVector bindings = env.ls(true, null, false);
                             for (int i = 0; i < bindings.getLength(); i++) {
-                                Object value = getValueIgnoreActiveBinding(env.getFrame(), bindings.getDataAt(i));
+                                // without a stable frame, there are no active bindings to ignore
+                                Object value = env.hasStableFrame() ? getValueIgnoreActiveBinding(env.getFrame(), bindings.getDataAt(i)) : env.get(bindings.getDataAt(i));
                                 writePairListEntry(bindings.getDataAt(i), value);
                             }
                             terminatePairList();
@@ -1579,6 +1749,17 @@ public class RSerialize {
 
                             case INTSXP:
                             case LGLSXP: {
+                                if (obj instanceof RIntVector) {
+                                    int[] data = ((RIntVector) obj).getReadonlyData();
+                                    stream.writeInt(data.length);
+                                    stream.writeInts(data);
+                                    break;
+                                } else if (obj instanceof RLogicalVector) {
+                                    byte[] data = ((RLogicalVector) obj).getReadonlyData();
+                                    stream.writeInt(data.length);
+                                    stream.writeLogicals(data);
+                                    break;
+                                }
                                 // logicals are written as ints
                                 RAbstractVector vector = (RAbstractVector) obj;
                                 VectorAccess access = vector.slowPathAccess();
@@ -1592,6 +1773,12 @@ public class RSerialize {
                             }
 
                             case REALSXP: {
+                                if (obj instanceof RDoubleVector) {
+                                    double[] data = ((RDoubleVector) obj).getReadonlyData();
+                                    stream.writeInt(data.length);
+                                    stream.writeDoubles(data);
+                                    break;
+                                }
                                 RAbstractDoubleVector vector = (RAbstractDoubleVector) obj;
                                 VectorAccess access = vector.slowPathAccess();
                                 try (SequentialIterator iter = access.access(vector)) {
@@ -2246,11 +2433,20 @@ public class RSerialize {
      */
     @TruffleBoundary
     public static byte[] serialize(RContext context, Object obj, int type, int version, Object refhook) {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        return serialize(context, obj, type, version, refhook, new ByteArrayOutputStream());
+    }
+
+    /**
+     * Variant of {@link #serialize(RContext, Object, int, int, Object)} that writes into given
+     * (empty) buffer, so that the buffer can be reused for multiple objects.
+     */
+    @TruffleBoundary
+    public static byte[] serialize(RContext context, Object obj, int type, int version, Object refhook, ByteArrayOutputStream buffer) {
+        assert buffer.size() == 0;
         try {
-            Output output = new Output(context, type, version, (CallHook) refhook, out);
+            Output output = new Output(context, type, version, (CallHook) refhook, buffer);
             output.serialize(obj);
-            return out.toByteArray();
+            return buffer.toByteArray();
         } catch (IOException ex) {
             throw RInternalError.shouldNotReachHere(ex);
         }
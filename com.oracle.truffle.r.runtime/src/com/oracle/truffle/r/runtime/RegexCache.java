@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.context.FastROptions;
+import com.oracle.truffle.r.runtime.context.RContext;
+import com.oracle.truffle.r.runtime.ffi.PCRERFFI;
+
+/**
+ * Cache of compiled regular expressions used by {@code grep}, {@code sub}, {@code regexpr},
+ * {@code strsplit} and friends. Each context keeps a LRU cache of the compiled
+ * {@link java.util.regex.Pattern Java patterns} and {@link PCRERFFI.Result PCRE patterns} keyed
+ * by the pattern string, the compile flags and the kind of the regular expression. The number of
+ * entries is limited by the {@link FastROptions#RegexCacheSize} option.
+ *
+ * N.B.: the native memory of PCRE patterns is never released (neither by the builtins that
+ * compile them nor by the cache), so the cache only limits how many of them are kept reachable.
+ */
+public class RegexCache {
+
+    private static final int KIND_JAVA = 0;
+    private static final int KIND_PCRE = 1;
+
+    private static final class Key {
+        private final int kind;
+        private final String pattern;
+        private final int flags;
+
+        Key(int kind, String pattern, int flags) {
+            this.kind = kind;
+            this.pattern = pattern;
+            this.flags = flags;
+        }
+
+        @Override
+        public int hashCode() {
+            return (pattern.hashCode() * 31 + flags) * 31 + kind;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return kind == other.kind && flags == other.flags && pattern.equals(other.pattern);
+        }
+    }
+
+    public static final class ContextStateImpl implements RContext.ContextState {
+        private final LinkedHashMap<Key, Object> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private int maxEntries;
+        private long hits;
+        private long misses;
+
+        @Override
+        public RContext.ContextState initialize(RContext context) {
+            maxEntries = context.getNonNegativeIntOption(FastROptions.RegexCacheSize);
+            return this;
+        }
+
+        /**
+         * Returns the Java pattern for given regular expression and {@link Pattern} flags, the
+         * pattern is compiled if it is not cached yet.
+         *
+         * @throws java.util.regex.PatternSyntaxException if the expression is not valid
+         */
+        @TruffleBoundary
+        public Pattern getPattern(String regex, int flags) {
+            Key key = new Key(KIND_JAVA, regex, flags);
+            Object cached = lookup(key);
+            if (cached != null) {
+                return (Pattern) cached;
+            }
+            Pattern pattern = Pattern.compile(regex, flags);
+            put(key, pattern);
+            return pattern;
+        }
+
+        /**
+         * Returns the cached PCRE pattern for given pattern string and {@link PCRERFFI} compile
+         * flags or {@code null} if there is no such pattern in the cache. The caller is expected
+         * to compile the pattern and {@link #putPerlPattern register} it in case of a miss.
+         */
+        @TruffleBoundary
+        public PCRERFFI.Result getPerlPattern(String pattern, int flags) {
+            return (PCRERFFI.Result) lookup(new Key(KIND_PCRE, pattern, flags));
+        }
+
+        @TruffleBoundary
+        public void putPerlPattern(String pattern, int flags, PCRERFFI.Result pcre) {
+            assert pcre.result != 0;
+            put(new Key(KIND_PCRE, pattern, flags), pcre);
+        }
+
+        private Object lookup(Key key) {
+            Object result = maxEntries == 0 ? null : entries.get(key);
+            if (result != null) {
+                hits++;
+            } else {
+                misses++;
+            }
+            return result;
+        }
+
+        private void put(Key key, Object value) {
+            if (maxEntries == 0) {
+                return;
+            }
+            entries.put(key, value);
+            if (entries.size() > maxEntries) {
+                // the least recently used entry comes first
+                Map.Entry<Key, Object> eldest = entries.entrySet().iterator().next();
+                entries.remove(eldest.getKey());
+            }
+        }
+
+        /**
+         * Returns the number of hits, the number of misses, the number of cached entries and the
+         * maximal number of entries.
+         */
+        @TruffleBoundary
+        public double[] getStats() {
+            return new double[]{hits, misses, entries.size(), maxEntries};
+        }
+
+        public static ContextStateImpl newContextState() {
+            return new ContextStateImpl();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashMapCharacter;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashMapDouble;
+import com.oracle.truffle.r.runtime.Collections.NonRecursiveHashMapInt;
+import com.oracle.truffle.r.runtime.data.RDoubleVector;
+import com.oracle.truffle.r.runtime.data.RIntVector;
+import com.oracle.truffle.r.runtime.data.RStringVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+
+/**
+ * Hash indexes of vectors that are used repeatedly as lookup tables, e.g., the {@code table}
+ * argument of {@code match} or {@code %in%}. An index maps every value of the vector to the
+ * position of its first occurrence, which is exactly what {@code match}, {@code unique} and
+ * {@code duplicated} need, so all of them can share it.
+ *
+ * The index is stored in the vector itself (see {@link RAbstractVector#getHashIndex()}). Only
+ * materialized, managed vectors that are shared are indexed: shared vectors are protected by
+ * copy-on-write and thus never updated in place, while temporary and non-shared vectors are
+ * typically intermediate values that are not going to be used as a lookup table again. The index is
+ * dropped when the vector stops being shared and when its data moves to native memory.
+ */
+public final class VectorHashIndex {
+
+    /**
+     * Shorter vectors are cheap enough to index on the fly.
+     */
+    public static final int MIN_LENGTH = 256;
+
+    private VectorHashIndex() {
+        // private
+    }
+
+    /**
+     * Returns {@code true} if an index of given vector can be created by one of the
+     * {@code get*Index} methods. The vector must be an {@link RIntVector}, {@link RDoubleVector}
+     * or {@link RStringVector} respectively.
+     */
+    public static boolean isCacheable(RAbstractVector vector) {
+        if (!vector.isShared() || vector.getLength() < MIN_LENGTH) {
+            return false;
+        }
+        if (vector instanceof RIntVector) {
+            return ((RIntVector) vector).getInternalManagedData() != null;
+        } else if (vector instanceof RDoubleVector) {
+            return ((RDoubleVector) vector).getInternalManagedData() != null;
+        } else if (vector instanceof RStringVector) {
+            return ((RStringVector) vector).getInternalStore() instanceof String[];
+        }
+        return false;
+    }
+
+    @TruffleBoundary
+    public static NonRecursiveHashMapInt getIntIndex(RIntVector vector) {
+        Object cached = vector.getHashIndex();
+        if (cached instanceof NonRecursiveHashMapInt) {
+            return (NonRecursiveHashMapInt) cached;
+        }
+        int[] store = vector.getInternalManagedData();
+        NonRecursiveHashMapInt index = new NonRecursiveHashMapInt(store.length);
+        for (int i = store.length - 1; i >= 0; i--) {
+            index.put(store[i], i);
+        }
+        vector.setHashIndex(index);
+        return index;
+    }
+
+    @TruffleBoundary
+    public static NonRecursiveHashMapDouble getDoubleIndex(RDoubleVector vector) {
+        Object cached = vector.getHashIndex();
+        if (cached instanceof NonRecursiveHashMapDouble) {
+            return (NonRecursiveHashMapDouble) cached;
+        }
+        double[] store = vector.getInternalManagedData();
+        NonRecursiveHashMapDouble index = new NonRecursiveHashMapDouble(store.length);
+        for (int i = store.length - 1; i >= 0; i--) {
+            index.put(store[i], i);
+        }
+        vector.setHashIndex(index);
+        return index;
+    }
+
+    @TruffleBoundary
+    public static NonRecursiveHashMapCharacter getStringIndex(RStringVector vector) {
+        Object cached = vector.getHashIndex();
+        if (cached instanceof NonRecursiveHashMapCharacter) {
+            return (NonRecursiveHashMapCharacter) cached;
+        }
+        String[] store = (String[]) vector.getInternalStore();
+        NonRecursiveHashMapCharacter index = new NonRecursiveHashMapCharacter(store.length);
+        for (int i = store.length - 1; i >= 0; i--) {
+            index.put(store[i], i);
+        }
+        vector.setHashIndex(index);
+        return index;
+    }
+}
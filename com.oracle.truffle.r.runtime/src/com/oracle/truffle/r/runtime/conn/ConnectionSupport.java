@@ -36,6 +36,7 @@ import java.nio.charset.IllegalCharsetNameException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -1051,6 +1052,22 @@ public class ConnectionSupport {
             return pushBack == null ? 0 : pushBack.size();
         }
 
+        /**
+         * Returns the pushed back text in the order in which it is going to be read.
+         */
+        @TruffleBoundary
+        final String getPushBackText() {
+            if (pushBack == null) {
+                return "";
+            }
+            StringBuilder sb = new StringBuilder();
+            Iterator<String> iterator = pushBack.descendingIterator();
+            while (iterator.hasNext()) {
+                sb.append(iterator.next());
+            }
+            return sb.toString();
+        }
+
         /**
          * Clears the pushback.
          */
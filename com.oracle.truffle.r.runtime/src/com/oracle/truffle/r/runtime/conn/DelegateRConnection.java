@@ -28,6 +28,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.channels.ByteChannel;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
@@ -35,8 +36,11 @@ import java.nio.channels.SeekableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
 import java.nio.charset.CodingErrorAction;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.Objects;
 
@@ -60,10 +64,16 @@ import java.util.zip.GZIPOutputStream;
  */
 abstract class DelegateRConnection extends RBaseObject implements RConnection, ByteChannel {
     public static final int DEFAULT_CACHE_SIZE = 16 * 1024;
+    public static final int DEFAULT_WRITE_CACHE_SIZE = 64 * 1024;
     protected final BaseRConnection base;
     private final ByteBuffer cache;
     private final boolean readCache;
 
+    /**
+     * Encoder for text written through the write cache; created lazily and reused for all writes.
+     */
+    private CharsetEncoder encoder;
+
     DelegateRConnection(BaseRConnection base) {
         this(base, DEFAULT_CACHE_SIZE, true);
     }
@@ -73,7 +83,8 @@ abstract class DelegateRConnection extends RBaseObject implements RConnection, B
         this.readCache = readCache;
 
         if (cacheSize > 0) {
-            cache = ByteBuffer.allocate(cacheSize);
+            // the write cache is handed to the channel as is, so avoid the copy into a direct buffer
+            cache = readCache ? ByteBuffer.allocate(cacheSize) : ByteBuffer.allocateDirect(cacheSize);
 
             // indicate that there are no remaining bytes in the buffer to read
             if (readCache) {
@@ -87,7 +98,13 @@ abstract class DelegateRConnection extends RBaseObject implements RConnection, B
     private static int transfer(ByteBuffer from, ByteBuffer to) {
         int nbytes = Math.min(to.remaining(), from.remaining());
         if (nbytes > 0) {
-            to.put(from.array(), from.arrayOffset() + from.position(), nbytes);
+            if (from.hasArray()) {
+                to.put(from.array(), from.arrayOffset() + from.position(), nbytes);
+            } else {
+                ByteBuffer slice = from.duplicate();
+                slice.limit(slice.position() + nbytes);
+                to.put(slice);
+            }
             from.position(from.position() + nbytes);
         }
         return nbytes;
@@ -123,6 +140,10 @@ abstract class DelegateRConnection extends RBaseObject implements RConnection, B
         if (!isSeekable()) {
             throw RError.error(RError.SHOW_CALLER, RError.Message.NOT_ENABLED_FOR_THIS_CONN, "seek");
         }
+        if (hasWriteCache()) {
+            // pending output must go to the old position
+            flush();
+        }
         long res = seekInternal(offset, seekMode, seekRWMode);
         if (seekMode != SeekMode.ENQUIRE) {
             invalidateCache();
@@ -285,22 +306,12 @@ abstract class DelegateRConnection extends RBaseObject implements RConnection, B
 
         final int bufLen = bytes.length + (pad > 0 ? pad : 0) + (eos != null ? eosBytes.length + 1 : 0);
         assert bufLen >= s.length();
-        ByteBuffer buf = ByteBuffer.allocate(bufLen);
-        buf.put(bytes);
-        if (pad > 0) {
-            for (int i = 0; i < pad; i++) {
-                buf.put((byte) 0);
-            }
-        }
-        if (eos != null) {
-            if (eos.length() > 0) {
-                buf.put(eos.getBytes());
-            }
-            // function writeChar is defined to append the null character if eos != null
-            buf.put((byte) 0);
+        // the padding and the terminating null are already zero
+        byte[] buf = Arrays.copyOf(bytes, bufLen);
+        if (eosBytes != null) {
+            System.arraycopy(eosBytes, 0, buf, bytes.length + (pad > 0 ? pad : 0), eosBytes.length);
         }
-        buf.rewind();
-        channel.write(buf);
+        channel.write(ByteBuffer.wrap(buf));
     }
 
     /**
@@ -447,13 +458,68 @@ abstract class DelegateRConnection extends RBaseObject implements RConnection, B
 
     @Override
     public void writeLines(RAbstractStringVector lines, String sep, boolean useBytes) throws IOException {
-        boolean incomplete = DelegateRConnection.writeLinesHelper(this, lines, sep, base.getEncoding());
+        boolean incomplete;
+        if (hasWriteCache()) {
+            incomplete = writeLinesEncoded(lines, sep);
+        } else {
+            incomplete = DelegateRConnection.writeLinesHelper(this, lines, sep, base.getEncoding());
+        }
         base.setIncomplete(incomplete);
     }
 
     @Override
     public void writeString(String s, boolean nl) throws IOException {
-        DelegateRConnection.writeStringHelper(this, s, nl, base.getEncoding());
+        if (hasWriteCache()) {
+            writeEncoded(s);
+            if (nl) {
+                writeEncoded(System.lineSeparator());
+            }
+        } else {
+            DelegateRConnection.writeStringHelper(this, s, nl, base.getEncoding());
+        }
+    }
+
+    @TruffleBoundary
+    private boolean writeLinesEncoded(RAbstractStringVector lines, String sep) throws IOException {
+        for (int i = 0; i < lines.getLength(); i++) {
+            writeEncoded(lines.getDataAt(i));
+            writeEncoded(sep);
+        }
+        // same as 'writeLinesHelper': only a separator containing a newline completes the lines
+        return lines.getLength() > 0 && !sep.contains("\n");
+    }
+
+    /**
+     * Encodes a string directly into the write cache, flushing the cache to the channel whenever
+     * it is full. This avoids the intermediate byte array and buffer of
+     * {@link #writeStringHelper(WritableByteChannel, String, boolean, Charset)}.
+     */
+    @TruffleBoundary
+    private void writeEncoded(String s) throws IOException {
+        assert hasWriteCache();
+        if (encoder == null) {
+            encoder = base.getEncoding().newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+        CharBuffer in = CharBuffer.wrap(s);
+        encoder.reset();
+        CoderResult result;
+        do {
+            result = encoder.encode(in, cache, true);
+            if (result.isOverflow()) {
+                flush();
+            }
+        } while (!result.isUnderflow());
+        while (encoder.flush(cache).isOverflow()) {
+            flush();
+        }
+    }
+
+    /**
+     * Tells if writes are collected in the cache and only handed to the channel once the cache is
+     * full, on {@link #flush()} or on {@link #close()}.
+     */
+    protected final boolean hasWriteCache() {
+        return !readCache && cache != null;
     }
 
     @Override
@@ -480,7 +546,12 @@ abstract class DelegateRConnection extends RBaseObject implements RConnection, B
     @Override
     @TruffleBoundary
     public int write(ByteBuffer src) throws IOException {
-        if (!readCache && cache != null) {
+        if (hasWriteCache()) {
+            if (src.remaining() >= cache.capacity()) {
+                // too big to be worth copying
+                flush();
+                return getChannel().write(src);
+            }
             int total = 0;
             while (src.hasRemaining()) {
                 total += transfer(src, cache);
@@ -600,15 +671,21 @@ abstract class DelegateRConnection extends RBaseObject implements RConnection, B
 
     @Override
     public void flush() throws IOException {
-        if (!readCache && cache != null) {
+        if (hasWriteCache()) {
             cache.flip();
-            getChannel().write(cache);
+            while (cache.hasRemaining()) {
+                getChannel().write(cache);
+            }
             cache.clear();
         }
     }
 
+    /**
+     * Returns the number of bytes read ahead from the channel but not consumed yet. Written bytes
+     * are flushed before the position of the channel is used, so they never count.
+     */
     protected int bytesInCache() {
-        return cache.remaining();
+        return readCache && cache != null ? cache.remaining() : 0;
     }
 
     @Override
@@ -655,7 +732,7 @@ abstract class DelegateRConnection extends RBaseObject implements RConnection, B
         private long seekPosition = 0L;
 
         protected CompressedOutputRConnection(BaseRConnection base, OutputStream os, boolean seekable) {
-            super(base);
+            super(base, DEFAULT_WRITE_CACHE_SIZE);
             this.seekable = seekable;
             this.channel = ConnectionSupport.newChannel(os);
         }
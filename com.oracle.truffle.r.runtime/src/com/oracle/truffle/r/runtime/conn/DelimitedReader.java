@@ -0,0 +1,1012 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.conn;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.FileSystemUtils;
+import com.oracle.truffle.r.runtime.RError;
+import com.oracle.truffle.r.runtime.RInternalError;
+import com.oracle.truffle.r.runtime.RParallel;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.conn.ConnectionSupport.AbstractOpenMode;
+import com.oracle.truffle.r.runtime.conn.ConnectionSupport.BaseRConnection;
+import com.oracle.truffle.r.runtime.conn.FileConnections.FileRConnection;
+import com.oracle.truffle.r.runtime.conn.RConnection.SeekMode;
+import com.oracle.truffle.r.runtime.conn.RConnection.SeekRWMode;
+import com.oracle.truffle.r.runtime.context.FastROptions;
+import com.oracle.truffle.r.runtime.context.RContext;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.model.RAbstractStringVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+
+/**
+ * Reader of delimited text files (CSV, TSV or whitespace separated tables) used by {@code scan}
+ * for file connections and by {@code .fastr.readDelim}. The file is memory mapped and split at line
+ * boundaries into chunks that are tokenized in parallel by {@link RParallel}; logical and numeric
+ * fields are parsed directly from the bytes into primitive arrays, only character fields are
+ * turned into strings.
+ *
+ * The tokenization follows the line based {@code scan}: a quote is recognized only at the start of
+ * a field, a doubled quote inside a quoted field stands for the quote itself, an empty trailing
+ * field of a line is dropped and quoted fields cannot span lines. Input that {@code scan} would
+ * process differently, e.g., a line with an unexpected number of fields or an integer field that
+ * is not a number, makes {@link #read} return {@code null} without touching the connection, so
+ * that the caller can fall back to the line based code.
+ */
+public final class DelimitedReader {
+
+    public enum ColumnType {
+        LOGICAL,
+        INTEGER,
+        DOUBLE,
+        CHARACTER
+    }
+
+    /**
+     * Columns and their names read by {@link DelimitedReader#readFile}.
+     */
+    public static final class Table {
+        public final String[] names;
+        public final RAbstractVector[] columns;
+
+        private Table(String[] names, RAbstractVector[] columns) {
+            this.names = names;
+            this.columns = columns;
+        }
+    }
+
+    private enum Status {
+        OK,
+        /** A line has an unexpected number of fields. */
+        IRREGULAR,
+        /** A quoted field is not terminated on its line or a line contains a nul. */
+        MALFORMED,
+        /** A field of an integer column is not an integer. */
+        INVALID
+    }
+
+    /**
+     * Minimal size in bytes of a chunk that is parsed on its own thread.
+     */
+    private static final int MIN_CHUNK = 1 << 20;
+    private static final int MAX_CHUNK = 1 << 28;
+
+    /**
+     * Chunks smaller than this are read into the heap instead of being mapped.
+     */
+    private static final int MAP_THRESHOLD = 1 << 20;
+    private static final int BOUNDARY_WINDOW = 8192;
+
+    /**
+     * Decimal numbers with at most this many significant digits and a small exponent are converted
+     * by a single, correctly rounded, multiplication or division of two exact doubles.
+     */
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private static final long NOT_A_NUMBER = Long.MIN_VALUE;
+    private static final long OVERFLOW = Long.MAX_VALUE;
+
+    private static final String[] TRUE_LITERALS = {"T", "TRUE", "True", "true"};
+    private static final String[] FALSE_LITERALS = {"F", "FALSE", "False", "false"};
+
+    /** The separator, {@code 0} means any sequence of spaces and tabs. */
+    private final int sep;
+    private final int dec;
+    private final int[] quotes;
+    /** The comment character, {@code -1} if there is none. */
+    private final int comment;
+    private final byte[][] naStrings;
+    private final boolean stripWhite;
+    private final boolean fill;
+    private final boolean blankLinesSkip;
+
+    private DelimitedReader(int sep, int dec, int[] quotes, int comment, byte[][] naStrings, boolean stripWhite, boolean fill, boolean blankLinesSkip) {
+        this.sep = sep;
+        this.dec = dec;
+        this.quotes = quotes;
+        this.comment = comment;
+        this.naStrings = naStrings;
+        this.stripWhite = stripWhite;
+        this.fill = fill;
+        this.blankLinesSkip = blankLinesSkip;
+    }
+
+    /**
+     * Creates a reader for the given format, the arguments have the meaning of the arguments of
+     * {@code scan}. Returns {@code null} if any of the special characters is not an ASCII
+     * character.
+     */
+    @TruffleBoundary
+    public static DelimitedReader create(char sep, char dec, char[] quotes, int comment, RAbstractStringVector naStrings, boolean stripWhite, boolean fill, boolean blankLinesSkip) {
+        if (!isAscii(sep) || !isAscii(dec) || (comment != -1 && !isAscii(comment))) {
+            return null;
+        }
+        int[] quoteChars = new int[quotes.length];
+        for (int i = 0; i < quotes.length; i++) {
+            if (!isAscii(quotes[i])) {
+                return null;
+            }
+            quoteChars[i] = quotes[i];
+        }
+        byte[][] naBytes = new byte[naStrings.getLength()][];
+        for (int i = 0; i < naBytes.length; i++) {
+            naBytes[i] = naStrings.getDataAt(i).getBytes(StandardCharsets.UTF_8);
+        }
+        return new DelimitedReader(sep, dec, quoteChars, comment, naBytes, stripWhite, fill, blankLinesSkip);
+    }
+
+    private static boolean isAscii(int ch) {
+        return ch >= 0 && ch < 128;
+    }
+
+    /**
+     * Reads at most {@code maxRecords} records (all if {@code 0}) with columns of the given types
+     * from a file connection opened for reading text, starting with the pushed back lines if there
+     * are any. On success the connection is positioned after the last record. Returns {@code null}
+     * if the connection is not an uncompressed file or if the input is not regular (see the class
+     * comment), the connection is left untouched in that case.
+     */
+    @TruffleBoundary
+    public RAbstractVector[] read(RConnection connection, ColumnType[] types, int maxRecords) throws IOException {
+        BaseRConnection base = ConnectionSupport.getBaseConnection(connection);
+        if (!(base instanceof FileRConnection) || !base.isBlocking() || base.getOpenMode().abstractOpenMode != AbstractOpenMode.Read || !StandardCharsets.UTF_8.equals(base.getEncoding())) {
+            return null;
+        }
+        String path = ((FileRConnection) base).getUncompressedPath();
+        String pushBack = base.getPushBackText();
+        if (path == null || !base.isSeekable() || (!pushBack.isEmpty() && pushBack.charAt(pushBack.length() - 1) != '\n')) {
+            return null;
+        }
+        long position = base.seekInternal(0, SeekMode.ENQUIRE, SeekRWMode.READ);
+        Chunk[] chunks;
+        ChunkParser[] parsers;
+        try (FileChannel channel = FileChannel.open(resolve(path), StandardOpenOption.READ)) {
+            long size = channel.size();
+            boolean parallel = RParallel.shouldRunInParallel(size - position, RContext.getInstance().getNonNegativeIntOption(FastROptions.ScanParallelThreshold));
+            ArrayList<Chunk> list = new ArrayList<>();
+            if (!pushBack.isEmpty()) {
+                list.add(new Chunk(ByteBuffer.wrap(pushBack.getBytes(StandardCharsets.UTF_8)), -1));
+            }
+            split(list, channel, position, size, parallel);
+            chunks = list.toArray(new Chunk[list.size()]);
+            parsers = parseChunks(chunks, types, maxRecords, 0, false, parallel);
+        }
+        long end = position;
+        for (int i = 0; i < parsers.length && parsers[i] != null; i++) {
+            ChunkParser parser = parsers[i];
+            if (parser.status != Status.OK) {
+                return null;
+            }
+            if (chunks[i].offset >= 0) {
+                end = chunks[i].offset + parser.end;
+            } else if (parser.end < chunks[i].buffer.limit()) {
+                // the records end within the push back
+                return null;
+            }
+        }
+        base.seek(end, SeekMode.START, SeekRWMode.READ);
+        return concatenate(parsers, types);
+    }
+
+    /**
+     * Reads the whole file, or at most {@code maxRecords} records if positive. The number of
+     * columns is given by the first line, which provides the column names if {@code header} is
+     * set. The column types are inferred from the first {@code sampleRows} rows of every chunk: a
+     * column is logical if all its values are logical literals, integer or double if they are
+     * numbers of that kind and character otherwise. If a later value does not fit the inferred
+     * type of its column, the file is parsed again with the more general type.
+     */
+    @TruffleBoundary
+    public Table readFile(String path, boolean header, int maxRecords, int sampleRows) throws IOException {
+        try (FileChannel channel = FileChannel.open(resolve(path), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = 0;
+            int lines = 0;
+            ChunkParser first = null;
+            int firstEnd = 0;
+            while (start < size) {
+                ByteBuffer line = load(channel, start, lineStart(channel, start, size));
+                first = new ChunkParser(line, new ColumnType[0], true);
+                firstEnd = first.tokenize(0, line.limit());
+                lines++;
+                if (firstEnd < 0) {
+                    throw RError.error(RError.SHOW_CALLER, RError.Message.MALFORMED_LINE, lines);
+                }
+                if (first.fieldCount > 0 || !blankLinesSkip) {
+                    break;
+                }
+                start += firstEnd;
+                first = null;
+            }
+            if (first == null) {
+                return new Table(new String[0], new RAbstractVector[0]);
+            }
+            String[] names = new String[Math.max(first.fieldCount, 1)];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = header && i < first.fieldCount ? first.getField(i) : "V" + (i + 1);
+            }
+            if (header) {
+                start += firstEnd;
+            } else {
+                lines--;
+            }
+
+            boolean parallel = RParallel.shouldRunInParallel(size - start, RContext.getInstance().getNonNegativeIntOption(FastROptions.ScanParallelThreshold));
+            ArrayList<Chunk> list = new ArrayList<>();
+            split(list, channel, start, size, parallel);
+            Chunk[] chunks = list.toArray(new Chunk[list.size()]);
+            ColumnType[] types = new ColumnType[names.length];
+            Arrays.fill(types, ColumnType.LOGICAL);
+            if (sampleRows > 0) {
+                ColumnType[] sampled = generalize(parseChunks(chunks, types, 0, sampleRows, true, parallel), types);
+                if (sampled != null) {
+                    types = sampled;
+                }
+            }
+            while (true) {
+                ChunkParser[] parsers = parseChunks(chunks, types, maxRecords, 0, true, parallel);
+                int line = lines;
+                for (int i = 0; i < parsers.length && parsers[i] != null; i++) {
+                    ChunkParser parser = parsers[i];
+                    if (parser.status == Status.IRREGULAR) {
+                        throw RError.error(RError.SHOW_CALLER, RError.Message.LINE_ELEMENTS, line + parser.lines + 1, types.length);
+                    } else if (parser.status == Status.MALFORMED) {
+                        throw RError.error(RError.SHOW_CALLER, RError.Message.MALFORMED_LINE, line + parser.lines + 1);
+                    }
+                    assert parser.status == Status.OK;
+                    line += parser.lines;
+                }
+                ColumnType[] generalized = generalize(parsers, types);
+                if (generalized == null) {
+                    return new Table(names, concatenate(parsers, types));
+                }
+                types = generalized;
+            }
+        }
+    }
+
+    private static Path resolve(String path) {
+        return Paths.get(FileSystemUtils.getSafeTruffleFile(RContext.getInstance().getEnv(), path).getAbsoluteFile().getPath());
+    }
+
+    /**
+     * A part of the input that starts at the beginning of a line and ends after a line terminator
+     * or at the end of the file.
+     */
+    private static final class Chunk {
+        final ByteBuffer buffer;
+        /** The position of the chunk in the file, {@code -1} for the pushed back lines. */
+        final long offset;
+
+        Chunk(ByteBuffer buffer, long offset) {
+            this.buffer = buffer;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * Splits the range {@code [from, size)} of the file into chunks, more than one only if the
+     * chunks are going to be parsed in parallel or if the range is too large for one buffer.
+     */
+    private static void split(ArrayList<Chunk> chunks, FileChannel channel, long from, long size, boolean parallel) throws IOException {
+        long length = size - from;
+        long count = (length + MAX_CHUNK - 1) / MAX_CHUNK;
+        if (parallel) {
+            count = Math.max(count, Math.min(RParallel.getParallelism() * 4L, length / MIN_CHUNK));
+        }
+        long start = from;
+        for (long i = 1; i <= count && start < size; i++) {
+            long end = i == count ? size : lineStart(channel, Math.max(start, from + length / count * i), size);
+            if (end > start) {
+                chunks.add(new Chunk(load(channel, start, end), start));
+                start = end;
+            }
+        }
+    }
+
+    /**
+     * Returns the position after the first line feed at or after {@code position}, or the size of
+     * the file if there is none.
+     */
+    private static long lineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(BOUNDARY_WINDOW);
+        long pos = position;
+        while (pos < size) {
+            window.clear();
+            int n = channel.read(window, pos);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                if (window.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += n;
+        }
+        return size;
+    }
+
+    private static ByteBuffer load(FileChannel channel, long start, long end) throws IOException {
+        if (end - start > Integer.MAX_VALUE) {
+            throw new IOException("line too long");
+        }
+        int length = (int) (end - start);
+        if (length >= MAP_THRESHOLD) {
+            return channel.map(MapMode.READ_ONLY, start, length);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) {
+                throw new IOException("unexpected end of file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Parses the chunks, every one on its own if there is no limit on the number of records. With
+     * a limit the chunks are parsed one after another until the limit is reached and the parsers
+     * of the remaining chunks are {@code null}. Parsing stops at the first chunk that is not
+     * {@link Status#OK}.
+     */
+    private ChunkParser[] parseChunks(Chunk[] chunks, ColumnType[] types, int maxRecords, int maxRowsPerChunk, boolean generalize, boolean parallel) {
+        ChunkParser[] parsers = new ChunkParser[chunks.length];
+        if (maxRecords > 0) {
+            int remaining = maxRecords;
+            for (int i = 0; i < chunks.length && remaining > 0; i++) {
+                parsers[i] = new ChunkParser(chunks[i].buffer, types, generalize);
+                parsers[i].parse(remaining);
+                if (parsers[i].status != Status.OK) {
+                    break;
+                }
+                remaining -= parsers[i].rows;
+            }
+        } else if (parallel) {
+            RParallel.forEach(chunks.length, i -> {
+                parsers[i] = new ChunkParser(chunks[i].buffer, types, generalize);
+                parsers[i].parse(maxRowsPerChunk);
+            });
+        } else {
+            for (int i = 0; i < chunks.length; i++) {
+                parsers[i] = new ChunkParser(chunks[i].buffer, types, generalize);
+                parsers[i].parse(maxRowsPerChunk);
+                if (parsers[i].status != Status.OK) {
+                    break;
+                }
+            }
+        }
+        return parsers;
+    }
+
+    /**
+     * Returns the types required by the values seen by the parsers or {@code null} if all the
+     * values fit the given types. A logical column with numbers becomes character if some of its
+     * values are logical literals.
+     */
+    private static ColumnType[] generalize(ChunkParser[] parsers, ColumnType[] types) {
+        ColumnType[] result = types.clone();
+        boolean[] hasLogical = new boolean[types.length];
+        for (ChunkParser parser : parsers) {
+            if (parser != null) {
+                for (int i = 0; i < types.length; i++) {
+                    if (parser.required[i].ordinal() > result[i].ordinal()) {
+                        result[i] = parser.required[i];
+                    }
+                    hasLogical[i] |= parser.hasLogical[i];
+                }
+            }
+        }
+        boolean changed = false;
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == ColumnType.LOGICAL && hasLogical[i] && result[i] != ColumnType.LOGICAL) {
+                result[i] = ColumnType.CHARACTER;
+            }
+            changed |= result[i] != types[i];
+        }
+        return changed ? result : null;
+    }
+
+    private static RAbstractVector[] concatenate(ChunkParser[] parsers, ColumnType[] types) {
+        int total = 0;
+        for (int i = 0; i < parsers.length && parsers[i] != null; i++) {
+            total += parsers[i].rows;
+        }
+        RAbstractVector[] result = new RAbstractVector[types.length];
+        for (int col = 0; col < types.length; col++) {
+            Object data;
+            switch (types[col]) {
+                case LOGICAL:
+                    data = new byte[total];
+                    break;
+                case INTEGER:
+                    data = new int[total];
+                    break;
+                case DOUBLE:
+                    data = new double[total];
+                    break;
+                case CHARACTER:
+                    data = new String[total];
+                    break;
+                default:
+                    throw RInternalError.shouldNotReachHere();
+            }
+            boolean complete = true;
+            int at = 0;
+            for (int i = 0; i < parsers.length && parsers[i] != null; i++) {
+                System.arraycopy(parsers[i].columns[col], 0, data, at, parsers[i].rows);
+                at += parsers[i].rows;
+                complete &= parsers[i].complete[col];
+            }
+            switch (types[col]) {
+                case LOGICAL:
+                    result[col] = RDataFactory.createLogicalVector((byte[]) data, complete);
+                    break;
+                case INTEGER:
+                    result[col] = RDataFactory.createIntVector((int[]) data, complete);
+                    break;
+                case DOUBLE:
+                    result[col] = RDataFactory.createDoubleVector((double[]) data, complete);
+                    break;
+                default:
+                    result[col] = RDataFactory.createStringVector((String[]) data, complete);
+                    break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Parses the lines of one chunk into primitive arrays. Runs on the threads of
+     * {@link RParallel}, so it must not access any R state.
+     */
+    private final class ChunkParser {
+        private final ByteBuffer buffer;
+        private final ColumnType[] types;
+        /**
+         * If {@code true}, values that do not fit the type of their column are recorded in
+         * {@link #required} and replaced by {@code NA}. This mode is used by {@link #readFile},
+         * which is not bound to {@code scan}, so it also keeps an empty last field of a line.
+         */
+        private final boolean generalize;
+        private final HashMap<String, String> strings = new HashMap<>();
+
+        final Object[] columns;
+        final boolean[] complete;
+        final ColumnType[] required;
+        final boolean[] hasLogical;
+        int rows;
+        /** The number of lines consumed including blank lines. */
+        int lines;
+        /** The position after the last line consumed. */
+        int end;
+        Status status = Status.OK;
+
+        /** The contents of the fields of the current line. */
+        private byte[] text = new byte[256];
+        private int textLength;
+        private int[] fieldStarts = new int[16];
+        private int[] fieldEnds = new int[16];
+        private boolean[] fieldQuoted = new boolean[16];
+        private int fieldCount;
+        private int fieldStart;
+        private boolean quoted;
+        private boolean afterSep;
+        private boolean parsed;
+
+        ChunkParser(ByteBuffer buffer, ColumnType[] types, boolean generalize) {
+            this.buffer = buffer;
+            this.types = types;
+            this.generalize = generalize;
+            this.columns = new Object[types.length];
+            this.complete = new boolean[types.length];
+            this.required = types.clone();
+            this.hasLogical = new boolean[types.length];
+            Arrays.fill(complete, true);
+            allocate(64);
+        }
+
+        private void allocate(int capacity) {
+            for (int i = 0; i < types.length; i++) {
+                switch (types[i]) {
+                    case LOGICAL:
+                        columns[i] = columns[i] == null ? new byte[capacity] : Arrays.copyOf((byte[]) columns[i], capacity);
+                        break;
+                    case INTEGER:
+                        columns[i] = columns[i] == null ? new int[capacity] : Arrays.copyOf((int[]) columns[i], capacity);
+                        break;
+                    case DOUBLE:
+                        columns[i] = columns[i] == null ? new double[capacity] : Arrays.copyOf((double[]) columns[i], capacity);
+                        break;
+                    case CHARACTER:
+                        columns[i] = columns[i] == null ? new String[capacity] : Arrays.copyOf((String[]) columns[i], capacity);
+                        break;
+                }
+            }
+        }
+
+        /**
+         * Parses at most {@code maxRows} records, all if {@code 0}.
+         */
+        void parse(int maxRows) {
+            int limit = buffer.limit();
+            int capacity = 64;
+            int pos = 0;
+            while (pos < limit && (maxRows <= 0 || rows < maxRows)) {
+                int next = tokenize(pos, limit);
+                if (next < 0) {
+                    status = Status.MALFORMED;
+                    return;
+                }
+                if (fieldCount == 0) {
+                    if (blankLinesSkip) {
+                        pos = next;
+                        end = pos;
+                        lines++;
+                        continue;
+                    }
+                    // a blank line is a single empty field
+                    endField();
+                }
+                if (fieldCount > types.length || (fieldCount < types.length && !fill)) {
+                    status = Status.IRREGULAR;
+                    return;
+                }
+                if (rows == capacity) {
+                    capacity = capacity * 2;
+                    allocate(capacity);
+                }
+                for (int i = 0; i < types.length; i++) {
+                    if (i < fieldCount) {
+                        convert(i, fieldStarts[i], fieldEnds[i], fieldQuoted[i]);
+                    } else {
+                        convert(i, 0, 0, false);
+                    }
+                }
+                if (status != Status.OK) {
+                    return;
+                }
+                rows++;
+                lines++;
+                pos = next;
+                end = pos;
+            }
+        }
+
+        /**
+         * Splits the line starting at {@code start} into fields, see {@code Scan.getQuotedItems}.
+         * Returns the position after the line terminator or {@code -1} if the line is malformed.
+         */
+        int tokenize(int start, int limit) {
+            textLength = 0;
+            fieldCount = 0;
+            fieldStart = 0;
+            quoted = false;
+            afterSep = false;
+            int pos = start;
+            if (sep == 0) {
+                pos = skipBlanks(pos, limit);
+            }
+            while (pos < limit) {
+                int ch = buffer.get(pos) & 0xFF;
+                if (ch == '\n' || ch == '\r') {
+                    break;
+                } else if (ch == comment) {
+                    pos = skipLine(pos, limit);
+                    break;
+                } else if (ch == 0) {
+                    return -1;
+                } else if (sep == 0 && (ch == ' ' || ch == '\t')) {
+                    pos = skipBlanks(pos, limit);
+                    if (pos == limit || buffer.get(pos) == '\n' || buffer.get(pos) == '\r') {
+                        break;
+                    }
+                    endField();
+                } else if (sep != 0 && ch == sep) {
+                    pos++;
+                    endField();
+                    afterSep = true;
+                    continue;
+                } else if (textLength == fieldStart && isQuote(ch)) {
+                    pos++;
+                    while (true) {
+                        if (pos == limit) {
+                            return -1;
+                        }
+                        int c = buffer.get(pos++) & 0xFF;
+                        if (c == '\n' || c == '\r' || c == 0) {
+                            return -1;
+                        } else if (c == ch) {
+                            if (pos < limit && (buffer.get(pos) & 0xFF) == ch) {
+                                append(c);
+                                pos++;
+                            } else {
+                                break;
+                            }
+                        } else {
+                            append(c);
+                        }
+                    }
+                    quoted = true;
+                } else {
+                    append(ch);
+                    pos++;
+                }
+                afterSep = false;
+            }
+            if (textLength > fieldStart || (generalize && (quoted || afterSep))) {
+                endField();
+            }
+            if (pos < limit && buffer.get(pos) == '\r') {
+                pos++;
+            }
+            if (pos < limit && buffer.get(pos) == '\n') {
+                pos++;
+            }
+            return pos;
+        }
+
+        private int skipBlanks(int start, int limit) {
+            int pos = start;
+            while (pos < limit && (buffer.get(pos) == ' ' || buffer.get(pos) == '\t')) {
+                pos++;
+            }
+            return pos;
+        }
+
+        private int skipLine(int start, int limit) {
+            int pos = start;
+            while (pos < limit && buffer.get(pos) != '\n' && buffer.get(pos) != '\r') {
+                pos++;
+            }
+            return pos;
+        }
+
+        private boolean isQuote(int ch) {
+            for (int quote : quotes) {
+                if (ch == quote) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void append(int ch) {
+            if (textLength == text.length) {
+                text = Arrays.copyOf(text, text.length * 2);
+            }
+            text[textLength++] = (byte) ch;
+        }
+
+        private void endField() {
+            if (fieldCount == fieldStarts.length) {
+                fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+                fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+                fieldQuoted = Arrays.copyOf(fieldQuoted, fieldCount * 2);
+            }
+            fieldStarts[fieldCount] = fieldStart;
+            fieldEnds[fieldCount] = textLength;
+            fieldQuoted[fieldCount] = quoted;
+            fieldCount++;
+            fieldStart = textLength;
+            quoted = false;
+        }
+
+        String getField(int index) {
+            return new String(text, fieldStarts[index], fieldEnds[index] - fieldStarts[index], StandardCharsets.UTF_8);
+        }
+
+        private void convert(int col, int start, int stop, boolean isQuoted) {
+            int from = start;
+            int to = stop;
+            if (stripWhite && sep != 0 && !isQuoted) {
+                while (from < to && (text[from] == ' ' || text[from] == '\t')) {
+                    from++;
+                }
+                while (to > from && (text[to - 1] == ' ' || text[to - 1] == '\t')) {
+                    to--;
+                }
+            }
+            switch (types[col]) {
+                case LOGICAL: {
+                    byte value = RRuntime.LOGICAL_NA;
+                    if (!isNA(from, to, true)) {
+                        value = parseLogical(from, to);
+                        if (value != RRuntime.LOGICAL_NA) {
+                            hasLogical[col] = true;
+                        } else if (generalize) {
+                            require(col, classify(from, to));
+                        }
+                    }
+                    complete[col] &= value != RRuntime.LOGICAL_NA;
+                    ((byte[]) columns[col])[rows] = value;
+                    break;
+                }
+                case INTEGER: {
+                    int value = RRuntime.INT_NA;
+                    if (!isNA(from, to, true)) {
+                        long parsedValue = parseInteger(from, to);
+                        if (parsedValue == NOT_A_NUMBER) {
+                            if (!generalize) {
+                                // scan signals an error, which is left to the line based code
+                                status = Status.INVALID;
+                                return;
+                            }
+                            require(col, classify(from, to));
+                        } else if (parsedValue == OVERFLOW) {
+                            if (generalize) {
+                                require(col, ColumnType.DOUBLE);
+                            }
+                        } else {
+                            value = (int) parsedValue;
+                            if (generalize && value == RRuntime.INT_NA) {
+                                require(col, ColumnType.DOUBLE);
+                            }
+                        }
+                    }
+                    complete[col] &= value != RRuntime.INT_NA;
+                    ((int[]) columns[col])[rows] = value;
+                    break;
+                }
+                case DOUBLE: {
+                    double value = RRuntime.DOUBLE_NA;
+                    if (!isNA(from, to, true)) {
+                        value = parseDouble(from, to);
+                        if (!parsed && generalize) {
+                            require(col, ColumnType.CHARACTER);
+                        }
+                    }
+                    complete[col] &= !RRuntime.isNA(value);
+                    ((double[]) columns[col])[rows] = value;
+                    break;
+                }
+                case CHARACTER: {
+                    String value = RRuntime.STRING_NA;
+                    if (!isNA(from, to, false)) {
+                        value = new String(text, from, to - from, StandardCharsets.UTF_8);
+                        String oldValue = strings.putIfAbsent(value, value);
+                        if (oldValue != null) {
+                            value = oldValue;
+                        }
+                    }
+                    complete[col] &= value != RRuntime.STRING_NA;
+                    ((String[]) columns[col])[rows] = value;
+                    break;
+                }
+                default:
+                    throw RInternalError.shouldNotReachHere();
+            }
+        }
+
+        /**
+         * Records that a value of a column of type {@code types[col]} has the type {@code type}.
+         */
+        private void require(int col, ColumnType type) {
+            // a logical literal in a numeric column makes it a character column
+            ColumnType result = type == ColumnType.LOGICAL ? ColumnType.CHARACTER : type;
+            if (result.ordinal() > required[col].ordinal()) {
+                required[col] = result;
+            }
+        }
+
+        private ColumnType classify(int from, int to) {
+            if (parseLogical(from, to) != RRuntime.LOGICAL_NA) {
+                return ColumnType.LOGICAL;
+            }
+            long value = parseInteger(from, to);
+            if (value != NOT_A_NUMBER && value != OVERFLOW && value != RRuntime.INT_NA) {
+                return ColumnType.INTEGER;
+            }
+            parseDouble(from, to);
+            return parsed ? ColumnType.DOUBLE : ColumnType.CHARACTER;
+        }
+
+        /**
+         * Checks the value against {@code na.strings}, an empty value of a numeric or logical
+         * column is also {@code NA}.
+         */
+        private boolean isNA(int from, int to, boolean numeric) {
+            if (numeric && from == to) {
+                return true;
+            }
+            for (byte[] na : naStrings) {
+                if (matches(from, to, na)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean matches(int from, int to, byte[] value) {
+            if (value.length != to - from) {
+                return false;
+            }
+            for (int i = 0; i < value.length; i++) {
+                if (text[from + i] != value[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean matches(int from, int to, String literal) {
+            if (literal.length() != to - from) {
+                return false;
+            }
+            for (int i = 0; i < literal.length(); i++) {
+                if (text[from + i] != literal.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * See {@link RRuntime#string2logicalNoCheck(String)}.
+         */
+        private byte parseLogical(int from, int to) {
+            for (String literal : TRUE_LITERALS) {
+                if (matches(from, to, literal)) {
+                    return RRuntime.LOGICAL_TRUE;
+                }
+            }
+            for (String literal : FALSE_LITERALS) {
+                if (matches(from, to, literal)) {
+                    return RRuntime.LOGICAL_FALSE;
+                }
+            }
+            return RRuntime.LOGICAL_NA;
+        }
+
+        /**
+         * See {@link RRuntime#parseInt(String)}, returns {@link #NOT_A_NUMBER} where it throws an
+         * exception and {@link #OVERFLOW} where it returns {@code NA} due to an overflow.
+         */
+        private long parseInteger(int from, int to) {
+            boolean negative = from < to && text[from] == '-';
+            int pos = negative ? from + 1 : from;
+            if (pos == to) {
+                return NOT_A_NUMBER;
+            }
+            long max = negative ? Integer.MAX_VALUE + 1L : Integer.MAX_VALUE;
+            long value = 0;
+            while (pos < to) {
+                int digit = text[pos++] - '0';
+                if (digit < 0 || digit > 9) {
+                    return NOT_A_NUMBER;
+                }
+                value = value * 10 + digit;
+                if (value > max) {
+                    return OVERFLOW;
+                }
+            }
+            return negative ? -value : value;
+        }
+
+        /**
+         * Parses a decimal number, anything else is converted by
+         * {@link RRuntime#string2doubleNoCheck(String, boolean)}. Sets {@link #parsed} to
+         * {@code false} and returns {@code NA} if the value is not a number.
+         */
+        private double parseDouble(int from, int to) {
+            parsed = true;
+            int pos = from;
+            boolean negative = false;
+            if (pos < to && (text[pos] == '-' || text[pos] == '+')) {
+                negative = text[pos] == '-';
+                pos++;
+            }
+            long mantissa = 0;
+            int digits = 0;
+            int exponent = 0;
+            boolean anyDigit = false;
+            while (pos < to && text[pos] >= '0' && text[pos] <= '9') {
+                int digit = text[pos++] - '0';
+                anyDigit = true;
+                if (mantissa != 0 || digit != 0) {
+                    if (++digits > MAX_EXACT_DIGITS) {
+                        return parseDoubleSlow(from, to);
+                    }
+                    mantissa = mantissa * 10 + digit;
+                }
+            }
+            if (pos < to && text[pos] == dec) {
+                pos++;
+                while (pos < to && text[pos] >= '0' && text[pos] <= '9') {
+                    int digit = text[pos++] - '0';
+                    anyDigit = true;
+                    if (mantissa != 0 || digit != 0) {
+                        if (++digits > MAX_EXACT_DIGITS) {
+                            return parseDoubleSlow(from, to);
+                        }
+                        mantissa = mantissa * 10 + digit;
+                    }
+                    exponent--;
+                }
+            }
+            if (!anyDigit) {
+                return parseDoubleSlow(from, to);
+            }
+            if (pos < to && (text[pos] == 'e' || text[pos] == 'E')) {
+                pos++;
+                boolean negativeExponent = false;
+                if (pos < to && (text[pos] == '-' || text[pos] == '+')) {
+                    negativeExponent = text[pos] == '-';
+                    pos++;
+                }
+                if (pos == to) {
+                    return parseDoubleSlow(from, to);
+                }
+                int value = 0;
+                while (pos < to && text[pos] >= '0' && text[pos] <= '9') {
+                    value = value * 10 + (text[pos++] - '0');
+                    if (value > POWERS_OF_TEN.length + MAX_EXACT_DIGITS) {
+                        return parseDoubleSlow(from, to);
+                    }
+                }
+                exponent += negativeExponent ? -value : value;
+            }
+            if (pos != to) {
+                return parseDoubleSlow(from, to);
+            }
+            double result;
+            if (mantissa == 0) {
+                result = 0;
+            } else if (exponent >= 0 && exponent < POWERS_OF_TEN.length) {
+                result = mantissa * POWERS_OF_TEN[exponent];
+            } else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+                result = mantissa / POWERS_OF_TEN[-exponent];
+            } else {
+                return parseDoubleSlow(from, to);
+            }
+            return negative ? -result : result;
+        }
+
+        private double parseDoubleSlow(int from, int to) {
+            String value = new String(text, from, to - from, StandardCharsets.UTF_8);
+            if (dec != '.') {
+                value = value.replace((char) dec, '.');
+            }
+            try {
+                return RRuntime.string2doubleNoCheck(value, true);
+            } catch (NumberFormatException e) {
+                parsed = false;
+                return RRuntime.DOUBLE_NA;
+            }
+        }
+    }
+}
@@ -98,6 +98,15 @@ public class FileConnections {
             return FileConnections.createDelegateConnection(this, cType, raw);
         }
 
+        /**
+         * Returns the path of the file if the connection reads the bytes of the file as they are,
+         * i.e., the file is neither compressed nor read through {@code gzcon}, otherwise
+         * {@code null}.
+         */
+        String getUncompressedPath() {
+            return cType == RCompression.Type.NONE && getConnectionClass() == ConnectionClass.File ? path : null;
+        }
+
         @TruffleBoundary
         @Override
         public void setCompressionType(Type cType) throws IOException {
@@ -380,7 +389,7 @@ public class FileConnections {
         private final SeekableByteChannel channel;
 
         FileWriteBinaryConnection(BasePathRConnection base, boolean append) throws IOException {
-            super(base, 0);
+            super(base, DEFAULT_WRITE_CACHE_SIZE);
             Set<OpenOption> opts = new HashSet<>();
             opts.add(StandardOpenOption.WRITE);
             opts.add(StandardOpenOption.CREATE);
@@ -409,6 +418,7 @@ public class FileConnections {
 
         @Override
         public void truncate() throws IOException {
+            flush();
             channel.truncate(channel.position());
         }
     }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2014, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2014, 2019, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -116,7 +116,7 @@ public class PipeConnections {
         private final ByteChannel channel;
 
         PipeWriteConnection(BaseRConnection base, String command) throws IOException {
-            super(base);
+            super(base, DEFAULT_WRITE_CACHE_SIZE);
             Process p = PipeConnections.executeAndJoin(command);
             channel = ConnectionSupport.newChannel(p.getOutputStream());
         }
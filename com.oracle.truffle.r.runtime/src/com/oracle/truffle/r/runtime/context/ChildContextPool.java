@@ -0,0 +1,378 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.context;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.launcher.RCmdOptions.Client;
+import com.oracle.truffle.r.runtime.RError;
+import com.oracle.truffle.r.runtime.RInternalError;
+import com.oracle.truffle.r.runtime.RSource;
+import com.oracle.truffle.r.runtime.context.RContext.ConsoleIO;
+import com.oracle.truffle.r.runtime.context.RContext.ContextKind;
+
+/**
+ * A per context pool of warm child contexts used by {@code mclapply}, {@code pvec} and
+ * {@code mcmapply} (see {@code mclapply_overrides.R}). Each worker is an {@link EvalThread} that evaluates {@code .fastr.parallel.poolWorker} in its
+ * own child context, i.e., it repeatedly takes a {@link Task} and evaluates it until the pool is
+ * disposed or the worker stays idle for longer than {@link FastROptions#ParallelPoolIdleTimeout}.
+ * The pool grows lazily up to {@link FastROptions#ParallelPoolSize} workers.
+ *
+ * The payload and the result of a task are serialized R values, because the worker contexts do
+ * not share data with the parent context.
+ */
+public final class ChildContextPool {
+
+    /**
+     * A serialized task evaluated by a child context. If the evaluation fails, the result is the
+     * serialized {@code try-error} object with the original condition.
+     */
+    public static final class Task {
+        private final byte[] payload;
+        private volatile byte[] result;
+        private volatile boolean error;
+        private volatile Thread evaluator;
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        public Task(byte[] payload) {
+            this.payload = payload;
+        }
+
+        public byte[] getPayload() {
+            return payload;
+        }
+
+        public byte[] getResult() {
+            return result;
+        }
+
+        public boolean isError() {
+            return error;
+        }
+
+        public void setResult(byte[] value, boolean isError) {
+            result = value;
+            error = isError;
+            done.countDown();
+        }
+
+        public boolean isDone() {
+            return done.getCount() == 0;
+        }
+
+        /**
+         * Waits until the task is finished or until it cannot be finished anymore because its
+         * worker, or all the given workers if none has taken it yet, have terminated.
+         */
+        void await(ArrayList<Worker> candidates) throws InterruptedException {
+            while (!done.await(100, TimeUnit.MILLISECONDS)) {
+                Thread thread = evaluator;
+                if (thread != null ? !thread.isAlive() : !anyAlive(candidates)) {
+                    return;
+                }
+            }
+        }
+
+        private static boolean anyAlive(ArrayList<Worker> candidates) {
+            for (Worker worker : candidates) {
+                if (worker.isAlive()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The task currently evaluated by the child context with given id.
+     */
+    private static final Map<Integer, Task> tasks = new ConcurrentHashMap<>();
+
+    /**
+     * The workers of all the pools indexed by the id of their child context.
+     */
+    private static final Map<Integer, Worker> workers = new ConcurrentHashMap<>();
+
+    private static final Object SHUTDOWN = new Object();
+
+    public static void putTask(int id, Task task) {
+        tasks.put(id, task);
+    }
+
+    public static void removeTask(int id) {
+        tasks.remove(id);
+    }
+
+    public static Task getTask(int id) {
+        Task task = tasks.get(id);
+        if (task == null) {
+            throw RError.error(RError.NO_CALLER, RError.Message.GENERIC, "no parallel task for this context");
+        }
+        return task;
+    }
+
+    /**
+     * Called by the worker with given id to get its next task, which is also made available via
+     * {@link #getTask(int)}. Returns {@code false} if the worker should terminate.
+     */
+    @TruffleBoundary
+    public static boolean takeTask(int id) {
+        Worker worker = workers.get(id);
+        if (worker == null) {
+            throw RError.error(RError.NO_CALLER, RError.Message.GENERIC, "this context is not a parallel pool worker");
+        }
+        Task task = worker.take();
+        if (task == null) {
+            tasks.remove(id);
+            workers.remove(id);
+            return false;
+        }
+        task.evaluator = Thread.currentThread();
+        tasks.put(id, task);
+        return true;
+    }
+
+    private static final class Worker {
+        private final ContextStateImpl pool;
+        private final int id;
+        private final BlockingQueue<Object> inbox = new LinkedBlockingQueue<>();
+        private EvalThread thread;
+        private Queue<Task> batch;
+        private long lastUsed;
+
+        Worker(ContextStateImpl pool, int id) {
+            this.pool = pool;
+            this.id = id;
+        }
+
+        /**
+         * Returns the next task of the current batch or waits for the next batch. Returns
+         * {@code null} if the pool is disposed or if the worker was evicted after being idle.
+         */
+        Task take() {
+            while (true) {
+                if (pool.disposed) {
+                    return null;
+                }
+                if (batch != null) {
+                    Task task = batch.poll();
+                    if (task != null) {
+                        return task;
+                    }
+                    batch = null;
+                }
+                Object next;
+                try {
+                    next = inbox.poll(pool.idleTimeoutMillis, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    next = SHUTDOWN;
+                }
+                if (next == null) {
+                    if (pool.evict(this)) {
+                        return null;
+                    }
+                } else if (next == SHUTDOWN) {
+                    return null;
+                } else {
+                    @SuppressWarnings("unchecked")
+                    Queue<Task> newBatch = (Queue<Task>) next;
+                    batch = newBatch;
+                }
+            }
+        }
+
+        boolean isAlive() {
+            return thread.isAlive();
+        }
+    }
+
+    public static final class ContextStateImpl implements RContext.ContextState {
+        private final ArrayList<Worker> live = new ArrayList<>();
+        private final ArrayList<Worker> idle = new ArrayList<>();
+        /**
+         * The number of live workers and of workers that are being created.
+         */
+        private int size;
+        private int created;
+        private int maxSize;
+        private long idleTimeoutMillis;
+        private volatile boolean disposed;
+
+        @Override
+        public RContext.ContextState initialize(RContext context) {
+            int poolSize = context.getNonNegativeIntOption(FastROptions.ParallelPoolSize);
+            maxSize = poolSize == 0 ? Runtime.getRuntime().availableProcessors() : poolSize;
+            idleTimeoutMillis = Math.max(1, context.getNonNegativeIntOption(FastROptions.ParallelPoolIdleTimeout)) * 1000L;
+            return this;
+        }
+
+        /**
+         * Evaluates the tasks by at most {@code parallelism} workers of the pool and waits for
+         * their completion. The tasks are distributed dynamically among the workers. Tasks that
+         * were not finished because their worker terminated have no result.
+         */
+        @TruffleBoundary
+        public void evaluate(Task[] toEvaluate, int parallelism) {
+            ArrayList<Worker> borrowed = borrow(Math.min(toEvaluate.length, parallelism));
+            Queue<Task> batch = new ConcurrentLinkedQueue<>();
+            for (Task task : toEvaluate) {
+                batch.add(task);
+            }
+            try {
+                for (Worker worker : borrowed) {
+                    worker.inbox.add(batch);
+                }
+                for (Task task : toEvaluate) {
+                    task.await(borrowed);
+                }
+            } catch (InterruptedException e) {
+                throw new RInternalError(e, "interrupted while waiting for parallel tasks");
+            } finally {
+                release(borrowed);
+            }
+        }
+
+        private ArrayList<Worker> borrow(int count) {
+            ArrayList<Worker> result = new ArrayList<>(count);
+            int toCreate = 0;
+            synchronized (this) {
+                while (result.size() < count && !idle.isEmpty()) {
+                    // prefer the most recently used workers so that the others can be evicted
+                    result.add(idle.remove(idle.size() - 1));
+                }
+                while (result.size() + toCreate < count && (size < maxSize || result.size() + toCreate == 0)) {
+                    toCreate++;
+                    size++;
+                }
+            }
+            // starting a worker waits for the initialization of its context, which must not block
+            // the other users of the pool
+            boolean success = false;
+            try {
+                for (; toCreate > 0; toCreate--) {
+                    result.add(createWorker());
+                }
+                success = true;
+            } finally {
+                if (!success) {
+                    synchronized (this) {
+                        size -= toCreate;
+                    }
+                    release(result);
+                }
+            }
+            return result;
+        }
+
+        private synchronized void release(ArrayList<Worker> borrowed) {
+            long now = System.currentTimeMillis();
+            for (Worker worker : borrowed) {
+                if (worker.isAlive() && !disposed) {
+                    worker.lastUsed = now;
+                    idle.add(worker);
+                } else if (live.remove(worker)) {
+                    size--;
+                }
+            }
+        }
+
+        /**
+         * Removes the worker from the pool if it is idle for longer than the timeout.
+         */
+        private synchronized boolean evict(Worker worker) {
+            if (idle.contains(worker) && System.currentTimeMillis() - worker.lastUsed >= idleTimeoutMillis) {
+                idle.remove(worker);
+                live.remove(worker);
+                size--;
+                return true;
+            }
+            return false;
+        }
+
+        private Worker createWorker() {
+            RContext context = RContext.getInstance();
+            ConsoleIO console = context.getConsole();
+            ChildContextInfo info = ChildContextInfo.createNoRestore(Client.RSCRIPT, null, ContextKind.SHARE_PARENT_RO, context, console.getStdin(), console.getStdout(), console.getStderr());
+            Worker worker = new Worker(this, info.getId());
+            workers.put(info.getId(), worker);
+            String code = ".fastr.parallel.poolWorker(" + info.getId() + "L)";
+            worker.thread = new EvalThread(context.threads, info, RSource.fromTextInternalInvisible(code, RSource.Internal.CONTEXT_EVAL));
+            worker.thread.start();
+            worker.thread.waitForInit();
+            synchronized (this) {
+                live.add(worker);
+                created++;
+            }
+            if (disposed) {
+                worker.inbox.add(SHUTDOWN);
+            }
+            return worker;
+        }
+
+        /**
+         * Returns the number of live workers, of idle workers and of workers created so far.
+         */
+        public synchronized int[] getStats() {
+            return new int[]{size, idle.size(), created};
+        }
+
+        /**
+         * Stops all the workers, including the borrowed ones, which terminate once their current
+         * task is finished, and waits for their termination.
+         */
+        @Override
+        public void beforeDispose(RContext context) {
+            ArrayList<Worker> toStop;
+            synchronized (this) {
+                disposed = true;
+                toStop = new ArrayList<>(live);
+                live.clear();
+                idle.clear();
+                size = 0;
+            }
+            for (Worker worker : toStop) {
+                worker.inbox.add(SHUTDOWN);
+            }
+            for (Worker worker : toStop) {
+                try {
+                    worker.thread.join();
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+        }
+
+        public static ContextStateImpl newContextState() {
+            return new ContextStateImpl();
+        }
+    }
+}
@@ -79,6 +79,16 @@ public class EvalThread extends Thread {
         }
     }
 
+    /**
+     * Closes the child context of a thread that was created but will never be started.
+     */
+    public void disposeUnstarted() {
+        assert getState() == State.NEW;
+        threadMap.remove(info.getId());
+        threadCnt.decrementAndGet();
+        truffleContext.close();
+    }
+
     /*
      * Parent context uses this method to wait for initialization of the child to complete to
      * prevent potential updates to runtime's meta data from interfering with program's execution.
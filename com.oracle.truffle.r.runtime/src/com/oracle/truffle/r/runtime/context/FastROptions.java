@@ -32,6 +32,7 @@ import com.oracle.truffle.r.runtime.RError.Message;
 import com.oracle.truffle.r.runtime.RInternalError;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.data.NativeDataAccess.NativeDataInspector;
+import com.oracle.truffle.r.runtime.data.altrep.FusedArithmetic;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -92,8 +93,10 @@ public class FastROptions {
     public static final OptionKey<Boolean> SearchPathForcePromises = new OptionKey<>(false);
     @Option(category = OptionCategory.EXPERT, help = "Load native code of packages, including builtin packages.") //
     public static final OptionKey<Boolean> LoadPackagesNativeCode = new OptionKey<>(!FastRConfig.ManagedMode);
-    @Option(category = OptionCategory.EXPERT, help = "Allow only one thread to enter native code of packages") //
+    @Option(category = OptionCategory.EXPERT, help = "Allow only one thread at a time to enter the native code of each package") //
     public static final OptionKey<Boolean> SynchronizeNativeCode = new OptionKey<>(true);
+    @Option(category = OptionCategory.EXPERT, help = "Comma separated names of native libraries known to be thread-safe, calls into them are not synchronized") //
+    public static final OptionKey<String> NativeThreadSafeLibraries = new OptionKey<>("");
     // Promises optimizations
     @Option(category = OptionCategory.INTERNAL, help = "If enabled, overrides all other EagerEval switches (see EagerEvalHelper)") //
     public static final OptionKey<Boolean> EagerEval = new OptionKey<>(false);
@@ -117,10 +120,56 @@ public class FastROptions {
     public static final OptionKey<String> AdditionalOptions = new OptionKey<>("");
     @Option(category = OptionCategory.INTERNAL, help = "Enables timeout (in seconds) when receiving messages from a channel") //
     public static final OptionKey<Integer> ChannelReceiveTimeout = new OptionKey<>(0);
+    @Option(category = OptionCategory.EXPERT, help = "Number of messages that can be sent through a channel in one direction before the sender blocks") //
+    public static final OptionKey<Integer> ChannelQueueCapacity = new OptionKey<>(16);
     @Option(category = OptionCategory.EXPERT, help = "Restrict force splitting of call targets") //
     public static final OptionKey<Boolean> RestrictForceSplitting = new OptionKey<>(true);
     @Option(category = OptionCategory.INTERNAL, help = "Turn on explicit GC via the gc built-in. Otherwise calls to gc are ignored.") //
     public static final OptionKey<Boolean> EnableExplicitGC = new OptionKey<>(false);
+    @Option(category = OptionCategory.EXPERT, help = "Maximal size in bytes of the per context cache of decompressed lazy-load database entries (0 disables the cache)") //
+    public static final OptionKey<Integer> LazyLoadDBCacheSize = new OptionKey<>(16 * 1024 * 1024);
+
+    @Option(category = OptionCategory.EXPERT, help = "Read records of file connections in scan by the memory mapped delimited reader when the arguments allow it") //
+    public static final OptionKey<Boolean> FastScan = new OptionKey<>(true);
+    @Option(category = OptionCategory.EXPERT, help = "Number of bindings from which an environment created by new.env(hash = TRUE) keeps them in a hash table instead of its frame (0 disables the hash table)") //
+    public static final OptionKey<Integer> EnvHashThreshold = new OptionKey<>(1000);
+    @Option(category = OptionCategory.EXPERT, help = "Maximal number of compiled regular expressions kept in the per context cache used by grep, sub, regexpr and strsplit (0 disables the cache)") //
+    public static final OptionKey<Integer> RegexCacheSize = new OptionKey<>(256);
+
+    @Option(category = OptionCategory.EXPERT, help = "Defer arithmetic on long double vectors and evaluate chains of operators in one pass") //
+    public static final OptionKey<Boolean> LazyArithmetic = new OptionKey<>(false);
+    @Option(category = OptionCategory.EXPERT, help = "Minimal vector length for which arithmetic is deferred when LazyArithmetic is enabled") //
+    public static final OptionKey<Integer> LazyArithmeticMinLength = new OptionKey<>(65536);
+
+    // Parallel computations
+    @Option(category = OptionCategory.EXPERT, help = "Maximal number of threads used by parallelized builtins (0 means the number of available processors, 1 disables parallelism)") //
+    public static final OptionKey<Integer> ParallelThreads = new OptionKey<>(0);
+    @Option(category = OptionCategory.EXPERT, help = "Minimal number of multiply-add operations for which %*% and crossprod run in parallel") //
+    public static final OptionKey<Integer> MatMultParallelThreshold = new OptionKey<>(2000000);
+    @Option(category = OptionCategory.EXPERT, help = "Minimal vector length for which the radix passes of order, sort and sort.list run in parallel") //
+    public static final OptionKey<Integer> OrderParallelThreshold = new OptionKey<>(1000000);
+    @Option(category = OptionCategory.EXPERT, help = "Minimal number of bytes for which scan and .fastr.readDelim parse a file in parallel") //
+    public static final OptionKey<Integer> ScanParallelThreshold = new OptionKey<>(4 * 1024 * 1024);
+    @Option(category = OptionCategory.EXPERT, help = "Minimal vector length for which grep and grepl match the elements in parallel") //
+    public static final OptionKey<Integer> GrepParallelThreshold = new OptionKey<>(100000);
+    @Option(category = OptionCategory.EXPERT, help = "Minimal number of element comparisons for which dist computes the distances in parallel") //
+    public static final OptionKey<Integer> DistParallelThreshold = new OptionKey<>(2000000);
+    @Option(category = OptionCategory.EXPERT, help = "Minimal number of multiplications for which cov and cor compute the cross products in parallel") //
+    public static final OptionKey<Integer> CovParallelThreshold = new OptionKey<>(2000000);
+    @Option(category = OptionCategory.EXPERT, help = "Minimal vector length for which rowsum, split and tabulate count and aggregate the groups in parallel") //
+    public static final OptionKey<Integer> GroupParallelThreshold = new OptionKey<>(1000000);
+    @Option(category = OptionCategory.EXPERT, help = "Cache the parse results of the base package and the other R code shipped with FastR on disk") //
+    public static final OptionKey<Boolean> ParseCache = new OptionKey<>(false);
+    @Option(category = OptionCategory.EXPERT, help = "Directory of the on-disk parse cache, the default is .cache/fastr/parse in the user's home directory") //
+    public static final OptionKey<String> ParseCacheDir = new OptionKey<>("");
+    @Option(category = OptionCategory.EXPERT, help = "Maximal size of the on-disk parse cache in megabytes, the least recently used files are removed") //
+    public static final OptionKey<Integer> ParseCacheMaxSize = new OptionKey<>(64);
+    @Option(category = OptionCategory.EXPERT, help = "Parse with the SLL prediction mode first and use the full LL prediction only if that fails") //
+    public static final OptionKey<Boolean> ParserSLL = new OptionKey<>(true);
+    @Option(category = OptionCategory.EXPERT, help = "Maximal number of child contexts kept in the pool used by mclapply, pvec and mcmapply (0 means the number of available processors)") //
+    public static final OptionKey<Integer> ParallelPoolSize = new OptionKey<>(0);
+    @Option(category = OptionCategory.EXPERT, help = "Time in seconds after which an idle child context is removed from the pool used by mclapply, pvec and mcmapply") //
+    public static final OptionKey<Integer> ParallelPoolIdleTimeout = new OptionKey<>(60);
 
     // Discontinued since rc12
     // only a warning is printed to use the default logger mechanism
@@ -143,6 +192,13 @@ public class FastROptions {
      */
     public static final String NATIVE_DATA_INSPECTOR = "NATIVE_DATA_INSPECTOR";
 
+    /**
+     * The presence of the <code>NO_NATIVE_SEXP_HEADERS</code> variable in the environment disables
+     * the native headers of objects passed to native code, the SEXP values are then invalid
+     * addresses, which helps to find native code that dereferences them.
+     */
+    public static final String NO_NATIVE_SEXP_HEADERS = "NO_NATIVE_SEXP_HEADERS";
+
     /**
      * For now we enforce that this option is set JVM wide, so that we can avoid reading it via
      * {@link RContext} on the fastr path.
@@ -166,6 +222,9 @@ public class FastROptions {
     @TruffleBoundary
     <T> void setValue(OptionKey<T> key, T value) {
         values.put(key, value);
+        if (key == LazyArithmetic && Boolean.TRUE.equals(value)) {
+            FusedArithmetic.enableLazyArithmetic();
+        }
     }
 
     private static boolean initializedFirstOptions;
@@ -197,6 +256,9 @@ public class FastROptions {
             }
             values.put(key, value);
         }
+        if (getValue(LazyArithmetic)) {
+            FusedArithmetic.enableLazyArithmetic();
+        }
 
         checkObsoleteJVMArgs();
         DSLConfig.initialize(getValue(DSLCacheSizeFactor));
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.data;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.oracle.truffle.api.CompilerAsserts;
+import com.oracle.truffle.r.runtime.data.altrep.AltRepClass;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+
+/**
+ * The part of an {@link RAltRepVector} that does not depend on the element type: the
+ * representation class, its data, the length and the materialized copy. {@link RAltIntVector} and
+ * {@link RAltRealVector} extend different vector classes, so they share it by delegation.
+ */
+final class AltRepState<C extends AltRepClass, M extends RAbstractVector> {
+
+    final C altClass;
+    final Object data;
+    final int length;
+    private final AtomicReference<M> materialized = new AtomicReference<>();
+
+    AltRepState(C altClass, Object data) {
+        this.altClass = altClass;
+        this.data = data;
+        this.length = altClass.length(data);
+        assert length >= 0;
+    }
+
+    /**
+     * Returns the materialized copy of {@code vector}, which must be the vector owning this state.
+     */
+    @SuppressWarnings("unchecked")
+    M cachedMaterialize(RAbstractVector vector) {
+        if (materialized.get() == null) {
+            materialized.compareAndSet(null, (M) vector.materialize());
+        }
+        return materialized.get();
+    }
+
+    @Override
+    public String toString() {
+        CompilerAsserts.neverPartOfCompilation();
+        return "[" + altClass.getName() + ", length " + length + "]";
+    }
+}
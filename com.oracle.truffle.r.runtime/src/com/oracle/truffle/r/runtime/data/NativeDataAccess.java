@@ -104,6 +104,14 @@ class UnsafeAdapter {
  *
  * There is a registry of weak references to all native mirrors ever assigned to some vector object.
  * We use the finalizer to free the native memory (if allocated).
+ *
+ * Unless disabled via {@link FastROptions#NO_NATIVE_SEXP_HEADERS}, the ID of a native mirror is the
+ * address of a small native header tagged with {@link #HEADER_TAG}. The header holds the type, the
+ * length and the data pointer of the
+ * object once they are known. The NFI implementation of {@code INTEGER}, {@code REAL},
+ * {@code LENGTH} and {@code TYPEOF} reads the header directly and only up-calls when the respective
+ * part of the header is not valid yet, which is typically only on the first access from native
+ * code.
  */
 public final class NativeDataAccess {
     private NativeDataAccess() {
@@ -111,6 +119,10 @@ public final class NativeDataAccess {
     }
 
     public interface CustomNativeMirror {
+        /**
+         * Returns the address used as the SEXP value, which native code may dereference. It must be
+         * aligned to at least four bytes, so that it cannot be mistaken for a tagged header.
+         */
         long getCustomMirrorAddress();
     }
 
@@ -125,6 +137,31 @@ public final class NativeDataAccess {
 
     private static final boolean TRACE_MIRROR_ALLOCATION_SITES = false;
 
+    /*
+     * Layout of the native header, must be kept in sync with FastRSexpHeader in
+     * truffle_nfi/Rinternals.c.
+     */
+    private static final long HEADER_TYPE_OFFSET = 0;
+    private static final long HEADER_FLAGS_OFFSET = 4;
+    private static final long HEADER_LENGTH_OFFSET = 8;
+    private static final long HEADER_DATA_OFFSET = 16;
+    private static final long HEADER_SIZE = 24;
+
+    /*
+     * The ID of a mirror with a header is the header address plus this tag. The headers are aligned
+     * to at least eight bytes, the IDs without header are odd and the custom addresses are aligned
+     * to four bytes, so native code can tell the headers by the two lowest bits alone.
+     */
+    private static final long HEADER_TAG = 2;
+    private static final long HEADER_TAG_MASK = 3;
+
+    /* the type field is valid */
+    private static final int HEADER_TYPE_VALID = 1;
+    /* the length and data fields are valid */
+    private static final int HEADER_DATA_VALID = 2;
+
+    private static final boolean USE_NATIVE_HEADERS = System.getenv(FastROptions.NO_NATIVE_SEXP_HEADERS) == null;
+
     private static final AtomicLong emptyDataAddress;
     static {
         emptyDataAddress = new AtomicLong(0);
@@ -188,6 +225,11 @@ public final class NativeDataAccess {
          * we get this value and find the corresponding object for it.
          */
         private final long id;
+        /**
+         * Address of the native header, the {@link #id} is this address plus {@link #HEADER_TAG}, or
+         * zero if this mirror has no header.
+         */
+        private final long header;
         /**
          * Address of the start of the native memory array. Zero if not allocated yet.
          */
@@ -229,7 +271,15 @@ public final class NativeDataAccess {
 
         NativeMirror(RBaseObject owner) {
             super(owner, nativeReferenceQueue());
-            this.id = counter.addAndGet(2);
+            if (USE_NATIVE_HEADERS) {
+                this.header = allocateNativeMemory(HEADER_SIZE);
+                UnsafeAdapter.UNSAFE.setMemory(header, HEADER_SIZE, (byte) 0);
+                assert (header & HEADER_TAG_MASK) == 0;
+                this.id = header + HEADER_TAG;
+            } else {
+                this.header = 0;
+                this.id = counter.addAndGet(2);
+            }
             nativeMirrors.put(id, this);
         }
 
@@ -240,6 +290,7 @@ public final class NativeDataAccess {
         NativeMirror(RBaseObject ownerVec, long address) {
             // address == 0 means no nativeMirrors registration and no release() call
             super(ownerVec, (address != 0) ? nativeReferenceQueue() : null);
+            this.header = 0;
             this.id = address;
             setDataAddress(address);
             if (address != 0) {
@@ -267,6 +318,7 @@ public final class NativeDataAccess {
                 setDataAddress(getEmptyDataAddress());
             }
             this.length = len;
+            publishData();
 
             // ensure that marker address is not used
             assert this.length == 0 || dataAddress != getEmptyDataAddress();
@@ -318,6 +370,35 @@ public final class NativeDataAccess {
             }
         }
 
+        /**
+         * Makes the current data address and length visible to native code through the header.
+         * Only used for atomic vectors, whose data pointer is what {@code INTEGER}, {@code REAL}
+         * etc. return.
+         */
+        void publishData() {
+            if (header != 0) {
+                UnsafeAdapter.UNSAFE.putLong(header + HEADER_LENGTH_OFFSET, length);
+                UnsafeAdapter.UNSAFE.putLong(header + HEADER_DATA_OFFSET, dataAddress);
+                int flags = UnsafeAdapter.UNSAFE.getInt(header + HEADER_FLAGS_OFFSET);
+                UnsafeAdapter.UNSAFE.putInt(header + HEADER_FLAGS_OFFSET, flags | HEADER_DATA_VALID);
+            }
+        }
+
+        void setLength(long newLength) {
+            this.length = newLength;
+            if (header != 0 && (UnsafeAdapter.UNSAFE.getInt(header + HEADER_FLAGS_OFFSET) & HEADER_DATA_VALID) != 0) {
+                UnsafeAdapter.UNSAFE.putLong(header + HEADER_LENGTH_OFFSET, newLength);
+            }
+        }
+
+        void publishType(int type) {
+            if (header != 0) {
+                UnsafeAdapter.UNSAFE.putInt(header + HEADER_TYPE_OFFSET, type);
+                int flags = UnsafeAdapter.UNSAFE.getInt(header + HEADER_FLAGS_OFFSET);
+                UnsafeAdapter.UNSAFE.putInt(header + HEADER_FLAGS_OFFSET, flags | HEADER_TYPE_VALID);
+            }
+        }
+
         @Override
         public void release() {
             if (id != 0) {
@@ -342,6 +423,9 @@ public final class NativeDataAccess {
             if (nativeMirrorInfo != null) {
                 nativeMirrorInfo.remove(id); // Possible id(address)-clashing entries not handled
             }
+            if (header != 0) {
+                freeNativeMemory(header);
+            }
         }
 
         @Override
@@ -351,7 +435,7 @@ public final class NativeDataAccess {
     }
 
     // The counter is initialized to invalid address and incremented by 2 to always get invalid
-    // address value
+    // address value. Native code relies on these IDs being odd to tell them from tagged headers.
     private static final AtomicLong counter = new AtomicLong(0xdef000000000001L);
     private static final ConcurrentHashMap<Long, NativeMirror> nativeMirrors = new ConcurrentHashMap<>(512);
     private static final ConcurrentHashMap<Long, NativeMirror> dataAddressToNativeMirrors = System.getenv(FastROptions.NATIVE_DATA_INSPECTOR) != null ? new ConcurrentHashMap<>(512) : null;
@@ -412,7 +496,14 @@ public final class NativeDataAccess {
     @TruffleBoundary
     private static void putMirrorObject(RBaseObject obj, NativeMirror oldMirror) {
         NativeMirror newMirror;
-        obj.setNativeMirror(newMirror = obj instanceof CustomNativeMirror ? new NativeMirror(obj, ((CustomNativeMirror) obj).getCustomMirrorAddress()) : new NativeMirror(obj));
+        if (obj instanceof CustomNativeMirror) {
+            long address = ((CustomNativeMirror) obj).getCustomMirrorAddress();
+            RInternalError.guarantee((address & HEADER_TAG_MASK) != HEADER_TAG, "custom native mirror address looks like a tagged header");
+            newMirror = new NativeMirror(obj, address);
+        } else {
+            newMirror = new NativeMirror(obj);
+        }
+        obj.setNativeMirror(newMirror);
         if (oldMirror != null) {
             newMirror.nativeWrapperRef = oldMirror.nativeWrapperRef;
         }
@@ -471,6 +562,18 @@ public final class NativeDataAccess {
         }
     }
 
+    // methods operating on native memory not owned by any vector:
+
+    public static int getIntAt(long address, int index) {
+        assert address != 0;
+        return UnsafeAdapter.UNSAFE.getInt(address + (long) index * Unsafe.ARRAY_INT_INDEX_SCALE);
+    }
+
+    public static double getDoubleAt(long address, int index) {
+        assert address != 0;
+        return UnsafeAdapter.UNSAFE.getDouble(address + (long) index * Unsafe.ARRAY_DOUBLE_INDEX_SCALE);
+    }
+
     // methods operating on the native mirror object directly:
 
     public static int getIntNativeMirrorData(Object nativeMirror, int index) {
@@ -701,7 +804,7 @@ public final class NativeDataAccess {
             toNative(vector);
             allocateNativeContents(vector, data, length);
         } else {
-            ((NativeMirror) vector.getNativeMirror()).length = length;
+            ((NativeMirror) vector.getNativeMirror()).setLength(length);
         }
     }
 
@@ -764,7 +867,7 @@ public final class NativeDataAccess {
             toNative(vector);
             allocateNativeContents(vector, data, length);
         } else {
-            ((NativeMirror) vector.getNativeMirror()).length = length;
+            ((NativeMirror) vector.getNativeMirror()).setLength(length);
         }
     }
 
@@ -801,7 +904,7 @@ public final class NativeDataAccess {
             toNative(vector);
             allocateNativeContents(vector, data, length);
         } else {
-            ((NativeMirror) vector.getNativeMirror()).length = length;
+            ((NativeMirror) vector.getNativeMirror()).setLength(length);
         }
     }
 
@@ -848,7 +951,7 @@ public final class NativeDataAccess {
             toNative(vector);
             allocateNativeContents(vector, data, length);
         } else {
-            ((NativeMirror) vector.getNativeMirror()).length = length;
+            ((NativeMirror) vector.getNativeMirror()).setLength(length);
         }
     }
 
@@ -917,7 +1020,7 @@ public final class NativeDataAccess {
             toNative(vector);
             allocateNativeContents(vector, data, length);
         } else {
-            ((NativeMirror) vector.getNativeMirror()).length = length;
+            ((NativeMirror) vector.getNativeMirror()).setLength(length);
         }
     }
 
@@ -960,7 +1063,7 @@ public final class NativeDataAccess {
             toNative(vector);
             allocateNativeContents(vector, data, length);
         } else {
-            ((NativeMirror) vector.getNativeMirror()).length = length;
+            ((NativeMirror) vector.getNativeMirror()).setLength(length);
         }
     }
 
@@ -1017,7 +1120,7 @@ public final class NativeDataAccess {
             toNative(list);
             allocateNativeContents(list, data, length);
         } else {
-            ((NativeMirror) list.getNativeMirror()).length = length;
+            ((NativeMirror) list.getNativeMirror()).setLength(length);
         }
     }
 
@@ -1164,6 +1267,7 @@ public final class NativeDataAccess {
     }
 
     static long allocateNativeContents(RIntVector vector, int[] data, int length) {
+        vector.setHashIndex(null);
         NativeMirror mirror = (NativeMirror) vector.getNativeMirror();
         assert mirror != null;
         assert mirror.dataAddress == 0 ^ data == null : "mirror.dataAddress=" + mirror.dataAddress;
@@ -1188,6 +1292,7 @@ public final class NativeDataAccess {
     }
 
     static long allocateNativeContents(RDoubleVector vector, double[] data, int length) {
+        vector.setHashIndex(null);
         NativeMirror mirror = (NativeMirror) vector.getNativeMirror();
         assert mirror != null;
         assert mirror.dataAddress == 0 ^ data == null : "mirror.dataAddress=" + mirror.dataAddress;
@@ -1212,6 +1317,7 @@ public final class NativeDataAccess {
     }
 
     static long allocateNativeContents(RStringVector vector, CharSXPWrapper[] charSXPdata, int length) {
+        vector.setHashIndex(null);
         NativeMirror mirror = (NativeMirror) vector.getNativeMirror();
         assert mirror != null;
         assert mirror.dataAddress == 0 ^ charSXPdata == null : "mirror.dataAddress=" + mirror.dataAddress;
@@ -1220,7 +1326,7 @@ public final class NativeDataAccess {
             // Note: shall the character vector become writeable and not only read-only, we should
             // crate assumption like for other vector types
             mirror.allocateNative(charSXPdata);
-            mirror.length = length;
+            mirror.setLength(length);
         }
         return mirror.dataAddress;
     }
@@ -1244,7 +1350,7 @@ public final class NativeDataAccess {
             // Note: shall the list become writeable and not only read-only, we should
             // crate assumption like for other vector types
             mirror.allocateNative(elements);
-            mirror.length = length;
+            mirror.setLength(length);
         }
         return mirror.dataAddress;
     }
@@ -1319,10 +1425,27 @@ public final class NativeDataAccess {
         NativeMirror mirror = (NativeMirror) obj.getNativeMirror();
         mirror.setDataAddress(address);
         mirror.length = length;
+        if (obj instanceof RIntVector || obj instanceof RLogicalVector || obj instanceof RDoubleVector || obj instanceof RComplexVector || obj instanceof RRawVector) {
+            mirror.publishData();
+        }
 
         mirror.external = true;
     }
 
+    /**
+     * Records the GNU R type of the object in its native header, so that {@code TYPEOF} does not
+     * need to up-call next time. Must not be used for objects whose type can change, i.e.,
+     * pairlists.
+     */
+    public static void setNativeType(Object obj, int type) {
+        if (obj instanceof RBaseObject) {
+            NativeMirror mirror = (NativeMirror) ((RBaseObject) obj).getNativeMirror();
+            if (mirror != null) {
+                mirror.publishType(type);
+            }
+        }
+    }
+
     public static void setNativeWrapper(RBaseObject obj, Object wrapper) {
         NativeMirror mirror = (NativeMirror) obj.getNativeMirror();
         if (mirror == null) {
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.data;
+
+import com.oracle.truffle.api.profiles.ConditionProfile;
+import com.oracle.truffle.r.runtime.RType;
+import com.oracle.truffle.r.runtime.data.altrep.AltRealClass;
+import com.oracle.truffle.r.runtime.data.closures.RClosures;
+import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+import com.oracle.truffle.r.runtime.data.nodes.FastPathVectorAccess.FastPathFromDoubleAccess;
+import com.oracle.truffle.r.runtime.data.nodes.SlowPathVectorAccess.SlowPathFromDoubleAccess;
+import com.oracle.truffle.r.runtime.data.nodes.VectorAccess;
+
+public final class RAltRealVector extends RAbstractDoubleVector implements RAltRepVector {
+
+    private final AltRepState<AltRealClass, RDoubleVector> state;
+
+    RAltRealVector(AltRealClass altClass, Object data) {
+        super(altClass.noNA(data));
+        this.state = new AltRepState<>(altClass, data);
+    }
+
+    @Override
+    public AltRealClass getAltClass() {
+        return state.altClass;
+    }
+
+    @Override
+    public Object getAltData() {
+        return state.data;
+    }
+
+    @Override
+    public RDoubleVector cachedMaterialize() {
+        return state.cachedMaterialize(this);
+    }
+
+    @Override
+    public double getDataAt(int index) {
+        assert index >= 0 && index < state.length;
+        return state.altClass.elt(state.data, index);
+    }
+
+    @Override
+    public int getLength() {
+        return state.length;
+    }
+
+    @Override
+    public double[] getDataCopy() {
+        double[] result = new double[state.length];
+        state.altClass.getRegion(state.data, 0, state.length, result);
+        return result;
+    }
+
+    @Override
+    public RAbstractVector castSafe(RType type, ConditionProfile isNAProfile, boolean keepAttributes) {
+        switch (type) {
+            case Integer:
+                return RClosures.createToIntVector(this, keepAttributes);
+            case Double:
+                return this;
+            case Complex:
+                return RClosures.createToComplexVector(this, keepAttributes);
+            case Character:
+                return RClosures.createToStringVector(this, keepAttributes);
+            case List:
+                return RClosures.createToListVector(this, keepAttributes);
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return state.toString();
+    }
+
+    private static final class FastPathAccess extends FastPathFromDoubleAccess {
+
+        private final AltRealClass altClass;
+
+        FastPathAccess(RAltRealVector value) {
+            super(value);
+            this.altClass = value.state.altClass;
+        }
+
+        @Override
+        public boolean supports(Object value) {
+            return super.supports(value) && ((RAltRealVector) value).state.altClass == altClass;
+        }
+
+        @Override
+        protected double getDoubleImpl(AccessIterator accessIter, int index) {
+            RAltRealVector vector = (RAltRealVector) accessIter.getStore();
+            assert index >= 0 && index < vector.state.length;
+            return altClass.elt(vector.state.data, index);
+        }
+    }
+
+    @Override
+    public VectorAccess access() {
+        return new FastPathAccess(this);
+    }
+
+    private static final SlowPathFromDoubleAccess SLOW_PATH_ACCESS = new SlowPathFromDoubleAccess() {
+        @Override
+        protected double getDoubleImpl(AccessIterator accessIter, int index) {
+            RAltRealVector vector = (RAltRealVector) accessIter.getStore();
+            assert index >= 0 && index < vector.state.length;
+            return vector.state.altClass.elt(vector.state.data, index);
+        }
+    };
+
+    @Override
+    public VectorAccess slowPathAccess() {
+        return SLOW_PATH_ACCESS;
+    }
+}
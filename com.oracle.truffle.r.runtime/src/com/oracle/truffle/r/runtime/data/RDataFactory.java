@@ -49,6 +49,8 @@ import com.oracle.truffle.r.runtime.builtins.RBuiltinDescriptor;
 import com.oracle.truffle.r.runtime.context.RContext;
 import com.oracle.truffle.r.runtime.data.RPromise.EagerFeedback;
 import com.oracle.truffle.r.runtime.data.RPromise.PromiseState;
+import com.oracle.truffle.r.runtime.data.altrep.AltIntegerClass;
+import com.oracle.truffle.r.runtime.data.altrep.AltRealClass;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 import com.oracle.truffle.r.runtime.env.REnvironment;
 import com.oracle.truffle.r.runtime.ffi.DLL.SymbolHandle;
@@ -701,6 +703,11 @@ public final class RDataFactory {
             return traceDataCreated(env);
         }
 
+        @TruffleBoundary
+        public final REnvironment.NewEnv createNewHashedEnv(String name, int initialSize, int hashThreshold) {
+            return traceDataCreated(new REnvironment.NewEnv(RRuntime.createNonFunctionFrame("<new-env-" + environmentCount.incrementAndGet() + ">"), name, initialSize, hashThreshold));
+        }
+
         public final RS4Object createS4Object() {
             return traceDataCreated(new RS4Object());
         }
@@ -1010,6 +1017,14 @@ public final class RDataFactory {
         return traceDataCreated(new RDoubleSequence(start, stride, length));
     }
 
+    public static RAltIntVector createAltIntVector(AltIntegerClass altClass, Object data) {
+        return traceDataCreated(new RAltIntVector(altClass, data));
+    }
+
+    public static RAltRealVector createAltRealVector(AltRealClass altClass, Object data) {
+        return traceDataCreated(new RAltRealVector(altClass, data));
+    }
+
     public static RIntVector createEmptyIntVector() {
         return createIntVector(new int[0], true);
     }
@@ -1290,6 +1305,11 @@ public final class RDataFactory {
         return traceDataCreated(env);
     }
 
+    @TruffleBoundary
+    public static REnvironment.NewEnv createNewHashedEnv(String name, int initialSize, int hashThreshold) {
+        return traceDataCreated(new REnvironment.NewEnv(RRuntime.createNonFunctionFrame("<new-env-" + environmentCount.incrementAndGet() + ">"), name, initialSize, hashThreshold));
+    }
+
     public static RS4Object createS4Object() {
         return traceDataCreated(new RS4Object());
     }
@@ -88,6 +88,16 @@ public abstract class RSharingAttributeStorage extends RAttributable {
         assert refCount != SHARED_PERMANENT_VAL : "cannot decRefCount of shared permanent value";
         assert refCount > 0 : "cannot decRefCount when refCount <= 0";
         refCount--;
+        if (refCount == 1) {
+            sharingEnded();
+        }
+    }
+
+    /**
+     * Invoked when this object stops being shared, from now on it may be updated in place.
+     */
+    protected void sharingEnded() {
+        // nothing to do by default
     }
 
     public final boolean isSharedPermanent() {
@@ -111,6 +121,7 @@ public abstract class RSharingAttributeStorage extends RAttributable {
      */
     public RSharingAttributeStorage makeTemporary() {
         refCount = 0;
+        sharingEnded();
         return this;
     }
 
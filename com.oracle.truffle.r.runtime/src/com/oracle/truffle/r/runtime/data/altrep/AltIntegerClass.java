@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.data.altrep;
+
+/**
+ * Alternative representation of an integer vector.
+ */
+public abstract class AltIntegerClass extends AltRepClass {
+
+    protected AltIntegerClass(String name) {
+        super(name);
+    }
+
+    public abstract int elt(Object data, int index);
+
+    /**
+     * Copies {@code size} elements starting at {@code from} into {@code buffer} and returns the
+     * number of elements copied.
+     */
+    public int getRegion(Object data, int from, int size, int[] buffer) {
+        for (int i = 0; i < size; i++) {
+            buffer[i] = elt(data, from + i);
+        }
+        return size;
+    }
+}
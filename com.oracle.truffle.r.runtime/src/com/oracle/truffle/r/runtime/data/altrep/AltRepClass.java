@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.data.altrep;
+
+import com.oracle.truffle.r.runtime.data.RAltRepVector;
+
+/**
+ * Describes an alternative representation of a vector, the FastR counterpart of a GNU R ALTREP
+ * class. The class is a set of callbacks that operate on the opaque {@code data} object of each
+ * {@link RAltRepVector}. Only the length and element access are mandatory, the remaining callbacks
+ * let a representation answer some questions without touching all the elements.
+ *
+ * Instances are expected to be singletons: the fast path vector access specializes on the class
+ * identity, so creating a new class for each vector defeats the compilation.
+ */
+public abstract class AltRepClass {
+
+    public static final int UNKNOWN_SORTEDNESS = Integer.MIN_VALUE;
+    public static final int KNOWN_UNSORTED = 0;
+    public static final int SORTED_INCR = 1;
+    public static final int SORTED_DECR = -1;
+
+    private final String name;
+
+    protected AltRepClass(String name) {
+        this.name = name;
+    }
+
+    public final String getName() {
+        return name;
+    }
+
+    /**
+     * The length of the vector, it is queried only once when the vector is created.
+     */
+    public abstract int length(Object data);
+
+    /**
+     * One of {@link #SORTED_INCR}, {@link #SORTED_DECR}, {@link #KNOWN_UNSORTED} or
+     * {@link #UNKNOWN_SORTEDNESS}. A vector can only be reported as sorted if it does not contain
+     * {@code NA} values.
+     */
+    public int isSorted(@SuppressWarnings("unused") Object data) {
+        return UNKNOWN_SORTEDNESS;
+    }
+
+    /**
+     * {@code true} if the vector is known not to contain any {@code NA} (or {@code NaN}) values.
+     */
+    public boolean noNA(@SuppressWarnings("unused") Object data) {
+        return false;
+    }
+
+    /**
+     * The result of {@code sum} or {@code null} if it cannot be computed cheaply. The result must
+     * be exactly the same as the one computed by summing the elements one by one.
+     */
+    public Object sum(@SuppressWarnings("unused") Object data, @SuppressWarnings("unused") boolean naRm) {
+        return null;
+    }
+
+    /**
+     * The result of {@code min} or {@code null} if it cannot be computed cheaply.
+     */
+    public Object min(@SuppressWarnings("unused") Object data, @SuppressWarnings("unused") boolean naRm) {
+        return null;
+    }
+
+    /**
+     * The result of {@code max} or {@code null} if it cannot be computed cheaply.
+     */
+    public Object max(@SuppressWarnings("unused") Object data, @SuppressWarnings("unused") boolean naRm) {
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
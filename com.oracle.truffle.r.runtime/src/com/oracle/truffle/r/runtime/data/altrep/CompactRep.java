@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.data.altrep;
+
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.data.RAltIntVector;
+import com.oracle.truffle.r.runtime.data.RAltRealVector;
+import com.oracle.truffle.r.runtime.data.RAltRepVector;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+
+/**
+ * Compact representation of {@code rep(x, times, length.out, each)} for a short {@code x}: only the
+ * values of {@code x} are stored and element {@code i} is {@code x[(i / each) %% length(x)]}.
+ * The number of occurrences of each value is known, so {@code sum}, {@code min} and {@code max}
+ * are computed from the values only.
+ */
+public final class CompactRep {
+
+    /**
+     * Shorter results are not worth the indirection.
+     */
+    public static final int MIN_LENGTH = 4096;
+
+    private static final class Data {
+        private final Object values;
+        private final int n;
+        private final int each;
+        private final int length;
+
+        Data(Object values, int n, int each, int length) {
+            assert n > 0 && each > 0;
+            this.values = values;
+            this.n = n;
+            this.each = each;
+            this.length = length;
+        }
+
+        int[] ints() {
+            return (int[]) values;
+        }
+
+        double[] doubles() {
+            return (double[]) values;
+        }
+
+        /**
+         * Number of occurrences of the {@code j}-th value in the result.
+         */
+        long count(int j) {
+            long block = (long) n * each;
+            long full = length / block;
+            long rest = length % block - (long) j * each;
+            return full * each + Math.max(0, Math.min(each, rest));
+        }
+
+        /**
+         * Number of leading values that occur in the result at least once.
+         */
+        int used() {
+            return (int) Math.min(n, ((long) length + each - 1) / each);
+        }
+
+        boolean wraps() {
+            return length > (long) n * each;
+        }
+    }
+
+    private CompactRep() {
+        // private
+    }
+
+    /**
+     * Returns {@code true} if replicating {@code sourceLength} values into a vector of
+     * {@code resultLength} elements should use the compact representation.
+     */
+    public static boolean isApplicable(int sourceLength, long resultLength) {
+        return sourceLength > 0 && resultLength >= MIN_LENGTH && resultLength <= Integer.MAX_VALUE && sourceLength <= resultLength / 4;
+    }
+
+    public static RAltIntVector createInt(int[] values, int each, int length) {
+        return RDataFactory.createAltIntVector(INTEGER, new Data(values, values.length, each, length));
+    }
+
+    public static RAltRealVector createReal(double[] values, int each, int length) {
+        return RDataFactory.createAltRealVector(REAL, new Data(values, values.length, each, length));
+    }
+
+    /**
+     * Returns the repeated values ({@code int[]} or {@code double[]}) if {@code vector} is a
+     * compact vector, or {@code null}. The result must not be modified.
+     */
+    public static Object getValues(RAltRepVector vector) {
+        AltRepClass altClass = vector.getAltClass();
+        return altClass == INTEGER || altClass == REAL ? ((Data) vector.getAltData()).values : null;
+    }
+
+    /**
+     * Creates a compact vector that repeats {@code values} in the same way as the compact vector
+     * {@code vector} repeats its values, e.g., to apply an element-wise operation to the values
+     * only.
+     */
+    public static RAbstractVector withValues(RAltRepVector vector, Object values) {
+        Data d = (Data) vector.getAltData();
+        if (values instanceof int[]) {
+            assert ((int[]) values).length == d.n;
+            return RDataFactory.createAltIntVector(INTEGER, new Data(values, d.n, d.each, d.length));
+        } else {
+            assert ((double[]) values).length == d.n;
+            return RDataFactory.createAltRealVector(REAL, new Data(values, d.n, d.each, d.length));
+        }
+    }
+
+    public static final AltIntegerClass INTEGER = new AltIntegerClass("compact_rep_int") {
+
+        @Override
+        public int length(Object data) {
+            return ((Data) data).length;
+        }
+
+        @Override
+        public int elt(Object data, int index) {
+            Data d = (Data) data;
+            return d.ints()[(index / d.each) % d.n];
+        }
+
+        @Override
+        public int getRegion(Object data, int from, int size, int[] buffer) {
+            Data d = (Data) data;
+            int[] values = d.ints();
+            int j = (from / d.each) % d.n;
+            int k = from % d.each;
+            for (int i = 0; i < size; i++) {
+                buffer[i] = values[j];
+                if (++k == d.each) {
+                    k = 0;
+                    if (++j == d.n) {
+                        j = 0;
+                    }
+                }
+            }
+            return size;
+        }
+
+        @Override
+        public boolean noNA(Object data) {
+            Data d = (Data) data;
+            int[] values = d.ints();
+            for (int j = 0; j < d.used(); j++) {
+                if (RRuntime.isNA(values[j])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int isSorted(Object data) {
+            Data d = (Data) data;
+            int[] values = d.ints();
+            int used = d.used();
+            if (!noNA(data) || (used > 1 && d.wraps())) {
+                return UNKNOWN_SORTEDNESS;
+            }
+            boolean incr = true;
+            boolean decr = true;
+            for (int j = 1; j < used; j++) {
+                incr &= values[j - 1] <= values[j];
+                decr &= values[j - 1] >= values[j];
+            }
+            return incr ? SORTED_INCR : decr ? SORTED_DECR : KNOWN_UNSORTED;
+        }
+
+        @Override
+        public Object sum(Object data, boolean naRm) {
+            Data d = (Data) data;
+            int[] values = d.ints();
+            long sum = 0;
+            boolean positive = false;
+            boolean negative = false;
+            try {
+                for (int j = 0; j < d.used(); j++) {
+                    if (RRuntime.isNA(values[j])) {
+                        if (naRm) {
+                            continue;
+                        }
+                        return RRuntime.INT_NA;
+                    }
+                    positive |= values[j] > 0;
+                    negative |= values[j] < 0;
+                    sum = Math.addExact(sum, Math.multiplyExact(values[j], d.count(j)));
+                }
+            } catch (ArithmeticException e) {
+                return null;
+            }
+            /*
+             * The generic code adds the elements in order and reports an overflow as soon as a
+             * partial sum leaves the integer range, which includes hitting NA. If all values have
+             * the same sign, the partial sums are bounded by the total. Otherwise, and in case of an
+             * overflow, the generic code computes the result and the warning.
+             */
+            if ((positive && negative) || sum <= Integer.MIN_VALUE || sum > Integer.MAX_VALUE) {
+                return null;
+            }
+            return (int) sum;
+        }
+
+        @Override
+        public Object min(Object data, boolean naRm) {
+            return minMax(data, naRm, true);
+        }
+
+        @Override
+        public Object max(Object data, boolean naRm) {
+            return minMax(data, naRm, false);
+        }
+
+        private Object minMax(Object data, boolean naRm, boolean min) {
+            Data d = (Data) data;
+            int[] values = d.ints();
+            boolean empty = true;
+            int result = 0;
+            for (int j = 0; j < d.used(); j++) {
+                int v = values[j];
+                if (RRuntime.isNA(v)) {
+                    if (naRm) {
+                        continue;
+                    }
+                    return RRuntime.INT_NA;
+                }
+                result = empty ? v : min ? Math.min(result, v) : Math.max(result, v);
+                empty = false;
+            }
+            // empty result produces a warning, which is left to the generic code
+            return empty ? null : (Object) result;
+        }
+    };
+
+    public static final AltRealClass REAL = new AltRealClass("compact_rep_real") {
+
+        @Override
+        public int length(Object data) {
+            return ((Data) data).length;
+        }
+
+        @Override
+        public double elt(Object data, int index) {
+            Data d = (Data) data;
+            return d.doubles()[(index / d.each) % d.n];
+        }
+
+        @Override
+        public int getRegion(Object data, int from, int size, double[] buffer) {
+            Data d = (Data) data;
+            double[] values = d.doubles();
+            int j = (from / d.each) % d.n;
+            int k = from % d.each;
+            for (int i = 0; i < size; i++) {
+                buffer[i] = values[j];
+                if (++k == d.each) {
+                    k = 0;
+                    if (++j == d.n) {
+                        j = 0;
+                    }
+                }
+            }
+            return size;
+        }
+
+        @Override
+        public boolean noNA(Object data) {
+            Data d = (Data) data;
+            double[] values = d.doubles();
+            for (int j = 0; j < d.used(); j++) {
+                if (Double.isNaN(values[j])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int isSorted(Object data) {
+            Data d = (Data) data;
+            double[] values = d.doubles();
+            int used = d.used();
+            if (!noNA(data) || (used > 1 && d.wraps())) {
+                return UNKNOWN_SORTEDNESS;
+            }
+            boolean incr = true;
+            boolean decr = true;
+            for (int j = 1; j < used; j++) {
+                incr &= values[j - 1] <= values[j];
+                decr &= values[j - 1] >= values[j];
+            }
+            return incr ? SORTED_INCR : decr ? SORTED_DECR : KNOWN_UNSORTED;
+        }
+
+        // sum is not provided: adding the values one by one rounds differently than multiplying
+
+        @Override
+        public Object min(Object data, boolean naRm) {
+            return minMax(data, true);
+        }
+
+        @Override
+        public Object max(Object data, boolean naRm) {
+            return minMax(data, false);
+        }
+
+        private Object minMax(Object data, boolean min) {
+            // NA and NaN values are left to the generic code, which knows how to order them
+            if (!noNA(data)) {
+                return null;
+            }
+            Data d = (Data) data;
+            double[] values = d.doubles();
+            double result = values[0];
+            for (int j = 1; j < d.used(); j++) {
+                result = min ? Math.min(result, values[j]) : Math.max(result, values[j]);
+            }
+            return d.length == 0 ? null : (Object) result;
+        }
+    };
+}
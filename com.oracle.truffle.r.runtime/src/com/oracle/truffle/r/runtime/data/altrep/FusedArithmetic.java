@@ -0,0 +1,495 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.data.altrep;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+
+import com.oracle.truffle.api.Assumption;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.r.runtime.RInternalError;
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.context.FastROptions;
+import com.oracle.truffle.r.runtime.context.RContext;
+import com.oracle.truffle.r.runtime.data.RAltRealVector;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RDouble;
+import com.oracle.truffle.r.runtime.data.RDoubleSequence;
+import com.oracle.truffle.r.runtime.data.RDoubleVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractDoubleVector;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+
+/**
+ * Deferred double arithmetic. Instead of allocating a result vector for each operator of an
+ * expression like {@code (x - m) / s * w + b}, the arithmetic nodes may create a vector that only
+ * records the operation. Further arithmetic on such a vector extends the expression tree, and the
+ * whole tree is evaluated in one pass over the operands (in chunks small enough to stay in cache)
+ * once the elements are needed by any other code.
+ *
+ * Only attribute-free double operands with equal lengths or of length one are fused, so the result
+ * never needs attributes and the recycling rules are trivial. The reference count of an operand that
+ * is referenced from elsewhere is incremented while the expression is pending, so that code updating
+ * the operand copies it first. Temporary vectors are referenced only by the expression and the
+ * remaining operand types are immutable.
+ *
+ * A temporary pending operand is merged into the expression, other pending operands are only
+ * referenced. When the expression is evaluated, a pending operand that is referenced more than once
+ * (e.g., {@code x} in {@code x * x}) is evaluated on its own first, so shared subexpressions are
+ * evaluated only once.
+ *
+ * Whether arithmetic is deferred is decided per context by {@link FastROptions#LazyArithmetic}.
+ */
+public final class FusedArithmetic {
+
+    public enum Op {
+        ADD,
+        SUBTRACT,
+        MULTIPLY,
+        DIV,
+        NEGATE
+    }
+
+    /**
+     * Maximal depth of the expression tree, a deeper operand is evaluated on its own first.
+     */
+    private static final int MAX_DEPTH = 16;
+    private static final int CHUNK_SIZE = 1024;
+
+    private abstract static class Expr {
+        final int depth;
+
+        Expr(int depth) {
+            this.depth = depth;
+        }
+
+        /**
+         * Counts the references to the pending operands in this expression.
+         */
+        void countRefs(@SuppressWarnings("unused") IdentityHashMap<Pending, Integer> refs) {
+            // no pending operands by default
+        }
+
+        /**
+         * Returns the expression that is evaluated, with the pending operands resolved.
+         */
+        abstract Expr prepare(IdentityHashMap<Pending, Integer> refs);
+
+        abstract void evaluate(int from, int size, double[] result, double[][] scratch);
+    }
+
+    private static final class Leaf extends Expr {
+        private final RAbstractDoubleVector vector;
+        private double[] array;
+
+        Leaf(RAbstractDoubleVector vector) {
+            super(0);
+            this.vector = vector;
+        }
+
+        Leaf(double[] array) {
+            super(0);
+            this.vector = null;
+            this.array = array;
+        }
+
+        @Override
+        Expr prepare(IdentityHashMap<Pending, Integer> refs) {
+            if (vector.getLength() == 1) {
+                return new Constant(vector.getDataAt(0));
+            }
+            Leaf leaf = new Leaf(vector);
+            if (vector instanceof RDoubleVector) {
+                leaf.array = ((RDoubleVector) vector).getReadonlyData();
+            }
+            return leaf;
+        }
+
+        @Override
+        void evaluate(int from, int size, double[] result, double[][] scratch) {
+            if (array != null) {
+                System.arraycopy(array, from, result, 0, size);
+            } else {
+                for (int i = 0; i < size; i++) {
+                    result[i] = vector.getDataAt(from + i);
+                }
+            }
+        }
+    }
+
+    private static final class Constant extends Expr {
+        private final double value;
+
+        Constant(double value) {
+            super(0);
+            this.value = value;
+        }
+
+        @Override
+        Expr prepare(IdentityHashMap<Pending, Integer> refs) {
+            return this;
+        }
+
+        @Override
+        void evaluate(int from, int size, double[] result, double[][] scratch) {
+            Arrays.fill(result, 0, size, value);
+        }
+    }
+
+    private static final class Unary extends Expr {
+        private final Op op;
+        private final Expr operand;
+
+        Unary(Op op, Expr operand) {
+            super(operand.depth + 1);
+            this.op = op;
+            this.operand = operand;
+        }
+
+        @Override
+        void countRefs(IdentityHashMap<Pending, Integer> refs) {
+            operand.countRefs(refs);
+        }
+
+        @Override
+        Expr prepare(IdentityHashMap<Pending, Integer> refs) {
+            return new Unary(op, operand.prepare(refs));
+        }
+
+        @Override
+        void evaluate(int from, int size, double[] result, double[][] scratch) {
+            assert op == Op.NEGATE;
+            operand.evaluate(from, size, result, scratch);
+            for (int i = 0; i < size; i++) {
+                double value = result[i];
+                result[i] = RRuntime.isNA(value) ? value : -value;
+            }
+        }
+    }
+
+    private static final class Binary extends Expr {
+        private final Op op;
+        private final Expr left;
+        private final Expr right;
+
+        Binary(Op op, Expr left, Expr right) {
+            super(Math.max(left.depth, right.depth) + 1);
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        void countRefs(IdentityHashMap<Pending, Integer> refs) {
+            left.countRefs(refs);
+            right.countRefs(refs);
+        }
+
+        @Override
+        Expr prepare(IdentityHashMap<Pending, Integer> refs) {
+            return new Binary(op, left.prepare(refs), right.prepare(refs));
+        }
+
+        @Override
+        void evaluate(int from, int size, double[] result, double[][] scratch) {
+            left.evaluate(from, size, result, scratch);
+            double[] rightValues = scratch[depth - 1];
+            right.evaluate(from, size, rightValues, scratch);
+            for (int i = 0; i < size; i++) {
+                result[i] = apply(op, result[i], rightValues[i]);
+            }
+        }
+    }
+
+    /**
+     * Operand that is a pending expression. It is replaced with the expression when the tree is
+     * prepared, or with the values if they are already known or the operand is referenced more than
+     * once.
+     */
+    private static final class Ref extends Expr {
+        private final Pending pending;
+
+        Ref(Pending pending, int depth) {
+            super(depth);
+            this.pending = pending;
+        }
+
+        @Override
+        void countRefs(IdentityHashMap<Pending, Integer> refs) {
+            Integer count = refs.get(pending);
+            refs.put(pending, count == null ? 1 : count + 1);
+            if (count == null) {
+                Expr expr = pending.getPendingExpr();
+                if (expr != null) {
+                    expr.countRefs(refs);
+                }
+            }
+        }
+
+        @Override
+        Expr prepare(IdentityHashMap<Pending, Integer> refs) {
+            Expr expr = refs.get(pending) > 1 ? null : pending.getPendingExpr();
+            return expr == null ? new Leaf(pending.getValues()) : expr.prepare(refs);
+        }
+
+        @Override
+        void evaluate(int from, int size, double[] result, double[][] scratch) {
+            throw RInternalError.shouldNotReachHere("reference to a pending expression must be prepared");
+        }
+    }
+
+    /**
+     * Same semantics as the eager arithmetic (see {@code BinaryMapArithmeticFunctionNode}).
+     */
+    private static double apply(Op op, double left, double right) {
+        if (RRuntime.isNA(left)) {
+            return RRuntime.DOUBLE_NA;
+        } else if (RRuntime.isNA(right)) {
+            // NaN op NA == NaN
+            return Double.isNaN(left) ? left : RRuntime.DOUBLE_NA;
+        }
+        switch (op) {
+            case ADD:
+                return left + right;
+            case SUBTRACT:
+                return left - right;
+            case MULTIPLY:
+                return left * right;
+            case DIV:
+                return left / right;
+            default:
+                throw RInternalError.shouldNotReachHere();
+        }
+    }
+
+    private static final class Pending {
+        private final int length;
+        private Expr expr;
+        /**
+         * Operands whose reference count was incremented for this expression.
+         */
+        private RDoubleVector[] retained;
+        private volatile double[] values;
+
+        Pending(Expr expr, int length, RDoubleVector[] retained) {
+            this.expr = expr;
+            this.length = length;
+            this.retained = retained;
+        }
+
+        /**
+         * Returns the expression if it was not evaluated yet.
+         */
+        synchronized Expr getPendingExpr() {
+            return expr;
+        }
+
+        /**
+         * Returns the expression if it was not evaluated yet and hands over the retained operands
+         * to the expression that it is merged into.
+         */
+        synchronized Expr takePendingExpr(ArrayList<RDoubleVector> into) {
+            if (expr != null) {
+                Collections.addAll(into, retained);
+                retained = new RDoubleVector[0];
+            }
+            return expr;
+        }
+
+        double[] getValues() {
+            double[] result = values;
+            if (result == null) {
+                result = evaluate();
+            }
+            return result;
+        }
+
+        private synchronized double[] evaluate() {
+            if (values == null) {
+                double[] result = new double[length];
+                evaluateRegion(expr, 0, length, result);
+                values = result;
+                // the operands are not needed anymore
+                expr = null;
+                for (RDoubleVector operand : retained) {
+                    if (!operand.isTemporary() && !operand.isSharedPermanent()) {
+                        operand.decRefCount();
+                    }
+                }
+                retained = null;
+            }
+            return values;
+        }
+    }
+
+    private static void evaluateRegion(Expr expr, int from, int size, double[] buffer) {
+        IdentityHashMap<Pending, Integer> refs = new IdentityHashMap<>();
+        expr.countRefs(refs);
+        Expr prepared = expr.prepare(refs);
+        double[][] scratch = new double[prepared.depth][CHUNK_SIZE];
+        double[] chunk = new double[CHUNK_SIZE];
+        for (int done = 0; done < size; done += CHUNK_SIZE) {
+            int chunkSize = Math.min(CHUNK_SIZE, size - done);
+            prepared.evaluate(from + done, chunkSize, chunk, scratch);
+            System.arraycopy(chunk, 0, buffer, done, chunkSize);
+        }
+    }
+
+    private FusedArithmetic() {
+        // private
+    }
+
+    private static final Assumption noLazyArithmetic = Truffle.getRuntime().createAssumption("no lazy arithmetic");
+
+    /**
+     * Invoked when {@link FastROptions#LazyArithmetic} is enabled in any context.
+     */
+    public static void enableLazyArithmetic() {
+        noLazyArithmetic.invalidate();
+    }
+
+    /**
+     * Returns the minimal length of the operands for which arithmetic is deferred in the current
+     * context, or {@code -1} if it is not deferred at all.
+     */
+    public static int getMinLength() {
+        if (noLazyArithmetic.isValid()) {
+            return -1;
+        }
+        return getContextMinLength();
+    }
+
+    @TruffleBoundary
+    private static int getContextMinLength() {
+        RContext context = RContext.getInstance();
+        if (!context.getOption(FastROptions.LazyArithmetic)) {
+            return -1;
+        }
+        return context.getNonNegativeIntOption(FastROptions.LazyArithmeticMinLength);
+    }
+
+    /**
+     * Determines if the operation on these operands can be deferred.
+     */
+    public static boolean isFusable(RAbstractVector left, RAbstractVector right, int minLength) {
+        if (!isFusableOperand(left) || !isFusableOperand(right)) {
+            return false;
+        }
+        int leftLength = left.getLength();
+        int rightLength = right.getLength();
+        if (leftLength != rightLength && leftLength != 1 && rightLength != 1) {
+            return false;
+        }
+        return Math.max(leftLength, rightLength) >= Math.max(minLength, 2);
+    }
+
+    public static boolean isFusable(RAbstractVector operand, int minLength) {
+        return isFusableOperand(operand) && operand.getLength() >= Math.max(minLength, 2);
+    }
+
+    private static boolean isFusableOperand(RAbstractVector operand) {
+        // other double vectors (e.g., foreign arrays) might change before the expression is evaluated
+        return (operand instanceof RDoubleVector || operand instanceof RDouble || operand instanceof RDoubleSequence || operand instanceof RAltRealVector) && operand.getAttributes() == null;
+    }
+
+    @TruffleBoundary
+    public static RAltRealVector create(Op op, RAbstractDoubleVector left, RAbstractDoubleVector right) {
+        assert op != Op.NEGATE;
+        ArrayList<RDoubleVector> retained = new ArrayList<>(2);
+        // an operand used on both sides cannot be merged into the expression twice
+        boolean distinct = left != right;
+        Expr expr = new Binary(op, toExpr(left, distinct, retained), toExpr(right, distinct, retained));
+        return RDataFactory.createAltRealVector(FUSED, new Pending(expr, Math.max(left.getLength(), right.getLength()), retained.toArray(new RDoubleVector[retained.size()])));
+    }
+
+    @TruffleBoundary
+    public static RAltRealVector create(Op op, RAbstractDoubleVector operand) {
+        assert op == Op.NEGATE;
+        ArrayList<RDoubleVector> retained = new ArrayList<>(1);
+        Expr expr = new Unary(op, toExpr(operand, true, retained));
+        return RDataFactory.createAltRealVector(FUSED, new Pending(expr, operand.getLength(), retained.toArray(new RDoubleVector[retained.size()])));
+    }
+
+    private static Expr toExpr(RAbstractDoubleVector vector, boolean distinct, ArrayList<RDoubleVector> retained) {
+        if (vector instanceof RAltRealVector && ((RAltRealVector) vector).getAltClass() == FUSED) {
+            Pending pending = (Pending) ((RAltRealVector) vector).getAltData();
+            Expr expr = pending.getPendingExpr();
+            if (expr != null && expr.depth < MAX_DEPTH) {
+                if (vector.isTemporary() && distinct) {
+                    // nobody else can evaluate the operand
+                    expr = pending.takePendingExpr(retained);
+                    if (expr != null) {
+                        return expr;
+                    }
+                } else {
+                    return new Ref(pending, expr.depth);
+                }
+            }
+        }
+        if (vector instanceof RDoubleVector && !vector.isTemporary() && !vector.isSharedPermanent()) {
+            // the vector could be updated in place before the expression is evaluated, the updating
+            // code copies it instead if it is shared
+            RDoubleVector operand = (RDoubleVector) vector;
+            operand.incRefCount();
+            retained.add(operand);
+        }
+        return new Leaf(vector);
+    }
+
+    public static final AltRealClass FUSED = new AltRealClass("fused_arith") {
+
+        @Override
+        public int length(Object data) {
+            return ((Pending) data).length;
+        }
+
+        @Override
+        public double elt(Object data, int index) {
+            // element-wise access by code that is not aware of the expression
+            return ((Pending) data).getValues()[index];
+        }
+
+        @Override
+        public int getRegion(Object data, int from, int size, double[] buffer) {
+            Pending pending = (Pending) data;
+            double[] values = pending.values;
+            if (values == null && from == 0 && size == pending.length) {
+                // the whole vector is copied, keep the result
+                values = pending.getValues();
+            }
+            if (values != null) {
+                System.arraycopy(values, from, buffer, 0, size);
+            } else {
+                Expr expr = pending.getPendingExpr();
+                if (expr == null) {
+                    System.arraycopy(pending.getValues(), from, buffer, 0, size);
+                } else {
+                    evaluateRegion(expr, from, size, buffer);
+                }
+            }
+            return size;
+        }
+    };
+}
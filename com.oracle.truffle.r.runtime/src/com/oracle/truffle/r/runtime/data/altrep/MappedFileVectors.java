@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.data.altrep;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
+
+/**
+ * Read-only vectors backed by a memory mapped file of raw integer or double values, e.g., a file
+ * written by {@code writeBin}. The data are paged in by the operating system on demand, so a
+ * column of several gigabytes can be used without reading it into the Java heap.
+ */
+public final class MappedFileVectors {
+
+    // a single mapping is limited to 2GB
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private static final class Mapping {
+        private final ByteBuffer[] segments;
+        private final ByteOrder order;
+        private final int length;
+
+        Mapping(ByteBuffer[] segments, ByteOrder order, int length) {
+            this.segments = segments;
+            this.order = order;
+            this.length = length;
+        }
+
+        /**
+         * Returns a view of the segment containing byte offset {@code offset}, positioned at it.
+         */
+        ByteBuffer view(long offset) {
+            ByteBuffer view = segments[(int) (offset >>> SEGMENT_SHIFT)].duplicate();
+            view.position((int) (offset & SEGMENT_MASK));
+            return view.order(order);
+        }
+    }
+
+    private MappedFileVectors() {
+        // private
+    }
+
+    /**
+     * Maps the whole file as a vector of doubles ({@code isDouble}) or integers. Trailing bytes
+     * that do not form a whole element are ignored.
+     */
+    @TruffleBoundary
+    public static RAbstractVector map(String path, boolean isDouble, ByteOrder order) throws IOException {
+        int width = isDouble ? Double.BYTES : Integer.BYTES;
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            long count = channel.size() / width;
+            if (count > Integer.MAX_VALUE) {
+                throw new IOException("file is too large to be mapped as a vector");
+            }
+            long size = count * width;
+            ByteBuffer[] segments = new ByteBuffer[(int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < segments.length; i++) {
+                long position = i * SEGMENT_SIZE;
+                segments[i] = channel.map(MapMode.READ_ONLY, position, Math.min(SEGMENT_SIZE, size - position)).order(order);
+            }
+            Mapping mapping = new Mapping(segments, order, (int) count);
+            return isDouble ? RDataFactory.createAltRealVector(REAL, mapping) : RDataFactory.createAltIntVector(INTEGER, mapping);
+        }
+    }
+
+    public static final AltIntegerClass INTEGER = new AltIntegerClass("mmap_int") {
+
+        @Override
+        public int length(Object data) {
+            return ((Mapping) data).length;
+        }
+
+        @Override
+        public int elt(Object data, int index) {
+            long offset = (long) index * Integer.BYTES;
+            return ((Mapping) data).segments[(int) (offset >>> SEGMENT_SHIFT)].getInt((int) (offset & SEGMENT_MASK));
+        }
+
+        @Override
+        public int getRegion(Object data, int from, int size, int[] buffer) {
+            Mapping mapping = (Mapping) data;
+            int done = 0;
+            while (done < size) {
+                IntBuffer view = mapping.view((long) (from + done) * Integer.BYTES).asIntBuffer();
+                int chunk = Math.min(size - done, view.remaining());
+                view.get(buffer, done, chunk);
+                done += chunk;
+            }
+            return size;
+        }
+    };
+
+    public static final AltRealClass REAL = new AltRealClass("mmap_real") {
+
+        @Override
+        public int length(Object data) {
+            return ((Mapping) data).length;
+        }
+
+        @Override
+        public double elt(Object data, int index) {
+            long offset = (long) index * Double.BYTES;
+            return ((Mapping) data).segments[(int) (offset >>> SEGMENT_SHIFT)].getDouble((int) (offset & SEGMENT_MASK));
+        }
+
+        @Override
+        public int getRegion(Object data, int from, int size, double[] buffer) {
+            Mapping mapping = (Mapping) data;
+            int done = 0;
+            while (done < size) {
+                DoubleBuffer view = mapping.view((long) (from + done) * Double.BYTES).asDoubleBuffer();
+                int chunk = Math.min(size - done, view.remaining());
+                view.get(buffer, done, chunk);
+                done += chunk;
+            }
+            return size;
+        }
+    };
+}
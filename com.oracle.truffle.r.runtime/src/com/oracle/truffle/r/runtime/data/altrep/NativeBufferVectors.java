@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.data.altrep;
+
+import com.oracle.truffle.r.runtime.data.NativeDataAccess;
+import com.oracle.truffle.r.runtime.data.RAltIntVector;
+import com.oracle.truffle.r.runtime.data.RAltRealVector;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+
+/**
+ * Read-only vectors that wrap a buffer of native memory not owned by FastR, e.g., a column
+ * allocated by a native library. The memory is read directly and never copied unless the vector is
+ * materialized. The {@code owner} object is kept reachable as long as the vector and is expected to
+ * keep the memory alive (e.g., an external pointer with a finalizer).
+ */
+public final class NativeBufferVectors {
+
+    private static final class Buffer {
+        private final long address;
+        private final int length;
+        @SuppressWarnings("unused") private final Object owner;
+
+        Buffer(long address, int length, Object owner) {
+            assert address != 0 && length >= 0;
+            this.address = address;
+            this.length = length;
+            this.owner = owner;
+        }
+    }
+
+    private NativeBufferVectors() {
+        // private
+    }
+
+    public static RAltIntVector wrapInt(long address, int length, Object owner) {
+        return RDataFactory.createAltIntVector(INTEGER, new Buffer(address, length, owner));
+    }
+
+    public static RAltRealVector wrapReal(long address, int length, Object owner) {
+        return RDataFactory.createAltRealVector(REAL, new Buffer(address, length, owner));
+    }
+
+    public static final AltIntegerClass INTEGER = new AltIntegerClass("native_buffer_int") {
+
+        @Override
+        public int length(Object data) {
+            return ((Buffer) data).length;
+        }
+
+        @Override
+        public int elt(Object data, int index) {
+            return NativeDataAccess.getIntAt(((Buffer) data).address, index);
+        }
+    };
+
+    public static final AltRealClass REAL = new AltRealClass("native_buffer_real") {
+
+        @Override
+        public int length(Object data) {
+            return ((Buffer) data).length;
+        }
+
+        @Override
+        public double elt(Object data, int index) {
+            return NativeDataAccess.getDoubleAt(((Buffer) data).address, index);
+        }
+    };
+}
@@ -38,6 +38,7 @@ import com.oracle.truffle.r.runtime.RInternalError;
 import com.oracle.truffle.r.runtime.RRuntime;
 import com.oracle.truffle.r.runtime.RType;
 import com.oracle.truffle.r.runtime.SuppressFBWarnings;
+import com.oracle.truffle.r.runtime.VectorHashIndex;
 import com.oracle.truffle.r.runtime.context.RContext;
 import com.oracle.truffle.r.runtime.data.MemoryCopyTracer;
 import com.oracle.truffle.r.runtime.data.RAttributable;
@@ -70,6 +71,12 @@ public abstract class RAbstractVector extends RAbstractContainer implements RFFI
 
     protected boolean complete; // "complete" means: does not contain NAs
 
+    /**
+     * Hash index of the data maintained by {@link VectorHashIndex}, dropped when the vector stops
+     * being shared or its data is replaced.
+     */
+    private Object hashIndex;
+
     protected RAbstractVector(boolean complete) {
         this.complete = complete;
     }
@@ -129,6 +136,20 @@ public abstract class RAbstractVector extends RAbstractContainer implements RFFI
      */
     public abstract Object getInternalManagedData();
 
+    public final Object getHashIndex() {
+        return hashIndex;
+    }
+
+    public final void setHashIndex(Object hashIndex) {
+        this.hashIndex = hashIndex;
+    }
+
+    @Override
+    protected void sharingEnded() {
+        // in-place updates do not go through a single place that could drop the index
+        hashIndex = null;
+    }
+
     public final boolean hasNativeMemoryData() {
         return getInternalManagedData() == null;
     }
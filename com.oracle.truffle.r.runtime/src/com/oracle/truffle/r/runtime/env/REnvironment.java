@@ -71,6 +71,7 @@ import com.oracle.truffle.r.runtime.env.frame.FrameSlotChangeMonitor;
 import com.oracle.truffle.r.runtime.env.frame.NSBaseMaterializedFrame;
 import com.oracle.truffle.r.runtime.env.frame.REnvEmptyFrameAccess;
 import com.oracle.truffle.r.runtime.env.frame.REnvFrameAccess;
+import com.oracle.truffle.r.runtime.env.frame.REnvHashFrameAccess;
 import com.oracle.truffle.r.runtime.env.frame.REnvTruffleFrameAccess;
 import com.oracle.truffle.r.runtime.interop.Foreign2R;
 import com.oracle.truffle.r.runtime.interop.R2Foreign;
@@ -887,14 +888,22 @@ public abstract class REnvironment extends RAttributable {
      * An environment associated with an already materialized frame.
      */
     private REnvironment(String name, MaterializedFrame frame) {
-        this(name, new REnvTruffleFrameAccess(frame));
+        this(name, frame, new REnvTruffleFrameAccess(frame));
+    }
+
+    /**
+     * An environment associated with an already materialized frame whose bindings are accessed
+     * through {@code frameAccess}.
+     */
+    private REnvironment(String name, MaterializedFrame frame, REnvFrameAccess frameAccess) {
+        this(name, frameAccess);
 
         // Associate frame with the environment
         RArguments.setEnvironment(frame, this);
     }
 
     public REnvironment getParent() {
-        MaterializedFrame enclosingFrame = RArguments.getEnclosingFrame(getFrame());
+        MaterializedFrame enclosingFrame = RArguments.getEnclosingFrame(frameAccess.getArgumentsFrame());
         return enclosingFrame == null ? emptyEnv : frameToEnvironment(enclosingFrame);
     }
 
@@ -902,9 +911,18 @@ public abstract class REnvironment extends RAttributable {
      * Explicitly set the parent of an environment. TODO Change the enclosingFrame of (any)
      * associated Truffle frame
      */
+    /**
+     * Sets the parent of a newly created environment. Unlike
+     * {@code RArguments.initializeEnclosingFrame(getFrame(), ...)}, this keeps the bindings of a
+     * hashed {@link NewEnv} in its hash table.
+     */
+    public void initializeParent(REnvironment env) {
+        RArguments.initializeEnclosingFrame(frameAccess.getArgumentsFrame(), env.getFrame());
+    }
+
     public void setParent(REnvironment env) {
         if (getParent() != env) {
-            RArguments.setEnclosingFrame(getFrame(), env.getFrame(), true);
+            RArguments.setEnclosingFrame(frameAccess.getArgumentsFrame(), env.getFrame(), true);
         }
     }
 
@@ -964,6 +982,14 @@ public abstract class REnvironment extends RAttributable {
         return frameAccessProfile.profile(frameAccess).getFrame();
     }
 
+    /**
+     * Tells if nodes may cache the frame slots of this environment, see
+     * {@link REnvFrameAccess#hasStableFrame()}.
+     */
+    public boolean hasStableFrame() {
+        return frameAccess.hasStableFrame();
+    }
+
     public void lock(boolean bindings) {
         locked = true;
         if (bindings) {
@@ -1220,9 +1246,10 @@ public abstract class REnvironment extends RAttributable {
     /**
      * An environment explicitly created with, typically, {@code new.env}, but also used internally.
      * Such environments are always {@link #UNNAMED} but can later be given a name as an attribute.
-     * This is the class used by the {@code new.env} function. We record but do not interpret the
-     * {@code hash} input, as we always use a hashmap, for possible use by the serialization code
-     * (GnuR generates different output format for hash environments).
+     * This is the class used by the {@code new.env} function. We record the {@code hash} input for
+     * possible use by the serialization code (GnuR generates different output format for hash
+     * environments). Hashed environments can keep their bindings in a hash table, see
+     * {@link REnvHashFrameAccess}.
      *
      */
     public static final class NewEnv extends REnvironment {
@@ -1236,6 +1263,20 @@ public abstract class REnvironment extends RAttributable {
             }
         }
 
+        /**
+         * A hashed environment that keeps its bindings in a hash table once there are
+         * {@code hashThreshold} of them, or right away if {@code initialSize} is at least
+         * {@code hashThreshold}.
+         */
+        public NewEnv(MaterializedFrame frame, String name, int initialSize, int hashThreshold) {
+            super(UNNAMED, frame, new REnvHashFrameAccess(new REnvTruffleFrameAccess(frame), hashThreshold, initialSize));
+            if (name != null) {
+                setAttr(NAME_ATTR_KEY, name);
+            }
+            this.hashed = true;
+            this.initialSize = initialSize;
+        }
+
         public boolean isHashed() {
             return hashed;
         }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2014, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2014, 2019, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -79,4 +79,21 @@ public abstract class REnvFrameAccess {
 
     public abstract MaterializedFrame getFrame();
 
+    /**
+     * Returns the frame only to access its arguments, e.g., the enclosing frame. Unlike
+     * {@link #getFrame()}, this does not require the bindings to be stored in the frame.
+     */
+    public MaterializedFrame getArgumentsFrame() {
+        return getFrame();
+    }
+
+    /**
+     * Tells if the bindings are stored in the frame for good, so that nodes may cache its frame
+     * slots. If not, nodes that only read or write a binding should use {@link #get} and
+     * {@link #put}, because {@link #getFrame()} moves the bindings to the frame.
+     */
+    public boolean hasStableFrame() {
+        return true;
+    }
+
 }
@@ -0,0 +1,372 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.env.frame;
+
+import java.util.ArrayList;
+import java.util.regex.Pattern;
+
+import com.oracle.truffle.api.CompilerAsserts;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.frame.FrameDescriptor;
+import com.oracle.truffle.api.frame.MaterializedFrame;
+import com.oracle.truffle.r.runtime.RError;
+import com.oracle.truffle.r.runtime.RInternalError;
+import com.oracle.truffle.r.runtime.data.RStringVector;
+import com.oracle.truffle.r.runtime.env.REnvironment.PutException;
+
+/**
+ * Variant of {@link REnvFrameAccess} for environments used as dictionaries, e.g., created by
+ * {@code new.env(hash = TRUE, size = n)}. Adding a binding to a frame adds a slot to its
+ * {@link FrameDescriptor} and invalidates the assumptions about it, which becomes expensive for
+ * environments with very many bindings. Once the number of bindings reaches a threshold, this
+ * class therefore keeps the bindings in an insertion ordered open addressing hash table instead.
+ *
+ * The frame is still used for its arguments (see {@link #getArgumentsFrame()}). Operations that
+ * only read or write bindings, including serialization, go through this class and keep the table.
+ * Only code that needs the frame itself, e.g., to evaluate code in the environment, to create a
+ * closure in it or to define an active binding, moves the bindings back to the frame. Since such
+ * code may hold on to the frame and read its slots directly, the frame then stays the only storage.
+ * Active bindings therefore only ever live in the frame. Locked bindings are recorded by the
+ * underlying {@link REnvTruffleFrameAccess} in either mode.
+ */
+public final class REnvHashFrameAccess extends REnvFrameAccess {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final REnvTruffleFrameAccess frameAccess;
+    private final MaterializedFrame frame;
+    private final int threshold;
+
+    /**
+     * Set once {@link #getFrame()} was called, from then on the bindings are always in the frame.
+     */
+    private boolean frameExposed;
+
+    /**
+     * The bindings in insertion order, {@code null} if they are in the frame. A {@code null} value
+     * marks a removed binding, which is no longer in {@link #index}.
+     */
+    private String[] keys;
+    private Object[] values;
+    private int size;
+    private int removed;
+    /**
+     * Open addressing table with linear probing that maps the hash of a key to its index in
+     * {@link #keys} plus one, {@code 0} marks a free slot. Its length is a power of two.
+     */
+    private int[] index;
+
+    public REnvHashFrameAccess(REnvTruffleFrameAccess frameAccess, int threshold, int initialSize) {
+        this.frameAccess = frameAccess;
+        this.frame = frameAccess.getFrame();
+        this.threshold = threshold;
+        if (initialSize >= threshold) {
+            moveToTable(initialSize);
+        }
+    }
+
+    @Override
+    public MaterializedFrame getFrame() {
+        if (!frameExposed) {
+            exposeFrame();
+        }
+        return frame;
+    }
+
+    @Override
+    public MaterializedFrame getArgumentsFrame() {
+        return frame;
+    }
+
+    @Override
+    public boolean hasStableFrame() {
+        return frameExposed;
+    }
+
+    @Override
+    public Object get(String key) {
+        CompilerAsserts.neverPartOfCompilation();
+        if (keys == null) {
+            return frameAccess.get(key);
+        }
+        int entry = find(key);
+        return entry < 0 ? null : values[entry];
+    }
+
+    @Override
+    public boolean isActiveBinding(String key) {
+        CompilerAsserts.neverPartOfCompilation();
+        return keys == null && frameAccess.isActiveBinding(key);
+    }
+
+    @Override
+    public void put(String key, Object value) throws PutException {
+        CompilerAsserts.neverPartOfCompilation();
+        assert key != null;
+        assert value != null;
+        if (keys == null) {
+            frameAccess.put(key, value);
+            if (!frameExposed && frame.getFrameDescriptor().getSize() >= threshold && FrameSlotChangeMonitor.getContainsNoActiveBindingAssumption(frame.getFrameDescriptor()).isValid()) {
+                moveToTable(0);
+            }
+            return;
+        }
+        if (frameAccess.bindingIsLocked(key)) {
+            throw new PutException(RError.Message.ENV_CHANGE_BINDING, key);
+        }
+        int entry = find(key);
+        if (entry >= 0) {
+            values[entry] = value;
+        } else {
+            add(key, value);
+        }
+    }
+
+    @Override
+    public void rm(String key) throws PutException {
+        CompilerAsserts.neverPartOfCompilation();
+        assert key != null;
+        if (keys == null) {
+            frameAccess.rm(key);
+            return;
+        }
+        frameAccess.unlockBinding(key);
+        int pos = findPosition(key);
+        if (pos < 0) {
+            throw new PutException(RError.Message.UNKNOWN_OBJECT, key);
+        }
+        // a binding added again later goes to the end like any new binding
+        values[index[pos] - 1] = null;
+        removeFromIndex(pos);
+        removed++;
+        if (size >= MIN_CAPACITY && removed > size / 2) {
+            rehash(Math.max(MIN_CAPACITY, size - removed));
+        }
+    }
+
+    @Override
+    @TruffleBoundary
+    public RStringVector ls(boolean allNames, Pattern pattern, boolean sorted) {
+        if (keys == null) {
+            return frameAccess.ls(allNames, pattern, sorted);
+        }
+        ArrayList<String> names = new ArrayList<>(size - removed);
+        for (int i = 0; i < size; i++) {
+            if (values[i] != null) {
+                names.add(keys[i]);
+            }
+        }
+        return REnvTruffleFrameAccess.createNamesVector(names, allNames, pattern, sorted);
+    }
+
+    @Override
+    @TruffleBoundary
+    public void lockBindings() {
+        if (keys == null) {
+            frameAccess.lockBindings();
+            return;
+        }
+        for (int i = 0; i < size; i++) {
+            if (values[i] != null) {
+                frameAccess.lockBinding(keys[i]);
+            }
+        }
+    }
+
+    @Override
+    public void lockBinding(String key) {
+        frameAccess.lockBinding(key);
+    }
+
+    @Override
+    public void unlockBinding(String key) {
+        frameAccess.unlockBinding(key);
+    }
+
+    @Override
+    public boolean bindingIsLocked(String key) {
+        return frameAccess.bindingIsLocked(key);
+    }
+
+    /**
+     * Moves the bindings from the frame to a new table. The frame slots are kept but cleared, so
+     * that moving the bindings back preserves their order.
+     */
+    @TruffleBoundary
+    private void moveToTable(int initialSize) {
+        assert keys == null && !frameExposed;
+        ArrayList<String> names = new ArrayList<>();
+        ArrayList<Object> frameValues = new ArrayList<>();
+        REnvTruffleFrameAccess.getStringIdentifiersAndValues(frame, names, frameValues);
+        keys = new String[Math.max(MIN_CAPACITY, Math.max(initialSize, names.size() * 2))];
+        values = new Object[keys.length];
+        index = new int[tableLength(keys.length)];
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            add(name, frameValues.get(i));
+            boolean locked = frameAccess.bindingIsLocked(name);
+            try {
+                frameAccess.rm(name);
+            } catch (PutException e) {
+                throw RInternalError.shouldNotReachHere(e);
+            }
+            if (locked) {
+                frameAccess.lockBinding(name);
+            }
+        }
+    }
+
+    /**
+     * Moves the bindings back to the frame, where they stay from now on.
+     */
+    @TruffleBoundary
+    private void exposeFrame() {
+        frameExposed = true;
+        if (keys == null) {
+            return;
+        }
+        String[] oldKeys = keys;
+        Object[] oldValues = values;
+        int oldSize = size;
+        keys = null;
+        values = null;
+        index = null;
+        size = 0;
+        removed = 0;
+        for (int i = 0; i < oldSize; i++) {
+            if (oldValues[i] != null) {
+                String key = oldKeys[i];
+                boolean locked = frameAccess.bindingIsLocked(key);
+                if (locked) {
+                    frameAccess.unlockBinding(key);
+                }
+                try {
+                    frameAccess.put(key, oldValues[i]);
+                } catch (PutException e) {
+                    throw RInternalError.shouldNotReachHere(e);
+                }
+                if (locked) {
+                    frameAccess.lockBinding(key);
+                }
+            }
+        }
+    }
+
+    private static int tableLength(int entries) {
+        // keep the load factor of the index at most 1/2
+        return Integer.highestOneBit(Math.max(MIN_CAPACITY, entries) * 2 - 1) << 1;
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private int find(String key) {
+        int pos = findPosition(key);
+        return pos < 0 ? -1 : index[pos] - 1;
+    }
+
+    /**
+     * Returns the position of the key in {@link #index} or {@code -1} if it is not there.
+     */
+    private int findPosition(String key) {
+        int mask = index.length - 1;
+        int i = hash(key) & mask;
+        while (true) {
+            int entry = index[i] - 1;
+            if (entry < 0) {
+                return -1;
+            }
+            if (keys[entry].equals(key)) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    /**
+     * Frees the given position in {@link #index} and moves the following entries of the probe
+     * sequence back, so that lookups never stop at the freed position too early.
+     */
+    private void removeFromIndex(int pos) {
+        int mask = index.length - 1;
+        int hole = pos;
+        int i = pos;
+        while (true) {
+            i = (i + 1) & mask;
+            int entry = index[i] - 1;
+            if (entry < 0) {
+                break;
+            }
+            int home = hash(keys[entry]) & mask;
+            // the entry may move to the hole if the hole lies between its home and its position
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                index[hole] = index[i];
+                hole = i;
+            }
+        }
+        index[hole] = 0;
+    }
+
+    private void add(String key, Object value) {
+        if (size == keys.length) {
+            rehash(Math.max(MIN_CAPACITY, size * 2));
+        }
+        int entry = size++;
+        keys[entry] = key;
+        values[entry] = value;
+        insert(key, entry);
+    }
+
+    private void insert(String key, int entry) {
+        int mask = index.length - 1;
+        int i = hash(key) & mask;
+        while (index[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        index[i] = entry + 1;
+    }
+
+    /**
+     * Drops the removed bindings and rebuilds the index for the given number of entries.
+     */
+    private void rehash(int capacity) {
+        String[] oldKeys = keys;
+        Object[] oldValues = values;
+        int oldSize = size;
+        keys = new String[Math.max(capacity, oldSize - removed)];
+        values = new Object[keys.length];
+        index = new int[tableLength(keys.length)];
+        size = 0;
+        removed = 0;
+        for (int i = 0; i < oldSize; i++) {
+            if (oldValues[i] != null) {
+                keys[size] = oldKeys[i];
+                values[size] = oldValues[i];
+                insert(oldKeys[i], size);
+                size++;
+            }
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2014, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2014, 2019, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -199,8 +199,14 @@ public final class REnvTruffleFrameAccess extends REnvFrameAccess {
 
         ArrayList<String> names = new ArrayList<>(fd.getIdentifiers().size());
         getStringIdentifiersAndValues(frame, names, null);
+        return createNamesVector(names, allNames, pattern, sorted);
+    }
 
-        ArrayList<String> matchedNamesList = new ArrayList<>(fd.getIdentifiers().size());
+    /**
+     * Implements the filtering and sorting of {@link #ls} for a list of bound names.
+     */
+    static RStringVector createNamesVector(List<String> names, boolean allNames, Pattern pattern, boolean sorted) {
+        ArrayList<String> matchedNamesList = new ArrayList<>(names.size());
         for (String name : names) {
             if (REnvironment.includeName(name, allNames, pattern)) {
                 matchedNamesList.add(name);
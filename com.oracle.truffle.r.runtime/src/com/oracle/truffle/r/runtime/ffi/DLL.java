@@ -249,6 +249,11 @@ public class DLL {
          * .Call etc.
          */
         private final boolean syntheticHandle;
+        /**
+         * Lock for the down-calls into this library, created lazily. See {@link NativeLock}.
+         */
+        private volatile NativeLock nativeLock;
+        private volatile boolean nativeLockInitialized;
 
         private DLLInfo(String name, String path, boolean dynamicLookup, LibHandle handle, boolean syntheticHandle) {
             this.id = ID.getAndIncrement();
@@ -312,6 +317,18 @@ public class DLL {
             return result;
         }
 
+        /**
+         * Returns the lock that must be held during the down-calls into this library or
+         * {@code null} if the calls need not be synchronized.
+         */
+        public NativeLock getNativeLock() {
+            if (!nativeLockInitialized) {
+                nativeLock = syntheticHandle ? null : NativeLock.forLibrary(name, path);
+                nativeLockInitialized = true;
+            }
+            return nativeLock;
+        }
+
         public DLLInfo replaceHandle(LibHandle newHandle) {
             return new DLLInfo(name, path, dynamicLookup, newHandle, syntheticHandle);
         }
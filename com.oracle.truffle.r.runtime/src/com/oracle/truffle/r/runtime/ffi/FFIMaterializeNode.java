@@ -26,6 +26,7 @@ import com.oracle.truffle.api.dsl.Fallback;
 import com.oracle.truffle.api.dsl.GenerateUncached;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.r.runtime.data.RAltRepVector;
 import com.oracle.truffle.r.runtime.data.RBaseObject;
 import com.oracle.truffle.r.runtime.data.RComplex;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
@@ -115,14 +116,19 @@ public abstract class FFIMaterializeNode extends Node {
         return value.materialize();
     }
 
-    // Sequences: life-cycle of the materialized vector is cached and tied with the sequence via a
-    // field inside the sequence
+    // Sequences and alternative representations: life-cycle of the materialized vector is cached
+    // and tied with the vector via a field inside the vector
 
     @Specialization
     protected static Object wrap(RSequence seq) {
         return seq.cachedMaterialize();
     }
 
+    @Specialization
+    protected static Object wrap(RAltRepVector vector) {
+        return vector.cachedMaterialize();
+    }
+
     // No need to wrap other RObjects than sequences or scalars
 
     @Specialization(guards = "!isRScalarVectorOrSequence(value)")
@@ -136,7 +142,7 @@ public abstract class FFIMaterializeNode extends Node {
     }
 
     protected static boolean isRScalarVectorOrSequence(RBaseObject value) {
-        return value instanceof RScalarVector || value instanceof RSequence;
+        return value instanceof RScalarVector || value instanceof RSequence || value instanceof RAltRepVector;
     }
 
     public static FFIMaterializeNode create() {
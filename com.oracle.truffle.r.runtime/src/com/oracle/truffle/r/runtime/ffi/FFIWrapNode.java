@@ -32,6 +32,7 @@ import com.oracle.truffle.api.interop.TruffleObject;
 import com.oracle.truffle.api.nodes.Node;
 import com.oracle.truffle.r.runtime.RInternalError;
 import com.oracle.truffle.r.runtime.context.RContext;
+import com.oracle.truffle.r.runtime.data.RAltRepVector;
 import com.oracle.truffle.r.runtime.data.RBaseObject;
 import com.oracle.truffle.r.runtime.data.RComplex;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
@@ -134,14 +135,19 @@ public abstract class FFIWrapNode extends Node {
         return protectMaterialized(value, v -> RDataFactory.createList(new Object[]{v.getValue()}));
     }
 
-    // Sequences: life-cycle of the materialized vector is cached and tied with the sequence via a
-    // field inside the sequence
+    // Sequences and alternative representations: life-cycle of the materialized vector is cached
+    // and tied with the vector via a field inside the vector
 
     @Specialization
     protected static Object wrap(RSequence seq) {
         return seq.cachedMaterialize();
     }
 
+    @Specialization
+    protected static Object wrap(RAltRepVector vector) {
+        return vector.cachedMaterialize();
+    }
+
     // VectorRFFIWrapper: held by a field in NativeMirror of the corresponding vector
 
     @Specialization
@@ -182,7 +188,7 @@ public abstract class FFIWrapNode extends Node {
     }
 
     protected static boolean isRScalarVectorOrSequence(RBaseObject value) {
-        return value instanceof RScalarVector || value instanceof RSequence;
+        return value instanceof RScalarVector || value instanceof RSequence || value instanceof RAltRepVector;
     }
 
     public static FFIWrapNode create() {
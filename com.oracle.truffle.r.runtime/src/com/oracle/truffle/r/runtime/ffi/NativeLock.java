@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.runtime.ffi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.RError;
+import com.oracle.truffle.r.runtime.context.FastROptions;
+import com.oracle.truffle.r.runtime.context.RContext;
+
+/**
+ * Lock that allows only one thread to enter the native code of one library if
+ * {@link FastROptions#SynchronizeNativeCode} is enabled. A library is loaded only once into the
+ * process, therefore the locks are shared by all contexts and identified by the library path.
+ * Libraries listed in {@link FastROptions#NativeThreadSafeLibraries} are not locked at all.
+ *
+ * When native code of one library up-calls into R code that calls native code of another library,
+ * the lock of the outer library stays held, because its native frame is still on the stack, see
+ * {@link #enter(NativeLock)}. Two threads nesting the calls the other way round would wait for each
+ * other forever, so a thread waiting for a nested lock checks whether the owner of the lock
+ * (transitively) waits for a lock held by the thread. One thread of such a cycle gets an error
+ * instead of the lock, which unwinds its down-calls and lets the other threads continue.
+ *
+ * The lock records the number of acquisitions, how many of them had to wait and the total wait
+ * and hold times, so that the libraries that limit the scaling of parallel code can be found.
+ */
+public final class NativeLock {
+
+    private static final Map<String, NativeLock> locks = new ConcurrentHashMap<>();
+
+    /**
+     * How long a thread waits for a nested lock before it checks for a deadlock again.
+     */
+    private static final long DEADLOCK_CHECK_MILLIS = 10;
+
+    /**
+     * The library locks held by a thread, the innermost last, and the lock it waits for.
+     */
+    private static final class Holder {
+        private final long threadId = Thread.currentThread().getId();
+        private final ArrayList<NativeLock> held = new ArrayList<>();
+        private volatile NativeLock waitingFor;
+    }
+
+    private static final ThreadLocal<Holder> holder = ThreadLocal.withInitial(Holder::new);
+
+    private final String name;
+    private final String path;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * The holder of the thread that owns the lock, read by the deadlock check of other threads.
+     */
+    private volatile Holder owner;
+    private long acquiredAt;
+
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong contentions = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong holdNanos = new AtomicLong();
+
+    private NativeLock(String name, String path) {
+        this.name = name;
+        this.path = path;
+    }
+
+    /**
+     * Returns the lock for the library with given name and path or {@code null} if the calls into
+     * the library do not need to be synchronized.
+     */
+    @TruffleBoundary
+    public static NativeLock forLibrary(String name, String path) {
+        RContext context = RContext.getInstance();
+        if (!context.getOption(FastROptions.SynchronizeNativeCode) || isThreadSafe(context, name)) {
+            return null;
+        }
+        return locks.computeIfAbsent(path, p -> new NativeLock(name, p));
+    }
+
+    private static boolean isThreadSafe(RContext context, String name) {
+        String libraries = context.getOption(FastROptions.NativeThreadSafeLibraries);
+        return !libraries.isEmpty() && Arrays.asList(libraries.split(",")).contains(name);
+    }
+
+    /**
+     * Returns the locks of all the libraries called so far.
+     */
+    @TruffleBoundary
+    public static Collection<NativeLock> getAll() {
+        return new ArrayList<>(locks.values());
+    }
+
+    /**
+     * Makes the current thread hold given lock (if not {@code null}) for a down-call. The locks of
+     * the outer down-calls stay held. The returned token must be passed to {@link #exit(Object)}
+     * when the down-call returns. Throws an error if waiting for the lock would deadlock.
+     */
+    @TruffleBoundary
+    public static Object enter(NativeLock lock) {
+        Holder current = holder.get();
+        if (lock == null || lock.owner == current) {
+            // nothing to wait for
+            return null;
+        }
+        if (current.held.isEmpty()) {
+            lock.acquire();
+        } else {
+            lock.acquireNested(current);
+        }
+        lock.owner = current;
+        current.held.add(lock);
+        return lock;
+    }
+
+    /**
+     * Releases the lock acquired by {@link #enter(NativeLock)}.
+     */
+    @TruffleBoundary
+    public static void exit(Object token) {
+        if (token == null) {
+            return;
+        }
+        Holder current = holder.get();
+        NativeLock lock = current.held.remove(current.held.size() - 1);
+        assert lock == token;
+        lock.owner = null;
+        lock.release();
+    }
+
+    private void acquireNested(Holder current) {
+        if (lock.tryLock()) {
+            acquisitions.incrementAndGet();
+            acquiredAt = System.nanoTime();
+            return;
+        }
+        long start = System.nanoTime();
+        current.waitingFor = this;
+        try {
+            while (!lock.tryLock(DEADLOCK_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (isDeadlockVictim(current)) {
+                    String outer = current.held.get(current.held.size() - 1).name;
+                    throw RError.error(RError.NO_CALLER, RError.Message.GENERIC, "calling native code of library '" + name + "' from native code of library '" + outer + "' would deadlock");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw RError.error(RError.NO_CALLER, RError.Message.GENERIC, "interrupted while waiting for the native code of library '" + name + "'");
+        } finally {
+            current.waitingFor = null;
+        }
+        contentions.incrementAndGet();
+        waitNanos.addAndGet(System.nanoTime() - start);
+        acquisitions.incrementAndGet();
+        acquiredAt = System.nanoTime();
+    }
+
+    /**
+     * Follows the owners of the awaited locks. If they lead back to the current thread, the thread
+     * with the highest id in the cycle gives up, so that exactly one of them does.
+     */
+    private boolean isDeadlockVictim(Holder current) {
+        long maxThreadId = current.threadId;
+        NativeLock awaited = this;
+        for (int i = 0; i < locks.size(); i++) {
+            Holder awaitedOwner = awaited.owner;
+            if (awaitedOwner == null) {
+                return false;
+            }
+            if (awaitedOwner == current) {
+                return maxThreadId == current.threadId;
+            }
+            maxThreadId = Math.max(maxThreadId, awaitedOwner.threadId);
+            awaited = awaitedOwner.waitingFor;
+            if (awaited == null) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private void acquire() {
+        if (!lock.tryLock()) {
+            long start = System.nanoTime();
+            lock.lock();
+            contentions.incrementAndGet();
+            waitNanos.addAndGet(System.nanoTime() - start);
+        }
+        acquisitions.incrementAndGet();
+        acquiredAt = System.nanoTime();
+    }
+
+    private void release() {
+        holdNanos.addAndGet(System.nanoTime() - acquiredAt);
+        lock.unlock();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public long getAcquisitions() {
+        return acquisitions.get();
+    }
+
+    public long getContentions() {
+        return contentions.get();
+    }
+
+    public long getWaitNanos() {
+        return waitNanos.get();
+    }
+
+    public long getHoldNanos() {
+        return holdNanos.get();
+    }
+}
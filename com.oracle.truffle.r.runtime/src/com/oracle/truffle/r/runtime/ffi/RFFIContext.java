@@ -52,6 +52,7 @@ import com.oracle.truffle.r.runtime.data.RScalar;
 import com.oracle.truffle.r.runtime.data.RSymbol;
 import com.oracle.truffle.r.runtime.data.model.RAbstractVector;
 import com.oracle.truffle.r.runtime.env.REnvironment;
+import com.oracle.truffle.r.runtime.ffi.DLL.DLLInfo;
 
 /**
  * Holds per RContext specific state of the RFFI. RFFI implementation agnostic data and methods are
@@ -188,6 +189,17 @@ public abstract class RFFIContext extends RFFI {
         return savedDowncallFrame;
     }
 
+    /**
+     * Variant of {@link #beforeDowncall(VirtualFrame, com.oracle.truffle.r.runtime.ffi.RFFIFactory.Type)}
+     * for calls into the native code of given library, which allows the backend to synchronize the
+     * calls per library (see {@link NativeLock}).
+     *
+     * @param dllInfo the library that is called or {@code null} if it is not known
+     */
+    public Object beforeDowncall(VirtualFrame frame, RFFIFactory.Type rffiType, @SuppressWarnings("unused") DLLInfo dllInfo) {
+        return beforeDowncall(frame, rffiType);
+    }
+
     /**
      * @param before the value returned by the corresponding call to
      *            {@link #beforeDowncall(VirtualFrame, com.oracle.truffle.r.runtime.ffi.RFFIFactory.Type)}
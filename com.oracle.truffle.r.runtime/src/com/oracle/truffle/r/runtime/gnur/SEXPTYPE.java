@@ -21,6 +21,8 @@ package com.oracle.truffle.r.runtime.gnur;
 
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.r.runtime.RInternalError;
+import com.oracle.truffle.r.runtime.data.RAltIntVector;
+import com.oracle.truffle.r.runtime.data.RAltRealVector;
 import com.oracle.truffle.r.runtime.data.RArgsValuesAndNames;
 import com.oracle.truffle.r.runtime.data.RComplex;
 import com.oracle.truffle.r.runtime.data.RComplexVector;
@@ -64,8 +66,8 @@ public enum SEXPTYPE {
     BUILTINSXP(8), /* builtin non-special forms */
     CHARSXP(9), /* "scalar" string type (GnuR internal only) */
     LGLSXP(10, RLogicalVector.class, Byte.class), /* logical vectors */
-    INTSXP(13, RIntVector.class, RIntSequence.class, Integer.class), /* integer vectors */
-    REALSXP(14, RDoubleVector.class, RDoubleSequence.class, Double.class), /* real variables */
+    INTSXP(13, RIntVector.class, RIntSequence.class, RAltIntVector.class, Integer.class), /* integer vectors */
+    REALSXP(14, RDoubleVector.class, RDoubleSequence.class, RAltRealVector.class, Double.class), /* real variables */
     CPLXSXP(15, RComplexVector.class, RComplex.class), /* complex variables */
     STRSXP(16, RStringVector.class, RStringSequence.class, String.class), /* string vectors */
     DOTSXP(17, RArgsValuesAndNames.class), /* dot-dot-dot object */
@@ -37,6 +37,19 @@ import com.oracle.truffle.r.runtime.rng.RandomNumberGenerator;
 public class RandomFunctions {
     public interface RandFunction3_DoubleBase {
         double execute(double a, double b, double c, RandomNumberProvider rand);
+
+        /**
+         * Fills the whole {@code result} array with variates for the given scalar parameters,
+         * producing the same values and consuming the same random numbers as calling
+         * {@link #execute(double, double, double, RandomNumberProvider)} for each element. Returns
+         * {@code false} without touching the generator if the parameters are not supported by the
+         * bulk path (e.g. they would produce {@code NaN}), the caller must then fall back to the
+         * element-wise evaluation. Deliberately not named {@code execute...}, so that the DSL does
+         * not pick it up as an execute method of the nodes.
+         */
+        default boolean fill(double[] result, double a, double b, double c, RandomNumberProvider rand) {
+            return false;
+        }
     }
 
     public abstract static class RandFunction3_DoubleWithWarnings extends RBaseNodeWithWarnings implements RandFunction3_DoubleBase {
@@ -54,6 +67,16 @@ public class RandomFunctions {
         public final double execute(double a, double b, double c, RandomNumberProvider rand) {
             return execute(a, b, rand);
         }
+
+        @SuppressWarnings("unused")
+        public boolean fill(double[] result, double a, double b, RandomNumberProvider rand) {
+            return false;
+        }
+
+        @Override
+        public final boolean fill(double[] result, double a, double b, double c, RandomNumberProvider rand) {
+            return fill(result, a, b, rand);
+        }
     }
 
     public abstract static class RandFunction1_Double extends RandFunction3_Double {
@@ -63,6 +86,16 @@ public class RandomFunctions {
         public final double execute(double a, double b, double c, RandomNumberProvider rand) {
             return execute(a, rand);
         }
+
+        @SuppressWarnings("unused")
+        public boolean fill(double[] result, double a, RandomNumberProvider rand) {
+            return false;
+        }
+
+        @Override
+        public final boolean fill(double[] result, double a, double b, double c, RandomNumberProvider rand) {
+            return fill(result, a, rand);
+        }
     }
 
     /**
@@ -96,5 +129,19 @@ public class RandomFunctions {
         public double expRand() {
             return SExp.expRand(generator);
         }
+
+        public void fillUnifRand(double[] dst, int off, int len) {
+            generator.fill(dst, off, len);
+        }
+
+        public void fillNormRand(double[] dst, int off, int len) {
+            SNorm.fillNormRand(generator, normKind, dst, off, len);
+        }
+
+        public void fillExpRand(double[] dst, int off, int len) {
+            for (int i = 0; i < len; i++) {
+                dst[off + i] = SExp.expRand(generator);
+            }
+        }
     }
 }
@@ -19,6 +19,8 @@
  */
 package com.oracle.truffle.r.runtime.nmath.distr;
 
+import java.util.Arrays;
+
 import com.oracle.truffle.api.dsl.GenerateUncached;
 import com.oracle.truffle.api.dsl.Specialization;
 import com.oracle.truffle.r.runtime.nmath.DPQ;
@@ -74,6 +76,22 @@ public final class Exp {
             return scale * rand.expRand();
         }
 
+        @Override
+        public boolean fill(double[] result, double scale, RandomNumberProvider rand) {
+            if (!Double.isFinite(scale) || scale <= 0.0) {
+                if (scale == 0.) {
+                    Arrays.fill(result, 0.);
+                    return true;
+                }
+                return false;
+            }
+            rand.fillExpRand(result, 0, result.length);
+            for (int i = 0; i < result.length; i++) {
+                result[i] = scale * result[i];
+            }
+            return true;
+        }
+
         public static RExp create() {
             return RExpNodeGen.create();
         }
@@ -20,6 +20,8 @@
  */
 package com.oracle.truffle.r.runtime.nmath.distr;
 
+import java.util.Arrays;
+
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.GenerateUncached;
 import com.oracle.truffle.api.dsl.Specialization;
@@ -41,15 +43,34 @@ public abstract class Rbinom extends RandFunction2_Double {
         return RbinomNodeGen.getUncached();
     }
 
-    // TODO: some of the variables below are static in GnuR, because they cache intermediate results
-    // that depend on paremeters that often do not change between calls.
+    /**
+     * The number of uniforms consumed per variate depends on the parameters and on the uniforms
+     * themselves, so the bulk version computes the {@link Setup} for the parameters once and then
+     * only runs the sampling loop per element.
+     */
+    @Override
+    public boolean fill(double[] result, double nin, double pp, RandomNumberProvider rand) {
+        if (!Double.isFinite(nin) || RMath.forceint(nin) != nin || !Double.isFinite(pp) || nin < 0 || pp < 0. || pp > 1.) {
+            return false;
+        }
+        if (nin == 0 || pp == 0. || pp == 1.) {
+            Arrays.fill(result, pp == 1. ? (int) nin : 0);
+            return true;
+        }
+        if (nin >= Integer.MAX_VALUE) {
+            // needs qbinom for every element
+            return false;
+        }
+        Setup setup = new Setup((int) nin, pp);
+        for (int i = 0; i < result.length; i++) {
+            result[i] = sample(setup, rand);
+        }
+        return true;
+    }
 
     @Specialization
     public double exec(double nin, double pp, RandomNumberProvider rand,
                     @Cached(allowUncached = true) Qbinom qbinom) {
-        double psave = -1.0;
-        int nsave = -1;
-
         if (!Double.isFinite(nin)) {
             return RRuntime.INT_NA;
         }
@@ -76,82 +97,103 @@ public abstract class Rbinom extends RandFunction2_Double {
             return (int) qbinom.evaluate(rand.unifRand(), r, pp, /* lower_tail */false, /* log_p */false);
         }
         /* else */
-        int n = (int) r;
+        return sample(new Setup((int) r, pp), rand);
+    }
 
-        double p = Math.min(pp, 1. - pp);
-        double q = 1. - p;
-        double np = n * p;
-        r = p / q;
-        double g = r * (n + 1);
+    /**
+     * The values that only depend on the parameters, computed once per call of GnuR's rbinom with
+     * new parameters.
+     */
+    private static final class Setup {
+        final int n;
+        final double pp;
+        final double p;
+        final double q;
+        final double r;
+        final double g;
+        /* np < 30 */
+        final boolean small;
+        final double qn;
+        /* np >= 30 */
+        final int m;
+        final double c;
+        final double fm;
+        final double npq;
+        final double p1;
+        final double p2;
+        final double p3;
+        final double p4;
+        final double xl;
+        final double xll;
+        final double xlr;
+        final double xm;
+        final double xr;
 
-        /* Setup, perform only when parameters change [using static (globals): */
+        Setup(int n, double pp) {
+            this.n = n;
+            this.pp = pp;
+            p = Math.min(pp, 1. - pp);
+            q = 1. - p;
+            double np = n * p;
+            r = p / q;
+            g = r * (n + 1);
+            small = np < 30.0;
+            if (small) {
+                /* inverse cdf logic for mean less than 30 */
+                qn = Arithmetic.powDi(q, n);
+                m = 0;
+                c = fm = npq = p1 = p2 = p3 = p4 = xl = xll = xlr = xm = xr = 0;
+            } else {
+                qn = 0;
+                double ffm = np + p;
+                m = (int) ffm;
+                fm = m;
+                npq = np * q;
+                p1 = (int) (2.195 * Math.sqrt(npq) - 4.6 * q) + 0.5;
+                xm = fm + 0.5;
+                xl = xm - p1;
+                xr = xm + p1;
+                c = 0.134 + 20.5 / (15.3 + fm);
+                double al = (ffm - xl) / (ffm - xl * p);
+                xll = al * (1.0 + 0.5 * al);
+                al = (xr - ffm) / (xr * q);
+                xlr = al * (1.0 + 0.5 * al);
+                p2 = p1 * (1.0 + c + c);
+                p3 = p2 + c / xll;
+                p4 = p3 + c / xlr;
+            }
+        }
+    }
 
-        /*
-         * FIXING: Want this thread safe -- use as little (thread globals) as possible
-         */
+    private static double sample(Setup s, RandomNumberProvider rand) {
+        int n = s.n;
+        double p = s.p;
+        double q = s.q;
+        double r = s.r;
+        double g = s.g;
         int ix;
-        double qn = 0;
         double f;
         double u;
         double v;
         double x;
-        double al;
         double amaxp;
         double ynorm;
         double alv;
         finis: do {
-            L_np_small: do {
-                int m;
-                double c;
-                double fm;
-                double npq;
-                double p1;
-                double p2;
-                double p3;
-                double p4;
-                double xl;
-                double xll;
-                double xlr;
-                double xm;
-                double xr;
-                if (pp != psave || n != nsave) {
-                    psave = pp;
-                    nsave = n;
-                    if (np < 30.0) {
-                        /* inverse cdf logic for mean less than 30 */
-                        qn = Arithmetic.powDi(q, n);
-                        // goto L_np_small;
-                        break L_np_small;
-                    } else {
-                        double ffm = np + p;
-                        m = (int) ffm;
-                        fm = m;
-                        npq = np * q;
-                        p1 = (int) (2.195 * Math.sqrt(npq) - 4.6 * q) + 0.5;
-                        xm = fm + 0.5;
-                        xl = xm - p1;
-                        xr = xm + p1;
-                        c = 0.134 + 20.5 / (15.3 + fm);
-                        al = (ffm - xl) / (ffm - xl * p);
-                        xll = al * (1.0 + 0.5 * al);
-                        al = (xr - ffm) / (xr * q);
-                        xlr = al * (1.0 + 0.5 * al);
-                        p2 = p1 * (1.0 + c + c);
-                        p3 = p2 + c / xll;
-                        p4 = p3 + c / xlr;
-                    }
-                } else { /* if (n == nsave) */
-                    /*
-                     * lstadler: turned these ifs into asserts, otherwise the code structure isn't
-                     * sound
-                     */
-                    assert n == nsave && np < 30.0;
-                    // if (np < 30.0) {
-                    // goto L_np_small;
-                    break L_np_small;
-                    // }
-                }
-
+            if (!s.small) {
+                int m = s.m;
+                double c = s.c;
+                double fm = s.fm;
+                double npq = s.npq;
+                double p1 = s.p1;
+                double p2 = s.p2;
+                double p3 = s.p3;
+                double p4 = s.p4;
+                double xl = s.xl;
+                double xll = s.xll;
+                double xlr = s.xlr;
+                double xm = s.xm;
+                double xr = s.xr;
                 /*-------------------------- np = n*p >= 30 : ------------------- */
                 while (true) {
                     u = rand.unifRand() * p4;
@@ -236,12 +278,12 @@ public abstract class Rbinom extends RandFunction2_Double {
                         }
                     }
                 }
-            } while (false); // L_np_small:
+            }
             /*---------------------- np = n*p < 30 : ------------------------- */
 
             while (true) {
                 ix = 0;
-                f = qn;
+                f = s.qn;
                 u = rand.unifRand();
                 while (true) {
                     if (u < f) {
@@ -258,7 +300,7 @@ public abstract class Rbinom extends RandFunction2_Double {
             }
         } while (false); // finis:
 
-        if (psave > 0.5) {
+        if (s.pp > 0.5) {
             ix = n - ix;
         }
         return ix;
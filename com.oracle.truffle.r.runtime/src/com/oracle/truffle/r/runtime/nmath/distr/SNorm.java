@@ -1,7 +1,7 @@
 /*
  * Copyright (C) 1998 Ross Ihaka
  * Copyright (c) 1998--2008, The R Core Team
- * Copyright (c) 2016, 2018, Oracle and/or its affiliates
+ * Copyright (c) 2016, 2019, Oracle and/or its affiliates
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -119,6 +119,33 @@ public final class SNorm {
         // only static members
     }
 
+    /* number of variates generated per block of uniforms for INVERSION */
+    private static final int INVERSION_CHUNK = 1024;
+
+    /**
+     * Stores {@code len} standard normal variates into {@code dst} starting at {@code off}. The
+     * sequence is the same as from calling {@link #normRand(RandomNumberGenerator, NormKind)}
+     * {@code len} times, but for {@link NormKind#INVERSION} the uniforms are drawn in blocks using
+     * {@link RandomNumberGenerator#fill(double[], int, int)}.
+     */
+    public static void fillNormRand(RandomNumberGenerator rand, NormKind normKind, double[] dst, int off, int len) {
+        if (normKind != NormKind.INVERSION) {
+            for (int i = 0; i < len; i++) {
+                dst[off + i] = normRand(rand, normKind);
+            }
+            return;
+        }
+        double[] u = new double[2 * Math.min(len, INVERSION_CHUNK)];
+        for (int start = 0; start < len; start += INVERSION_CHUNK) {
+            int count = Math.min(len - start, INVERSION_CHUNK);
+            rand.fill(u, 0, 2 * count);
+            for (int i = 0; i < count; i++) {
+                double u1 = (int) (BIG * u[2 * i]) + u[2 * i + 1];
+                dst[off + start + i] = Qnorm.qnorm(u1 / BIG, 0.0, 1.0, true, false);
+            }
+        }
+    }
+
     @SuppressWarnings("unused")
     public static double normRand(RandomNumberGenerator rand, NormKind normKind) {
         double s;
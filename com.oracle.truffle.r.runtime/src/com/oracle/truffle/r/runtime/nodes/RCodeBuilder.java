@@ -158,6 +158,22 @@ public interface RCodeBuilder<T> {
 
     CodeBuilderContext getContext();
 
+    /**
+     * Captures the state accumulated by this builder so far, e.g., the parse metadata, so that the
+     * actions of a parsing attempt that is abandoned can be undone by
+     * {@link #restoreState(Object)}.
+     */
+    default Object saveState() {
+        return null;
+    }
+
+    /**
+     * Restores the state captured by {@link #saveState()}. The state can be restored only once.
+     */
+    default void restoreState(@SuppressWarnings("unused") Object state) {
+        // nothing to restore
+    }
+
     /**
      * This method returns a newly created AST fragment for the given original element. This
      * functionality can be used to quickly create new AST snippets for existing code.
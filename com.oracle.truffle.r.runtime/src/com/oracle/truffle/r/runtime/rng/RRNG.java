@@ -41,14 +41,16 @@ import com.oracle.truffle.r.runtime.env.REnvironment;
 import com.oracle.truffle.r.runtime.env.frame.ActiveBinding;
 import com.oracle.truffle.r.runtime.env.frame.FrameSlotChangeMonitor;
 import com.oracle.truffle.r.runtime.ffi.BaseRFFI;
+import com.oracle.truffle.r.runtime.rng.lecuyer.LecuyerCMRG;
 import com.oracle.truffle.r.runtime.rng.mm.MarsagliaMulticarry;
 import com.oracle.truffle.r.runtime.rng.mt.MersenneTwister;
 import com.oracle.truffle.r.runtime.rng.user.UserRNG;
 
 /**
  * Facade class to the R random number generators, (see src/main/RNG.c in GnuR). The individual
- * generators are implemented in their own class. Currently there are only two implemented, the
- * default, {@link MersenneTwister} and {@link MarsagliaMulticarry}.
+ * generators are implemented in their own class. Currently there are only three implemented, the
+ * default, {@link MersenneTwister}, {@link MarsagliaMulticarry} and {@link LecuyerCMRG}, which
+ * supports independent streams for parallel computations.
  *
  * The fact that the R programmer can set {@code .Random.seed} explicitly, as opposed to the
  * recommended approach of calling {@code set.seed}, is something of a pain as it changes the
@@ -71,7 +73,7 @@ public class RRNG {
         KNUTH_TAOCP(),
         USER_UNIF(UserRNG::new),
         KNUTH_TAOCP2(),
-        LECUYER_CMRG();
+        LECUYER_CMRG(LecuyerCMRG::new);
 
         @CompilationFinal(dimensions = 1) static final Kind[] VALUES = values();
 
@@ -330,12 +332,13 @@ public class RRNG {
     }
 
     /**
-     * Create a random integer.
+     * Create a random integer. The id of the context is mixed in, so that the child contexts
+     * started within the same millisecond get different seeds.
      */
     public static Integer timeToSeed() {
         int pid = (int) BaseRFFI.GetpidRootNode.create().getCallTarget().call();
         int millis = (int) (System.currentTimeMillis() & 0xFFFFFFFFL);
-        return (millis << 16) ^ pid;
+        return ((millis << 16) ^ pid) ^ (RContext.getInstance().getId() << 8);
     }
 
     private static void randomize(Kind kind) {
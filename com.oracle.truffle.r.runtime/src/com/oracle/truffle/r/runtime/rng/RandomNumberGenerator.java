@@ -1,7 +1,7 @@
 /*
  * Copyright (c) 1995-2012, The R Core Team
  * Copyright (c) 2003, The R Foundation
- * Copyright (c) 2014, 2018, Oracle and/or its affiliates
+ * Copyright (c) 2014, 2019, Oracle and/or its affiliates
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -37,6 +37,17 @@ public interface RandomNumberGenerator {
 
     double genrandDouble();
 
+    /**
+     * Stores the next {@code len} values of {@link #genrandDouble()} into {@code dst} starting at
+     * {@code off}. The sequence must be exactly the same as if {@link #genrandDouble()} was called
+     * {@code len} times; generators that produce their values in blocks should override this.
+     */
+    default void fill(double[] dst, int off, int len) {
+        for (int i = 0; i < len; i++) {
+            dst[off + i] = genrandDouble();
+        }
+    }
+
     Kind getKind();
 
     /**
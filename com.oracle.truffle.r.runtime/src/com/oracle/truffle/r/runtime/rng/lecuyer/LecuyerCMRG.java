@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 1995-2012, The R Core Team
+ * Copyright (c) 2003, The R Foundation
+ * Copyright (c) 2011, The R Core Team
+ * Copyright (c) 2019, Oracle and/or its affiliates
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, a copy is available at
+ * https://www.R-project.org/Licenses/
+ */
+package com.oracle.truffle.r.runtime.rng.lecuyer;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.r.runtime.rng.RNGInitAdapter;
+import com.oracle.truffle.r.runtime.rng.RRNG;
+import com.oracle.truffle.r.runtime.rng.RRNG.Kind;
+
+/**
+ * "L'Ecuyer-CMRG" RNG, the combined multiple-recursive generator MRG32k3a. Transcribed from GnuR
+ * RNG.c, the stream and sub-stream jumps used by {@code nextRNGStream} and
+ * {@code nextRNGSubStream} of the parallel package are transcribed from its rngstream.c.
+ *
+ * The state are two triples of unsigned 32-bit values, the first one in {@code [0, M1)}, the
+ * second one in {@code [0, M2)}. Unlike the other generators, the state is exactly the six values
+ * of {@code .Random.seed}, so that the streams can be derived from it without any hidden state.
+ */
+public final class LecuyerCMRG extends RNGInitAdapter {
+
+    private static final int N_SEED = 6;
+
+    private static final long M1 = 4294967087L;
+    private static final long M2 = 4294944443L;
+    private static final double NORMC = 2.328306549295727688e-10;
+    private static final long A12 = 1403580L;
+    private static final long A13N = 810728L;
+    private static final long A21 = 527612L;
+    private static final long A23N = 1370589L;
+
+    private static final long[][] A1P76 = {
+                    {82758667L, 1871391091L, 4127413238L},
+                    {3672831523L, 69195019L, 1871391091L},
+                    {3672091415L, 3528743235L, 69195019L}
+    };
+
+    private static final long[][] A2P76 = {
+                    {1511326704L, 3759209742L, 1610795712L},
+                    {4292754251L, 1511326704L, 3889917532L},
+                    {3859662829L, 4292754251L, 3708466080L}
+    };
+
+    private static final long[][] A1P127 = {
+                    {2427906178L, 3580155704L, 949770784L},
+                    {226153695L, 1230515664L, 3580155704L},
+                    {1988835001L, 986791581L, 1230515664L}
+    };
+
+    private static final long[][] A2P127 = {
+                    {1464411153L, 277697599L, 1610723613L},
+                    {32183930L, 1464411153L, 1022607788L},
+                    {2824425944L, 32183930L, 2093834863L}
+    };
+
+    public LecuyerCMRG() {
+        super(N_SEED);
+    }
+
+    /**
+     * Derived from GNU R, RNG.c (RNG_Init), the seeds are drawn until they are below {@code M2},
+     * which makes them valid for both components.
+     */
+    @Override
+    @TruffleBoundary
+    public void init(int seedParam) {
+        int seed = seedParam;
+        for (int i = 0; i < N_SEED; i++) {
+            seed = (69069 * seed + 1);
+            while (Integer.toUnsignedLong(seed) >= M2) {
+                seed = (69069 * seed + 1);
+            }
+            setISeedItem(i, seed);
+        }
+    }
+
+    @Override
+    @TruffleBoundary
+    public void fixupSeeds(boolean initial) {
+        // first set: not all zero, in [0, m1), second set: not all zero, in [0, m2)
+        // N.B.: like in GNU R, 'notAllZero' is not reset for the second set
+        boolean notAllZero = false;
+        boolean allOK = true;
+        for (int i = 0; i < 3; i++) {
+            long tmp = Integer.toUnsignedLong(getISeedItem(i));
+            if (tmp != 0) {
+                notAllZero = true;
+            }
+            if (tmp >= M1) {
+                allOK = false;
+            }
+        }
+        if (!notAllZero || !allOK) {
+            init(RRNG.timeToSeed());
+        }
+        for (int i = 3; i < 6; i++) {
+            long tmp = Integer.toUnsignedLong(getISeedItem(i));
+            if (tmp != 0) {
+                notAllZero = true;
+            }
+            if (tmp >= M2) {
+                allOK = false;
+            }
+        }
+        if (!notAllZero || !allOK) {
+            init(RRNG.timeToSeed());
+        }
+    }
+
+    @Override
+    public double genrandDouble() {
+        long p1 = A12 * Integer.toUnsignedLong(getISeedItem(1)) - A13N * Integer.toUnsignedLong(getISeedItem(0));
+        long k = p1 / M1;
+        p1 -= k * M1;
+        if (p1 < 0) {
+            p1 += M1;
+        }
+        setISeedItem(0, getISeedItem(1));
+        setISeedItem(1, getISeedItem(2));
+        setISeedItem(2, (int) p1);
+
+        long p2 = A21 * Integer.toUnsignedLong(getISeedItem(5)) - A23N * Integer.toUnsignedLong(getISeedItem(3));
+        k = p2 / M2;
+        p2 -= k * M2;
+        if (p2 < 0) {
+            p2 += M2;
+        }
+        setISeedItem(3, getISeedItem(4));
+        setISeedItem(4, getISeedItem(5));
+        setISeedItem(5, (int) p2);
+
+        // no fixup: the result is always in (0, 1)
+        return ((p1 > p2) ? (p1 - p2) : (p1 - p2 + M1)) * NORMC;
+    }
+
+    @Override
+    public Kind getKind() {
+        return Kind.LECUYER_CMRG;
+    }
+
+    @Override
+    public int getNSeed() {
+        return N_SEED;
+    }
+
+    /**
+     * Returns the seed of the next stream, i.e., the state advanced by {@code 2^127} steps. Both
+     * the argument and the result are in the format of {@code .Random.seed}, the element at index 0
+     * (the kind) is copied.
+     */
+    public static int[] nextStream(int[] seed) {
+        return jump(seed, A1P127, A2P127);
+    }
+
+    /**
+     * Returns the seed of the next sub-stream, i.e., the state advanced by {@code 2^76} steps, see
+     * {@link #nextStream(int[])}.
+     */
+    public static int[] nextSubStream(int[] seed) {
+        return jump(seed, A1P76, A2P76);
+    }
+
+    private static int[] jump(int[] seed, long[][] a1, long[][] a2) {
+        assert seed.length >= N_SEED + 1;
+        int[] result = new int[N_SEED + 1];
+        result[0] = seed[0];
+        for (int i = 0; i < 3; i++) {
+            long tmp = 0;
+            for (int j = 0; j < 3; j++) {
+                tmp = (tmp + mulMod(a1[i][j], Integer.toUnsignedLong(seed[j + 1]), M1)) % M1;
+            }
+            result[i + 1] = (int) tmp;
+        }
+        for (int i = 0; i < 3; i++) {
+            long tmp = 0;
+            for (int j = 0; j < 3; j++) {
+                tmp = (tmp + mulMod(a2[i][j], Integer.toUnsignedLong(seed[j + 4]), M2)) % M2;
+            }
+            result[i + 4] = (int) tmp;
+        }
+        return result;
+    }
+
+    /**
+     * Computes {@code a * b mod m} for unsigned 32-bit values, whose product may not fit into a
+     * signed long, by splitting {@code a} into two 16-bit halves.
+     */
+    private static long mulMod(long a, long b, long m) {
+        long high = ((a >>> 16) * b) % m;
+        return ((high << 16) + (a & 0xFFFF) * b) % m;
+    }
+}
@@ -106,6 +106,7 @@ static const R_CallMethodDef CallEntries[] = {
         CALLDEF(get_dataptr, 1),
         CALLDEF(benchMultipleUpcalls, 1),
         CALLDEF(benchProtect, 2),
+        CALLDEF(sumNumericElements, 1),
         CALLDEF(test_lapplyWithForceAndCall, 4),
         #include "init_api.h"
         {NULL, NULL, 0}
@@ -1006,6 +1006,19 @@ SEXP benchMultipleUpcalls(SEXP x) {
   return result;
 }
 
+// uses the accessor macros for every element on purpose
+SEXP sumNumericElements(SEXP x) {
+    double sum = 0;
+    for (int i = 0; i < LENGTH(x); i++) {
+        if (TYPEOF(x) == INTSXP) {
+            sum += INTEGER(x)[i];
+        } else if (TYPEOF(x) == REALSXP) {
+            sum += REAL(x)[i];
+        }
+    }
+    return ScalarReal(sum);
+}
+
 SEXP benchProtect(SEXP x, SEXP nn) {
   int n = INTEGER_VALUE(nn);
   for (int i = 0; i < n; ++i) {
@@ -156,3 +156,5 @@ extern SEXP benchMultipleUpcalls(SEXP x);
 extern SEXP test_lapplyWithForceAndCall(SEXP list, SEXP fn, SEXP fa, SEXP rho);
 
 extern SEXP benchProtect(SEXP x, SEXP nn);
+
+extern SEXP sumNumericElements(SEXP x);
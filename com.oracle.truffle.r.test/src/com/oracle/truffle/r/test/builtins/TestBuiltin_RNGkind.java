@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2016, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2016, 2019, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -37,4 +37,12 @@ public class TestBuiltin_RNGkind extends TestBase {
         // Note: GnuR also prints warning about NAs
         assertEval(Output.IgnoreErrorMessage, ".Internal(RNGkind(NULL, 'abc'))");
     }
+
+    @Test
+    public void testLecuyerCMRG() {
+        assertEval("{ RNGkind(\"L'Ecuyer-CMRG\"); set.seed(123); list(RNGkind(), .Random.seed, runif(5), .Random.seed) }");
+        assertEval("{ set.seed(42, kind = \"L'Ecuyer-CMRG\"); rnorm(3) }");
+        assertEval("{ set.seed(1, kind = \"L'Ecuyer-CMRG\"); s <- .Random.seed; list(parallel::nextRNGStream(s), parallel::nextRNGSubStream(s)) }");
+        assertEval("{ set.seed(1, kind = \"L'Ecuyer-CMRG\"); s <- parallel::nextRNGStream(.Random.seed); assign('.Random.seed', s, envir = globalenv()); sample(10) }");
+    }
 }
@@ -90,4 +90,12 @@ public class TestBuiltin_crossprod extends TestBase {
     public void testCrossprodDimnames() {
         assertEval("{ crossprod(structure(1:9, .Dim=c(3L,3L), .Dimnames=list(c('a', 'b', 'c'), c('A', 'B', 'C'))), structure(1:9, .Dim=c(3L,3L), .Dimnames=list(c('d', 'e', 'f'), c('D', 'E', 'F')))) }");
     }
+
+    @Test
+    public void testCrossprodLarge() {
+        // large enough to use the parallel kernel
+        assertEval("{ x <- matrix((1:45000 %% 13) - 6, 300); r <- crossprod(x); c(dim(r), sum(r), isSymmetric(r), r[5,140] == sum(x[,5] * x[,140])) }");
+        assertEval("{ x <- matrix((1:45000 %% 13) - 6, 150); r <- tcrossprod(x); c(dim(r), sum(r), isSymmetric(r), r[140,5] == sum(x[140,] * x[5,])) }");
+        assertEval("{ x <- matrix((1:45000 %% 13) - 6, 300); x[4,2] <- NA; r <- crossprod(x); list(r[2,1:5], r[1:5,2]) }");
+    }
 }
@@ -147,5 +147,9 @@ public class TestBuiltin_duplicated extends TestBase {
 
         assertEval("{ duplicated(list(list(1,\"aaa\"),list(1,\"aaa\"))) }");
 
+        assertEval("{ x <- rep(c(3L, NA, 1L, 2L), 100); r1 <- which(duplicated(x))[1:3]; x[[400]] <- 7L; list(r1, sum(duplicated(x)), anyDuplicated(x), duplicated(x, fromLast=TRUE)[397:400]) }");
+        assertEval("{ x <- c(as.double(1:300), 0, -0, NA, NaN, NA); list(which(duplicated(x)), anyDuplicated(x)) }");
+        assertEval("{ x <- paste0('k', 1:300); r1 <- anyDuplicated(x); x[[200]] <- 'k7'; list(r1, anyDuplicated(x), which(duplicated(x))) }");
+
     }
 }
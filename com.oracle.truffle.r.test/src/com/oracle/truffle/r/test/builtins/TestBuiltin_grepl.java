@@ -14,7 +14,7 @@
  * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
  *
  * Copyright (c) 2012-2014, Purdue University
- * Copyright (c) 2013, 2018, Oracle and/or its affiliates
+ * Copyright (c) 2013, 2019, Oracle and/or its affiliates
  *
  * All rights reserved.
  */
@@ -94,4 +94,11 @@ public class TestBuiltin_grepl extends TestBase {
         // the dot matches the new line in a Perl regexp
         assertEval("{ .Internal(grepl('.+X', 'a\nXb', F, F, T, F, F, F)) }");
     }
+
+    @Test
+    public void testGreplLongVector() {
+        assertEval("{ x <- paste0('id', 1:200000); r <- grepl('^id1[0-9]*5$', x); c(sum(r), which(r)[1:3]) }");
+        assertEval("{ x <- paste0('id', 1:200000); sum(grepl('99', x, fixed = TRUE)) }");
+        assertEvalFastR("{ s <- .fastr.regex.cacheStats(); for (i in 1:3) grepl('a+b', c('aab', 'x')); .fastr.regex.cacheStats()[['hits']] - s[['hits']] >= 2 }", "[1] TRUE");
+    }
 }
@@ -239,4 +239,11 @@ public class TestBuiltin_gsub extends TestBase {
         assertEval("gsub('b','\\\\1m','Abb')");
         assertEval("gsub('@CXX11@', '$(CXX11)', '    CPLUS=\"@CXX11@\"                           \\'', fixed=FALSE)");
     }
+
+    @Test
+    public void testFixed() {
+        assertEval("{ gsub('aa', 'b', c('aaaaa', 'xaay', NA, '', 'abab'), fixed = TRUE) }");
+        assertEval("{ gsub('.', '$1', 'a.b.c', fixed = TRUE) }");
+        assertEval("{ x <- rep(c('one, two', 'three'), 100); table(gsub(', ', ';', x, fixed = TRUE)) }");
+    }
 }
@@ -425,6 +425,14 @@ public class TestBuiltin_match extends TestBase {
         assertEval("match(1:3, 3:1)");
         assertEval("match(as.character(1:3), as.character(3:1))");
         assertEval("match(1:3, numeric(0))");
+
+        // repeated lookups into the same (large) table, including in-place updates of the table
+        assertEval("{ tab <- c(1000:1, 5L); x <- c(1L, 5L, 1001L, NA); r1 <- match(x, tab); tab[[1000L]] <- 1001L; r2 <- match(x, tab); tab[[1L]] <- NA; list(r1, r2, match(x, tab), x %in% tab) }");
+        assertEval("{ tab <- as.double(c(1000:1, 5)); tab[[2]] <- -0; x <- c(1, 5, 0, NaN, 1001); r1 <- match(x, tab); tab[[3]] <- NaN; list(r1, match(x, tab), x %in% tab) }");
+        assertEval("{ tab <- paste0('k', 1000:1); x <- c('k1', 'k5', NA, 'x'); r1 <- match(x, tab); tab[[500]] <- 'x'; list(r1, match(x, tab), match(x, tab)) }");
+        assertEval("{ tab <- c(1000:1, 5L); tab2 <- tab; r1 <- match(5L, tab); tab2[[1L]] <- 5L; tab[[996L]] <- 0L; list(r1, match(5L, tab), match(5L, tab2), match(0L, tab)) }");
+        assertEval("{ f <- function(t, x) match(x, t); tab <- as.double(1000:1); r1 <- f(tab, 7); tab[[994]] <- 8; list(r1, f(tab, 7), f(tab, 8)) }");
+        assertEval("{ f <- function(t) match(c(5L, 0L), t); tab <- c(1000:1, 5L); r1 <- f(tab); tab[[996L]] <- 0L; r2 <- f(tab); tab[[1001L]] <- 0L; list(r1, r2, f(tab)) }");
     }
 
     private void testMatchStringSequence(String preffix, String suffix) {
@@ -41,4 +41,11 @@ public class TestBuiltin_matmul extends TestBase {
         assertEval("c(NA+2i) %*% c(3,4,5,6)");
         assertEval("c(1+2i) %*% c(3,4,5,6)");
     }
+
+    @Test
+    public void testMatmulLarge() {
+        // large enough to use the parallel kernel
+        assertEval("{ x <- matrix((1:45000 %% 13) - 6, 150); y <- matrix((1:45150 %% 11) - 5, 301); r <- x %*% y; c(dim(r), sum(r), r[7,11] == sum(x[7,] * y[,11]), r[150,150] == sum(x[150,] * y[,150])) }");
+        assertEval("{ x <- matrix((1:45000 %% 13) - 6, 150); x[3,5] <- NA; x[7,9] <- NaN; y <- matrix((1:45150 %% 11) - 5, 301); y[2,4] <- NA; r <- x %*% y; list(r[3,1:5], r[7,1:5], r[1:5,4]) }");
+    }
 }
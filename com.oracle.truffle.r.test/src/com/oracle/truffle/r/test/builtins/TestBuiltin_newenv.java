@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2016, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2016, 2019, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -37,4 +37,18 @@ public class TestBuiltin_newenv extends TestBase {
         assertEval(Output.ContainsReferences, "parent.env(new.env())");
         assertEval(Output.ContainsReferences, "e <- new.env(); e; parent.env(new.env(TRUE, e))");
     }
+
+    @Test
+    public void testHashedEnv() {
+        assertEval("{ e <- new.env(); for (i in 1:3000) assign(paste0('k', i), i, envir=e); rm(list=paste0('k', seq(1, 3000, 2)), envir=e); c(length(ls(e)), get('k2', e), exists('k1', envir=e, inherits=FALSE), head(ls(e), 3)) }");
+        assertEval("{ e <- new.env(size=5000L); for (i in 1:2000) e[[as.character(i)]] <- i; x <- evalq(sum(as.integer(ls())), e); f <- function() `1000`; environment(f) <- e; c(x, f(), e$`1999`) }");
+        assertEval("{ e <- new.env(size=5000L); e$a <- 1; e$b <- 2; lockBinding('a', e); r <- tryCatch(assign('a', 3, envir=e), error=function(c) 'locked'); rm('a', envir=e); e$a <- 4; lockEnvironment(e); r2 <- tryCatch(assign('z', 1, envir=e), error=function(c) 'env locked'); list(r, e$a, r2, mget(c('a', 'b'), envir=e)) }");
+        assertEval("{ e <- new.env(size=5000L); e$x <- 1; makeActiveBinding('y', function() e$x * 2, e); e$x <- 21; c(e$y, bindingIsActive('y', e), ls(e)) }");
+        assertEval("{ p <- new.env(); e <- new.env(parent=p, size=5000L); e$v <- 1; assign('w', 2, envir=p); c(identical(parent.env(e), p), get('w', envir=e), exists('v', envir=e)) }");
+        assertEval("{ e <- new.env(size=5000L); for (i in 1:500) assign(paste0('k', i), i, envir=e); rm(list=paste0('k', 1:250), envir=e); for (i in 1:100) assign(paste0('k', i), -i, envir=e); c(length(ls(e)), sum(unlist(mget(paste0('k', 1:500), envir=e, ifnotfound=0))), exists('k200', envir=e, inherits=FALSE), get('k300', envir=e)) }");
+        assertEval("{ e <- new.env(size=5000L); e$a <- 1; e$b <- 2; e$c <- 3; rm('a', envir=e); e$a <- 4; rm('b', envir=e); e$b <- 5; list(ls(e), mget(c('a', 'b', 'c'), envir=e)) }");
+        assertEval("{ e <- new.env(size=5000L); e$a <- 1; e$b <- 2; rm('a', envir=e); lockEnvironment(e, bindings=TRUE); list(bindingIsLocked('b', e), tryCatch(bindingIsLocked('a', e), error=function(c) 'no binding'), ls(e)) }");
+        assertEval("{ e <- new.env(size=5000L); e$a <- 1; e$b <- 2; rm('a', envir=e); lockBinding('b', e); e$a <- 3; e$a <- 4; r <- tryCatch(assign('b', 5, envir=e), error=function(c) 'locked'); list(e$a, r, bindingIsLocked('a', e)) }");
+        assertEval("{ e <- new.env(size=5000L); e$a <- 1; e$b <- 'x'; e2 <- unserialize(serialize(e, NULL)); list(e2$a, e2$b, bindingIsActive('a', e)) }");
+    }
 }
@@ -14,7 +14,7 @@
  * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
  *
  * Copyright (c) 2012-2014, Purdue University
- * Copyright (c) 2013, 2018, Oracle and/or its affiliates
+ * Copyright (c) 2013, 2019, Oracle and/or its affiliates
  *
  * All rights reserved.
  */
@@ -180,4 +180,15 @@ public class TestBuiltin_order extends TestBase {
         assertEval("order(NULL)");
         assertEval("order(c(NULL, c(1,2,0)))");
     }
+
+    @Test
+    public void testOrderRadix() {
+        assertEval("{ x <- c(3L, NA, -2L, .Machine$integer.max, -.Machine$integer.max, 3L, 0L); list(order(x), order(x, decreasing=TRUE), order(x, na.last=FALSE), order(x, na.last=NA)) }");
+        assertEval("{ x <- c(1.5, NaN, -0, 0, -Inf, Inf, NA, -1e308, 1e-308, 1.5); list(order(x), order(x, decreasing=TRUE), order(x, na.last=FALSE, decreasing=TRUE)) }");
+        assertEval("{ x <- c(TRUE, NA, FALSE, TRUE, FALSE); list(order(x), order(x, decreasing=TRUE)) }");
+        assertEval("{ x <- c('b', NA, 'a', 'B', 'b', 'A'); list(order(x, method='radix'), order(x, method='radix', decreasing=TRUE)) }");
+        assertEval("{ x <- c(2, 1, 2, 1, NA); y <- c('b', 'a', 'a', NA, 'c'); list(order(x, y), order(x, y, decreasing=TRUE), order(x, y, na.last=FALSE), order(x, y, decreasing=c(TRUE, FALSE), method='radix')) }");
+        assertEval("{ set.seed(42); x <- sample(100, 1000, replace=TRUE); y <- runif(1000); o <- order(x, y); identical(o, order(x, y, method='radix')) && !is.unsorted(x[o]) }");
+        assertEval("{ list(sort(c(3, 1, NA, 2), method='radix'), sort(c(3, 1, NA, 2), method='radix', na.last=TRUE, decreasing=TRUE), sort.list(c('b', 'a', 'c'), method='radix')) }");
+    }
 }
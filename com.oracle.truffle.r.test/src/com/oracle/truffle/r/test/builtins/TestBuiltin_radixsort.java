@@ -14,7 +14,7 @@
  * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
  *
  * Copyright (c) 2014, Purdue University
- * Copyright (c) 2014, 2018, Oracle and/or its affiliates
+ * Copyright (c) 2014, 2019, Oracle and/or its affiliates
  *
  * All rights reserved.
  */
@@ -64,4 +64,13 @@ public class TestBuiltin_radixsort extends TestBase {
         // at InternalNode$InternalCallWrapNode.prepareArgs(InternalNode.java:309)
         assertEval(Ignored.ImplementationError, "argv <- list(structure(integer(0), .Label = character(0), class = 'factor'), TRUE, FALSE); .Internal(radixsort(argv[[1]], argv[[2]], argv[[3]]))");
     }
+
+    @Test
+    public void testradixsortGroups() {
+        assertEval("{ .Internal(radixsort(TRUE, FALSE, TRUE, TRUE, c(3L, 1L, 3L, NA, 1L, 3L))) }");
+        assertEval("{ .Internal(radixsort(TRUE, c(FALSE, TRUE), TRUE, TRUE, c(1, 1, 2, 2), c('a', 'b', 'a', 'a'))) }");
+        assertEval("{ .Internal(radixsort(TRUE, FALSE, TRUE, FALSE, c('b', 'a', 'b', 'c', 'a'))) }");
+        assertEval("{ .Internal(radixsort(NA, FALSE, FALSE, TRUE, c(2, NA, 1), c(1L, 2L, NA))) }");
+        assertEval("{ grouping(c(3, 1, 3, 2, 1)) }");
+    }
 }
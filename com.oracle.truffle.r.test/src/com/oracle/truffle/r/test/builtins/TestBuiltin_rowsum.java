@@ -14,7 +14,7 @@
  * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
  *
  * Copyright (c) 2014, Purdue University
- * Copyright (c) 2014, 2018, Oracle and/or its affiliates
+ * Copyright (c) 2014, 2019, Oracle and/or its affiliates
  *
  * All rights reserved.
  */
@@ -86,4 +86,15 @@ public class TestBuiltin_rowsum extends TestBase {
         assertEval(Output.IgnoreErrorMessage, "x <- matrix(1:10, ncol=2); g <- c(1,2,3,2,1); ug <-unique(g); .Internal(rowsum_matrix(x, , ug, FALSE,as.character(ug)))");
         assertEval(Output.IgnoreErrorMessage, "x <- matrix(1:10, ncol=2); g <- c(1,2,3,2,1); ug <-unique(g); .Internal(rowsum_matrix(x, g, , FALSE,as.character(ug)))");
     }
+
+    @Test
+    public void testRowsumGroups() {
+        assertEval("{ rowsum(c(1, 2, 3, 4, NA), c('b', 'a', 'b', NA, 'a')) }");
+        assertEval("{ rowsum(c(1, 2, 3, 4, NA), c('b', 'a', 'b', NA, 'a'), na.rm = TRUE) }");
+        assertEval("{ rowsum(matrix(1:6, ncol = 2), c(TRUE, NA, TRUE)) }");
+        assertEval("{ rowsum(c(.Machine$integer.max, 1L, 2L), c(1, 1, 2)) }");
+        assertEval("{ rowsum(c(1, 2, 3, 4), c(NaN, 0, -0, NaN)) }");
+        assertEval("{ rowsum(matrix(as.double(1:2000000), ncol = 2), rep_len(c(3L, 1L, 2L), 1000000)) }");
+        assertEval("{ rowsum(matrix(1:2000000, ncol = 2), rep_len(c('x', 'y'), 1000000)) }");
+    }
 }
@@ -91,6 +91,19 @@ public class TestBuiltin_scan extends TestBase {
         assertEval("fileConn<-file('" + TEST_CVS_FILE + "'); writeLines(c('" + testData + "'), fileConn); m <- read.csv('" + TEST_CVS_FILE + "'); m");
     }
 
+    @Test
+    public void testScanFile() {
+        assertEval("{ f <- tempfile(); writeLines(c('1,2.5,TRUE,a', '3,NA,F,\"b,\"\"c\"\"\"', '', '-7,1e3,,'), f); r <- scan(f, what=list(0L, 0, NA, ''), sep=',', quiet=TRUE); unlink(f); r }");
+        assertEval("{ f <- tempfile(); writeLines(c('1 2', '3 4', '5 6'), f); con <- file(f, 'r'); r <- list(scan(con, what=list(0L, 0L), nmax=2, quiet=TRUE), readLines(con)); close(con); unlink(f); r }");
+        assertEval("{ f <- tempfile(); writeLines(c('1,a', '2,b', '3,c', '4,d'), f); con <- file(f, 'r'); r <- list(scan(con, what=list(0, ''), sep=',', nmax=1, quiet=TRUE), scan(con, what=list(0, ''), sep=',', nmax=2, quiet=TRUE), readLines(con)); close(con); unlink(f); r }");
+        assertEval("{ f <- tempfile(); writeLines(c('1;2,5', '3;4'), f); r <- scan(f, what=list(0L, 0), sep=';', dec=',', quiet=TRUE); unlink(f); r }");
+        assertEval("{ f <- tempfile(); writeLines(c('1,2', '3', '4,5'), f); r <- scan(f, what=list(0L, 0L), sep=',', fill=TRUE, quiet=TRUE); unlink(f); r }");
+        assertEval("{ f <- tempfile(); writeLines(c('1,2', '3,x'), f); r <- tryCatch(scan(f, what=list(0L, 0L), sep=',', quiet=TRUE), error=function(e) 'error'); unlink(f); r }");
+        assertEval("{ f <- tempfile(); d <- data.frame(x=1:5000, y=(1:5000)/4, z=rep(c('a','b'), 2500), w=rep(c(TRUE,NA), 2500)); write.csv(d, f, row.names=FALSE); r <- read.csv(f); unlink(f); list(dim(r), sapply(r, class), all.equal(r, d)) }");
+        assertEval("{ f <- tempfile(); writeLines(c('# comment', 'a b c', '1 x 2.5 # trailing', '', '2 \"y z\" NA'), f); r <- read.table(f, header=TRUE); unlink(f); r }");
+        assertEval("{ f <- tempfile(); writeLines(c('a,b', '1,2', '3,4', '5,6'), f); r <- read.csv(f, nrows=2, colClasses=c('integer', 'numeric')); unlink(f); r }");
+    }
+
     @Test
     public void testArgsCasts() {
         // Empty 2nd 'what' parameter
@@ -14,7 +14,7 @@
  * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
  *
  * Copyright (c) 2012-2014, Purdue University
- * Copyright (c) 2013, 2018, Oracle and/or its affiliates
+ * Copyright (c) 2013, 2019, Oracle and/or its affiliates
  *
  * All rights reserved.
  */
@@ -139,4 +139,10 @@ public class TestBuiltin_split extends TestBase {
         assertEval("{ split(list(q=1, w=2L, e='x', r=T), as.factor(c('a', 'b', 'a')); }");
         assertEval(Ignored.Unimplemented, "{ tmp <- c(1,2,3); names(tmp) <- c('x','y','z'); split(tmp, as.factor(c('a','b'))); }");
     }
+
+    @Test
+    public void testSplitGroups() {
+        assertEval("{ x <- c(a = 1, b = 2, c = 3, d = 4); split(x, factor(c('u', NA, 'v', 'u'))) }");
+        assertEval("{ lengths(split(1:2000000, rep_len(factor(c('a', 'b', NA)), 2000000))) }");
+    }
 }
@@ -14,7 +14,7 @@
  * Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
  *
  * Copyright (c) 2012-2014, Purdue University
- * Copyright (c) 2013, 2018, Oracle and/or its affiliates
+ * Copyright (c) 2013, 2019, Oracle and/or its affiliates
  *
  * All rights reserved.
  */
@@ -76,4 +76,9 @@ public class TestBuiltin_tabulate extends TestBase {
         assertEval("{ .Internal(tabulate(c(2L,3L,5L), -1)) }");
         assertEval("{ .Internal(tabulate(c(2L,3L,5L), NA)) }");
     }
+
+    @Test
+    public void testTabulateLarge() {
+        assertEval("{ tabulate(rep_len(c(1L, 3L, NA, 0L, 7L), 2000000), 5) }");
+    }
 }
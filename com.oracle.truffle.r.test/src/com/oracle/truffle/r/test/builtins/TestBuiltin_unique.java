@@ -207,5 +207,9 @@ public class TestBuiltin_unique extends TestBase {
         assertEval("unique(c(1, NA, NA))");
         assertEval("unique(c(1+1i, NA, NA))");
 
+        assertEval("{ x <- rep(c(3L, NA, 1L, 2L), 100); r1 <- unique(x); x[[400]] <- 7L; list(r1, unique(x), match(c(7L, NA), x)) }");
+        assertEval("{ x <- rep(c(3, NA, NaN, 0, -0), 100); r1 <- unique(x); x[[500]] <- 7; list(r1, unique(x)) }");
+        assertEval("{ x <- rep(c('b', NA, 'a'), 100); r1 <- unique(x); x[[300]] <- 'c'; list(r1, unique(x)) }");
+
     }
 }
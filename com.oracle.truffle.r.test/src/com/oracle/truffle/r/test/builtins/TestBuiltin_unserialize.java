@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2016, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2016, 2019, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -38,6 +38,16 @@ public class TestBuiltin_unserialize extends TestBase {
         assertEval(template("unserialize(serialize(%0, NULL))", BASIC_TYPE_VALUES));
     }
 
+    @Test
+    public void testLargeVectors() {
+        // vectors larger than the serialization buffers, with NA values crossing buffer boundaries
+        assertEval("{ x <- c(1:50000, NA, 50002:100000); y <- unserialize(serialize(x, NULL)); c(identical(x, y), anyNA(y), sum(y, na.rm=TRUE)) }");
+        assertEval("{ x <- rep(c(TRUE, NA, FALSE), 30000); y <- unserialize(serialize(x, NULL)); c(identical(x, y), sum(is.na(y))) }");
+        assertEval("{ x <- c(seq(0.5, 40000, by=0.5), NA, NaN, -Inf); y <- unserialize(serialize(x, NULL)); c(identical(x, y), is.na(y[80001]), is.nan(y[80002])) }");
+        assertEval("{ f <- tempfile(); x <- list(a=as.numeric(1:70000), b=c(NA, 2:70000), c=rep(c(TRUE, FALSE), 35000)); saveRDS(x, f, compress=FALSE); y <- readRDS(f); unlink(f); identical(x, y) }");
+        assertEval("{ f <- tempfile(); x <- as.numeric(1:70000); con <- file(f, 'wb'); serialize(x, con); close(con); con <- file(f, 'rb'); y <- unserialize(con); close(con); unlink(f); identical(x, y) }");
+    }
+
     @Test
     public void testserializeAndUnserializeClosure() {
         // N.B.: FastR does not preserve code formatting like GNU R does
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2014, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2014, 2019, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -275,6 +275,14 @@ public class TestConnections extends TestRBase {
         assertEval("f1 <- file(open='w+b', encoding='UTF-8'); writeBin(charToRaw(\"abcd\"), f1); seek(f1); seek(f1,0); seek(f1)");
     }
 
+    @Test
+    public void testBufferedWrite() {
+        assertEval("{ fn <- tempfile(); zz <- file(fn, 'w'); for (i in 1:2000) cat(i, '\\n', file=zz); close(zz); x <- readLines(fn); unlink(fn); c(length(x), x[2000]) }");
+        assertEval("{ fn <- tempfile(); zz <- gzfile(fn, 'w'); writeLines(as.character(1:10000), zz); close(zz); x <- readLines(gzfile(fn)); unlink(fn); c(length(x), x[10000]) }");
+        assertEval("{ fn <- tempfile(); zz <- file(fn, 'wb'); writeChar('abcdef', zz, eos=NULL); p <- seek(zz, 2); writeChar('XY', zz, eos=NULL); close(zz); r <- readChar(fn, 6); unlink(fn); list(p, r) }");
+        assertEval("{ fn <- tempfile(); zz <- file(fn, 'w', encoding='UTF-8'); writeLines(c('Hell\u00f6', strrep('\u00e4', 40000)), zz); close(zz); x <- readLines(fn, encoding='UTF-8'); unlink(fn); c(x[1], nchar(x[2])) }");
+    }
+
     private static final String[] LVAL = arr("T", "F");
 
     private static String[] arr(String... args) {
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.fastr;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.test.TestBase;
+
+// Checkstyle: stop line length check
+public class TestAltRep extends TestBase {
+
+    @Test
+    public void testCompactRep() {
+        assertEvalFastR("{ .fastr.altrep.class(rep(c(1L,5L,3L), 10000)) }", "'compact_rep_int'");
+        assertEvalFastR("{ .fastr.altrep.class(rep(c(1,5,3), each=2, length.out=10000)) }", "'compact_rep_real'");
+        assertEvalFastR("{ .fastr.altrep.class(rep(c(a=1L), 10000)) }", "NULL");
+        assertEvalFastR("{ .fastr.altrep.class(rep(1:10, 2)) }", "NULL");
+
+        String[] values = {"c(4L,-2L,7L)", "c(4L,NA,7L)", "c(1.5,3,NaN)", "c(2,-0,0)", "c(1L,2L,3L)"};
+        assertEval(template("{ x <- rep(%0, each=3, length.out=10000); list(sum(x), min(x), max(x), min(x, na.rm=TRUE), anyNA(x), is.unsorted(x), x[[9999]]) }", values));
+        assertEval(template("{ x <- rep(%0, times=2000); list(sum(x), range(x), anyNA(x), is.unsorted(x), x[[5999]]) }", values));
+        assertEvalFastR("{ x <- rep(c(1,2,3), each=2000); list(is.unsorted(x), is.unsorted(x, strictly=TRUE), x[[2001]], length(x)) }", "list(FALSE, TRUE, 2, 6000L)");
+        assertEvalFastR("{ x <- rep(1:2, 5000); x[3] <- 10L; list(x[1:4], sum(x), .fastr.altrep.class(x)) }", "list(c(1L,2L,10L,2L), 15009L, NULL)");
+    }
+
+    @Test
+    public void testCompactRepOperations() {
+        String[] sums = {"rep(-524288L, 4096)", "rep(c(.Machine$integer.max, 1L), 3000)", "rep(c(.Machine$integer.max, -.Machine$integer.max), 3000)", "rep(c(-1L, NA), 3000)"};
+        assertEval(template("{ x <- %0; tryCatch(sum(x), warning=function(w) conditionMessage(w)) }", sums));
+        assertEvalFastR("{ x <- rep(1:3, 5000) * 2L; list(.fastr.altrep.class(x), identical(x, rep(c(2L,4L,6L), 5000))) }", "list('compact_rep_int', TRUE)");
+        assertEvalFastR("{ x <- 3 / rep(c(1,2), 5000); list(.fastr.altrep.class(x), identical(x, rep(c(3,1.5), 5000))) }", "list('compact_rep_real', TRUE)");
+        assertEvalFastR("{ x <- suppressWarnings(rep(c(.Machine$integer.max, 1L), 3000) + 1L); list(.fastr.altrep.class(x), x[1:2]) }", "list(NULL, c(NA, 2L))");
+        assertEvalFastR("{ x <- rep(1:3, 5000); list(dim(x), rownames(x), names(x), isS4(asS4(x)), .fastr.altrep.class(x)) }", "list(NULL, NULL, NULL, TRUE, 'compact_rep_int')");
+    }
+
+    @Test
+    public void testMmap() {
+        assertEvalFastR("{ f <- tempfile(); writeBin(as.double(1:10), f, endian='little'); x <- .fastr.altrep.mmap(f); r <- list(sum(x), x[[10]], length(x), typeof(x)); unlink(f); r }",
+                        "list(55, 10, 10L, 'double')");
+        assertEvalFastR("{ f <- tempfile(); writeBin(1:5, f, endian='big'); x <- .fastr.altrep.mmap(f, 'integer', 'big'); r <- x * 2L; unlink(f); r }", "c(2L,4L,6L,8L,10L)");
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.fastr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.runtime.context.RContext.ContextKind;
+import com.oracle.truffle.r.runtime.ffi.NativeLock;
+import com.oracle.truffle.r.test.TestBase;
+import com.oracle.truffle.r.test.generate.FastRContext;
+import com.oracle.truffle.r.test.generate.FastRSession;
+
+public class TestNativeLocks extends TestBase {
+
+    @Test
+    public void testLockStats() {
+        assertEvalFastR("{ s <- .fastr.native.lockStats(); names(s) }", "c('name', 'path', 'calls', 'contended', 'wait', 'hold')");
+        // fft calls into the native code of the stats package
+        assertEvalFastR("{ invisible(fft(1:8)); s <- .fastr.native.lockStats(); all(s$calls >= s$contended) && all(s$wait >= 0) && all(s$hold >= 0) }", "TRUE");
+    }
+
+    private static NativeLock[] createLocks(String... names) {
+        NativeLock[] locks = new NativeLock[names.length];
+        FastRContext context = FastRSession.create().createContext(ContextKind.SHARE_PARENT_RW);
+        try {
+            FastRSession.execInContext(context, () -> {
+                for (int i = 0; i < names.length; i++) {
+                    locks[i] = NativeLock.forLibrary(names[i], "/testNativeLocks/" + names[i] + ".so");
+                }
+                return null;
+            });
+        } finally {
+            context.close();
+        }
+        for (NativeLock lock : locks) {
+            assertNotNull(lock);
+        }
+        return locks;
+    }
+
+    @Test
+    public void testNestedDowncalls() {
+        NativeLock[] locks = createLocks("nestedA", "nestedB");
+        Object outerToken = NativeLock.enter(locks[0]);
+        // down-call into the same library from an up-call
+        assertNull(NativeLock.enter(locks[0]));
+        // down-call into another library keeps the outer lock
+        NativeLock.exit(NativeLock.enter(locks[1]));
+        NativeLock.exit(outerToken);
+        assertEquals(1, locks[0].getAcquisitions());
+        assertEquals(1, locks[1].getAcquisitions());
+    }
+
+    @Test
+    public void testNestedDowncallsFromTwoThreads() throws InterruptedException {
+        NativeLock[] locks = createLocks("crossA", "crossB");
+        CyclicBarrier inOuterCall = new CyclicBarrier(2);
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[2];
+        for (int i = 0; i < threads.length; i++) {
+            NativeLock outer = locks[i];
+            NativeLock inner = locks[1 - i];
+            // calls the native code of one library that calls the native code of the other one
+            threads[i] = new Thread(() -> {
+                try {
+                    Object outerToken = NativeLock.enter(outer);
+                    try {
+                        inOuterCall.await(1, TimeUnit.MINUTES);
+                        Object innerToken;
+                        try {
+                            innerToken = NativeLock.enter(inner);
+                        } catch (Throwable t) {
+                            // the deadlock was detected, the thread has no R context to report
+                            // the error, so it does not have to be an RError
+                            failed.incrementAndGet();
+                            return;
+                        }
+                        NativeLock.exit(innerToken);
+                        completed.incrementAndGet();
+                    } finally {
+                        NativeLock.exit(outerToken);
+                    }
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            });
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.MINUTES.toMillis(1));
+            assertFalse("nested down-calls deadlocked", thread.isAlive());
+        }
+        assertNull(failure.get());
+        // the outer locks are never released, so one of the threads has to give up
+        assertEquals(1, completed.get());
+        assertEquals(1, failed.get());
+    }
+}
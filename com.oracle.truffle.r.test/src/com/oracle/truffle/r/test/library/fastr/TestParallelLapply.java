@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.fastr;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.test.TestBase;
+
+// Checkstyle: stop line length check
+public class TestParallelLapply extends TestBase {
+
+    @Test
+    public void testParallelLapply() {
+        assertEvalFastR("{ .fastr.parallel.lapply(1:10, function(x) x * 2, mc.cores=2) }", "lapply(1:10, function(x) x * 2)");
+        assertEvalFastR("{ .fastr.parallel.lapply(c(a=1, b=2, c=3), function(x, y) x + y, y=10, mc.cores=3) }", "lapply(c(a=1, b=2, c=3), function(x, y) x + y, y=10)");
+        assertEvalFastR("{ .fastr.parallel.lapply(list(1:3, letters), length, mc.cores=4) }", "list(3L, 26L)");
+        assertEvalFastR("{ .fastr.parallel.lapply(1:3, function(x) x, mc.cores=1) }", "list(1L, 2L, 3L)");
+        assertEvalFastR("{ tryCatch(.fastr.parallel.lapply(1:4, function(x) if (x == 3) stop('boom') else x, mc.cores=2), error=function(e) 'failed') }", "'failed'");
+        assertEvalFastR("{ cond <- structure(class=c('myError', 'error', 'condition'), list(message='boom', call=quote(f(x)))); tryCatch(.fastr.parallel.lapply(1:4, function(x) if (x == 3) stop(cond) else x, mc.cores=2), myError=function(e) list(conditionMessage(e), deparse(conditionCall(e)))) }",
+                        "list('boom', 'f(x)')");
+    }
+
+    @Test
+    public void testParallelLapplyRNG() {
+        // the RNG state of the caller is not changed
+        assertEvalFastR("{ set.seed(42); .fastr.parallel.lapply(1:4, function(x) x, mc.cores=2); runif(1) }", "set.seed(42); runif(1)");
+        // every chunk is seeded randomly and the seed of the caller is kept
+        assertEvalFastR("{ set.seed(3); s <- .Random.seed; r <- .fastr.parallel.lapply(1:2, function(i) runif(1), mc.cores=2); list(r[[1]] != r[[2]], identical(s, .Random.seed)) }", "list(TRUE, TRUE)");
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.fastr;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.test.TestBase;
+
+// Checkstyle: stop line length check
+public class TestReadDelim extends TestBase {
+
+    @Test
+    public void testReadDelim() {
+        assertEvalFastR("{ f <- tempfile(); writeLines(c('a,b,c,d', '1,2.5,T,x', '2,3,F,\"y,z\"', '3,NA,NA,'), f); r <- .fastr.readDelim(f); unlink(f); list(sapply(r, class), r$a, r$b, r$c, r$d) }",
+                        "list(c(a='integer', b='numeric', c='logical', d='character'), 1:3, c(2.5, 3, NA), c(TRUE, FALSE, NA), c('x', 'y,z', ''))");
+        assertEvalFastR("{ f <- tempfile(); writeLines(c('1 2', '3 4'), f); r <- .fastr.readDelim(f, sep='', header=FALSE); unlink(f); r }", "data.frame(V1=c(1L,3L), V2=c(2L,4L))");
+        // a value after the sampled rows that does not fit the inferred type
+        assertEvalFastR("{ f <- tempfile(); writeLines(c('x', 1:10, '1.5'), f); r <- .fastr.readDelim(f, sample.rows=5L); unlink(f); list(class(r$x), sum(r$x)) }", "list('numeric', 56.5)");
+        assertEvalFastR("{ f <- tempfile(); writeLines(c('x', 1:10), f); r <- .fastr.readDelim(f, nrows=3L); unlink(f); r$x }", "1:3");
+        assertEvalFastR("{ f <- tempfile(); writeLines(c('x,y', '1,2', '3'), f); r <- tryCatch(.fastr.readDelim(f), error=function(e) conditionMessage(e)); unlink(f); r }", "'line 3 did not have 2 elements'");
+    }
+}
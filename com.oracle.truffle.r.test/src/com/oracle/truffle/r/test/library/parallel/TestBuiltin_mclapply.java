@@ -53,4 +53,29 @@ public class TestBuiltin_mclapply extends TestBase {
         assertEval(Ignored.ImplementationError,
                         "parallel:::mclapply(1:3, function(i) { Sys.sleep(.1); parallel:::mclapply(1:3, function(i) { Sys.sleep(.1); parallel:::mclapply(1:3, function(i) {i}) }) })");
     }
+
+    @Test
+    public void testMCLapplyPool() {
+        assertEvalFastR("{ parallel::mclapply(1:10, function(x) x * 2, mc.cores=2) }", "lapply(1:10, function(x) x * 2)");
+        assertEvalFastR("{ parallel::mclapply(c(a=1, b=2, c=3), function(x, y) x + y, y=10, mc.cores=2, mc.preschedule=FALSE) }", "lapply(c(a=1, b=2, c=3), function(x, y) x + y, y=10)");
+        assertEvalFastR("{ parallel::mcmapply(function(x, y) x * y, 1:5, 6:10, mc.cores=2) }", "mapply(function(x, y) x * y, 1:5, 6:10)");
+        assertEvalFastR("{ parallel::pvec(1:10, sqrt, mc.cores=3) }", "sqrt(1:10)");
+        assertEvalFastR("{ r <- suppressWarnings(parallel::mclapply(1:4, function(x) if (x == 2) stop('boom') else x, mc.cores=2)); list(r[[1]], class(r[[2]]), r[[3]]) }", "list(1L, 'try-error', 3L)");
+        // the second call reuses the child contexts created by the first one
+        assertEvalFastR("{ parallel::mclapply(1:4, identity, mc.cores=2); n <- .fastr.parallel.poolStats()[['created']]; parallel::mclapply(1:4, identity, mc.cores=2); .fastr.parallel.poolStats()[['created']] - n }",
+                        "0L");
+        // the pools of the child contexts are stopped when the child contexts are disposed
+        assertEvalFastR("{ .fastr.parallel.lapply(1:2, function(i) parallel::mclapply(1:2, function(j) i * j, mc.cores=2), mc.cores=2) }", "list(list(1L, 2L), list(2L, 4L))");
+    }
+
+    @Test
+    public void testMCLapplyStreams() {
+        // the chunks use the streams derived from the current seed in the same order as GNU R
+        assertEval("{ RNGkind(\"L'Ecuyer-CMRG\"); set.seed(7); parallel::mclapply(1:3, function(i) runif(2), mc.cores=3) }");
+        assertEval("{ RNGkind(\"L'Ecuyer-CMRG\"); set.seed(11); s <- .Random.seed; r <- parallel::mclapply(1:4, function(i) runif(1), mc.cores=2, mc.preschedule=FALSE); list(r, identical(s, .Random.seed)) }");
+        assertEval("{ RNGkind(\"L'Ecuyer-CMRG\"); set.seed(5); parallel::pvec(1:4, function(v) runif(length(v)), mc.cores=2) }");
+        // without L'Ecuyer-CMRG the children are seeded randomly, without mc.set.seed they inherit the seed of the caller
+        assertEval("{ RNGkind('Mersenne-Twister'); set.seed(5); r <- parallel::mclapply(1:2, function(i) runif(1), mc.cores=2); r[[1]] != r[[2]] }");
+        assertEval("{ RNGkind('Mersenne-Twister'); set.seed(5); r <- parallel::mclapply(1:2, function(i) runif(1), mc.cores=2, mc.set.seed=FALSE); identical(r[[1]], r[[2]]) }");
+    }
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.oracle.truffle.r.test.library.stats;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.test.TestBase;
+
+public class TestExternal_Cdist extends TestBase {
+    private static final String[] METHODS = new String[]{"euclidean", "maximum", "manhattan", "canberra", "binary", "minkowski"};
+
+    @Test
+    public void testDist() {
+        assertEval(template("{ x <- matrix(c(1, 0, 3, NA, 5, 2, -1, 0, Inf, 4, 2, 0), 4); dist(x, method = '%0', p = 3) }", METHODS));
+        assertEval(template("{ x <- matrix(c(1, NA, 3, NA, 5, NA, -1, NA), 2, byrow = TRUE); dist(x, method = '%0') }", METHODS));
+        assertEval(template("{ set.seed(1); x <- matrix(round(rnorm(500 * 7), 2), 500); x[c(3, 77, 1200)] <- NA; d <- dist(x, method = '%0', p = 1.5); c(length(d), sum(is.na(d)), round(sum(d, na.rm = TRUE), 4), d[c(1, 499, 500, 124750)]) }",
+                        METHODS));
+        assertEval("{ dist(matrix(1:6, 3), diag = TRUE, upper = TRUE) }");
+        assertEval("{ dist(matrix(1, 1, 3)) }");
+    }
+}
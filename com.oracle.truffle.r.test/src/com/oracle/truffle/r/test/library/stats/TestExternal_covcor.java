@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2016, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2016, 2019, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -51,4 +51,12 @@ public class TestExternal_covcor extends TestBase {
         assertEval(template("cov(mtcars[,1:4], use='%0', method='%1')", useCov, methods));
         assertEval(template("cov(1:4, c(1,7,1,-4), use='%0', method='%1')", useCov, methods));
     }
+
+    @Test
+    public void testWideMatrix() {
+        // more columns than one block of the cross products, with NA and a constant column
+        String[] use = new String[]{"e", "c", "n", "p"};
+        assertEval(template("{ m <- matrix(sin(1:3000), 60, 50); m[3, 7] <- NA; m[, 42] <- 1; r <- cor(m, use='%0'); c(dim(r), sum(is.na(r)), round(sum(r, na.rm=TRUE), 6), round(r[45, 12], 6)) }", use));
+        assertEval(template("{ m <- matrix(cos(1:3000), 60, 50); m[5, 33] <- NA; r <- cov(m, m[, 10:45], use='%0'); c(dim(r), sum(is.na(r)), round(sum(r, na.rm=TRUE), 6), round(r[40, 20], 6)) }", use));
+    }
 }
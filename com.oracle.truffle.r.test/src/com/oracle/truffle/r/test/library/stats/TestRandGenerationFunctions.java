@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2014, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2014, 2019, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -102,6 +102,18 @@ public class TestRandGenerationFunctions extends TestBase {
         assertEval("for(gen in c(\"Buggy Kinderman-Ramage\", \"Ahrens-Dieter\", \"Box-Muller\", \"Inversion\", \"Kinderman-Ramage\", \"default\")) { print(paste0(gen, \":\")); RNGkind(NULL,gen); set.seed(42); print(rnorm(30)); }");
     }
 
+    @Test
+    public void testBulkGeneration() {
+        // scalar parameters take the bulk path, recycled vectors of parameters the element-wise one
+        assertEval("{ set.seed(4); x <- runif(1500, -2, 3); s <- .Random.seed; set.seed(4); y <- runif(1500, c(-2, -2), 3); list(identical(x, y), identical(s, .Random.seed)) }");
+        assertEval("{ set.seed(5); x <- rexp(1500, 0.5); set.seed(5); y <- rexp(1500, c(0.5, 0.5)); identical(x, y) }");
+        assertEval("{ set.seed(6); x <- rbinom(1500, 20, 0.3); set.seed(6); y <- rbinom(1500, c(20, 20), 0.3); identical(x, y) }");
+        assertEval("{ RNGkind(normal.kind='Inversion'); set.seed(7); x <- rnorm(1500, 1, 2); s <- .Random.seed; set.seed(7); y <- rnorm(1500, c(1, 1), 2); list(identical(x, y), identical(s, .Random.seed)) }");
+        assertEval("{ RNGkind(normal.kind='Box-Muller'); set.seed(8); x <- rnorm(1500); set.seed(8); y <- rnorm(1500, c(0, 0)); RNGkind(normal.kind='default'); identical(x, y) }");
+        assertEval("{ set.seed(9); x <- runif(700); y <- runif(700); set.seed(9); identical(c(x, y), runif(1400)) }");
+        assertEval("{ set.seed(10); list(runif(3, 2, 2), rnorm(3, 1/0, 1), rexp(3, 0), runif(3, 1, 0)) }");
+    }
+
     @Test
     public void testDotRandomSeed() {
         assertEval(Output.IgnoreErrorContext, "{ .Random.seed }");
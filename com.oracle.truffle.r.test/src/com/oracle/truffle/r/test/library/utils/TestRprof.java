@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.library.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+import com.oracle.truffle.r.library.utils.Pprof;
+import com.oracle.truffle.r.library.utils.Rprof;
+import com.oracle.truffle.r.library.utils.Rprof.ProfileFrame;
+import com.oracle.truffle.r.library.utils.Rprof.Samples;
+import com.oracle.truffle.r.test.TestBase;
+
+// Checkstyle: stop line length check
+public class TestRprof extends TestBase {
+
+    private static final String CALL_TREE = "h <- function() f(); f <- function() g(); g <- function() Sys.sleep(0.3); tf <- tempfile(); ";
+
+    @Test
+    public void testSampler() {
+        assertEvalFastR("{ " + CALL_TREE + "Rprof(tf, interval=0.01, format='collapsed'); h(); Rprof(NULL); lines <- readLines(tf); unlink(tf); any(grepl('(^|;)h;f;g [0-9]+$', lines)) }", "TRUE");
+        assertEvalFastR("{ " + CALL_TREE + "Rprof(tf, interval=0.01); h(); Rprof(NULL); lines <- readLines(tf); unlink(tf); list(lines[[1]], any(startsWith(lines, '\"g\" \"f\" \"h\" '))) }",
+                        "list('sample.interval=10000', TRUE)");
+        // the functions that were executing when the profiling started are part of the stacks
+        assertEvalFastR("{ " + CALL_TREE + "w <- function() { Rprof(tf, interval=0.01, format='collapsed'); h(); Rprof(NULL) }; w(); lines <- readLines(tf); unlink(tf); any(grepl('(^|;)w;h;f;g [0-9]+$', lines)) }",
+                        "TRUE");
+        assertEvalFastR("{ " + CALL_TREE + "Rprof(tf, interval=0.01, format='pprof'); h(); Rprof(NULL); con <- gzfile(tf, 'rb'); b <- readBin(con, 'raw', 100000); close(con); unlink(tf); b[[1]] == as.raw(10) }",
+                        "TRUE");
+        assertEvalFastR("{ src <- tempfile(fileext='.R'); writeLines(c('h <- function() {', '  f()', '}', 'f <- function() {', '  Sys.sleep(0.3)', '}'), src); source(src, keep.source=TRUE); tf <- tempfile(); " +
+                        "Rprof(tf, interval=0.01, line.profiling=TRUE, format='collapsed'); h(); Rprof(NULL); lines <- readLines(tf); unlink(c(tf, src)); any(grepl('(^|;)h \\\\(.*:2\\\\);f \\\\(.*:5\\\\) [0-9]+$', lines)) }",
+                        "TRUE");
+        assertEvalFastR("{ tryCatch(Rprof(tempfile(), format='svg'), error=function(e) 'error') }", "'error'");
+    }
+
+    private static final ProfileFrame H = new ProfileFrame("h", "a.R", 2, 1);
+    private static final ProfileFrame F = new ProfileFrame("f", "a.R", 5, 4);
+    private static final ProfileFrame G = new ProfileFrame("g", "b.R", 2, 1);
+    private static final ProfileFrame G_LINE3 = new ProfileFrame("g", "b.R", 3, 1);
+
+    private static Samples createSamples() {
+        Samples samples = new Samples();
+        samples.add(1, G, F, H);
+        samples.add(2, F, H);
+        samples.add(1, G_LINE3, F, H);
+        samples.add(1, G, F, H);
+        samples.add(1, new ProfileFrame("x;y", null, 0, 0));
+        // a sample at the top level
+        samples.add(1);
+        return samples;
+    }
+
+    private static String[] collapsed(Samples samples, boolean lineProfiling) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes);
+        Rprof.writeCollapsed(out, samples, lineProfiling);
+        out.flush();
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8).split(System.lineSeparator());
+    }
+
+    @Test
+    public void testCollapsed() {
+        assertArrayEquals(new String[]{"h;f;g 3", "h;f 2", "x_y 1"}, collapsed(createSamples(), false));
+        assertArrayEquals(new String[]{"h (a.R:2);f (a.R:5);g (b.R:2) 2", "h (a.R:2);f (a.R:5) 2", "h (a.R:2);f (a.R:5);g (b.R:3) 1", "x_y 1"}, collapsed(createSamples(), true));
+    }
+
+    /**
+     * Decodes a protobuf message into the values of its fields, varints as {@link Long} and
+     * length-delimited fields as {@code byte[]}.
+     */
+    private static Map<Integer, List<Object>> decode(byte[] data) {
+        Map<Integer, List<Object>> result = new HashMap<>();
+        int[] pos = {0};
+        while (pos[0] < data.length) {
+            long tag = varint(data, pos);
+            Object value;
+            switch ((int) (tag & 7)) {
+                case 0:
+                    value = varint(data, pos);
+                    break;
+                case 2:
+                    int length = (int) varint(data, pos);
+                    byte[] bytes = new byte[length];
+                    System.arraycopy(data, pos[0], bytes, 0, length);
+                    pos[0] += length;
+                    value = bytes;
+                    break;
+                default:
+                    throw new AssertionError("unexpected wire type " + (tag & 7));
+            }
+            result.computeIfAbsent((int) (tag >>> 3), k -> new ArrayList<>()).add(value);
+        }
+        return result;
+    }
+
+    private static long varint(byte[] data, int[] pos) {
+        long result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[pos[0]++];
+            result |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return result;
+    }
+
+    private static long[] packed(byte[] data) {
+        ArrayList<Long> values = new ArrayList<>();
+        int[] pos = {0};
+        while (pos[0] < data.length) {
+            values.add(varint(data, pos));
+        }
+        return values.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static long field(Map<Integer, List<Object>> message, int field) {
+        List<Object> values = message.get(field);
+        return values == null ? 0 : (Long) values.get(0);
+    }
+
+    @Test
+    public void testPprof() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Pprof.write(out, createSamples(), 10000000, 1000, 70000000);
+        ByteArrayOutputStream unzipped = new ByteArrayOutputStream();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                unzipped.write(buffer, 0, n);
+            }
+        }
+        Map<Integer, List<Object>> profile = decode(unzipped.toByteArray());
+
+        ArrayList<String> strings = new ArrayList<>();
+        for (Object value : profile.get(6)) {
+            strings.add(new String((byte[]) value, StandardCharsets.UTF_8));
+        }
+        assertEquals("", strings.get(0));
+        ArrayList<String> sampleTypes = new ArrayList<>();
+        for (Object value : profile.get(1)) {
+            Map<Integer, List<Object>> valueType = decode((byte[]) value);
+            sampleTypes.add(strings.get((int) field(valueType, 1)) + "/" + strings.get((int) field(valueType, 2)));
+        }
+        assertEquals("[samples/count, cpu/nanoseconds]", sampleTypes.toString());
+        assertEquals(10000000, field(profile, 12));
+        assertEquals(1000, field(profile, 9));
+        assertEquals(70000000, field(profile, 10));
+
+        Map<Long, String> functionNames = new HashMap<>();
+        for (Object value : profile.get(5)) {
+            Map<Integer, List<Object>> function = decode((byte[]) value);
+            functionNames.put(field(function, 1), strings.get((int) field(function, 2)) + "@" + strings.get((int) field(function, 4)) + ":" + field(function, 5));
+        }
+        Map<Long, String> locations = new HashMap<>();
+        for (Object value : profile.get(4)) {
+            Map<Integer, List<Object>> location = decode((byte[]) value);
+            Map<Integer, List<Object>> line = decode((byte[]) location.get(4).get(0));
+            locations.put(field(location, 1), functionNames.get(field(line, 1)) + "#" + field(line, 2));
+        }
+        Map<String, String> samples = new HashMap<>();
+        for (Object value : profile.get(2)) {
+            Map<Integer, List<Object>> sample = decode((byte[]) value);
+            StringBuilder stack = new StringBuilder();
+            for (long locationId : packed((byte[]) sample.get(1).get(0))) {
+                stack.append(locations.get(locationId)).append(' ');
+            }
+            long[] values = packed((byte[]) sample.get(2).get(0));
+            samples.put(stack.toString().trim(), values[0] + "/" + values[1]);
+        }
+        Map<String, String> expected = new HashMap<>();
+        expected.put("g@b.R:1#2 f@a.R:4#5 h@a.R:1#2", "2/20000000");
+        expected.put("f@a.R:4#5 h@a.R:1#2", "2/20000000");
+        expected.put("g@b.R:1#3 f@a.R:4#5 h@a.R:1#2", "1/10000000");
+        expected.put("x;y@:0#0", "1/10000000");
+        assertEquals(expected, samples);
+    }
+}
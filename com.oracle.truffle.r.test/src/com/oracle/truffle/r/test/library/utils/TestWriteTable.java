@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2016, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2016, 2019, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -38,4 +38,11 @@ public class TestWriteTable extends TestBase {
     public void testTable() {
         assertEval("write.table(data.frame(col=c(1,2,3,4), col2=c(T, F, T, F)))");
     }
+
+    @Test
+    public void testNumericColumns() {
+        assertEval("write.csv2(data.frame(a=c(1.5, -2.25, NA), b=c(3L, NA, 1L), c=c('x', 'y\"z', NA)))");
+        assertEval("write.table(matrix(c(0.5, 1e5, 123456, -7, 1/3, NaN), 2), dec=',')");
+        assertEval("{ df <- data.frame(a=1:20000, b=(1:20000)/4, c=as.factor(rep(c('u','v'), 10000))); fn <- tempfile(); write.csv(df, fn, row.names=FALSE); x <- readLines(fn); unlink(fn); c(length(x), x[1:3], x[20001]) }");
+    }
 }
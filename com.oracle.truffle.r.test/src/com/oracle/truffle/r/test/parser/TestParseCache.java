@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.graalvm.polyglot.Context;
+import org.junit.Test;
+
+import com.oracle.truffle.r.parser.DefaultRParserFactory;
+import com.oracle.truffle.r.runtime.context.FastROptions;
+import com.oracle.truffle.r.test.generate.FastRSession;
+
+/**
+ * Checks that the ASTs replayed from the on-disk parse cache are the same as the ASTs built by the
+ * parser. The base package is parsed during the start of every context, so the cache is written by
+ * the first context and read by the next one.
+ */
+public class TestParseCache {
+
+    /**
+     * Deparses all closures of the base package.
+     */
+    private static final String BASE_FUNCTIONS = "{ ns <- asNamespace('base'); " +
+                    "paste(unlist(lapply(sort(ls(ns, all.names = TRUE)), function(n) { f <- get(n, envir = ns); if (is.function(f)) c(n, deparse(f)) })), collapse = '\\n') }";
+
+    private static String evalBaseFunctions(boolean cache, Path dir, int maxSize) {
+        Context.Builder builder = FastRSession.getContextBuilder("R");
+        builder.option(FastROptions.getName(FastROptions.ParseCache), Boolean.toString(cache));
+        builder.option(FastROptions.getName(FastROptions.ParseCacheDir), dir.toString());
+        builder.option(FastROptions.getName(FastROptions.ParseCacheMaxSize), Integer.toString(maxSize));
+        try (Context context = builder.build()) {
+            return context.eval("R", BASE_FUNCTIONS).asString();
+        }
+    }
+
+    private static List<Path> cacheFiles(Path dir) throws IOException {
+        ArrayList<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*.ast")) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testReplay() throws IOException {
+        Path dir = Files.createTempDirectory("fastrParseCache");
+        try {
+            String parsed = evalBaseFunctions(false, dir, 64);
+            assertTrue(cacheFiles(dir).isEmpty());
+            assertEquals(parsed, evalBaseFunctions(true, dir, 64));
+            assertTrue(!cacheFiles(dir).isEmpty());
+            long hits = DefaultRParserFactory.getParseCacheHits();
+            // replayed from the files written by the previous context
+            assertEquals(parsed, evalBaseFunctions(true, dir, 64));
+            assertTrue(DefaultRParserFactory.getParseCacheHits() > hits);
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void testInvalidFiles() throws IOException {
+        Path dir = Files.createTempDirectory("fastrParseCache");
+        try {
+            String parsed = evalBaseFunctions(true, dir, 64);
+            List<Path> files = cacheFiles(dir);
+            for (int i = 0; i < files.size(); i++) {
+                byte[] data = Files.readAllBytes(files.get(i));
+                if (i % 2 == 0) {
+                    // the checksum does not match any more
+                    data[data.length - 1] ^= 1;
+                    Files.write(files.get(i), data);
+                } else {
+                    Files.write(files.get(i), new byte[]{data[0], data[1], data[2]});
+                }
+            }
+            // invalid files make the parser fall back to ANTLR
+            assertEquals(parsed, evalBaseFunctions(true, dir, 64));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void testMaxSize() throws IOException {
+        Path dir = Files.createTempDirectory("fastrParseCache");
+        try {
+            String parsed = evalBaseFunctions(true, dir, 1);
+            long size = 0;
+            for (Path file : cacheFiles(dir)) {
+                size += Files.size(file);
+            }
+            assertTrue(size <= 1024 * 1024);
+            assertEquals(parsed, evalBaseFunctions(true, dir, 1));
+        } finally {
+            deleteRecursively(dir);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.parser;
+
+import static org.junit.Assert.assertEquals;
+
+import org.graalvm.polyglot.Context;
+import org.junit.Test;
+
+import com.oracle.truffle.r.runtime.context.FastROptions;
+import com.oracle.truffle.r.test.generate.FastRSession;
+
+/**
+ * Checks that parsing with the SLL prediction mode first gives the same results as parsing with LL
+ * only. The SLL attempt fails for invalid input and for input needing the full LL context, the
+ * retry with LL must not see any tokens or expressions recorded by the failed attempt.
+ */
+public class TestParserSLL {
+
+    private static final String[] TEXTS = {
+                    "{ if (a) b\\n else c }",
+                    "{ if (a) if (b) c else d\\n else e }",
+                    "f <- function(x, ...) { x[[1]] <- y ~ z; x }\\n(function() 1)()",
+                    "{ x -> y; x <<- y ->> z\\n -x^-2 }",
+                    "x <- (1 +",
+                    "x <- 1 +* 2",
+                    "{ if (a) b else }"};
+
+    /**
+     * Deparses the parsed expressions and prints their parse data, or returns the error message.
+     */
+    private static final String PARSE = "tryCatch({ e <- parse(text='%s', keep.source=TRUE); paste(c(deparse(e), capture.output(print(getParseData(e)))), collapse='\\n') }, " +
+                    "error = function(e) conditionMessage(e))";
+
+    private static String[] parse(boolean sll) {
+        Context.Builder builder = FastRSession.getContextBuilder("R");
+        builder.option(FastROptions.getName(FastROptions.ParserSLL), Boolean.toString(sll));
+        try (Context context = builder.build()) {
+            String[] result = new String[TEXTS.length];
+            for (int i = 0; i < TEXTS.length; i++) {
+                result[i] = context.eval("R", String.format(PARSE, TEXTS[i])).asString();
+            }
+            return result;
+        }
+    }
+
+    @Test
+    public void testParseSLL() {
+        String[] ll = parse(false);
+        String[] sll = parse(true);
+        for (int i = 0; i < TEXTS.length; i++) {
+            assertEquals(TEXTS[i], ll[i], sll[i]);
+        }
+    }
+}
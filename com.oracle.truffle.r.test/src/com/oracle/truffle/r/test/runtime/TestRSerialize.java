@@ -31,10 +31,12 @@ import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.oracle.truffle.r.runtime.RError;
 import com.oracle.truffle.r.runtime.RSerialize;
 import com.oracle.truffle.r.runtime.context.RContext;
 import com.oracle.truffle.r.runtime.context.RContext.ContextKind;
 import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RRawVector;
 import com.oracle.truffle.r.runtime.data.RStringVector;
 import com.oracle.truffle.r.test.TestBase;
 import com.oracle.truffle.r.test.generate.FastRContext;
@@ -151,4 +153,24 @@ public class TestRSerialize extends TestBase {
             return null;
         });
     }
+
+    @Test
+    public void testDeserializeTruncated() {
+        FastRSession.execInContext(context, () -> {
+            double[] values = new double[10000];
+            Arrays.fill(values, 1.5);
+            byte[] serialized = RSerialize.serialize(rContext, RDataFactory.createDoubleVector(values, true), RSerialize.XDR, RSerialize.DEFAULT_VERSION, null);
+            byte[] truncated = Arrays.copyOf(serialized, serialized.length / 2);
+            RRawVector data = RDataFactory.createRawVector(truncated.clone());
+            try {
+                RSerialize.unserialize(data);
+                Assert.fail("truncated data must not be unserialized");
+            } catch (RError e) {
+                Assert.assertTrue(e.getMessage().contains("Premature EOF"));
+            }
+            // the raw vector is not modified
+            Assert.assertArrayEquals(truncated, data.getReadonlyData());
+            return null;
+        });
+    }
 }
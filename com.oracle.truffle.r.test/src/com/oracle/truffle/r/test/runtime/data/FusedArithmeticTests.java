@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.runtime.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.oracle.truffle.r.runtime.RRuntime;
+import com.oracle.truffle.r.runtime.context.RContext.ContextKind;
+import com.oracle.truffle.r.runtime.data.RAltRealVector;
+import com.oracle.truffle.r.runtime.data.RDataFactory;
+import com.oracle.truffle.r.runtime.data.RDoubleVector;
+import com.oracle.truffle.r.runtime.data.altrep.FusedArithmetic;
+import com.oracle.truffle.r.runtime.data.altrep.FusedArithmetic.Op;
+import com.oracle.truffle.r.test.TestBase;
+import com.oracle.truffle.r.test.generate.FastRContext;
+import com.oracle.truffle.r.test.generate.FastRSession;
+
+public class FusedArithmeticTests extends TestBase {
+
+    private static final int LENGTH = 5000;
+
+    private static FastRContext context;
+
+    @BeforeClass
+    public static void setupClass() {
+        FastRSession session = FastRSession.create();
+        context = session.createContext(ContextKind.SHARE_PARENT_RW);
+    }
+
+    @AfterClass
+    public static void finishClass() {
+        context.close();
+    }
+
+    private static double[] values(int offset) {
+        double[] result = new double[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            result[i] = (i + offset) * 0.5;
+        }
+        result[7] = RRuntime.DOUBLE_NA;
+        result[11] = Double.NaN;
+        return result;
+    }
+
+    @Test
+    public void testExpression() {
+        FastRSession.execInContext(context, () -> {
+            double[] x = values(1);
+            double[] w = values(3);
+            RDoubleVector xVec = RDataFactory.createDoubleVector(x, false);
+            RDoubleVector wVec = RDataFactory.createDoubleVector(w, false);
+
+            // -((x - 2) / 4 * w + x)
+            RAltRealVector result = FusedArithmetic.create(Op.SUBTRACT, xVec, RDataFactory.createDoubleVectorFromScalar(2));
+            result = FusedArithmetic.create(Op.DIV, result, RDataFactory.createDoubleVectorFromScalar(4));
+            result = FusedArithmetic.create(Op.MULTIPLY, result, wVec);
+            result = FusedArithmetic.create(Op.ADD, result, xVec);
+            result = FusedArithmetic.create(Op.NEGATE, result);
+
+            double[] expected = new double[LENGTH];
+            for (int i = 0; i < LENGTH; i++) {
+                expected[i] = -((x[i] - 2) / 4 * w[i] + x[i]);
+            }
+            expected[7] = RRuntime.DOUBLE_NA;
+            expected[11] = Double.NaN;
+
+            assertEquals(LENGTH, result.getLength());
+            double[] region = new double[100];
+            result.getAltClass().getRegion(result.getAltData(), 4000, 100, region);
+            assertArrayEquals(Arrays.copyOfRange(expected, 4000, 4100), region, 0);
+            double[] actual = result.getDataCopy();
+            for (int i = 0; i < LENGTH; i++) {
+                assertEquals(Double.doubleToRawLongBits(expected[i]) == Double.doubleToRawLongBits(RRuntime.DOUBLE_NA), RRuntime.isNA(actual[i]));
+                assertEquals(expected[i], actual[i], 0);
+            }
+            return null;
+        });
+    }
+
+    @Test
+    public void testOperandRetained() {
+        FastRSession.execInContext(context, () -> {
+            RDoubleVector xVec = RDataFactory.createDoubleVector(values(1), false);
+            xVec.incRefCount();
+            RAltRealVector result = FusedArithmetic.create(Op.ADD, xVec, xVec);
+            // the deferred result keeps the operand shared, so that it is not updated in place
+            assertTrue(xVec.isShared());
+            assertEquals(2 * xVec.getDataAt(4), result.getDataAt(4), 0);
+            // until the result is evaluated
+            assertFalse(xVec.isShared());
+            return null;
+        });
+    }
+
+    private static final String LAZY = ".fastr.option('LazyArithmetic', TRUE); .fastr.option('LazyArithmeticMinLength', 2L); ";
+
+    private void assertLazyEval(String code) {
+        assertEvalFastR("{ " + LAZY + code + " }", "{ " + code + " }");
+    }
+
+    @Test
+    public void testLazyArithmetic() {
+        // updates of the operands of pending and dropped deferred results
+        assertLazyEval("x <- c(1, 2, 3, 4); y <- x * 2 + 1; x[[1]] <- 100; list(x, y)");
+        assertLazyEval("x <- c(1, 2, 3, 4); y <- -(x - 1) * x; x[] <- 0; list(x, y)");
+        assertLazyEval("x <- c(1, 2, 3, 4); for (i in 1:3) y <- x * i; x[[1]] <- 0; z <- x / 2; x[[2]] <- 0; list(x, y, z)");
+        assertEvalFastR("{ " + LAZY + "x <- c(1, 2, 3, 4); y <- x * 2 - x; invisible(y[[1]]); .fastr.refcountinfo(x) }", "1L");
+
+        // shared pending operands are evaluated only once
+        assertLazyEval("x <- c(1.0001, 0.9999, 1, -1); for (i in 1:24) x <- x * x; x");
+        assertLazyEval("f <- function(a) a * a - a; x <- c(1, 2, 3, 4); list(f(x * 2 + 1), f(-x))");
+
+        // NA, NaN and integer overflow
+        assertLazyEval("x <- c(1, NA, NaN, Inf, -Inf, 0); y <- c(NA, NaN, 1, -Inf, 2, 0); list(x + y, x * y - x, -x / y, (x - y) / 0)");
+        assertLazyEval("x <- c(1.5, 2.5, NA, 4); i <- c(.Machine$integer.max, 1L, 2L, NA); list(x * 2 + i, i + 1L, (x + 1) * i)");
+
+        // attributes and names of the operands and of the results
+        assertLazyEval("x <- c(a=1, b=2, c=3, d=4); y <- c(1, 2, 3, 4); list(x * 2 + y, y * 2 + x, -x)");
+        assertLazyEval("y <- c(1, 2, 3, 4); z <- y * 3 - 1; names(z) <- letters[1:4]; attr(z, 'foo') <- 'bar'; m <- y + y; dim(m) <- c(2, 2); list(z, z + 1, m, t(m) * 2)");
+        assertLazyEval("x <- c(1, 2, 3, 4); list(x + 1:2, 2 / x, x * c(1, 2, 3))");
+    }
+
+    @Test
+    public void testFusable() {
+        FastRSession.execInContext(context, () -> {
+            RDoubleVector xVec = RDataFactory.createDoubleVector(values(1), false);
+            RDoubleVector shorter = RDataFactory.createDoubleVector(new double[]{1, 2, 3}, true);
+            assertTrue(FusedArithmetic.isFusable(xVec, RDataFactory.createDoubleVectorFromScalar(1), 100));
+            assertFalse(FusedArithmetic.isFusable(xVec, shorter, 100));
+            assertFalse(FusedArithmetic.isFusable(xVec, xVec, LENGTH + 1));
+            assertFalse(FusedArithmetic.isFusable(RDataFactory.createIntSequence(1, 1, LENGTH), xVec, 100));
+            return null;
+        });
+    }
+}
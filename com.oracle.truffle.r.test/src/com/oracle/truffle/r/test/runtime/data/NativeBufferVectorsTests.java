@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2019, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 3 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.r.test.runtime.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.oracle.truffle.r.runtime.context.RContext.ContextKind;
+import com.oracle.truffle.r.runtime.data.RAltIntVector;
+import com.oracle.truffle.r.runtime.data.RAltRealVector;
+import com.oracle.truffle.r.runtime.data.altrep.NativeBufferVectors;
+import com.oracle.truffle.r.runtime.ffi.UnsafeAdapter;
+import com.oracle.truffle.r.test.TestBase;
+import com.oracle.truffle.r.test.generate.FastRContext;
+import com.oracle.truffle.r.test.generate.FastRSession;
+
+import sun.misc.Unsafe;
+
+public class NativeBufferVectorsTests extends TestBase {
+
+    private static final int LENGTH = 100;
+
+    private static FastRContext context;
+
+    @BeforeClass
+    public static void setupClass() {
+        FastRSession session = FastRSession.create();
+        context = session.createContext(ContextKind.SHARE_PARENT_RW);
+    }
+
+    @AfterClass
+    public static void finishClass() {
+        context.close();
+    }
+
+    @Test
+    public void testWrapInt() {
+        FastRSession.execInContext(context, () -> {
+            long address = UnsafeAdapter.UNSAFE.allocateMemory(LENGTH * Unsafe.ARRAY_INT_INDEX_SCALE);
+            try {
+                int[] expected = new int[LENGTH];
+                for (int i = 0; i < LENGTH; i++) {
+                    expected[i] = i * 3 - 7;
+                    UnsafeAdapter.UNSAFE.putInt(address + i * Unsafe.ARRAY_INT_INDEX_SCALE, expected[i]);
+                }
+                RAltIntVector vector = NativeBufferVectors.wrapInt(address, LENGTH, null);
+                assertEquals(LENGTH, vector.getLength());
+                assertEquals(expected[42], vector.getDataAt(42));
+                // the native memory is read, not copied
+                UnsafeAdapter.UNSAFE.putInt(address, 1234);
+                expected[0] = 1234;
+                assertArrayEquals(expected, vector.getDataCopy());
+            } finally {
+                UnsafeAdapter.UNSAFE.freeMemory(address);
+            }
+            return null;
+        });
+    }
+
+    @Test
+    public void testWrapReal() {
+        FastRSession.execInContext(context, () -> {
+            long address = UnsafeAdapter.UNSAFE.allocateMemory(LENGTH * Unsafe.ARRAY_DOUBLE_INDEX_SCALE);
+            try {
+                double[] expected = new double[LENGTH];
+                for (int i = 0; i < LENGTH; i++) {
+                    expected[i] = i * 0.5;
+                    UnsafeAdapter.UNSAFE.putDouble(address + i * Unsafe.ARRAY_DOUBLE_INDEX_SCALE, expected[i]);
+                }
+                RAltRealVector vector = NativeBufferVectors.wrapReal(address, LENGTH, null);
+                assertEquals(LENGTH, vector.getLength());
+                assertEquals(expected[42], vector.getDataAt(42), 0);
+                assertArrayEquals(expected, vector.getDataCopy(), 0);
+            } finally {
+                UnsafeAdapter.UNSAFE.freeMemory(address);
+            }
+            return null;
+        });
+    }
+}
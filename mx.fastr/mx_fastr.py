@@ -20,7 +20,7 @@
 # or visit www.oracle.com if you need additional information or have any
 # questions.
 #
-import platform, subprocess, sys, shlex
+import platform, subprocess, sys, shlex, json
 from os.path import join, sep
 from argparse import ArgumentParser
 import mx
@@ -694,6 +694,48 @@ def r_pkgtest_analyze(args, **kwargs):
     mx.run_java(vmArgs + args)
 
 
+def rbench_jmh(args):
+    '''
+    Runs the JMH microbenchmarks from the com.oracle.truffle.r.benchmarks project. The results are
+    written in the JMH JSON format, which can be tracked across releases. If a baseline result file
+    is given, the scores of the benchmarks present in both files are compared. All the other
+    arguments are passed to JMH, e.g., a regular expression selecting the benchmarks or '-p length=1000'.
+    '''
+    parser = ArgumentParser(prog='mx rbench-jmh')
+    parser.add_argument('--results', action='store', default='jmh-results.json', help='file for the JSON results')
+    parser.add_argument('--baseline', action='store', help='JSON results of a previous run to compare with')
+    parsed, jmh_args = parser.parse_known_args(args)
+    setREnvironment()
+    jdk = get_default_jdk()
+    vmArgs = mx.get_runtime_jvm_args(['FASTR_BENCHMARKS'], jdk=jdk)
+    mx.run_java(vmArgs + ['org.openjdk.jmh.Main', '-rf', 'json', '-rff', parsed.results] + jmh_args, jdk=jdk)
+    if parsed.baseline:
+        _compare_jmh_results(parsed.baseline, parsed.results)
+
+def _load_jmh_scores(path):
+    with open(path) as f:
+        results = json.load(f)
+    scores = {}
+    for result in results:
+        params = result.get('params', {})
+        key = result['benchmark'] + ''.join(':{}={}'.format(k, params[k]) for k in sorted(params))
+        metric = result['primaryMetric']
+        scores[key] = (metric['score'], metric['scoreError'], metric['scoreUnit'])
+    return scores
+
+def _compare_jmh_results(baseline_path, results_path):
+    baseline = _load_jmh_scores(baseline_path)
+    current = _load_jmh_scores(results_path)
+    mx.log('{:<80} {:>14} {:>14} {:>8}'.format('benchmark', 'baseline', 'current', 'ratio'))
+    for key in sorted(current):
+        score, error, unit = current[key]
+        if key in baseline:
+            base_score = baseline[key][0]
+            ratio = score / base_score if base_score else float('nan')
+            mx.log('{:<80} {:>14.3f} {:>14.3f} {:>8.3f}  {} (+-{:.3f})'.format(key, base_score, score, ratio, unit, error))
+        else:
+            mx.log('{:<80} {:>14} {:>14.3f} {:>8}  {} (+-{:.3f})'.format(key, '-', score, '-', unit, error))
+
 def pkgcache(args, **kwargs):
     full_args = _pkgtest_args(args)
     mx.logv(["r-pkgcache"] + full_args)
@@ -731,6 +773,7 @@ _commands = {
     'r-findtop' : [find_top, ['options']],
     'r-pkgcache' : [pkgcache, ['options']],
     'installpkgs' : [installpkgs, '[options]'],
+    'rbench-jmh' : [rbench_jmh, '[--results file] [--baseline file] [JMH options]'],
     'rcopylib' : [mx_copylib.copylib, '[]'],
     'rupdatelib' : [mx_copylib.updatelib, '[]'],
     'edinclude' : [mx_fastr_edinclude.edinclude, '[]'],
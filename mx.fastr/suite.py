@@ -158,6 +158,21 @@ suite = {
       "jacoco" : "include",
     },
 
+    "com.oracle.truffle.r.benchmarks" : {
+      "sourceDirs" : ["src"],
+      "dependencies" : [
+        "sdk:GRAAL_SDK",
+        "mx:JMH_1_21",
+      ],
+      "annotationProcessors" : [
+        "mx:JMH_1_21",
+      ],
+      "checkstyle" : "com.oracle.truffle.r.runtime",
+      "javaCompliance" : "8+",
+      "spotbugsIgnoresGenerated" : True,
+      "workingSets" : "FastR,Test",
+    },
+
     "com.oracle.truffle.r.test.native" : {
       "native" : True,
       "sourceDirs" : [],
@@ -445,6 +460,18 @@ suite = {
      ],
     },
 
+    "FASTR_BENCHMARKS" : {
+      "description" : "JMH microbenchmarks, run with 'mx rbench-jmh'",
+      "dependencies" : [
+        "com.oracle.truffle.r.benchmarks",
+      ],
+      "distDependencies" : [
+        "FASTR",
+        "sdk:GRAAL_SDK",
+      ],
+      "maven" : False,
+    },
+
     "TRUFFLE_R_TCK" : {
       "description" : "TCK tests provider",
       "dependencies" : [